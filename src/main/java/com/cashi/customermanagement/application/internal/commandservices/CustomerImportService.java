@@ -2,10 +2,10 @@ package com.cashi.customermanagement.application.internal.commandservices;
 
 import com.cashi.customermanagement.domain.model.aggregates.Customer;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.CustomerRepository;
+import com.cashi.shared.util.CompressedImportFile;
+import com.cashi.shared.util.StreamingCsvReader;
+import com.cashi.shared.util.StreamingXlsxReader;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
@@ -14,7 +14,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.*;
 
 /**
@@ -47,9 +46,14 @@ public class CustomerImportService {
 
         try {
             // Try to detect and import based on extension, with fallback to CSV
-            if (filename.toLowerCase().endsWith(".xlsx") || filename.toLowerCase().endsWith(".xls")) {
+            if (CompressedImportFile.isCompressed(filename)) {
+                importedCustomers = importFromCompressed(tenantId, subPortfolioId,
+                        () -> CompressedImportFile.open(file.getInputStream(), filename), errors);
+            } else if (filename.toLowerCase().endsWith(".xlsx") || filename.toLowerCase().endsWith(".xls")) {
                 try {
-                    importedCustomers = importFromExcel(tenantId, subPortfolioId, file.getInputStream(), errors);
+                    importedCustomers = filename.toLowerCase().endsWith(".xlsx")
+                            ? importFromXlsxStream(tenantId, subPortfolioId, file.getInputStream(), errors)
+                            : importFromExcel(tenantId, subPortfolioId, file.getInputStream(), errors);
                 } catch (Exception excelError) {
                     // If Excel parsing fails, try as CSV (many .xls files are actually CSV)
                     System.out.println("⚠️ Archivo con extensión Excel no es válido, intentando como CSV...");
@@ -58,7 +62,7 @@ public class CustomerImportService {
             } else if (filename.toLowerCase().endsWith(".csv")) {
                 importedCustomers = importFromCSV(tenantId, subPortfolioId, file.getInputStream(), errors);
             } else {
-                throw new IllegalArgumentException("Formato de archivo no soportado. Use .xlsx, .xls o .csv");
+                throw new IllegalArgumentException("Formato de archivo no soportado. Use .xlsx, .xls, .csv, .gz o .zip");
             }
 
             // Guardar todos los clientes importados
@@ -95,21 +99,24 @@ public class CustomerImportService {
 
         try (InputStream inputStream = new java.io.FileInputStream(file)) {
             // Try to detect and import based on extension, with fallback to CSV
-            if (filename.toLowerCase().endsWith(".xlsx") || filename.toLowerCase().endsWith(".xls")) {
+            if (CompressedImportFile.isCompressed(filename)) {
+                importedCustomers = importFromCompressed(tenantId, subPortfolioId,
+                        () -> CompressedImportFile.open(file.toPath()), errors);
+            } else if (filename.toLowerCase().endsWith(".xlsx") || filename.toLowerCase().endsWith(".xls")) {
                 try {
-                    importedCustomers = importFromExcel(tenantId, subPortfolioId, inputStream, errors);
+                    importedCustomers = filename.toLowerCase().endsWith(".xlsx")
+                            ? importFromXlsxStream(tenantId, subPortfolioId, inputStream, errors)
+                            : importFromExcel(tenantId, subPortfolioId, inputStream, errors);
                 } catch (Exception excelError) {
                     // If Excel parsing fails, try as CSV (many .xls files are actually CSV)
                     System.out.println("⚠️ Archivo con extensión Excel no es válido, intentando como CSV...");
                     inputStream.close(); // Close previous stream
-                    try (InputStream csvStream = new java.io.FileInputStream(file)) {
-                        importedCustomers = importFromCSV(tenantId, subPortfolioId, csvStream, errors);
-                    }
+                    importedCustomers = importFromCSV(tenantId, subPortfolioId, file, errors);
                 }
             } else if (filename.toLowerCase().endsWith(".csv")) {
-                importedCustomers = importFromCSV(tenantId, subPortfolioId, inputStream, errors);
+                importedCustomers = importFromCSV(tenantId, subPortfolioId, file, errors);
             } else {
-                throw new IllegalArgumentException("Formato de archivo no soportado. Use .xlsx, .xls o .csv");
+                throw new IllegalArgumentException("Formato de archivo no soportado. Use .xlsx, .xls, .csv, .gz o .zip");
             }
 
             // Guardar todos los clientes importados
@@ -129,6 +136,40 @@ public class CustomerImportService {
         }
     }
 
+    /**
+     * Abre (o reabre) la entrada descomprimida de un .gz / .zip
+     */
+    @FunctionalInterface
+    private interface CompressedSource {
+        CompressedImportFile.Entry open() throws IOException;
+    }
+
+    /**
+     * Importa clientes desde un .gz / .zip descomprimiendo en streaming hacia el mismo lector
+     * que el archivo sin comprimir; el formato lo da el nombre de la entrada.
+     */
+    private List<Customer> importFromCompressed(Long tenantId, Integer subPortfolioId, CompressedSource source,
+                                               List<String> errors) throws IOException {
+        try (CompressedImportFile.Entry entry = source.open()) {
+            String innerName = entry.name().toLowerCase();
+            System.out.println("🗜️ Archivo comprimido, leyendo " + entry.name() + " en streaming");
+            if (innerName.endsWith(".csv")) {
+                return importFromCSV(tenantId, subPortfolioId, entry.stream(), errors);
+            }
+            try {
+                return innerName.endsWith(".xlsx")
+                        ? importFromXlsxStream(tenantId, subPortfolioId, entry.stream(), errors)
+                        : importFromExcel(tenantId, subPortfolioId, entry.stream(), errors);
+            } catch (Exception excelError) {
+                System.out.println("⚠️ Entrada con extensión Excel no es válida, intentando como CSV...");
+                errors.clear();
+            }
+        }
+        try (CompressedImportFile.Entry entry = source.open()) {
+            return importFromCSV(tenantId, subPortfolioId, entry.stream(), errors);
+        }
+    }
+
     /**
      * Importa clientes desde archivo Excel
      */
@@ -176,58 +217,100 @@ public class CustomerImportService {
     }
 
     /**
-     * Importa clientes desde archivo CSV
-     * Auto-detects separator (comma or semicolon)
+     * Importa clientes desde .xlsx en streaming (StreamingXlsxReader): la hoja no se carga
+     * como DOM, cada fila se mapea a Customer a medida que se lee.
      */
-    private List<Customer> importFromCSV(Long tenantId, Integer subPortfolioId, InputStream inputStream,
-                                        List<String> errors) throws IOException {
+    private List<Customer> importFromXlsxStream(Long tenantId, Integer subPortfolioId, InputStream inputStream,
+                                                List<String> errors) throws IOException {
         List<Customer> customers = new ArrayList<>();
+        Map<String, Integer> columnIndexMap = new LinkedHashMap<>();
 
-        // Read all bytes to detect separator from first line
-        byte[] allBytes = inputStream.readAllBytes();
-        String content = new String(allBytes);
-
-        // Auto-detect separator from first line
-        String firstLine = content.lines().findFirst().orElse("");
-        char delimiter = ',';
-        if (firstLine.contains(";") && !firstLine.contains(",")) {
-            delimiter = ';';
-        } else if (firstLine.contains(";") && firstLine.contains(",")) {
-            long commas = firstLine.chars().filter(ch -> ch == ',').count();
-            long semicolons = firstLine.chars().filter(ch -> ch == ';').count();
-            delimiter = semicolons > commas ? ';' : ',';
-        }
+        StreamingXlsxReader.read(inputStream, (rowIndex, values) -> {
+            if (columnIndexMap.isEmpty()) {
+                if (rowIndex != 0 || values.isEmpty()) {
+                    throw new IllegalArgumentException("El archivo no tiene encabezados");
+                }
+                for (int j = 0; j < values.size(); j++) {
+                    columnIndexMap.put(values.get(j).trim(), j);
+                }
+                return true;
+            }
 
-        System.out.println("📄 CSV con separador detectado: '" + delimiter + "'");
-
-        // Parse with detected delimiter
-        try (CSVParser parser = CSVFormat.DEFAULT
-                .builder()
-                .setDelimiter(delimiter)
-                .setHeader()
-                .setSkipHeaderRecord(true)
-                .setTrim(true)
-                .build()
-                .parse(new java.io.StringReader(content))) {
-
-            int rowNum = 1;
-            for (CSVRecord record : parser) {
-                rowNum++;
-                try {
-                    Map<String, String> rowData = record.toMap();
-                    Customer customer = mapToCustomer(tenantId, subPortfolioId, rowData);
-                    if (customer != null) {
-                        customers.add(customer);
-                    }
-                } catch (Exception e) {
-                    errors.add("Fila " + rowNum + ": " + e.getMessage());
+            try {
+                Map<String, String> rowData = new HashMap<>();
+                for (Map.Entry<String, Integer> entry : columnIndexMap.entrySet()) {
+                    int j = entry.getValue();
+                    rowData.put(entry.getKey(), j < values.size() ? values.get(j) : "");
                 }
+
+                Customer customer = mapToCustomer(tenantId, subPortfolioId, rowData);
+                if (customer != null) {
+                    customers.add(customer);
+                }
+            } catch (Exception e) {
+                errors.add("Fila " + (rowIndex + 1) + ": " + e.getMessage());
             }
+            return true;
+        });
+
+        if (columnIndexMap.isEmpty()) {
+            throw new IllegalArgumentException("El archivo no tiene encabezados");
         }
+        return customers;
+    }
+
+    /**
+     * Importa clientes desde archivo CSV (stream del multipart)
+     * Separador y encoding detectados por StreamingCsvReader a partir del prefijo
+     */
+    private List<Customer> importFromCSV(Long tenantId, Integer subPortfolioId, InputStream inputStream,
+                                        List<String> errors) throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        StreamingCsvReader.Dialect dialect = StreamingCsvReader.read(inputStream,
+                csvCustomerHandler(tenantId, subPortfolioId, customers, errors));
+        System.out.println("📄 CSV con separador detectado: '" + dialect.delimiter() + "' (" + dialect.charset() + ")");
+        return customers;
+    }
 
+    /**
+     * Importa clientes desde archivo CSV en disco (lectura secuencial en streaming, sin cargarlo completo)
+     */
+    private List<Customer> importFromCSV(Long tenantId, Integer subPortfolioId, java.io.File file,
+                                        List<String> errors) throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        StreamingCsvReader.Dialect dialect = StreamingCsvReader.read(file.toPath(),
+                csvCustomerHandler(tenantId, subPortfolioId, customers, errors));
+        System.out.println("📄 CSV con separador detectado: '" + dialect.delimiter() + "' (" + dialect.charset() + ")");
         return customers;
     }
 
+    /**
+     * Handler de filas CSV: el registro 0 son las cabeceras, el resto se mapea a Customer.
+     */
+    private StreamingCsvReader.RowHandler csvCustomerHandler(Long tenantId, Integer subPortfolioId,
+                                                             List<Customer> customers, List<String> errors) {
+        List<String> headers = new ArrayList<>();
+        return (recordNumber, values) -> {
+            if (recordNumber == 0) {
+                headers.addAll(values);
+                return true;
+            }
+            try {
+                Map<String, String> rowData = new HashMap<>();
+                for (int j = 0; j < headers.size() && j < values.size(); j++) {
+                    rowData.put(headers.get(j), values.get(j));
+                }
+                Customer customer = mapToCustomer(tenantId, subPortfolioId, rowData);
+                if (customer != null) {
+                    customers.add(customer);
+                }
+            } catch (Exception e) {
+                errors.add("Fila " + (recordNumber + 1) + ": " + e.getMessage());
+            }
+            return true;
+        };
+    }
+
     /**
      * Mapea una fila de datos a un objeto Customer usando SOLO base de datos (sin JSON)
      */
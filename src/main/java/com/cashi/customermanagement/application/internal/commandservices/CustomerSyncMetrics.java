@@ -0,0 +1,152 @@
+package com.cashi.customermanagement.application.internal.commandservices;
+
+import com.cashi.shared.domain.model.entities.SubPortfolio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas Micrometer por fase del sync de clientes (expuestas en /actuator/prometheus).
+ *
+ * Meters (tags comunes: tenant, subportfolio, engine legacy|pipeline|sp, kind full|selective):
+ * - customer.sync.phase          Timer por fase (tag phase)
+ * - customer.sync.phase.rows     filas procesadas por fase
+ * - customer.sync.roundtrips     sentencias enviadas a MySQL por fase. Sin rewriteBatchedStatements
+ *                                cada fila de un batchUpdate es un round-trip, y así se cuenta.
+ * - customer.sync.duration       Timer del sync completo (tag outcome)
+ * - customer.sync.rows.per.second  throughput del sync completo
+ */
+@Component
+public class CustomerSyncMetrics {
+
+    public enum Phase {
+        READ("read"),
+        /** Carga de los clientes ya existentes del tenant (JPA), previa al mapeo */
+        LOAD_EXISTING("load_existing"),
+        MAP("map"),
+        UPSERT_CUSTOMERS("upsert_customers"),
+        RESOLVE_IDS("resolve_ids"),
+        DELETE_CONTACTS("delete_contacts"),
+        INSERT_CONTACTS("insert_contacts"),
+        /** sp_sincronizar_clientes: upsert + ids + contactos en una sola llamada (motor sp) */
+        SP_SYNC("sp_sync"),
+        INVALID_PHONE_REAPPLY("invalid_phone_reapply");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public static final String ENGINE_LEGACY = "legacy";
+    public static final String ENGINE_SP = "sp";
+    /** Motor legacy en pipeline lector/mapeador/escritor (app.customer-sync.pipeline.enabled) */
+    public static final String ENGINE_PIPELINE = "pipeline";
+    public static final String KIND_FULL = "full";
+    public static final String KIND_SELECTIVE = "selective";
+
+    private final MeterRegistry registry;
+
+    public CustomerSyncMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Abre el contexto de métricas de UN sync. Es seguro usarlo desde varios hilos
+     * (las etapas del pipeline registran sobre el mismo Scope).
+     */
+    public Scope start(SubPortfolio subPortfolio, String engine, String kind) {
+        String tenantId = subPortfolio.getTenant() != null ? String.valueOf(subPortfolio.getTenant().getId()) : "unknown";
+        return start(tenantId, String.valueOf(subPortfolio.getId()), engine, kind);
+    }
+
+    public Scope start(String tenantId, String subPortfolioId, String engine, String kind) {
+        Tags tags = Tags.of(
+                "tenant", tenantId,
+                "subportfolio", subPortfolioId,
+                "engine", engine,
+                "kind", kind);
+        return new Scope(registry, tags);
+    }
+
+    /**
+     * Contexto de métricas de un sync (tags fijos + reloj del sync completo).
+     */
+    public static class Scope {
+        private final MeterRegistry registry;
+        private final Tags tags;
+        private final long startNanos = System.nanoTime();
+
+        private Scope(MeterRegistry registry, Tags tags) {
+            this.registry = registry;
+            this.tags = tags;
+        }
+
+        public <T> T time(Phase phase, Supplier<T> operation) {
+            long start = System.nanoTime();
+            try {
+                return operation.get();
+            } finally {
+                record(phase, System.nanoTime() - start);
+            }
+        }
+
+        public void time(Phase phase, Runnable operation) {
+            long start = System.nanoTime();
+            try {
+                operation.run();
+            } finally {
+                record(phase, System.nanoTime() - start);
+            }
+        }
+
+        /** Registra una duración medida por el llamador (p. ej. acumulada a lo largo del pipeline). */
+        public void record(Phase phase, long nanos) {
+            Timer.builder("customer.sync.phase")
+                    .tags(tags).tag("phase", phase.tag)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void rows(Phase phase, long count) {
+            if (count <= 0) return;
+            Counter.builder("customer.sync.phase.rows")
+                    .tags(tags).tag("phase", phase.tag)
+                    .register(registry)
+                    .increment(count);
+        }
+
+        public void roundTrips(Phase phase, long count) {
+            if (count <= 0) return;
+            Counter.builder("customer.sync.roundtrips")
+                    .tags(tags).tag("phase", phase.tag)
+                    .register(registry)
+                    .increment(count);
+        }
+
+        /**
+         * Cierra el sync: duración total y filas/segundo.
+         */
+        public void finish(long rowsProcessed, boolean success) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            Timer.builder("customer.sync.duration")
+                    .tags(tags).tag("outcome", success ? "success" : "error")
+                    .register(registry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+            if (success && rowsProcessed > 0 && elapsedNanos > 0) {
+                DistributionSummary.builder("customer.sync.rows.per.second")
+                        .tags(tags)
+                        .register(registry)
+                        .record(rowsProcessed * 1_000_000_000.0 / elapsedNanos);
+            }
+        }
+    }
+}
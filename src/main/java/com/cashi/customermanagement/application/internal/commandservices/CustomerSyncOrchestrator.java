@@ -0,0 +1,323 @@
+package com.cashi.customermanagement.application.internal.commandservices;
+
+import com.cashi.shared.domain.model.entities.SubPortfolio;
+import com.cashi.shared.domain.model.entities.Tenant;
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.SubPortfolioRepository;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.TenantRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orquesta la sincronización de clientes de VARIAS subcarteras en paralelo.
+ *
+ * El paralelismo es ENTRE tenants: las subcarteras de un mismo tenant se sincronizan en serie
+ * dentro de una misma tarea, porque cada sync carga el índice de clientes existentes del tenant
+ * completo (findByTenantId) y escribe sobre las mismas filas de clientes; en paralelo se cargaría
+ * ese índice N veces a la vez y los UPSERT competirían por los mismos bloqueos.
+ *
+ * Cada subcartera se sincroniza en su propia transacción (la llamada pasa por el proxy
+ * @Transactional de CustomerSyncService), por lo que el fallo de una subcartera no revierte
+ * las demás.
+ *
+ * El pool está acotado al pool de conexiones (Hikari) menos una reserva para el
+ * tráfico normal de la API: cada sync retiene una conexión durante toda su transacción, y
+ * con app.customer-sync.pipeline.enabled (motor legacy) una segunda para el lector, por lo
+ * que el paralelismo se divide entre 2.
+ */
+@Service
+public class CustomerSyncOrchestrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSyncOrchestrator.class);
+
+    /** Conexiones del pool que se dejan libres para las peticiones de agentes. */
+    private static final int RESERVED_CONNECTIONS = 2;
+
+    private final CustomerSyncService customerSyncService;
+    private final SubPortfolioRepository subPortfolioRepository;
+    private final TenantRepository tenantRepository;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    public CustomerSyncOrchestrator(
+            CustomerSyncService customerSyncService,
+            SubPortfolioRepository subPortfolioRepository,
+            TenantRepository tenantRepository,
+            DataSource dataSource,
+            @Value("${app.customer-sync.max-parallelism:0}") int configuredParallelism,
+            @Value("${app.customer-sync.pipeline.enabled:false}") boolean pipelineEnabled,
+            @Value("${app.import.engine:legacy}") String importEngine) {
+        this.customerSyncService = customerSyncService;
+        this.subPortfolioRepository = subPortfolioRepository;
+        this.tenantRepository = tenantRepository;
+        // El pipeline solo corre con el motor legacy; el lector abre su propia conexión
+        int connectionsPerSync = pipelineEnabled && !"sp".equalsIgnoreCase(importEngine) ? 2 : 1;
+        this.parallelism = resolveParallelism(dataSource, configuredParallelism, connectionsPerSync);
+        this.executor = Executors.newFixedThreadPool(parallelism, new SyncThreadFactory());
+        logger.info("CustomerSyncOrchestrator inicializado con paralelismo {}", parallelism);
+    }
+
+    /**
+     * Sincroniza las subcarteras indicadas (duplicados ignorados): en paralelo entre tenants y
+     * en serie dentro de cada tenant. Los resultados se devuelven en el orden recibido.
+     */
+    public BatchSyncResult syncSubPortfolios(Collection<Long> subPortfolioIds, LoadType loadType) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(subPortfolioIds));
+        return runGroups(groupByTenant(ids), ids, loadType);
+    }
+
+    /**
+     * Sincroniza todas las subcarteras activas de un tenant, en serie (comparten el índice de
+     * clientes del tenant).
+     */
+    public BatchSyncResult syncTenant(Integer tenantId, LoadType loadType) {
+        Tenant tenant = tenantRepository.findById(tenantId)
+                .orElseThrow(() -> new IllegalArgumentException("Tenant no encontrado: " + tenantId));
+
+        List<Long> ids = subPortfolioRepository.findByPortfolio_Tenant(tenant).stream()
+                .filter(sp -> sp.getIsActive() != null && sp.getIsActive() == 1)
+                .map(SubPortfolio::getId)
+                .map(Integer::longValue)
+                .toList();
+
+        logger.info("Tenant {}: {} subcarteras activas a sincronizar", tenantId, ids.size());
+        return runGroups(ids.isEmpty() ? List.of() : List.of(ids), ids, loadType);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Agrupa las subcarteras por tenant conservando el orden de llegada. Una subcartera que no
+     * existe queda sola en su grupo (su sync fallará con "SubPortfolio no encontrado").
+     */
+    private List<List<Long>> groupByTenant(List<Long> ids) {
+        Map<Long, Integer> tenantBySubPortfolio = new HashMap<>();
+        if (!ids.isEmpty()) {
+            List<Integer> intIds = ids.stream().map(Long::intValue).toList();
+            for (Object[] row : subPortfolioRepository.findTenantIdsBySubPortfolioIds(intIds)) {
+                tenantBySubPortfolio.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+            }
+        }
+
+        Map<Integer, List<Long>> byTenant = new LinkedHashMap<>();
+        List<List<Long>> groups = new ArrayList<>();
+        for (Long id : ids) {
+            Integer tenantId = tenantBySubPortfolio.get(id);
+            if (tenantId == null) {
+                groups.add(List.of(id));
+                continue;
+            }
+            byTenant.computeIfAbsent(tenantId, k -> {
+                List<Long> group = new ArrayList<>();
+                groups.add(group);
+                return group;
+            }).add(id);
+        }
+        return groups;
+    }
+
+    /**
+     * Una tarea del pool por grupo (tenant); dentro del grupo las subcarteras van en serie.
+     */
+    private BatchSyncResult runGroups(List<List<Long>> groups, List<Long> ids, LoadType loadType) {
+        logger.info("🔄 Sync de {} subcarteras en {} tenants (LoadType: {}, paralelismo: {})",
+                ids.size(), groups.size(), loadType, parallelism);
+
+        long start = System.currentTimeMillis();
+        List<Callable<List<SubPortfolioSyncOutcome>>> tasks = new ArrayList<>();
+        for (List<Long> group : groups) {
+            tasks.add(() -> {
+                List<SubPortfolioSyncOutcome> groupOutcomes = new ArrayList<>(group.size());
+                for (Long id : group) {
+                    groupOutcomes.add(syncOne(id, loadType));
+                }
+                return groupOutcomes;
+            });
+        }
+
+        Map<Long, SubPortfolioSyncOutcome> outcomesById = new HashMap<>();
+        try {
+            List<Future<List<SubPortfolioSyncOutcome>>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    for (SubPortfolioSyncOutcome outcome : futures.get(i).get()) {
+                        outcomesById.put(outcome.getSubPortfolioId(), outcome);
+                    }
+                } catch (ExecutionException e) {
+                    // syncOne captura todo; solo llega aquí un Error no controlado
+                    for (Long id : groups.get(i)) {
+                        outcomesById.putIfAbsent(id, SubPortfolioSyncOutcome.failure(id, e.getCause().getMessage(), 0));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sincronización paralela interrumpida", e);
+        }
+
+        List<SubPortfolioSyncOutcome> outcomes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            outcomes.add(outcomesById.get(id));
+        }
+
+        BatchSyncResult result = new BatchSyncResult(outcomes, System.currentTimeMillis() - start);
+        logger.info("✅ Sync paralelo completado en {} ms: {} OK, {} con error, {} creados, {} actualizados",
+                result.getElapsedMs(), result.getSucceeded(), result.getFailed(),
+                result.getTotalCustomersCreated(), result.getTotalCustomersUpdated());
+        return result;
+    }
+
+    private SubPortfolioSyncOutcome syncOne(Long subPortfolioId, LoadType loadType) {
+        long start = System.currentTimeMillis();
+        try {
+            CustomerSyncService.SyncResult result = customerSyncService.syncCustomersFromSubPortfolio(subPortfolioId, loadType);
+            return SubPortfolioSyncOutcome.success(subPortfolioId, result, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("❌ Error sincronizando SubPortfolio {}: {}", subPortfolioId, e.getMessage());
+            return SubPortfolioSyncOutcome.failure(subPortfolioId, e.getMessage(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Paralelismo = min(configurado, (maxPoolSize - reserva) / conexiones por sync). Si no se
+     * configura (0), se usa el máximo que permite el pool de conexiones.
+     */
+    private static int resolveParallelism(DataSource dataSource, int configured, int connectionsPerSync) {
+        int poolBound = -1;
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                int maxPool = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                poolBound = Math.max(1, (maxPool - RESERVED_CONNECTIONS) / connectionsPerSync);
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudo leer el tamaño del pool de conexiones: {}", e.getMessage());
+        }
+
+        if (configured > 0) {
+            return poolBound > 0 ? Math.min(configured, poolBound) : configured;
+        }
+        return poolBound > 0 ? poolBound : 1;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class SyncThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "customer-sync-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Resultado de la sincronización de una subcartera dentro de un lote
+     */
+    public static class SubPortfolioSyncOutcome {
+        private final Long subPortfolioId;
+        private final boolean success;
+        private final CustomerSyncService.SyncResult result;
+        private final String error;
+        private final long elapsedMs;
+
+        private SubPortfolioSyncOutcome(Long subPortfolioId, boolean success, CustomerSyncService.SyncResult result,
+                                        String error, long elapsedMs) {
+            this.subPortfolioId = subPortfolioId;
+            this.success = success;
+            this.result = result;
+            this.error = error;
+            this.elapsedMs = elapsedMs;
+        }
+
+        static SubPortfolioSyncOutcome success(Long subPortfolioId, CustomerSyncService.SyncResult result, long elapsedMs) {
+            return new SubPortfolioSyncOutcome(subPortfolioId, true, result, null, elapsedMs);
+        }
+
+        static SubPortfolioSyncOutcome failure(Long subPortfolioId, String error, long elapsedMs) {
+            return new SubPortfolioSyncOutcome(subPortfolioId, false, null, error, elapsedMs);
+        }
+
+        public Long getSubPortfolioId() {
+            return subPortfolioId;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public CustomerSyncService.SyncResult getResult() {
+            return result;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+
+    /**
+     * Resultado agregado de un lote de sincronizaciones
+     */
+    public static class BatchSyncResult {
+        private final List<SubPortfolioSyncOutcome> outcomes;
+        private final long elapsedMs;
+
+        public BatchSyncResult(List<SubPortfolioSyncOutcome> outcomes, long elapsedMs) {
+            this.outcomes = outcomes;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public List<SubPortfolioSyncOutcome> getOutcomes() {
+            return outcomes;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public int getSucceeded() {
+            return (int) outcomes.stream().filter(SubPortfolioSyncOutcome::isSuccess).count();
+        }
+
+        public int getFailed() {
+            return outcomes.size() - getSucceeded();
+        }
+
+        public int getTotalCustomersCreated() {
+            return outcomes.stream()
+                    .filter(o -> o.getResult() != null)
+                    .mapToInt(o -> o.getResult().getCustomersCreated())
+                    .sum();
+        }
+
+        public int getTotalCustomersUpdated() {
+            return outcomes.stream()
+                    .filter(o -> o.getResult() != null)
+                    .mapToInt(o -> o.getResult().getCustomersUpdated())
+                    .sum();
+        }
+
+        public boolean hasErrors() {
+            return outcomes.stream().anyMatch(o -> !o.isSuccess() || o.getResult().hasErrors());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.cashi.customermanagement.application.internal.commandservices;
 
 import com.cashi.customermanagement.domain.model.aggregates.Customer;
+import com.cashi.customermanagement.domain.model.events.CustomerDataChangedEvent;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.CustomerRepository;
 import com.cashi.shared.domain.model.entities.HeaderConfiguration;
 import com.cashi.shared.domain.model.entities.Portfolio;
@@ -14,18 +16,27 @@ import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import javax.sql.DataSource;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
 import java.sql.Types;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Servicio para sincronizar clientes desde tablas dinámicas a tabla clientes.
@@ -35,6 +46,8 @@ import java.util.*;
  * - UPSERT batch para clientes (INSERT ... ON DUPLICATE KEY UPDATE)
  * - DELETE/INSERT batch para contactos (reduce ~23000 ops a ~50 ops)
  * - Query de IDs en batches de 500 para evitar IN clause gigantes
+ * - Pipeline opcional lector/mapeador/escritor para el sync completo (app.customer-sync.pipeline.enabled)
+ * - Métricas por fase (lectura, mapeo, upsert, ids, contactos) vía CustomerSyncMetrics
  */
 @Service
 public class CustomerSyncService {
@@ -46,6 +59,19 @@ public class CustomerSyncService {
     @Value("${app.import.engine:legacy}")
     private String importEngine;
 
+    /**
+     * Sync completo en pipeline (lector/mapeador/escritor solapados). Solo aplica al motor legacy
+     * y cuando el sync abre su propia transacción (ver isOutermostTransaction).
+     */
+    @Value("${app.customer-sync.pipeline.enabled:false}")
+    private boolean pipelineEnabled;
+
+    @Value("${app.customer-sync.pipeline.chunk-size:1000}")
+    private int pipelineChunkSize;
+
+    @Value("${app.customer-sync.pipeline.queue-capacity:4}")
+    private int pipelineQueueCapacity;
+
     @PersistenceContext
     private final EntityManager entityManager;
 
@@ -53,18 +79,30 @@ public class CustomerSyncService {
     private final SubPortfolioRepository subPortfolioRepository;
     private final HeaderConfigurationRepository headerConfigurationRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ContactMethodRepository contactMethodRepository;
+    private final CustomerSyncMetrics syncMetrics;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CustomerSyncService(
             EntityManager entityManager,
             CustomerRepository customerRepository,
             SubPortfolioRepository subPortfolioRepository,
             HeaderConfigurationRepository headerConfigurationRepository,
-            JdbcTemplate jdbcTemplate) {
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            ContactMethodRepository contactMethodRepository,
+            CustomerSyncMetrics syncMetrics,
+            ApplicationEventPublisher eventPublisher) {
         this.entityManager = entityManager;
         this.customerRepository = customerRepository;
+        this.contactMethodRepository = contactMethodRepository;
         this.subPortfolioRepository = subPortfolioRepository;
         this.headerConfigurationRepository = headerConfigurationRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.syncMetrics = syncMetrics;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -77,6 +115,8 @@ public class CustomerSyncService {
         int customersCreated = 0;
         int customersUpdated = 0;
         List<String> errors = new ArrayList<>();
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(
+                String.valueOf(tenantId), "none", CustomerSyncMetrics.ENGINE_LEGACY, CustomerSyncMetrics.KIND_FULL);
 
         try {
             // Verificar que la tabla existe
@@ -85,10 +125,15 @@ public class CustomerSyncService {
             }
 
             // Leer datos de la tabla dinámica
-            List<Map<String, Object>> rows = readDynamicTableData(tableName);
-
+            List<Map<String, Object>> rows = metrics.time(CustomerSyncMetrics.Phase.READ, () -> readDynamicTableData(tableName));
+            metrics.rows(CustomerSyncMetrics.Phase.READ, rows.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.READ, 2);
             // ========== OPTIMIZACIÓN: CARGAR CLIENTES EXISTENTES DE UNA VEZ ==========
-            List<Customer> existingCustomers = customerRepository.findByTenantId(tenantId);
+            List<Customer> existingCustomers = metrics.time(CustomerSyncMetrics.Phase.LOAD_EXISTING,
+                    () -> customerRepository.findByTenantId(tenantId));
+            metrics.rows(CustomerSyncMetrics.Phase.LOAD_EXISTING, existingCustomers.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.LOAD_EXISTING, 1);
+            long mapStart = System.nanoTime();
 
             // Crear un Map para búsqueda O(1) por codigo_identificacion
             Map<String, Customer> existingCustomersMap = new HashMap<>();
@@ -143,21 +188,39 @@ public class CustomerSyncService {
                 }
             }
 
+            metrics.record(CustomerSyncMetrics.Phase.MAP, System.nanoTime() - mapStart);
+            metrics.rows(CustomerSyncMetrics.Phase.MAP, customersToSave.size());
+
             // ========== BATCH SAVE: Guardar todos los clientes con UPSERT ==========
             if (!customersToSave.isEmpty()) {
-                Map<String, Long> savedIdsMap = saveCustomersToProductionTableWithUpsert(customersToSave);
-                int contactsCreated = syncAllCustomerContactsBatch(savedIdsMap, customersToSave, rowsToSync, "metodos_contacto");
+                Map<String, Long> savedIdsMap = saveCustomersToProductionTableWithUpsert(customersToSave, metrics);
+                int contactsCreated = syncAllCustomerContactsBatch(savedIdsMap, customersToSave, rowsToSync, "metodos_contacto", metrics);
                 logger.info("Sincronización completada: {} clientes, {} contactos", savedIdsMap.size(), contactsCreated);
             }
 
+            metrics.finish(rows.size(), true);
+            // Sin ids afectados en este camino: se invalida el tenant completo
+            eventPublisher.publishEvent(CustomerDataChangedEvent.ofTenant(tenantId));
             return new SyncResult(customersCreated, customersUpdated, errors);
 
         } catch (Exception e) {
+            metrics.finish(0, false);
             logger.error("Error en sincronización desde tabla {}: {}", tableName, e.getMessage(), e);
             throw new RuntimeException("Error en sincronización de clientes: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Publica los clientes tocados por un sync para invalidar sus búsquedas cacheadas
+     * (CustomerLookupCache escucha después del commit).
+     */
+    private SyncResult published(SyncResult result) {
+        if (!result.getAffectedClientIds().isEmpty()) {
+            eventPublisher.publishEvent(CustomerDataChangedEvent.ofCustomers(result.getAffectedClientIds()));
+        }
+        return result;
+    }
+
     /**
      * Sincroniza clientes de una sub-cartera específica con un LoadType específico
      */
@@ -170,7 +233,13 @@ public class CustomerSyncService {
 
         // Motor SP set-based (flag app.import.engine=sp): sync completo en 1 round-trip.
         if ("sp".equalsIgnoreCase(importEngine)) {
-            return syncViaStoredProcedure(subPortfolio, loadType, null);
+            return published(syncViaStoredProcedure(subPortfolio, loadType, null));
+        }
+
+        // Pipeline: el lector usa otra conexión, así que solo es seguro si no hay una transacción
+        // externa con escrituras sin commit sobre la tabla dinámica (p. ej. dentro del import).
+        if (pipelineEnabled && isOutermostTransaction()) {
+            return published(syncViaPipeline(subPortfolio, loadType));
         }
 
         Portfolio portfolio = subPortfolio.getPortfolio();
@@ -188,6 +257,8 @@ public class CustomerSyncService {
         int customersCreated = 0;
         int customersUpdated = 0;
         List<String> errors = new ArrayList<>();
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(
+                subPortfolio, CustomerSyncMetrics.ENGINE_LEGACY, CustomerSyncMetrics.KIND_FULL);
 
         try {
             // 3. Verificar que la tabla existe
@@ -196,11 +267,16 @@ public class CustomerSyncService {
             }
 
             // 4. Leer datos de la tabla dinámica
-            List<Map<String, Object>> rows = readDynamicTableData(tableName);
-
+            List<Map<String, Object>> rows = metrics.time(CustomerSyncMetrics.Phase.READ, () -> readDynamicTableData(tableName));
+            metrics.rows(CustomerSyncMetrics.Phase.READ, rows.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.READ, 2);
             // ========== OPTIMIZACIÓN: CARGAR CLIENTES EXISTENTES DE UNA VEZ ==========
             // En lugar de hacer 4063 queries individuales, cargamos todos los clientes del tenant de una vez
-            List<Customer> existingCustomers = customerRepository.findByTenantId(tenant.getId().longValue());
+            List<Customer> existingCustomers = metrics.time(CustomerSyncMetrics.Phase.LOAD_EXISTING,
+                    () -> customerRepository.findByTenantId(tenant.getId().longValue()));
+            metrics.rows(CustomerSyncMetrics.Phase.LOAD_EXISTING, existingCustomers.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.LOAD_EXISTING, 1);
+            long mapStart = System.nanoTime();
 
             // Crear un Map para búsqueda O(1) por codigo_identificacion
             Map<String, Customer> existingCustomersMap = new HashMap<>();
@@ -263,17 +339,24 @@ public class CustomerSyncService {
                 }
             }
 
+            metrics.record(CustomerSyncMetrics.Phase.MAP, System.nanoTime() - mapStart);
+            metrics.rows(CustomerSyncMetrics.Phase.MAP, customersToSave.size());
+
             // ========== BATCH SAVE: Guardar todos los clientes con UPSERT ==========
+            Set<Long> affectedClientIds = new HashSet<>();
             if (!customersToSave.isEmpty()) {
-                Map<String, Long> savedIdsMap = saveCustomersToProductionTableWithUpsert(customersToSave);
-                int contactsCreated = syncAllCustomerContactsBatch(savedIdsMap, customersToSave, rowsToSync, "metodos_contacto");
+                Map<String, Long> savedIdsMap = saveCustomersToProductionTableWithUpsert(customersToSave, metrics);
+                int contactsCreated = syncAllCustomerContactsBatch(savedIdsMap, customersToSave, rowsToSync, "metodos_contacto", metrics);
+                affectedClientIds.addAll(savedIdsMap.values());
                 logger.info("Sincronización SubPortfolio {} completada: {} clientes, {} contactos",
                         subPortfolioId, savedIdsMap.size(), contactsCreated);
             }
 
-            return new SyncResult(customersCreated, customersUpdated, errors);
+            metrics.finish(rows.size(), true);
+            return published(new SyncResult(customersCreated, customersUpdated, errors, affectedClientIds));
 
         } catch (Exception e) {
+            metrics.finish(0, false);
             logger.error("Error en sincronización SubPortfolio {}: {}", subPortfolioId, e.getMessage(), e);
             throw new RuntimeException("Error en sincronización de clientes: " + e.getMessage(), e);
         }
@@ -322,7 +405,7 @@ public class CustomerSyncService {
 
         // Motor SP set-based (flag app.import.engine=sp): la staging se filtra a estos codes.
         if ("sp".equalsIgnoreCase(importEngine)) {
-            return syncViaStoredProcedure(subPortfolio, loadType, identificationCodes);
+            return published(syncViaStoredProcedure(subPortfolio, loadType, identificationCodes));
         }
 
         Portfolio portfolio = subPortfolio.getPortfolio();
@@ -341,21 +424,31 @@ public class CustomerSyncService {
         int customersCreated = 0;
         int customersUpdated = 0;
         List<String> errors = new ArrayList<>();
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(
+                subPortfolio, CustomerSyncMetrics.ENGINE_LEGACY, CustomerSyncMetrics.KIND_SELECTIVE);
 
         try {
             if (!tableExists(tableName)) {
                 throw new IllegalArgumentException("La tabla dinámica no existe: " + tableName);
             }
 
-            List<Map<String, Object>> rows = readDynamicTableDataByIds(tableName, identificationCodes, subPortfolio, loadType);
+            List<Map<String, Object>> rows = metrics.time(CustomerSyncMetrics.Phase.READ,
+                    () -> readDynamicTableDataByIds(tableName, identificationCodes, subPortfolio, loadType));
+            metrics.rows(CustomerSyncMetrics.Phase.READ, rows.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.READ, 1);
             logger.debug("Registros encontrados: {}", rows.size());
 
             if (rows.isEmpty()) {
                 logger.debug("No se encontraron registros con los códigos especificados");
+                metrics.finish(0, true);
                 return new SyncResult(0, 0, errors);
             }
 
-            Map<String, Customer> existingCustomersMap = loadExistingCustomersByIds(tenant.getId().longValue(), identificationCodes);
+            Map<String, Customer> existingCustomersMap = metrics.time(CustomerSyncMetrics.Phase.LOAD_EXISTING,
+                    () -> loadExistingCustomersByIds(tenant.getId().longValue(), identificationCodes));
+            metrics.rows(CustomerSyncMetrics.Phase.LOAD_EXISTING, existingCustomersMap.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.LOAD_EXISTING, 1);
+            long mapStart = System.nanoTime();
             logger.debug("Clientes existentes: {} de {}", existingCustomersMap.size(), identificationCodes.size());
 
             // Listas para batch operations
@@ -406,22 +499,110 @@ public class CustomerSyncService {
                 }
             }
 
+            metrics.record(CustomerSyncMetrics.Phase.MAP, System.nanoTime() - mapStart);
+            metrics.rows(CustomerSyncMetrics.Phase.MAP, customersToSave.size());
+
             // 7. BATCH SAVE con UPSERT
+            Set<Long> affectedClientIds = new HashSet<>();
             if (!customersToSave.isEmpty()) {
-                Map<String, Long> savedIdsMap = saveCustomersToProductionTableWithUpsert(customersToSave);
-                int contactsCreated = syncAllCustomerContactsBatch(savedIdsMap, customersToSave, rowsToSync, "metodos_contacto");
+                Map<String, Long> savedIdsMap = saveCustomersToProductionTableWithUpsert(customersToSave, metrics);
+                int contactsCreated = syncAllCustomerContactsBatch(savedIdsMap, customersToSave, rowsToSync, "metodos_contacto", metrics);
+                affectedClientIds.addAll(savedIdsMap.values());
                 logger.info("Sincronización selectiva completada: {} clientes, {} contactos",
                         savedIdsMap.size(), contactsCreated);
             }
 
-            return new SyncResult(customersCreated, customersUpdated, errors);
+            metrics.finish(rows.size(), true);
+            return published(new SyncResult(customersCreated, customersUpdated, errors, affectedClientIds));
 
         } catch (Exception e) {
+            metrics.finish(0, false);
             logger.error("Error en sincronización selectiva: {}", e.getMessage(), e);
             throw new RuntimeException("Error en sincronización de clientes: " + e.getMessage(), e);
         }
     }
 
+    /** Por encima de este número de clientes, la variante acotada deja de compensar frente al SP completo. */
+    private static final int SCOPED_INVALID_PHONE_THRESHOLD = 20000;
+
+    /** Ids de clientes por llamada a sp_limpiar_contactos_invalidos_clientes. */
+    private static final int SCOPED_INVALID_PHONE_BATCH_SIZE = 1000;
+
+    /**
+     * Reaplica la regla de teléfonos fallecido/equivocado SOLO sobre los clientes indicados
+     * (sp_limpiar_contactos_invalidos_clientes), en lugar de re-escanear toda la subcartera.
+     * Se ejecuta tras cada sync con SyncResult.getAffectedClientIds().
+     * Si la lista es null o supera SCOPED_INVALID_PHONE_THRESHOLD, usa el SP completo.
+     */
+    @Transactional
+    public void reapplyInvalidPhoneContactInactivation(Long subPortfolioId, Collection<Long> clientIds) {
+        if (clientIds == null || clientIds.size() > SCOPED_INVALID_PHONE_THRESHOLD) {
+            reapplyInvalidPhoneContactInactivation(subPortfolioId);
+            return;
+        }
+        if (clientIds.isEmpty()) {
+            return;
+        }
+
+        SubPortfolio subPortfolio = subPortfolioRepository.findById(subPortfolioId.intValue())
+                .orElseThrow(() -> new IllegalArgumentException("SubPortfolio no encontrado: " + subPortfolioId));
+
+        Integer tenantId = subPortfolio.getTenant() != null ? subPortfolio.getTenant().getId() : null;
+        Integer portfolioId = subPortfolio.getPortfolio() != null ? subPortfolio.getPortfolio().getId() : null;
+
+        if (tenantId == null || portfolioId == null) {
+            logger.warn("No se pudo reaplicar la inactivación de contactos inválidos por jerarquía incompleta de subcartera");
+            return;
+        }
+
+        logger.info("Reaplicando inactivación de telefonos fallecido/equivocado para {} clientes de subcartera {}",
+                clientIds.size(), subPortfolio.getId());
+
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(
+                subPortfolio, importEngine.toLowerCase(Locale.ROOT), CustomerSyncMetrics.KIND_SELECTIVE);
+        List<Long> ids = new ArrayList<>(clientIds);
+        metrics.time(CustomerSyncMetrics.Phase.INVALID_PHONE_REAPPLY, () -> {
+            for (int i = 0; i < ids.size(); i += SCOPED_INVALID_PHONE_BATCH_SIZE) {
+                List<Long> batch = ids.subList(i, Math.min(i + SCOPED_INVALID_PHONE_BATCH_SIZE, ids.size()));
+                contactMethodRepository.inactivateTipifiedInvalidPhoneContactsForClients(
+                        tenantId, portfolioId, subPortfolio.getId(), batch.toString());
+            }
+        });
+        metrics.rows(CustomerSyncMetrics.Phase.INVALID_PHONE_REAPPLY, ids.size());
+        metrics.roundTrips(CustomerSyncMetrics.Phase.INVALID_PHONE_REAPPLY,
+                (ids.size() + SCOPED_INVALID_PHONE_BATCH_SIZE - 1) / SCOPED_INVALID_PHONE_BATCH_SIZE);
+    }
+
+    /**
+     * Reaplica la regla que inactiva teléfonos tipificados como fallecido/equivocado
+     * (sp_limpiar_contactos_invalidos) sobre toda la subcartera. Usado en la reconciliación nocturna.
+     */
+    @Transactional
+    public void reapplyInvalidPhoneContactInactivation(Long subPortfolioId) {
+        SubPortfolio subPortfolio = subPortfolioRepository.findById(subPortfolioId.intValue())
+                .orElseThrow(() -> new IllegalArgumentException("SubPortfolio no encontrado: " + subPortfolioId));
+
+        Integer tenantId = subPortfolio.getTenant() != null ? subPortfolio.getTenant().getId() : null;
+        Integer portfolioId = subPortfolio.getPortfolio() != null ? subPortfolio.getPortfolio().getId() : null;
+
+        if (tenantId == null || portfolioId == null) {
+            logger.warn("No se pudo reaplicar la inactivación de contactos inválidos por jerarquía incompleta de subcartera");
+            return;
+        }
+
+        logger.info(
+            "Reaplicando inactivación de telefonos tipificados como fallecido/equivocado para tenant={}, cartera={}, subcartera={}",
+            tenantId,
+            portfolioId,
+            subPortfolio.getId()
+        );
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(
+                subPortfolio, importEngine.toLowerCase(Locale.ROOT), CustomerSyncMetrics.KIND_FULL);
+        metrics.time(CustomerSyncMetrics.Phase.INVALID_PHONE_REAPPLY,
+                () -> contactMethodRepository.inactivateTipifiedInvalidPhoneContacts(tenantId, portfolioId, subPortfolio.getId()));
+        metrics.roundTrips(CustomerSyncMetrics.Phase.INVALID_PHONE_REAPPLY, 1);
+    }
+
     /**
      * Carga solo los clientes específicos por sus códigos de identificación (optimizado).
      * En lugar de cargar todos los clientes del tenant, carga solo los que necesitamos.
@@ -751,6 +932,8 @@ public class CustomerSyncService {
                         .toLocalDate();
             } else if (value instanceof LocalDate) {
                 return (LocalDate) value;
+            } else if (value instanceof LocalDateTime) {
+                return ((LocalDateTime) value).toLocalDate();
             } else {
                 return LocalDate.parse(value.toString());
             }
@@ -816,13 +999,17 @@ public class CustomerSyncService {
      * usando la configuración de cabeceras
      */
     private Map<String, Object> mapColumnsToSystemFields(Map<String, Object> row, SubPortfolio subPortfolio, LoadType loadType) {
+        return applyColumnMapping(row, buildColumnMapping(subPortfolio, loadType));
+    }
+
+    /**
+     * Construye el mapa columna de la tabla dinámica (sanitizada) -> fieldCode del sistema
+     */
+    private Map<String, String> buildColumnMapping(SubPortfolio subPortfolio, LoadType loadType) {
         // Obtener configuraciones de cabecera para este subportfolio
         List<HeaderConfiguration> headerConfigs = headerConfigurationRepository
                 .findBySubPortfolioAndLoadType(subPortfolio, loadType);
 
-        // Crear mapa con columnas del sistema
-        Map<String, Object> mappedRow = new HashMap<>();
-
         // Construir mapa de headerName -> systemFieldCode
         Map<String, String> columnMapping = new HashMap<>();
         for (HeaderConfiguration config : headerConfigs) {
@@ -832,15 +1019,20 @@ public class CustomerSyncService {
                 columnMapping.put(headerName, systemFieldCode);
             }
         }
+        return columnMapping;
+    }
 
-        // Aplicar el mapeo
+    /**
+     * Renombra las columnas de una fila según el mapa columna -> fieldCode
+     */
+    private Map<String, Object> applyColumnMapping(Map<String, Object> row, Map<String, String> columnMapping) {
+        Map<String, Object> mappedRow = new HashMap<>();
         for (Map.Entry<String, Object> entry : row.entrySet()) {
             String columnName = entry.getKey();
             Object value = entry.getValue();
             String targetColumnName = columnMapping.getOrDefault(columnName, columnName);
             mappedRow.put(targetColumnName, value);
         }
-
         return mappedRow;
     }
 
@@ -863,9 +1055,17 @@ public class CustomerSyncService {
      * Guarda clientes en la tabla de producción 'clientes' usando JDBC UPSERT (INSERT ... ON DUPLICATE KEY UPDATE).
      * Retorna un Map de codigo_identificacion -> id para poder asociar los contactos.
      */
-    private Map<String, Long> saveCustomersToProductionTableWithUpsert(List<Customer> customers) {
+    private Map<String, Long> saveCustomersToProductionTableWithUpsert(List<Customer> customers,
+                                                                       CustomerSyncMetrics.Scope metrics) {
+        return upsertCustomers(customers, metrics).ids();
+    }
+
+    /** Resultado del UPSERT: mapa clave -> id y conteo de filas insertadas/actualizadas. */
+    private record UpsertResult(Map<String, Long> ids, int inserted, int updated) {}
+
+    private UpsertResult upsertCustomers(List<Customer> customers, CustomerSyncMetrics.Scope metrics) {
         Map<String, Long> resultMap = new HashMap<>();
-        if (customers.isEmpty()) return resultMap;
+        if (customers.isEmpty()) return new UpsertResult(resultMap, 0, 0);
 
         // UPSERT: INSERT ... ON DUPLICATE KEY UPDATE
         // Asume que 'codigo_identificacion' es UNIQUE KEY en tabla 'clientes'
@@ -954,7 +1154,10 @@ public class CustomerSyncService {
 
         // Ejecutar batch UPSERT
         logger.debug("Ejecutando UPSERT de {} clientes", batchArgs.size());
-        int[] results = jdbcTemplate.batchUpdate(upsertSql, batchArgs);
+        int[] results = metrics.time(CustomerSyncMetrics.Phase.UPSERT_CUSTOMERS,
+                () -> jdbcTemplate.batchUpdate(upsertSql, batchArgs));
+        metrics.rows(CustomerSyncMetrics.Phase.UPSERT_CUSTOMERS, batchArgs.size());
+        metrics.roundTrips(CustomerSyncMetrics.Phase.UPSERT_CUSTOMERS, batchArgs.size());
 
         int totalInserted = 0;
         int totalUpdated = 0;
@@ -968,7 +1171,9 @@ public class CustomerSyncService {
 
         // Obtener los IDs de los clientes insertados/actualizados EN BATCHES
         // Evitar IN clause gigante que causa problemas de rendimiento
+        long resolveStart = System.nanoTime();
         int batchSize = 500;
+        int idQueries = 0;
         for (int i = 0; i < lookupKeys.size(); i += batchSize) {
             int end = Math.min(i + batchSize, lookupKeys.size());
             List<String> batch = lookupKeys.subList(i, end);
@@ -978,6 +1183,7 @@ public class CustomerSyncService {
                                   "WHERE codigo_identificacion IN (" + placeholders + ")";
 
             List<Map<String, Object>> idResults = jdbcTemplate.queryForList(selectIdsSql, batch.toArray());
+            idQueries++;
             for (Map<String, Object> row : idResults) {
                 Long id = ((Number) row.get("id")).longValue();
                 String code = (String) row.get("codigo_identificacion");
@@ -992,8 +1198,12 @@ public class CustomerSyncService {
             }
         }
 
+        metrics.record(CustomerSyncMetrics.Phase.RESOLVE_IDS, System.nanoTime() - resolveStart);
+        metrics.rows(CustomerSyncMetrics.Phase.RESOLVE_IDS, lookupKeys.size());
+        metrics.roundTrips(CustomerSyncMetrics.Phase.RESOLVE_IDS, idQueries);
+
         logger.debug("IDs recuperados: {} claves mapeadas", resultMap.size());
-        return resultMap;
+        return new UpsertResult(resultMap, totalInserted, totalUpdated);
     }
 
     /**
@@ -1039,7 +1249,8 @@ public class CustomerSyncService {
      * Reduce ~23000 operaciones individuales a ~50 operaciones batch.
      */
     private int syncAllCustomerContactsBatch(Map<String, Long> clientIdsMap, List<Customer> customers,
-                                              List<Map<String, Object>> rows, String tableName) {
+                                              List<Map<String, Object>> rows, String tableName,
+                                              CustomerSyncMetrics.Scope metrics) {
         if (clientIdsMap.isEmpty() || customers.isEmpty()) {
             return 0;
         }
@@ -1072,11 +1283,13 @@ public class CustomerSyncService {
         // Preservar estados de validación existentes ANTES del DELETE.
         // Evita que cada carga resetee estado_osiptel / estado_whatsapp / estado_contactabilidad /
         // estado / fecha_importacion de teléfonos ya validados.
+        long deleteStart = System.nanoTime();
         Map<String, Object[]> preservedStates = loadExistingContactStates(clientIdList, tableName, contactSubtypes);
 
         // 2. DELETE en batches de 500 IDs (acotado a los subtipos gestionados)
         int deleteBatchSize = 500;
         int totalDeleted = 0;
+        int deleteStatements = 0;
 
         for (int i = 0; i < clientIdList.size(); i += deleteBatchSize) {
             int end = Math.min(i + deleteBatchSize, clientIdList.size());
@@ -1100,9 +1313,15 @@ public class CustomerSyncService {
 
             int deleted = jdbcTemplate.update(deleteSql, deleteArgs);
             totalDeleted += deleted;
+            deleteStatements++;
         }
         logger.debug("Eliminados {} contactos existentes (subtipos gestionados)", totalDeleted);
+        metrics.record(CustomerSyncMetrics.Phase.DELETE_CONTACTS, System.nanoTime() - deleteStart);
+        metrics.rows(CustomerSyncMetrics.Phase.DELETE_CONTACTS, totalDeleted);
+        // + 1 SELECT de estados previos por cada lote de 500 ids
+        metrics.roundTrips(CustomerSyncMetrics.Phase.DELETE_CONTACTS, deleteStatements * 2L);
 
+        long insertStart = System.nanoTime();
         Set<String> preservedManualContacts = loadPreservedManualContactKeys(clientIdList, tableName);
 
         // 3. Recopilar todos los contactos a insertar (preservando estados existentes)
@@ -1147,6 +1366,8 @@ public class CustomerSyncService {
         // 4. INSERT en batches de 1000 contactos
         if (contactsToInsert.isEmpty()) {
             logger.debug("No hay contactos para insertar");
+            metrics.record(CustomerSyncMetrics.Phase.INSERT_CONTACTS, System.nanoTime() - insertStart);
+            metrics.roundTrips(CustomerSyncMetrics.Phase.INSERT_CONTACTS, 1);
             return 0;
         }
 
@@ -1167,6 +1388,11 @@ public class CustomerSyncService {
             }
         }
 
+        metrics.record(CustomerSyncMetrics.Phase.INSERT_CONTACTS, System.nanoTime() - insertStart);
+        metrics.rows(CustomerSyncMetrics.Phase.INSERT_CONTACTS, totalInserted);
+        // SELECT de contactos manuales + una sentencia por fila (batch sin rewriteBatchedStatements)
+        metrics.roundTrips(CustomerSyncMetrics.Phase.INSERT_CONTACTS, 1L + contactsToInsert.size());
+
         logger.debug("Insertados {} contactos", totalInserted);
         return totalInserted;
     }
@@ -1278,6 +1504,218 @@ public class CustomerSyncService {
         return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
     }
 
+    // ==================== MOTOR PIPELINE (lectura / mapeo / escritura solapados) ====================
+
+    /** Marca de fin de stream entre etapas (comparada por identidad). */
+    private static final List<Map<String, Object>> END_OF_ROWS = Collections.unmodifiableList(new ArrayList<>());
+    private static final MappedChunk END_OF_CHUNKS = new MappedChunk(List.of(), List.of());
+
+    /** Lote ya mapeado: customers.get(i) corresponde a rows.get(i). */
+    private record MappedChunk(List<Customer> customers, List<Map<String, Object>> rows) {}
+
+    /**
+     * Sync completo en tres etapas conectadas por colas acotadas:
+     *   1) Lector: stream de la tabla dinámica por una conexión PROPIA (fuera de la transacción).
+     *   2) Mapeador: columnas foh -> fieldCodes (mapeo resuelto UNA vez) y construcción de Customer.
+     *   3) Escritor (hilo llamante, dentro de la @Transactional): UPSERT clientes + contactos por lote.
+     * Las etapas se solapan, así que la latencia total ~ la etapa más lenta y la memoria queda
+     * acotada a (capacidad de colas x tamaño de lote) en lugar de la tabla completa.
+     */
+    private SyncResult syncViaPipeline(SubPortfolio subPortfolio, LoadType loadType) {
+        // Inicializa los proxies LAZY en este hilo: el mapeador solo los lee.
+        Portfolio portfolio = subPortfolio.getPortfolio();
+        Tenant tenant = portfolio.getTenant();
+        String tableName = buildDynamicTableName(
+                tenant.getTenantCode(), portfolio.getPortfolioCode(), subPortfolio.getSubPortfolioCode(), loadType);
+        if (!tableExists(tableName)) {
+            throw new IllegalArgumentException("La tabla dinámica no existe: " + tableName);
+        }
+        tenant.getTenantName();
+        portfolio.getPortfolioName();
+
+        Map<String, String> columnMapping = buildColumnMapping(subPortfolio, loadType);
+        int chunkSize = Math.max(1, pipelineChunkSize);
+        int capacity = Math.max(1, pipelineQueueCapacity);
+        BlockingQueue<List<Map<String, Object>>> rawChunks = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<MappedChunk> mappedChunks = new ArrayBlockingQueue<>(capacity);
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        logger.info("Sync pipeline SubPortfolio {}: tabla {}, lotes de {}, colas de {}",
+                subPortfolio.getId(), tableName, chunkSize, capacity);
+
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(
+                subPortfolio, CustomerSyncMetrics.ENGINE_PIPELINE, CustomerSyncMetrics.KIND_FULL);
+        ExecutorService stages = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "customer-sync-pipeline-" + subPortfolio.getId());
+            t.setDaemon(true);
+            return t;
+        });
+
+        int customersCreated = 0;
+        int customersUpdated = 0;
+        int contactsCreated = 0;
+        long rowsWritten = 0;
+        Set<Long> affectedClientIds = new HashSet<>();
+        boolean finished = false;
+        try {
+            Future<?> reader = stages.submit(() -> {
+                try {
+                    streamDynamicTable(tableName, chunkSize, rawChunks, metrics);
+                } finally {
+                    putEndMarker(rawChunks, END_OF_ROWS);
+                }
+                return null;
+            });
+
+            Future<?> mapper = stages.submit(() -> {
+                try {
+                    List<Map<String, Object>> chunk;
+                    while ((chunk = rawChunks.take()) != END_OF_ROWS) {
+                        List<Map<String, Object>> raw = chunk;
+                        MappedChunk result = metrics.time(CustomerSyncMetrics.Phase.MAP,
+                                () -> mapChunk(raw, columnMapping, tenant, portfolio, subPortfolio, errors));
+                        metrics.rows(CustomerSyncMetrics.Phase.MAP, result.customers().size());
+                        mappedChunks.put(result);
+                    }
+                } finally {
+                    putEndMarker(mappedChunks, END_OF_CHUNKS);
+                }
+                return null;
+            });
+
+            MappedChunk mapped;
+            while ((mapped = mappedChunks.take()) != END_OF_CHUNKS) {
+                if (mapped.customers().isEmpty()) {
+                    continue;
+                }
+                UpsertResult upsert = upsertCustomers(mapped.customers(), metrics);
+                customersCreated += upsert.inserted();
+                customersUpdated += upsert.updated();
+                contactsCreated += syncAllCustomerContactsBatch(upsert.ids(), mapped.customers(), mapped.rows(), "metodos_contacto", metrics);
+                rowsWritten += mapped.customers().size();
+                affectedClientIds.addAll(upsert.ids().values());
+            }
+
+            // Propaga errores del mapeador ANTES de esperar al lector: si el mapeador falló, el lector
+            // puede seguir bloqueado en rawChunks.put y solo el shutdownNow del finally lo libera.
+            mapper.get();
+            reader.get();
+
+            logger.info("Sincronización pipeline SubPortfolio {} completada: {} creados, {} actualizados, {} contactos",
+                    subPortfolio.getId(), customersCreated, customersUpdated, contactsCreated);
+            metrics.finish(rowsWritten, true);
+            finished = true;
+            return new SyncResult(customersCreated, customersUpdated, new ArrayList<>(errors), affectedClientIds);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Sincronización pipeline interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Error en sincronización pipeline SubPortfolio {}: {}", subPortfolio.getId(), cause.getMessage(), cause);
+            throw new RuntimeException("Error en sincronización de clientes: " + cause.getMessage(), cause);
+        } finally {
+            // Cualquier salida sin éxito (incluida una RuntimeException del escritor) cierra la métrica
+            if (!finished) {
+                metrics.finish(0, false);
+            }
+            // Desbloquea etapas que sigan esperando en una cola si el escritor falló
+            stages.shutdownNow();
+        }
+    }
+
+    /**
+     * Lee la tabla dinámica en streaming (fetchSize MIN_VALUE = fila a fila en MySQL Connector/J)
+     * y la publica en lotes. Usa una conexión propia del pool, independiente de la del escritor.
+     * La métrica READ excluye el tiempo bloqueado en la cola (contrapresión del mapeador).
+     */
+    private void streamDynamicTable(String tableName, int chunkSize,
+                                    BlockingQueue<List<Map<String, Object>>> out,
+                                    CustomerSyncMetrics.Scope metrics) throws Exception {
+        long readNanos = 0;
+        long rowCount = 0;
+        long sliceStart = System.nanoTime();
+        try (Connection con = dataSource.getConnection();
+             Statement st = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = st.executeQuery("SELECT * FROM " + tableName)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columnCount = meta.getColumnCount();
+                String[] columnNames = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    columnNames[i] = meta.getColumnLabel(i + 1);
+                }
+
+                List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+                while (rs.next()) {
+                    Map<String, Object> row = new HashMap<>(columnCount * 2);
+                    for (int i = 0; i < columnCount; i++) {
+                        row.put(columnNames[i], rs.getObject(i + 1));
+                    }
+                    chunk.add(row);
+                    rowCount++;
+                    if (chunk.size() >= chunkSize) {
+                        readNanos += System.nanoTime() - sliceStart;
+                        out.put(chunk);
+                        sliceStart = System.nanoTime();
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                readNanos += System.nanoTime() - sliceStart;
+                if (!chunk.isEmpty()) {
+                    out.put(chunk);
+                }
+            }
+        }
+        metrics.record(CustomerSyncMetrics.Phase.READ, readNanos);
+        metrics.rows(CustomerSyncMetrics.Phase.READ, rowCount);
+        metrics.roundTrips(CustomerSyncMetrics.Phase.READ, 1);
+    }
+
+    /**
+     * Mapea un lote de filas crudas a Customers nuevos (el UPSERT resuelve si ya existían).
+     */
+    private MappedChunk mapChunk(List<Map<String, Object>> chunk, Map<String, String> columnMapping,
+                                 Tenant tenant, Portfolio portfolio, SubPortfolio subPortfolio, List<String> errors) {
+        List<Customer> customers = new ArrayList<>(chunk.size());
+        List<Map<String, Object>> rows = new ArrayList<>(chunk.size());
+        for (Map<String, Object> row : chunk) {
+            try {
+                Map<String, Object> mappedRow = applyColumnMapping(row, columnMapping);
+                String document = getStringValue(mappedRow, "documento");
+                if (document == null || document.isEmpty()) {
+                    errors.add("Documento vacío en registro");
+                    continue;
+                }
+                customers.add(createCustomerFromRow(mappedRow, tenant, portfolio, subPortfolio));
+                rows.add(mappedRow);
+            } catch (Exception e) {
+                errors.add("Error procesando registro: " + e.getMessage());
+            }
+        }
+        return new MappedChunk(customers, rows);
+    }
+
+    private <T> void putEndMarker(BlockingQueue<T> queue, T marker) {
+        try {
+            queue.put(marker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * true si la transacción actual la abrió este sync (no hay una transacción externa, como la
+     * del import, cuyas escrituras aún no serían visibles desde otra conexión).
+     */
+    private boolean isOutermostTransaction() {
+        try {
+            return TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+        } catch (NoTransactionException e) {
+            return false;
+        }
+    }
+
     // ==================== MOTOR SP SET-BASED (sp_sincronizar_clientes) ====================
 
     /**
@@ -1372,17 +1810,40 @@ public class CustomerSyncService {
             args.addAll(filterCodes);
         }
 
+        String whereClause = where;
+        CustomerSyncMetrics.Scope metrics = syncMetrics.start(subPortfolio, CustomerSyncMetrics.ENGINE_SP,
+                filterCodes != null ? CustomerSyncMetrics.KIND_SELECTIVE : CustomerSyncMetrics.KIND_FULL);
+        boolean success = false;
+        int stagedRows = 0;
         try {
-            jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + staging + "`");
-            jdbcTemplate.execute(ddl.toString());
-            jdbcTemplate.update("INSERT INTO `" + staging + "` (" + cols + ") SELECT " + sel +
-                    " FROM `" + srcTable + "`" + where, args.toArray());
-
-            int[] out = callSyncSp(staging, tenant, portfolio, subPortfolio);
+            // READ en el motor sp = materializar la staging (lectura + mapeo de columnas en SQL)
+            stagedRows = metrics.time(CustomerSyncMetrics.Phase.READ, () -> {
+                jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + staging + "`");
+                jdbcTemplate.execute(ddl.toString());
+                return jdbcTemplate.update("INSERT INTO `" + staging + "` (" + cols + ") SELECT " + sel +
+                        " FROM `" + srcTable + "`" + whereClause, args.toArray());
+            });
+            metrics.rows(CustomerSyncMetrics.Phase.READ, stagedRows);
+            metrics.roundTrips(CustomerSyncMetrics.Phase.READ, 3);
+
+            int[] out = metrics.time(CustomerSyncMetrics.Phase.SP_SYNC,
+                    () -> callSyncSp(staging, tenant, portfolio, subPortfolio));
+            metrics.rows(CustomerSyncMetrics.Phase.SP_SYNC, stagedRows);
+            metrics.roundTrips(CustomerSyncMetrics.Phase.SP_SYNC, 1);
             logger.info("✅ [SP] Sync completado SubPortfolio {}: {} creados, {} actualizados, {} contactos",
                     subPortfolio.getId(), out[0], out[1], out[2]);
-            return new SyncResult(out[0], out[1], new ArrayList<>());
+
+            // IDs de los clientes sincronizados (para la limpieza acotada de teléfonos inválidos)
+            Set<Long> affectedClientIds = metrics.time(CustomerSyncMetrics.Phase.RESOLVE_IDS,
+                    () -> new HashSet<>(jdbcTemplate.queryForList(
+                            "SELECT c.id FROM clientes c JOIN `" + staging + "` s ON c.codigo_identificacion = s.codigo_identificacion",
+                            Long.class)));
+            metrics.rows(CustomerSyncMetrics.Phase.RESOLVE_IDS, affectedClientIds.size());
+            metrics.roundTrips(CustomerSyncMetrics.Phase.RESOLVE_IDS, 1);
+            success = true;
+            return new SyncResult(out[0], out[1], new ArrayList<>(), affectedClientIds);
         } finally {
+            metrics.finish(stagedRows, success);
             try {
                 jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + staging + "`");
             } catch (Exception ignore) {
@@ -1419,11 +1880,17 @@ public class CustomerSyncService {
         private final int customersCreated;
         private final int customersUpdated;
         private final List<String> errors;
+        private final Set<Long> affectedClientIds;
 
         public SyncResult(int customersCreated, int customersUpdated, List<String> errors) {
+            this(customersCreated, customersUpdated, errors, new HashSet<>());
+        }
+
+        public SyncResult(int customersCreated, int customersUpdated, List<String> errors, Set<Long> affectedClientIds) {
             this.customersCreated = customersCreated;
             this.customersUpdated = customersUpdated;
             this.errors = errors;
+            this.affectedClientIds = affectedClientIds;
         }
 
         public int getCustomersCreated() {
@@ -1438,6 +1905,13 @@ public class CustomerSyncService {
             return errors;
         }
 
+        /**
+         * IDs (clientes.id) de los clientes escritos por este sync
+         */
+        public Set<Long> getAffectedClientIds() {
+            return affectedClientIds;
+        }
+
         public boolean hasErrors() {
             return !errors.isEmpty();
         }
@@ -0,0 +1,134 @@
+package com.cashi.customermanagement.application.internal.eventhandlers;
+
+import com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService;
+import com.cashi.customermanagement.domain.model.events.CustomerImportCommittedEvent;
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta la sincronización de clientes + la inactivación de teléfonos inválidos de forma
+ * asíncrona, una vez confirmada (COMMIT) la importación que la originó.
+ *
+ * Coalescencia: los eventos de una misma subcartera que llegan dentro de la ventana
+ * app.customer-sync.async.coalesce-ms se fusionan en un único sync (la unión de los códigos,
+ * o un sync completo si alguno lo pidió). Nunca corren dos syncs de la misma subcartera a la vez.
+ */
+@Service
+public class CustomerSyncEventHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSyncEventHandler.class);
+
+    private final CustomerSyncService customerSyncService;
+    private final ScheduledExecutorService scheduler;
+    private final long coalesceMs;
+
+    private final Map<Long, PendingSync> pending = new ConcurrentHashMap<>();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public CustomerSyncEventHandler(
+            CustomerSyncService customerSyncService,
+            @Value("${app.customer-sync.async.threads:2}") int threads,
+            @Value("${app.customer-sync.async.coalesce-ms:3000}") long coalesceMs) {
+        this.customerSyncService = customerSyncService;
+        this.coalesceMs = coalesceMs;
+        AtomicInteger counter = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "customer-sync-async-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void on(CustomerImportCommittedEvent event) {
+        pending.compute(event.subPortfolioId(), (subPortfolioId, current) -> {
+            if (current == null) {
+                current = new PendingSync(event.loadType());
+                scheduler.schedule(() -> run(subPortfolioId), coalesceMs, TimeUnit.MILLISECONDS);
+            }
+            current.merge(event);
+            return current;
+        });
+        logger.info("Sync de clientes encolado para SubPortfolio {} ({})", event.subPortfolioId(),
+                event.isFullSync() ? "completo" : event.identificationCodes().size() + " códigos");
+    }
+
+    private void run(Long subPortfolioId) {
+        if (!running.add(subPortfolioId)) {
+            // Hay un sync en curso para esta subcartera: reintentar al cerrar la siguiente ventana
+            scheduler.schedule(() -> run(subPortfolioId), coalesceMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        try {
+            PendingSync work = pending.remove(subPortfolioId);
+            if (work != null) {
+                execute(subPortfolioId, work);
+            }
+        } finally {
+            running.remove(subPortfolioId);
+        }
+    }
+
+    private void execute(Long subPortfolioId, PendingSync work) {
+        long start = System.currentTimeMillis();
+        try {
+            CustomerSyncService.SyncResult result = work.full
+                    ? customerSyncService.syncCustomersFromSubPortfolio(subPortfolioId, work.loadType)
+                    : customerSyncService.syncCustomersByIdentificationCodes(subPortfolioId, work.loadType, work.codes);
+
+            customerSyncService.reapplyInvalidPhoneContactInactivation(subPortfolioId, result.getAffectedClientIds());
+
+            logger.info("✅ Sync asíncrono SubPortfolio {} completado en {} ms: {} creados, {} actualizados, {} errores",
+                    subPortfolioId, System.currentTimeMillis() - start,
+                    result.getCustomersCreated(), result.getCustomersUpdated(), result.getErrors().size());
+        } catch (Exception e) {
+            // Los datos importados ya están confirmados; se puede relanzar con POST /customers/sync/{id}
+            logger.error("❌ Error en sync asíncrono SubPortfolio {}: {}", subPortfolioId, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Trabajo acumulado de una subcartera. Solo se modifica dentro de pending.compute().
+     */
+    private static class PendingSync {
+        private final LoadType loadType;
+        private boolean full;
+        private Set<String> codes = new HashSet<>();
+
+        PendingSync(LoadType loadType) {
+            this.loadType = loadType;
+        }
+
+        void merge(CustomerImportCommittedEvent event) {
+            if (full) {
+                return;
+            }
+            if (event.isFullSync()) {
+                full = true;
+                codes = null;
+            } else {
+                codes.addAll(event.identificationCodes());
+            }
+        }
+    }
+}
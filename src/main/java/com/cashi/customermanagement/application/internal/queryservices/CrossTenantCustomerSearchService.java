@@ -0,0 +1,172 @@
+package com.cashi.customermanagement.application.internal.queryservices;
+
+import com.cashi.customermanagement.interfaces.rest.resources.CustomerResource;
+import com.cashi.shared.domain.model.entities.Tenant;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.TenantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Búsqueda de clientes en todos los inquilinos (detección de duplicados desde front-desk).
+ *
+ * Con app.customer-search.fan-out.enabled=true se lanza una búsqueda por inquilino activo, en
+ * hilos virtuales, y los resultados se fusionan a medida que llegan:
+ * - Cada búsqueda se acota a per-tenant-max-results filas.
+ * - Lo que no respondió dentro de tenant-timeout (desde el inicio de la petición) se descarta y
+ *   se informa como inquilino sin respuesta; la respuesta no espera al más lento.
+ * - max-concurrency limita las consultas simultáneas para no agotar el pool de conexiones.
+ * - Cada consulta lleva MAX_EXECUTION_TIME = plazo restante: MySQL la aborta al vencer
+ *   (cancelar el Future no detiene una consulta ya enviada).
+ *
+ * Con el flag apagado se mantiene la consulta global única.
+ */
+@Service
+public class CrossTenantCustomerSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrossTenantCustomerSearchService.class);
+
+    private final CustomerQueryServiceImpl queryService;
+    private final TenantRepository tenantRepository;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    @Value("${app.customer-search.fan-out.enabled:false}")
+    private boolean fanOutEnabled;
+
+    @Value("${app.customer-search.fan-out.tenant-timeout:PT0.18S}")
+    private Duration tenantTimeout;
+
+    @Value("${app.customer-search.fan-out.per-tenant-max-results:20}")
+    private int perTenantMaxResults;
+
+    @Value("${app.customer-search.max-results:100}")
+    private int maxResults;
+
+    public CrossTenantCustomerSearchService(
+            CustomerQueryServiceImpl queryService,
+            TenantRepository tenantRepository,
+            @Value("${app.customer-search.fan-out.max-concurrency:8}") int maxConcurrency) {
+        this.queryService = queryService;
+        this.tenantRepository = tenantRepository;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+    }
+
+    /**
+     * Resultado fusionado. timedOutTenants/failedTenants: inquilinos cuyo resultado no se incluyó.
+     */
+    public record SearchResult(List<CustomerResource> customers,
+                               boolean truncated,
+                               List<Integer> timedOutTenants,
+                               List<Integer> failedTenants) {}
+
+    private record TenantHits(Integer tenantId, CustomerResourceProjection.Result result) {}
+
+    public SearchResult search(String searchBy, String value) {
+        if (!fanOutEnabled) {
+            CustomerResourceProjection.Result global = queryService.searchByCriterion(null, searchBy, value);
+            return new SearchResult(global.customers(), global.truncated(), List.of(), List.of());
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + tenantTimeout.toNanos();
+        List<Tenant> tenants = tenantRepository.findAllActive();
+
+        CompletionService<TenantHits> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<TenantHits>, Integer> pending = new HashMap<>();
+        for (Tenant tenant : tenants) {
+            Integer tenantId = tenant.getId();
+            pending.put(completion.submit(() -> searchTenant(tenantId, searchBy, value, deadline)), tenantId);
+        }
+
+        List<CustomerResource> merged = new ArrayList<>();
+        boolean truncated = false;
+        List<Integer> failed = new ArrayList<>();
+        List<Integer> timedOut = new ArrayList<>();
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Future<TenantHits> done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    break;
+                }
+                Integer tenantId = pending.remove(done);
+                try {
+                    TenantHits hits = done.get();
+                    if (hits == null) {
+                        // No obtuvo turno de conexión antes del plazo
+                        timedOut.add(tenantId);
+                        continue;
+                    }
+                    truncated |= hits.result().truncated();
+                    for (CustomerResource customer : hits.result().customers()) {
+                        if (merged.size() >= maxResults) {
+                            truncated = true;
+                            break;
+                        }
+                        merged.add(customer);
+                    }
+                } catch (ExecutionException e) {
+                    failed.add(tenantId);
+                    logger.warn("Búsqueda multi-tenant: error en inquilino {}: {}", tenantId, e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Lo que sigue pendiente se descarta: la respuesta no espera al inquilino más lento.
+        // Sin interrumpir: interrumpir un hilo virtual bloqueado en la lectura JDBC cierra el socket
+        // y destruye la conexión del pool; MAX_EXECUTION_TIME ya aborta la consulta al vencer.
+        for (Map.Entry<Future<TenantHits>, Integer> entry : pending.entrySet()) {
+            entry.getKey().cancel(false);
+            timedOut.add(entry.getValue());
+        }
+        timedOut.sort(Comparator.naturalOrder());
+
+        merged.sort(Comparator.comparing(CustomerResource::tenantId, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(CustomerResource::id));
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (!timedOut.isEmpty()) {
+            logger.warn("Búsqueda multi-tenant {}: {} inquilinos sin respuesta en {} ms: {}",
+                    searchBy, timedOut.size(), tenantTimeout.toMillis(), timedOut);
+        }
+        logger.debug("Búsqueda multi-tenant {}: {} resultados de {} inquilinos en {} ms",
+                searchBy, merged.size(), tenants.size(), elapsedMs);
+        return new SearchResult(merged, truncated, timedOut, failed);
+    }
+
+    /**
+     * @return null si no consiguió turno de conexión antes del plazo
+     */
+    private TenantHits searchTenant(Integer tenantId, String searchBy, String value, long deadline) throws InterruptedException {
+        if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        try {
+            // Lo que queda del plazo acota la consulta en MySQL: un inquilino lento no retiene su
+            // conexión ni su permiso más allá de la petición que lo descartó
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                return null;
+            }
+            return new TenantHits(tenantId,
+                    queryService.searchByCriterion(tenantId.longValue(), searchBy, value, perTenantMaxResults, remainingMs));
+        } finally {
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,155 @@
+package com.cashi.customermanagement.application.internal.queryservices;
+
+import com.cashi.customermanagement.domain.model.events.CustomerDataChangedEvent;
+import com.cashi.customermanagement.interfaces.rest.resources.CustomerResource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria (read-through) de las búsquedas exactas de clientes que la pantalla del agente
+ * repite durante una llamada: search-by, by-document y blacklist-contact-info.
+ *
+ * - Clave (tenant, criterio, valor); el valor de teléfono es la clave normalizada.
+ * - Acotada por tamaño (LRU, app.customer-lookup-cache.max-entries) y por tiempo (ttl).
+ * - Solo se cachean clientes encontrados; un "no encontrado" siempre va a la base.
+ * - Invalidación precisa con CustomerDataChangedEvent después del commit: por ids de cliente
+ *   (sync, contactos, Osiptel/WhatsApp) o por tenant completo.
+ * - Una carga que empezó antes de una invalidación no se guarda (evita re-cachear datos viejos).
+ *
+ * Métricas: customer.lookup.cache.requests (tag result=hit|miss), customer.lookup.cache.evictions
+ * (tag cause=size|expired|invalidated) y customer.lookup.cache.size.
+ */
+@Component
+public class CustomerLookupCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerLookupCache.class);
+
+    public record LookupKey(Long tenantId, String criterion, String value) {}
+
+    private record Entry(CustomerResource customer, long expiresAtNanos) {}
+
+    // LRU: orden de acceso; protegido por synchronized(entries)
+    private final LinkedHashMap<LookupKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long generation;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictedBySize;
+    private final Counter evictedByTtl;
+    private final Counter invalidated;
+
+    public CustomerLookupCache(
+            MeterRegistry registry,
+            @Value("${app.customer-lookup-cache.enabled:false}") boolean enabled,
+            @Value("${app.customer-lookup-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.customer-lookup-cache.ttl:PT2M}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.hits = registry.counter("customer.lookup.cache.requests", "result", "hit");
+        this.misses = registry.counter("customer.lookup.cache.requests", "result", "miss");
+        this.evictedBySize = registry.counter("customer.lookup.cache.evictions", "cause", "size");
+        this.evictedByTtl = registry.counter("customer.lookup.cache.evictions", "cause", "expired");
+        this.invalidated = registry.counter("customer.lookup.cache.evictions", "cause", "invalidated");
+        Gauge.builder("customer.lookup.cache.size", this, CustomerLookupCache::size).register(registry);
+    }
+
+    /**
+     * Devuelve el cliente cacheado para (tenant, criterio, valor) o lo carga con loader.
+     */
+    public Optional<CustomerResource> get(Long tenantId, String criterion, String value,
+                                          Supplier<Optional<CustomerResource>> loader) {
+        if (!enabled || value == null) {
+            return loader.get();
+        }
+        LookupKey key = new LookupKey(tenantId, criterion, value);
+        long startGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtNanos() - System.nanoTime() > 0) {
+                    hits.increment();
+                    return Optional.of(entry.customer());
+                }
+                entries.remove(key);
+                evictedByTtl.increment();
+            }
+            startGeneration = generation;
+        }
+
+        misses.increment();
+        Optional<CustomerResource> loaded = loader.get();
+        if (loaded.isPresent()) {
+            synchronized (entries) {
+                if (generation == startGeneration) {
+                    entries.put(key, new Entry(loaded.get(), System.nanoTime() + ttlNanos));
+                    evictOverflow();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerDataChanged(CustomerDataChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int removed = 0;
+        synchronized (entries) {
+            generation++;
+            Iterator<Map.Entry<LookupKey, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<LookupKey, Entry> e = it.next();
+                if (matches(event, e.getKey(), e.getValue().customer())) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            invalidated.increment(removed);
+            logger.debug("Caché de búsquedas: {} entradas invalidadas (tenant={}, clientes={})",
+                    removed, event.tenantId(), event.isTenantWide() ? "todos" : event.customerIds().size());
+        }
+    }
+
+    private static boolean matches(CustomerDataChangedEvent event, LookupKey key, CustomerResource customer) {
+        if (event.isTenantWide()) {
+            return event.tenantId() == null || event.tenantId().equals(key.tenantId());
+        }
+        return event.customerIds().contains(customer.id());
+    }
+
+    private void evictOverflow() {
+        Iterator<LookupKey> it = entries.keySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictedBySize.increment();
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.cashi.customermanagement.application.internal.queryservices;
+
+import com.cashi.customermanagement.interfaces.rest.resources.CustomerResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exportación masiva de clientes en NDJSON (un CustomerResource JSON por línea).
+ *
+ * - Se lee por chunks con keyset (c.id > último id, LIMIT chunk-size), igual que /page: cada
+ *   chunk son dos consultas cortas (clientes + métodos de contacto) y ninguna conexión queda
+ *   retenida mientras se escribe al socket, por lento que sea el consumidor.
+ * - max-concurrent acota las exportaciones simultáneas (tryAcquire/release); el controlador
+ *   responde 429 cuando no hay cupo.
+ * - Orden por id: un consumidor que se corta puede reanudar con afterId = último id recibido.
+ */
+@Service
+public class CustomerNdjsonExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerNdjsonExportService.class);
+
+    private final CustomerResourceProjection projection;
+    private final ObjectMapper objectMapper;
+    private final Semaphore slots;
+
+    // Clientes por consulta y por flush de la respuesta
+    @Value("${app.customer-list.export.chunk-size:500}")
+    private int chunkSize;
+
+    public CustomerNdjsonExportService(CustomerResourceProjection projection, ObjectMapper objectMapper,
+                                       @Value("${app.customer-list.export.max-concurrent:2}") int maxConcurrent) {
+        this.projection = projection;
+        this.objectMapper = objectMapper;
+        this.slots = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * Reserva un cupo de exportación; false si ya hay max-concurrent en curso.
+     * Quien lo obtiene debe llamar a release() al terminar.
+     */
+    public boolean tryAcquire() {
+        return slots.tryAcquire();
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    /**
+     * Escribe los clientes (filtros nulos = sin restricción) con id > afterId en out.
+     *
+     * @return número de clientes escritos
+     */
+    public long export(Long tenantId, Long portfolioId, Long subPortfolioId, Long afterId,
+                       OutputStream out) throws IOException {
+        StringBuilder where = new StringBuilder("c.id > ?");
+        List<Object> filters = new ArrayList<>();
+        if (tenantId != null) {
+            where.append(" AND c.id_inquilino = ?");
+            filters.add(tenantId);
+        }
+        if (portfolioId != null) {
+            where.append(" AND c.id_cartera = ?");
+            filters.add(portfolioId);
+        }
+        if (subPortfolioId != null) {
+            where.append(" AND c.id_subcartera = ?");
+            filters.add(subPortfolioId);
+        }
+
+        BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+        long written = 0;
+        long start = System.currentTimeMillis();
+        long lastId = afterId != null ? afterId : 0L;
+        try {
+            CustomerResourceProjection.Result chunk;
+            do {
+                List<Object> params = new ArrayList<>(filters.size() + 1);
+                params.add(lastId);
+                params.addAll(filters);
+                chunk = projection.find(where.toString(), params, chunkSize);
+                for (CustomerResource resource : chunk.customers()) {
+                    buffered.write(objectMapper.writeValueAsBytes(resource));
+                    buffered.write('\n');
+                    lastId = resource.id();
+                }
+                buffered.flush();
+                written += chunk.customers().size();
+            } while (chunk.truncated());
+        } catch (IOException e) {
+            logger.warn("Exportación NDJSON interrumpida tras {} filas (último id {}): {}", written, lastId, e.getMessage());
+            throw e;
+        }
+        logger.info("📤 Exportación NDJSON de clientes: {} filas en {} ms", written, System.currentTimeMillis() - start);
+        return written;
+    }
+}
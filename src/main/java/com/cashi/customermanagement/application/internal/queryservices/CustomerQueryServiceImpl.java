@@ -1,21 +1,61 @@
 package com.cashi.customermanagement.application.internal.queryservices;
 
 import com.cashi.customermanagement.domain.model.aggregates.Customer;
+import com.cashi.customermanagement.domain.model.entities.ContactMethod;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.CustomerRepository;
+import com.cashi.shared.util.PhoneNumberNormalizer;
+import com.cashi.shared.util.SearchTextNormalizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class CustomerQueryServiceImpl {
 
     private final CustomerRepository customerRepository;
+    private final ContactMethodRepository contactMethodRepository;
+    private final CustomerResourceProjection projection;
 
-    public CustomerQueryServiceImpl(CustomerRepository customerRepository) {
+    // Términos más cortos que el ngram del índice FULLTEXT no se pueden buscar
+    private static final int MIN_SEARCH_TERM_LENGTH = 2;
+
+    // Tope de filas por página del listado por cursor
+    @Value("${app.customer-list.max-page-size:1000}")
+    private int maxPageSize;
+
+    // Tope de resultados de las búsquedas (por nombre y por criterio)
+    @Value("${app.customer-search.max-results:100}")
+    private int maxSearchResults;
+
+    public CustomerQueryServiceImpl(CustomerRepository customerRepository,
+                                    ContactMethodRepository contactMethodRepository,
+                                    CustomerResourceProjection projection) {
         this.customerRepository = customerRepository;
+        this.contactMethodRepository = contactMethodRepository;
+        this.projection = projection;
+    }
+
+    /**
+     * Página del listado por cursor. nextCursor es el id del último cliente de la página
+     * (null si no hay más); contactsByCustomer trae los métodos de contacto de la página.
+     */
+    public record CustomerPage(List<Customer> customers,
+                               Map<Long, List<ContactMethod>> contactsByCustomer,
+                               Long nextCursor) {
+        public boolean hasMore() {
+            return nextCursor != null;
+        }
     }
 
     public Optional<Customer> getCustomerById(String customerId) {
@@ -26,23 +66,146 @@ public class CustomerQueryServiceImpl {
         return customerRepository.findByDocument(documentNumber);
     }
 
-    public List<Customer> searchCustomers(String query) {
-        return customerRepository.findByFullNameContainingIgnoreCase(query);
+    /**
+     * Búsqueda por nombre, sin distinguir mayúsculas ni acentos, sobre el índice FULLTEXT ngram
+     * (V34). Todos los términos deben aparecer; primero los nombres que empiezan con la búsqueda,
+     * luego por relevancia. Términos de menos de 2 caracteres se ignoran (tamaño del ngram).
+     *
+     * @param limit máximo de resultados, acotado a [1, app.customer-search.max-results]
+     * @return clientes en orden de relevancia con sus métodos de contacto (nextCursor siempre null)
+     */
+    public CustomerPage searchCustomers(String query, Long tenantId, Long subPortfolioId, int limit) {
+        List<String> terms = SearchTextNormalizer.terms(query, MIN_SEARCH_TERM_LENGTH);
+        if (terms.isEmpty()) {
+            return new CustomerPage(List.of(), Map.of(), null);
+        }
+        String booleanQuery = terms.stream()
+                .map(term -> "+\"" + term + "\"")
+                .collect(Collectors.joining(" "));
+        String prefix = SearchTextNormalizer.normalize(query) + "%";
+
+        List<Long> ids = customerRepository.searchIdsByName(booleanQuery, prefix, tenantId, subPortfolioId,
+                Math.max(1, Math.min(limit, maxSearchResults)));
+        if (ids.isEmpty()) {
+            return new CustomerPage(List.of(), Map.of(), null);
+        }
+
+        // findAllById no respeta el orden: se reordena según el ranking
+        Map<Long, Customer> byId = customerRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Customer::getId, c -> c));
+        List<Customer> customers = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new CustomerPage(customers, loadContacts(customers), null);
     }
 
+    /**
+     * @deprecated carga todos los clientes con sus contactos en memoria; usar getCustomersPage
+     */
+    @Deprecated
     public List<Customer> getAllCustomers() {
         return customerRepository.findAllWithContactMethods();
     }
 
     /**
-     * Busca un cliente por teléfono dentro de un tenant, portfolio y subportfolio específico
-     * @param phoneNumber Número de teléfono a buscar
+     * Listado paginado por cursor (keyset sobre id, sin OFFSET): cada página cuesta lo mismo
+     * sin importar qué tan adentro del listado esté. Los métodos de contacto se cargan con una
+     * sola consulta IN por página en lugar de un JOIN FETCH sobre toda la tabla.
+     *
+     * @param afterId cursor: id del último cliente recibido (null = desde el inicio)
+     * @param size filas pedidas, acotadas a [1, app.customer-list.max-page-size]
+     */
+    public CustomerPage getCustomersPage(Long tenantId, Long portfolioId, Long subPortfolioId,
+                                         Long afterId, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        // Se pide una fila de más para saber si hay página siguiente sin un COUNT
+        List<Customer> rows = customerRepository.findPageAfter(
+                afterId != null ? afterId : 0L, tenantId, portfolioId, subPortfolioId,
+                PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Customer> customers = hasMore ? rows.subList(0, pageSize) : rows;
+        if (customers.isEmpty()) {
+            return new CustomerPage(List.of(), Map.of(), null);
+        }
+
+        Long nextCursor = hasMore ? customers.get(customers.size() - 1).getId() : null;
+        return new CustomerPage(customers, loadContacts(customers), nextCursor);
+    }
+
+    /**
+     * Métodos de contacto de un grupo de clientes con una sola consulta IN
+     */
+    private Map<Long, List<ContactMethod>> loadContacts(List<Customer> customers) {
+        return contactMethodRepository
+                .findByCustomerIdInOrderByIdAsc(customers.stream().map(Customer::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(cm -> cm.getCustomer().getId(), LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Búsqueda exacta por criterio (codigo_identificacion, documento, numero_cuenta, telefono,
+     * telefono_principal) como proyección de solo lectura: clientes y luego sus contactos por lote,
+     * sin entidades. Los teléfonos se comparan por clave normalizada. Resultado acotado a
+     * app.customer-search.max-results para que un teléfono compartido por cientos de clientes
+     * no dispare el tiempo de respuesta.
+     *
+     * @param tenantId null = todos los inquilinos
+     * @throws IllegalArgumentException si el criterio no es válido
+     */
+    public CustomerResourceProjection.Result searchByCriterion(Long tenantId, String searchBy, String value) {
+        return searchByCriterion(tenantId, searchBy, value, maxSearchResults);
+    }
+
+    /**
+     * Igual que searchByCriterion con un límite propio (lo usa la búsqueda multi-tenant por inquilino)
+     */
+    public CustomerResourceProjection.Result searchByCriterion(Long tenantId, String searchBy, String value, int limit) {
+        return searchByCriterion(tenantId, searchBy, value, limit, 0);
+    }
+
+    /**
+     * Con cada consulta acotada en el servidor a maxExecutionMs (0 = sin límite)
+     */
+    public CustomerResourceProjection.Result searchByCriterion(Long tenantId, String searchBy, String value, int limit,
+                                                               long maxExecutionMs) {
+        String condition = switch (searchBy) {
+            case "codigo_identificacion" -> "c.codigo_identificacion = ?";
+            case "documento" -> "c.documento = ?";
+            case "numero_cuenta" -> "c.numero_cuenta_linea_prestamo = ?";
+            case "telefono" -> "c.id IN (SELECT mc.id_cliente FROM metodos_contacto mc WHERE mc.telefono_normalizado = ?)";
+            case "telefono_principal" -> "c.id IN (SELECT mc.id_cliente FROM metodos_contacto mc " +
+                    "WHERE mc.telefono_normalizado = ? AND mc.subtipo = 'telefono_principal')";
+            default -> throw new IllegalArgumentException("Criterio de búsqueda inválido: " + searchBy);
+        };
+        Object searchValue = searchBy.startsWith("telefono") ? PhoneNumberNormalizer.normalize(value) : value;
+        if (searchValue == null) {
+            return new CustomerResourceProjection.Result(List.of(), false);
+        }
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder where = new StringBuilder();
+        if (tenantId != null) {
+            where.append("c.id_inquilino = ? AND ");
+            params.add(tenantId);
+        }
+        where.append(condition);
+        params.add(searchValue);
+        return projection.find(where.toString(), params, Math.max(1, Math.min(limit, maxSearchResults)), maxExecutionMs);
+    }
+
+    /**
+     * Busca un cliente por teléfono dentro de un tenant, portfolio y subportfolio específico.
+     * El número se compara por su clave normalizada: "+51 999-888-777" y "999888777" son el mismo.
+     * @param phoneNumber Número de teléfono a buscar (cualquier formato)
      * @param tenantId ID del inquilino
      * @param portfolioId ID de la cartera
      * @param subPortfolioId ID de la subcartera
      * @return Optional con el cliente encontrado
      */
     public Optional<Customer> getCustomerByPhone(String phoneNumber, Long tenantId, Long portfolioId, Long subPortfolioId) {
-        return customerRepository.findByPhoneAndTenantAndPortfolio(phoneNumber, tenantId, portfolioId, subPortfolioId);
+        String phoneKey = PhoneNumberNormalizer.normalize(phoneNumber);
+        if (phoneKey == null) {
+            return Optional.empty();
+        }
+        return customerRepository.findByPhoneAndTenantAndPortfolio(phoneKey, tenantId, portfolioId, subPortfolioId);
     }
 }
@@ -0,0 +1,211 @@
+package com.cashi.customermanagement.application.internal.queryservices;
+
+import com.cashi.customermanagement.interfaces.rest.resources.ContactMethodResource;
+import com.cashi.customermanagement.interfaces.rest.resources.CustomerResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Lectura de CustomerResource directamente con JDBC (proyección), sin entidades ni contexto de
+ * persistencia: una consulta para los clientes y otra, por lote de ids, para sus métodos de
+ * contacto. Evita el producto cartesiano de JOIN FETCH cliente × contactos.
+ *
+ * Usada por las búsquedas de solo lectura y por la exportación NDJSON.
+ */
+@Component
+public class CustomerResourceProjection {
+
+    /**
+     * SELECT de clientes con el código de subcartera; agregar WHERE/ORDER BY a continuación.
+     * El orden de columnas es el que espera toResource.
+     */
+    public static final String CUSTOMER_SELECT =
+            "SELECT c.id, c.id_cliente, c.codigo_identificacion, c.numero_cuenta_linea_prestamo, " +
+            "c.dias_mora, c.monto_mora, c.monto_capital, c.documento, c.nombre_completo, " +
+            "c.fecha_nacimiento, c.edad, c.primer_nombre, c.segundo_nombre, c.primer_apellido, c.segundo_apellido, " +
+            "c.estado_civil, c.ocupacion, c.tipo_cliente, c.direccion, c.distrito, c.provincia, c.departamento, " +
+            "c.referencia_personal, c.estado, c.fecha_importacion, " +
+            "c.id_inquilino, c.nombre_inquilino, c.id_cartera, c.nombre_cartera, c.id_subcartera, c.nombre_subcartera, " +
+            "s.codigo_subcartera " +
+            "FROM clientes c LEFT JOIN subcarteras s ON s.id = c.id_subcartera ";
+
+    private static final String CONTACT_SQL =
+            "SELECT id, id_cliente, tipo_contacto, subtipo, valor, etiqueta, fecha_importacion, estado, " +
+            "estado_osiptel, estado_whatsapp FROM metodos_contacto WHERE id_cliente IN (%s) ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerResourceProjection(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Resultado acotado: truncated indica que había más filas que el límite
+     */
+    public record Result(List<CustomerResource> customers, boolean truncated) {}
+
+    /**
+     * Clientes que cumplen where (sobre el alias c), ordenados por id, hasta limit filas.
+     */
+    public Result find(String where, List<Object> params, int limit) {
+        return find(where, params, limit, 0);
+    }
+
+    /**
+     * Igual que find, con cada consulta acotada en el servidor a maxExecutionMs (hint
+     * MAX_EXECUTION_TIME de MySQL): al vencer, MySQL aborta la consulta y libera la conexión,
+     * cosa que cancelar el Future del llamador no hace. 0 = sin límite.
+     */
+    public Result find(String where, List<Object> params, int limit, long maxExecutionMs) {
+        List<Object> args = new ArrayList<>(params);
+        args.add(limit + 1);
+        List<Object[]> rows = jdbcTemplate.query(
+                withMaxExecutionTime(CUSTOMER_SELECT + "WHERE " + where + " ORDER BY c.id LIMIT ?", maxExecutionMs),
+                (rs, rowNum) -> readRow(rs),
+                args.toArray());
+
+        boolean truncated = rows.size() > limit;
+        if (truncated) {
+            rows = rows.subList(0, limit);
+        }
+        return new Result(toResources(rows, maxExecutionMs), truncated);
+    }
+
+    /**
+     * Convierte filas leídas con readRow a recursos, cargando sus contactos en una sola consulta
+     */
+    public List<CustomerResource> toResources(List<Object[]> rows) {
+        return toResources(rows, 0);
+    }
+
+    private List<CustomerResource> toResources(List<Object[]> rows, long maxExecutionMs) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<ContactMethodResource>> contacts = loadContacts(
+                rows.stream().map(CustomerResourceProjection::id).toList(), maxExecutionMs);
+        List<CustomerResource> resources = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            resources.add(toResource(row, contacts.getOrDefault(id(row), List.of())));
+        }
+        return resources;
+    }
+
+    /**
+     * Fila actual de un ResultSet de CUSTOMER_SELECT
+     */
+    public Object[] readRow(ResultSet rs) throws SQLException {
+        int columnCount = rs.getMetaData().getColumnCount();
+        Object[] columns = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = rs.getObject(i + 1);
+        }
+        return columns;
+    }
+
+    public static Long id(Object[] row) {
+        return lng(row[0]);
+    }
+
+    private Map<Long, List<ContactMethodResource>> loadContacts(List<Long> customerIds, long maxExecutionMs) {
+        String placeholders = String.join(", ", Collections.nCopies(customerIds.size(), "?"));
+        Map<Long, List<ContactMethodResource>> byCustomer = new HashMap<>();
+        jdbcTemplate.query(withMaxExecutionTime(String.format(CONTACT_SQL, placeholders), maxExecutionMs), rs -> {
+            byCustomer.computeIfAbsent(rs.getLong("id_cliente"), k -> new ArrayList<>()).add(new ContactMethodResource(
+                    rs.getLong("id"),
+                    rs.getString("tipo_contacto"),
+                    rs.getString("subtipo"),
+                    rs.getString("valor"),
+                    rs.getString("etiqueta"),
+                    rs.getObject("fecha_importacion", LocalDate.class),
+                    rs.getString("estado"),
+                    rs.getString("estado_osiptel"),
+                    rs.getString("estado_whatsapp")
+            ));
+        }, customerIds.toArray());
+        return byCustomer;
+    }
+
+    private static String withMaxExecutionTime(String select, long maxExecutionMs) {
+        if (maxExecutionMs <= 0) {
+            return select;
+        }
+        return "SELECT /*+ MAX_EXECUTION_TIME(" + maxExecutionMs + ") */ " + select.substring("SELECT ".length());
+    }
+
+    private CustomerResource toResource(Object[] c, List<ContactMethodResource> contactMethods) {
+        return new CustomerResource(
+                lng(c[0]),
+                str(c[1]),
+                str(c[2]),
+                str(c[3]),
+                // Información financiera/deuda
+                integer(c[4]),
+                dbl(c[5]),
+                dbl(c[6]),
+                str(c[7]),
+                str(c[8]),
+                "DNI", // mismo default que CustomerResourceFromEntityAssembler
+                date(c[9]),
+                integer(c[10]),
+                // Nombres
+                str(c[11]),
+                str(c[12]),
+                str(c[13]),
+                str(c[14]),
+                // Datos personales
+                str(c[15]),
+                str(c[16]),
+                str(c[17]),
+                // Ubicación
+                str(c[18]),
+                str(c[19]),
+                str(c[20]),
+                str(c[21]),
+                // Referencias
+                str(c[22]),
+                // Estado
+                str(c[23]),
+                date(c[24]),
+                // Métodos de contacto
+                contactMethods,
+                // Información de jerarquía multi-tenant
+                lng(c[25]),
+                str(c[26]),
+                lng(c[27]),
+                str(c[28]),
+                lng(c[29]),
+                str(c[30]),
+                str(c[31])
+        );
+    }
+
+    private static String str(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static Integer integer(Object value) {
+        return value instanceof Number n ? n.intValue() : null;
+    }
+
+    private static Long lng(Object value) {
+        return value instanceof Number n ? n.longValue() : null;
+    }
+
+    private static Double dbl(Object value) {
+        return value instanceof Number n ? n.doubleValue() : null;
+    }
+
+    private static LocalDate date(Object value) {
+        if (value instanceof LocalDate d) return d;
+        if (value instanceof java.sql.Date d) return d.toLocalDate();
+        if (value instanceof LocalDateTime dt) return dt.toLocalDate();
+        return null;
+    }
+}
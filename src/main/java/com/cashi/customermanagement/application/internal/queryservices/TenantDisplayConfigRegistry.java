@@ -0,0 +1,180 @@
+package com.cashi.customermanagement.application.internal.queryservices;
+
+import com.cashi.customermanagement.domain.model.valueobjects.CustomerDataMapping;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Configuraciones de visualización de clientes por tenant (tenant-configurations/*.json),
+ * parseadas una sola vez y servidas ya serializadas con su ETag.
+ *
+ * - Al arrancar se leen las del classpath y, si está definido, las de app.tenant-config.dir
+ *   (mismo nombre de archivo = reemplaza a la del classpath).
+ * - El registro es un mapa inmutable que se reemplaza completo en cada recarga.
+ * - Recarga sin reinicio: reload() (endpoint de administración) o, cada reload-check-ms, cuando
+ *   cambia algún archivo de app.tenant-config.dir.
+ * - Un archivo que deja de parsear conserva su versión anterior.
+ */
+@Component
+public class TenantDisplayConfigRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantDisplayConfigRegistry.class);
+
+    private static final String CLASSPATH_PATTERN = "classpath*:tenant-configurations/*.json";
+
+    /**
+     * customerDisplayConfig serializado y su ETag (entre comillas, listo para la cabecera)
+     */
+    public record DisplayConfig(byte[] json, String etag, int sections) {}
+
+    private final ObjectMapper objectMapper;
+
+    // Directorio opcional con configuraciones editables en caliente
+    @Value("${app.tenant-config.dir:}")
+    private String overrideDir;
+
+    private volatile Map<String, DisplayConfig> configs = Map.of();
+    private volatile String overrideFingerprint = "";
+
+    public TenantDisplayConfigRegistry(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Configuración por código de tenant (nombre del archivo, sin distinguir mayúsculas)
+     */
+    public Optional<DisplayConfig> find(String tenantCode) {
+        return Optional.ofNullable(configs.get(tenantCode.toLowerCase()));
+    }
+
+    /**
+     * Relee todas las configuraciones y reemplaza el registro.
+     *
+     * @return número de tenants con customerDisplayConfig
+     */
+    public synchronized int reload() {
+        Map<String, DisplayConfig> previous = configs;
+        Map<String, DisplayConfig> loaded = new HashMap<>();
+
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN)) {
+                String filename = resource.getFilename();
+                if (filename != null) {
+                    try (InputStream in = resource.getInputStream()) {
+                        load(tenantKey(filename), in, loaded, previous);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error listando configuraciones de tenant del classpath: {}", e.getMessage());
+        }
+
+        Path dir = overrideDirectory();
+        if (dir != null) {
+            for (Path file : listJson(dir)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    load(tenantKey(file.getFileName().toString()), in, loaded, previous);
+                } catch (IOException e) {
+                    logger.error("No se pudo leer la configuración {}: {}", file, e.getMessage());
+                }
+            }
+            overrideFingerprint = fingerprint(dir);
+        }
+
+        configs = Map.copyOf(loaded);
+        logger.info("📋 Configuraciones de visualización cargadas: {}", new TreeSet<>(loaded.keySet()));
+        return loaded.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.tenant-config.reload-check-ms:30000}")
+    public void reloadIfChanged() {
+        Path dir = overrideDirectory();
+        if (dir != null && !fingerprint(dir).equals(overrideFingerprint)) {
+            logger.info("Cambios en {}: recargando configuraciones de tenant", dir);
+            reload();
+        }
+    }
+
+    private void load(String key, InputStream in, Map<String, DisplayConfig> loaded,
+                      Map<String, DisplayConfig> previous) {
+        try {
+            JsonNode displayConfigNode = objectMapper.readTree(in).path("customerDataMapping").path("customerDisplayConfig");
+            if (displayConfigNode.isMissingNode()) {
+                loaded.remove(key);
+                return;
+            }
+            CustomerDataMapping.CustomerDisplayConfig displayConfig =
+                    objectMapper.treeToValue(displayConfigNode, CustomerDataMapping.CustomerDisplayConfig.class);
+            byte[] json = objectMapper.writeValueAsBytes(displayConfig);
+            int sections = displayConfig.getSections() != null ? displayConfig.getSections().size() : 0;
+            loaded.put(key, new DisplayConfig(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", sections));
+        } catch (IOException e) {
+            DisplayConfig kept = previous.get(key);
+            if (kept != null) {
+                loaded.put(key, kept);
+                logger.error("❌ Configuración de tenant {} inválida, se conserva la anterior: {}", key, e.getMessage());
+            } else {
+                logger.error("❌ Configuración de tenant {} inválida: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private Path overrideDirectory() {
+        if (overrideDir == null || overrideDir.isBlank()) {
+            return null;
+        }
+        Path dir = Paths.get(overrideDir);
+        return Files.isDirectory(dir) ? dir : null;
+    }
+
+    private static List<Path> listJson(Path dir) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.json")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            logger.error("No se pudo listar {}: {}", dir, e.getMessage());
+        }
+        files.sort(Comparator.naturalOrder());
+        return files;
+    }
+
+    // Nombre, tamaño y fecha de cada archivo: cambia si se agrega, borra o edita alguno
+    private static String fingerprint(Path dir) {
+        StringBuilder sb = new StringBuilder();
+        for (Path file : listJson(dir)) {
+            try {
+                sb.append(file.getFileName()).append(':').append(Files.size(file)).append(':')
+                        .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+            } catch (IOException e) {
+                sb.append(file.getFileName()).append(":?;");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String tenantKey(String filename) {
+        return filename.substring(0, filename.length() - ".json".length()).toLowerCase();
+    }
+}
@@ -0,0 +1,452 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.domain.model.aggregates.ChunkedUpload;
+import com.cashi.customermanagement.domain.model.entities.ChunkedUploadPart;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ChunkedUploadPartRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ChunkedUploadRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportConfigurationRepository;
+import com.cashi.shared.util.CompressedImportFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Subida reanudable de archivos de importación grandes: init / parte N / complete.
+ *
+ * - Cada parte se recibe en un temporal propio (sin pasar por MultipartFile) mientras se calcula
+ *   su SHA-256 y solo se copia a su posición del archivo de staging si su tamaño y checksum son
+ *   correctos; si el cliente envió X-Chunk-Checksum y no coincide, la parte no se registra y
+ *   debe reenviarse. En complete se vuelve a verificar cada parte sobre el archivo ensamblado.
+ * - Las partes recibidas quedan en cargas_fragmentadas_partes: tras un corte el cliente consulta
+ *   la carga y reenvía solo las que faltan (en cualquier orden, incluso en paralelo).
+ * - En complete el archivo ensamblado se importa con FileWatcherService.importStagedFile, el
+ *   mismo camino (lectura en streaming, hash, historial, lock de subcartera) que la carpeta
+ *   monitoreada de la configuración indicada en init.
+ *
+ * El staging es local al nodo: con varias réplicas, las peticiones de una carga deben llegar
+ * al mismo nodo (afinidad en el balanceador).
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int IO_BUFFER = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final String CHUNK_SUFFIX = ".chunk";
+
+    private final ChunkedUploadRepository uploadRepository;
+    private final ChunkedUploadPartRepository partRepository;
+    private final ImportConfigurationRepository configRepository;
+    private final FileWatcherService fileWatcherService;
+    private final FileFingerprintService fingerprintService;
+
+    private final Path stagingRoot;
+    private final int defaultChunkSize;
+    private final long maxFileBytes;
+    private final Duration expireAfter;
+    private final Duration importingExpireAfter;
+
+    public ChunkedUploadService(ChunkedUploadRepository uploadRepository,
+                                ChunkedUploadPartRepository partRepository,
+                                ImportConfigurationRepository configRepository,
+                                FileWatcherService fileWatcherService,
+                                FileFingerprintService fingerprintService,
+                                @Value("${app.chunked-upload.staging-dir:${java.io.tmpdir}/cashi-uploads}") String stagingDir,
+                                @Value("${app.chunked-upload.chunk-size:8388608}") int defaultChunkSize,
+                                @Value("${app.chunked-upload.max-file-bytes:2147483648}") long maxFileBytes,
+                                @Value("${app.chunked-upload.expire-after:PT24H}") Duration expireAfter,
+                                @Value("${app.chunked-upload.importing-expire-after:PT6H}") Duration importingExpireAfter) {
+        this.uploadRepository = uploadRepository;
+        this.partRepository = partRepository;
+        this.configRepository = configRepository;
+        this.fileWatcherService = fileWatcherService;
+        this.fingerprintService = fingerprintService;
+        this.stagingRoot = Paths.get(stagingDir);
+        this.defaultChunkSize = clampChunkSize(defaultChunkSize);
+        this.maxFileBytes = maxFileBytes;
+        this.expireAfter = expireAfter;
+        this.importingExpireAfter = importingExpireAfter;
+    }
+
+    /**
+     * Registra la carga y reserva el archivo de staging con el tamaño final.
+     */
+    public Map<String, Object> init(String fileName, Long totalSize, Integer chunkSize, Long configId) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("El nombre del archivo es obligatorio");
+        }
+        // Solo el nombre: el cliente no decide rutas dentro del staging
+        String safeName = new File(fileName).getName();
+        if (!CompressedImportFile.isSupported(safeName)) {
+            throw new IllegalArgumentException("Formato de archivo no soportado. Use .xlsx, .xls, .csv, .gz o .zip");
+        }
+        if (totalSize == null || totalSize <= 0) {
+            throw new IllegalArgumentException("El tamaño total debe ser mayor a 0");
+        }
+        if (totalSize > maxFileBytes) {
+            throw new IllegalArgumentException("El archivo excede el tamaño máximo permitido (" + maxFileBytes + " bytes)");
+        }
+        if (configId == null || !configRepository.existsById(configId)) {
+            throw new IllegalArgumentException("Configuración de importación no encontrada: " + configId);
+        }
+        int effectiveChunkSize = chunkSize != null ? clampChunkSize(chunkSize) : defaultChunkSize;
+
+        String uploadId = UUID.randomUUID().toString();
+        Path directory = stagingRoot.resolve(uploadId);
+        Files.createDirectories(directory);
+        try (RandomAccessFile raf = new RandomAccessFile(directory.resolve(safeName + PART_SUFFIX).toFile(), "rw")) {
+            raf.setLength(totalSize);
+        }
+
+        ChunkedUpload upload = new ChunkedUpload(uploadId, safeName, totalSize, effectiveChunkSize,
+                configId, directory.toAbsolutePath().toString());
+        uploadRepository.save(upload);
+
+        logger.info("📦 Carga por partes {} iniciada: {} ({} bytes, {} partes de {} bytes)",
+                uploadId, safeName, totalSize, upload.getTotalChunks(), effectiveChunkSize);
+        return toStatus(upload, List.of());
+    }
+
+    /**
+     * Escribe la parte index en su posición y la registra con su SHA-256.
+     * Reenviar una parte ya recibida la sobrescribe (reintento idempotente); un reenvío inválido
+     * se rechaza sin tocar la parte aceptada antes.
+     */
+    public Map<String, Object> putChunk(String uploadId, int index, InputStream body, String expectedChecksum) throws IOException {
+        ChunkedUpload upload = find(uploadId);
+        if (!upload.isInProgress()) {
+            throw new IllegalStateException("La carga " + uploadId + " ya no acepta partes (estado " + upload.getStatus() + ")");
+        }
+        if (index < 0 || index >= upload.getTotalChunks()) {
+            throw new IllegalArgumentException("Número de parte fuera de rango: " + index
+                    + " (0.." + (upload.getTotalChunks() - 1) + ")");
+        }
+
+        long expectedLength = upload.expectedChunkLength(index);
+        long offset = (long) index * upload.getChunkSize();
+        Path partFile = partFile(upload);
+        MessageDigest digest = sha256();
+        long written = 0;
+
+        // La parte se recibe en su propio temporal y solo se copia a su posición del .part una vez
+        // validada: un reintento truncado o corrupto no pisa bytes de una parte ya aceptada
+        Path chunkFile = Files.createTempFile(partFile.getParent(), upload.getFileName() + "." + index + ".", CHUNK_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(chunkFile, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[IO_BUFFER];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (written + read > expectedLength) {
+                        throw new IllegalArgumentException("La parte " + index + " excede los " + expectedLength + " bytes esperados");
+                    }
+                    digest.update(buffer, 0, read);
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        written += channel.write(bytes);
+                    }
+                }
+            }
+
+            if (written != expectedLength) {
+                throw new IllegalArgumentException("La parte " + index + " llegó incompleta: " + written
+                        + " de " + expectedLength + " bytes");
+            }
+            String checksum = HexFormat.of().formatHex(digest.digest());
+            if (expectedChecksum != null && !expectedChecksum.isBlank() && !expectedChecksum.trim().equalsIgnoreCase(checksum)) {
+                throw new IllegalArgumentException("Checksum de la parte " + index + " no coincide (recibido " + checksum + ")");
+            }
+
+            try (FileChannel source = FileChannel.open(chunkFile, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+                long copied = 0;
+                while (copied < written) {
+                    copied += target.transferFrom(source, offset + copied, written - copied);
+                }
+            }
+            return registerPart(upload, index, (int) written, checksum);
+        } finally {
+            Files.deleteIfExists(chunkFile);
+        }
+    }
+
+    /**
+     * Estado de la carga con las partes que faltan: lo que el cliente necesita para reanudar.
+     */
+    public Map<String, Object> status(String uploadId) {
+        ChunkedUpload upload = find(uploadId);
+        return toStatus(upload, partRepository.findChunkIndexes(uploadId));
+    }
+
+    /**
+     * Con todas las partes recibidas, importa el archivo ensamblado. Repetir complete sobre una
+     * carga ya importada devuelve su estado sin volver a importarla.
+     */
+    public Map<String, Object> complete(String uploadId) throws IOException {
+        ChunkedUpload upload = find(uploadId);
+        List<Integer> received = partRepository.findChunkIndexes(uploadId);
+        if (!upload.isInProgress()) {
+            return toStatus(upload, received);
+        }
+        if (received.size() < upload.getTotalChunks()) {
+            throw new IllegalStateException("Faltan " + (upload.getTotalChunks() - received.size())
+                    + " partes para completar la carga " + uploadId);
+        }
+        if (uploadRepository.transition(uploadId, ChunkedUpload.STATUS_IN_PROGRESS, ChunkedUpload.STATUS_IMPORTING,
+                LocalDateTime.now()) == 0) {
+            // Otra petición ganó la transición
+            return toStatus(find(uploadId), received);
+        }
+
+        List<Integer> corrupted;
+        try {
+            corrupted = discardCorruptedParts(upload);
+        } catch (IOException | RuntimeException e) {
+            uploadRepository.transition(uploadId, ChunkedUpload.STATUS_IMPORTING, ChunkedUpload.STATUS_IN_PROGRESS,
+                    LocalDateTime.now());
+            throw e;
+        }
+        if (!corrupted.isEmpty()) {
+            uploadRepository.transition(uploadId, ChunkedUpload.STATUS_IMPORTING, ChunkedUpload.STATUS_IN_PROGRESS,
+                    LocalDateTime.now());
+            logger.warn("⚠️ Carga {}: partes {} no coinciden con su checksum, se piden de nuevo", uploadId, corrupted);
+            throw new IllegalStateException("Las partes " + corrupted + " de la carga " + uploadId
+                    + " no coinciden con su checksum y deben reenviarse");
+        }
+
+        Path part = partFile(upload);
+        Path file = part.resolveSibling(upload.getFileName());
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("📦 Carga {} completa, importando {}", uploadId, upload.getFileName());
+
+        Map<String, Object> result;
+        try {
+            result = fileWatcherService.importStagedFile(file.toFile(), upload.getConfigId());
+        } catch (RuntimeException e) {
+            result = Map.of("success", false, "message", "Error: " + e.getMessage());
+        }
+
+        upload = find(uploadId);
+        boolean success = Boolean.TRUE.equals(result.get("success"));
+        boolean duplicate = Boolean.TRUE.equals(result.get("duplicate"));
+        upload.setMessage(String.valueOf(result.get("message")));
+
+        if (!success && !duplicate && Files.exists(file)) {
+            // El archivo sigue en staging (no se movió a la carpeta de errores): se puede reintentar complete
+            Files.move(file, part, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            upload.setStatus(ChunkedUpload.STATUS_IN_PROGRESS);
+        } else {
+            upload.setStatus(success ? ChunkedUpload.STATUS_IMPORTED : ChunkedUpload.STATUS_ERROR);
+            deleteStaging(upload);
+        }
+        uploadRepository.save(upload);
+
+        Map<String, Object> response = toStatus(upload, received);
+        response.put("success", success);
+        response.put("result", result);
+        return response;
+    }
+
+    /**
+     * Cancela la carga y borra su archivo de staging.
+     */
+    public void abort(String uploadId) {
+        ChunkedUpload upload = find(uploadId);
+        if (ChunkedUpload.STATUS_IMPORTING.equals(upload.getStatus())) {
+            throw new IllegalStateException("La carga " + uploadId + " se está importando");
+        }
+        deleteStaging(upload);
+        partRepository.deleteByUploadId(uploadId);
+        uploadRepository.delete(upload);
+        logger.info("Carga por partes {} cancelada", uploadId);
+    }
+
+    /**
+     * Borra las cargas abandonadas (sin partes nuevas durante app.chunked-upload.expire-after; cada
+     * parte recibida renueva fecha_actualizacion) y cierra como ERROR las que quedaron en IMPORTANDO
+     * más de importing-expire-after (el nodo cayó durante la importación y abort no las acepta).
+     * Solo las de este nodo: el staging de otra réplica no está en este disco.
+     */
+    @Scheduled(fixedDelayString = "${app.chunked-upload.cleanup-ms:3600000}")
+    public void expireAbandonedUploads() {
+        try {
+            LocalDateTime limit = LocalDateTime.now().minus(expireAfter);
+            for (ChunkedUpload upload : uploadRepository.findByStatusAndUpdatedAtBefore(ChunkedUpload.STATUS_IN_PROGRESS, limit)) {
+                if (!Files.isDirectory(Paths.get(upload.getStagingPath()))) {
+                    continue;
+                }
+                logger.info("Carga por partes {} ({}) expirada, se elimina", upload.getId(), upload.getFileName());
+                deleteStaging(upload);
+                partRepository.deleteByUploadId(upload.getId());
+                uploadRepository.delete(upload);
+            }
+
+            LocalDateTime importingLimit = LocalDateTime.now().minus(importingExpireAfter);
+            for (ChunkedUpload upload : uploadRepository.findByStatusAndUpdatedAtBefore(ChunkedUpload.STATUS_IMPORTING, importingLimit)) {
+                if (!Files.isDirectory(Paths.get(upload.getStagingPath()))) {
+                    continue;
+                }
+                logger.warn("Carga por partes {} ({}) quedó importando desde {}, se cierra como ERROR",
+                        upload.getId(), upload.getFileName(), upload.getUpdatedAt());
+                deleteStaging(upload);
+                partRepository.deleteByUploadId(upload.getId());
+                upload.setStatus(ChunkedUpload.STATUS_ERROR);
+                upload.setMessage("Importación interrumpida (sin respuesta durante " + importingExpireAfter + ")");
+                uploadRepository.save(upload);
+            }
+        } catch (Exception e) {
+            logger.error("Error al limpiar cargas por partes: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recalcula el SHA-256 de cada parte sobre el archivo ensamblado; las que no coinciden con el
+     * registrado se borran de cargas_fragmentadas_partes para que el cliente las reenvíe.
+     *
+     * @return índices de las partes descartadas
+     */
+    private List<Integer> discardCorruptedParts(ChunkedUpload upload) throws IOException {
+        List<ChunkedUploadPart> corrupted = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+        try (FileChannel channel = FileChannel.open(partFile(upload), StandardOpenOption.READ)) {
+            for (ChunkedUploadPart part : partRepository.findByUploadIdOrderByChunkIndex(upload.getId())) {
+                MessageDigest digest = sha256();
+                long position = (long) part.getChunkIndex() * upload.getChunkSize();
+                long end = position + upload.expectedChunkLength(part.getChunkIndex());
+                while (position < end) {
+                    buffer.clear().limit((int) Math.min(IO_BUFFER, end - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    position += read;
+                }
+                if (position < end || !HexFormat.of().formatHex(digest.digest()).equals(part.getChecksum())) {
+                    corrupted.add(part);
+                }
+            }
+        }
+        if (!corrupted.isEmpty()) {
+            partRepository.deleteAll(corrupted);
+        }
+        return corrupted.stream().map(ChunkedUploadPart::getChunkIndex).toList();
+    }
+
+    private Map<String, Object> registerPart(ChunkedUpload upload, int index, int size, String checksum) {
+        String uploadId = upload.getId();
+        savePart(uploadId, index, size, checksum);
+        uploadRepository.touch(uploadId, LocalDateTime.now());
+
+        List<Integer> received = partRepository.findChunkIndexes(uploadId);
+        logger.debug("Carga {}: parte {} recibida ({}/{})", uploadId, index, received.size(), upload.getTotalChunks());
+
+        Map<String, Object> response = toStatus(upload, received);
+        response.put("chunkIndex", index);
+        response.put("checksum", checksum);
+        return response;
+    }
+
+    private void savePart(String uploadId, int index, int size, String checksum) {
+        ChunkedUploadPart part = partRepository.findByUploadIdAndChunkIndex(uploadId, index)
+                .orElseGet(() -> new ChunkedUploadPart(uploadId, index));
+        part.setSizeBytes(size);
+        part.setChecksum(checksum);
+        try {
+            partRepository.save(part);
+        } catch (DataIntegrityViolationException e) {
+            // La misma parte llegó dos veces en paralelo: el contenido es el mismo, se actualiza la fila existente
+            ChunkedUploadPart existing = partRepository.findByUploadIdAndChunkIndex(uploadId, index).orElseThrow(() -> e);
+            existing.setSizeBytes(size);
+            existing.setChecksum(checksum);
+            partRepository.save(existing);
+        }
+    }
+
+    private Map<String, Object> toStatus(ChunkedUpload upload, List<Integer> received) {
+        Set<Integer> receivedSet = new HashSet<>(received);
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < upload.getTotalChunks(); i++) {
+            if (!receivedSet.contains(i)) {
+                missing.add(i);
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("uploadId", upload.getId());
+        response.put("fileName", upload.getFileName());
+        response.put("status", upload.getStatus());
+        response.put("totalSize", upload.getTotalSize());
+        response.put("chunkSize", upload.getChunkSize());
+        response.put("totalChunks", upload.getTotalChunks());
+        response.put("receivedChunks", receivedSet.size());
+        response.put("missingChunks", missing);
+        response.put("configId", upload.getConfigId());
+        if (upload.getMessage() != null) {
+            response.put("message", upload.getMessage());
+        }
+        return response;
+    }
+
+    private ChunkedUpload find(String uploadId) {
+        return uploadRepository.findById(uploadId)
+                .orElseThrow(() -> new NoSuchElementException("Carga no encontrada: " + uploadId));
+    }
+
+    private Path partFile(ChunkedUpload upload) {
+        return Paths.get(upload.getStagingPath()).resolve(upload.getFileName() + PART_SUFFIX);
+    }
+
+    private void deleteStaging(ChunkedUpload upload) {
+        Path directory = Paths.get(upload.getStagingPath());
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                fingerprintService.forget(file.toFile());
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el staging de la carga {}: {}", upload.getId(), e.getMessage());
+        }
+    }
+
+    private static int clampChunkSize(int chunkSize) {
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.cashi.customermanagement.application.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de accesos a clientes (pantalla del agente) con escritura diferida.
+ *
+ * - record() solo anota en memoria: el último acceso por cliente (se fusionan los repetidos) y
+ *   las listas de recientes, global y por agente (anillos acotados, sin duplicados).
+ * - flush() cada app.customer-access.flush-ms escribe clientes.ultimo_acceso con un UPDATE por
+ *   lote de ids, en lugar de un findById + save por cada apertura de ficha.
+ * - Los recientes se sirven desde memoria (por nodo); si el anillo global aún está vacío
+ *   (arranque), el llamador consulta la base como antes.
+ *
+ * Con app.customer-access.write-behind.enabled=false el controlador mantiene el guardado directo.
+ */
+@Service
+public class CustomerAccessTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerAccessTracker.class);
+
+    private static final int UPDATE_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.customer-access.write-behind.enabled:false}")
+    private boolean enabled;
+
+    // Clientes distintos que recuerda cada anillo de recientes
+    @Value("${app.customer-access.recent-capacity:20}")
+    private int recentCapacity;
+
+    // Accesos pendientes de escribir: id de cliente -> fecha del último acceso
+    private final ConcurrentHashMap<Long, LocalDate> pending = new ConcurrentHashMap<>();
+
+    private final RecentRing globalRecent = new RecentRing();
+    private final ConcurrentHashMap<String, RecentRing> recentByAgent = new ConcurrentHashMap<>();
+
+    public CustomerAccessTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Anota el acceso de un agente (agentId opcional) a un cliente; no toca la base.
+     */
+    public void record(Long customerId, String agentId) {
+        pending.put(customerId, LocalDate.now());
+        globalRecent.push(customerId, recentCapacity);
+        if (agentId != null && !agentId.isBlank()) {
+            recentByAgent.computeIfAbsent(agentId, k -> new RecentRing()).push(customerId, recentCapacity);
+        }
+    }
+
+    /**
+     * IDs de los últimos clientes accedidos, del más reciente al más antiguo.
+     * agentId null = lista global del nodo.
+     */
+    public List<Long> recentCustomerIds(String agentId, int limit) {
+        RecentRing ring = agentId != null && !agentId.isBlank() ? recentByAgent.get(agentId) : globalRecent;
+        return ring != null ? ring.snapshot(limit) : List.of();
+    }
+
+    @Scheduled(fixedDelayString = "${app.customer-access.flush-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Se retira cada entrada solo si no cambió mientras tanto (remove(key, value)); un acceso
+        // que llega durante el flush queda para la siguiente vuelta.
+        Map<LocalDate, List<Long>> idsByDate = new HashMap<>();
+        for (Map.Entry<Long, LocalDate> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                idsByDate.computeIfAbsent(entry.getValue(), d -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        int updated = 0;
+        for (Map.Entry<LocalDate, List<Long>> byDate : idsByDate.entrySet()) {
+            List<Long> ids = byDate.getValue();
+            for (int i = 0; i < ids.size(); i += UPDATE_BATCH_SIZE) {
+                List<Long> batch = ids.subList(i, Math.min(i + UPDATE_BATCH_SIZE, ids.size()));
+                try {
+                    updated += updateLastAccess(byDate.getKey(), batch);
+                } catch (Exception e) {
+                    // Se reencolan para no perder el acceso; un acceso más nuevo gana
+                    for (Long id : batch) {
+                        pending.merge(id, byDate.getKey(), (current, failed) -> current.isAfter(failed) ? current : failed);
+                    }
+                    logger.warn("No se pudo registrar el último acceso de {} clientes: {}", batch.size(), e.getMessage());
+                }
+            }
+        }
+        logger.debug("Accesos de clientes: {} filas actualizadas", updated);
+    }
+
+    private int updateLastAccess(LocalDate date, List<Long> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = new Object[ids.size() + 2];
+        args[0] = date;
+        for (int i = 0; i < ids.size(); i++) {
+            args[i + 1] = ids.get(i);
+        }
+        args[args.length - 1] = date;
+        // La columna es DATE: los accesos del mismo día no reescriben la fila
+        return jdbcTemplate.update(
+                "UPDATE clientes SET ultimo_acceso = ? WHERE id IN (" + placeholders + ")" +
+                " AND (ultimo_acceso IS NULL OR ultimo_acceso < ?)", args);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Últimos clientes distintos, del más reciente al más antiguo, acotado a capacity.
+     */
+    private static final class RecentRing {
+        private final ArrayDeque<Long> ids = new ArrayDeque<>();
+
+        synchronized void push(Long customerId, int capacity) {
+            ids.remove(customerId);
+            ids.addFirst(customerId);
+            while (ids.size() > capacity) {
+                ids.removeLast();
+            }
+        }
+
+        synchronized List<Long> snapshot(int limit) {
+            List<Long> result = new ArrayList<>(Math.min(limit, ids.size()));
+            for (Long id : ids) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(id);
+            }
+            return result;
+        }
+    }
+}
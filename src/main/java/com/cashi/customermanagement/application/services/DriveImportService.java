@@ -0,0 +1,81 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportHistoryRepository;
+import com.cashi.shared.application.services.GoogleDriveService;
+import com.cashi.shared.util.CompressedImportFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Importación de archivos de Google Drive hacia la subcartera de una configuración.
+ *
+ * - Primero se consultan solo los metadatos: si la revisión actual (headRevisionId, o la
+ *   versión de una hoja de Google) ya se importó con éxito, el archivo no se descarga.
+ * - El contenido se lee en streaming desde Drive directamente hacia los lectores CSV/XLSX de
+ *   FileWatcherService; un corte de conexión se reanuda con Range desde el último byte.
+ * - Las hojas de Google se exportan como CSV (primera hoja).
+ */
+@Service
+public class DriveImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveImportService.class);
+
+    private static final String STATUS_SUCCESS = "EXITOSO";
+    private static final String CSV_MIME = "text/csv";
+
+    private final GoogleDriveService googleDriveService;
+    private final FileWatcherService fileWatcherService;
+    private final ImportHistoryRepository historyRepository;
+
+    public DriveImportService(GoogleDriveService googleDriveService,
+                              FileWatcherService fileWatcherService,
+                              ImportHistoryRepository historyRepository) {
+        this.googleDriveService = googleDriveService;
+        this.fileWatcherService = fileWatcherService;
+        this.historyRepository = historyRepository;
+    }
+
+    public Map<String, Object> importDriveFile(String fileId, Long configId) throws IOException {
+        GoogleDriveService.DriveRevision revision = googleDriveService.getRevision(fileId);
+
+        if (revision.revision() != null && historyRepository.existsByDriveFileIdAndDriveRevisionAndStatus(
+                fileId, revision.revision(), STATUS_SUCCESS)) {
+            logger.info("Drive {} ({}): revisión {} ya importada, no se descarga",
+                    fileId, revision.name(), revision.revision());
+            return Map.of(
+                "success", false,
+                "message", "La revisión actual de este archivo ya fue importada (sin cambios)",
+                "fileName", revision.name(),
+                "driveRevision", revision.revision(),
+                "duplicate", true
+            );
+        }
+
+        String fileName;
+        FileWatcherService.ContentSource content;
+        if (revision.isGoogleSheet()) {
+            fileName = revision.name() + ".csv";
+            content = () -> googleDriveService.openExport(fileId, CSV_MIME);
+        } else {
+            fileName = revision.name();
+            if (!CompressedImportFile.isSupported(fileName)) {
+                throw new IllegalArgumentException("Formato de archivo no soportado: " + fileName);
+            }
+            content = () -> googleDriveService.openDownload(fileId, revision.revision(), revision.size());
+        }
+
+        logger.info("Drive {} ({}): importando revisión {}", fileId, fileName, revision.revision());
+        return fileWatcherService.importRemoteFile(configId, new FileWatcherService.RemoteFile(
+                fileName,
+                "gdrive://" + fileId,
+                revision.md5Checksum(),
+                fileId,
+                revision.revision(),
+                content
+        ));
+    }
+}
@@ -0,0 +1,226 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.domain.model.entities.FileFingerprint;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.FileFingerprintRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * Huellas de los archivos de importación automática (tabla huellas_archivos).
+ *
+ * El MD5 del contenido (el mismo que se guarda en historial_importaciones.file_hash) se
+ * reutiliza mientras la clave barata (ruta canónica, tamaño, fecha de modificación) no cambie,
+ * así los escaneos repetidos del directorio no vuelven a leer archivos de cientos de MB.
+ *
+ * Además se guarda un pre-hash CRC32C de los primeros y últimos PRE_HASH_BLOCK bytes + tamaño.
+ * No sirve para afirmar que dos archivos son iguales, solo para descartar rápido: si ningún
+ * archivo importado con éxito tiene el mismo (tamaño, pre-hash), el contenido es nuevo.
+ */
+@Service
+public class FileFingerprintService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileFingerprintService.class);
+
+    private static final int PRE_HASH_BLOCK = 64 * 1024;
+    private static final int MAX_PATH_LENGTH = 500;
+    private static final String STATUS_SUCCESS = "EXITOSO";
+
+    private final FileFingerprintRepository fingerprintRepository;
+    private final ImportHistoryRepository historyRepository;
+
+    public FileFingerprintService(FileFingerprintRepository fingerprintRepository,
+                                  ImportHistoryRepository historyRepository) {
+        this.fingerprintRepository = fingerprintRepository;
+        this.historyRepository = historyRepository;
+    }
+
+    /**
+     * MD5 del contenido en hexadecimal (32 caracteres). Solo se lee el archivo completo si
+     * la ruta es nueva o cambió su tamaño/fecha de modificación desde el último cálculo.
+     */
+    public String contentHash(File file) throws IOException {
+        Path path = file.toPath();
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        String key = canonicalPath(file);
+
+        Optional<FileFingerprint> cached = key != null ? fingerprintRepository.findByFilePath(key) : Optional.empty();
+        if (cached.isPresent() && cached.get().matches(size, lastModified) && cached.get().getFileHash() != null) {
+            logger.debug("Huella en caché para {}", file.getName());
+            return cached.get().getFileHash();
+        }
+
+        String preHash = preHash(path, size);
+        String fileHash = md5(path);
+        save(cached.orElse(null), key, size, lastModified, preHash, fileHash);
+        return fileHash;
+    }
+
+    /**
+     * ¿El contenido de este archivo ya se importó con éxito? Pensado para el escaneo de la UI:
+     * si la clave barata no cambió usa el MD5 guardado; si cambió, primero prueba el pre-hash y
+     * solo calcula el MD5 cuando hay algún archivo importado con el mismo tamaño y pre-hash.
+     *
+     * Los archivos importados antes de existir la tabla de huellas no tienen pre-hash: hasta que la
+     * importación automática los vuelva a hashear pueden mostrarse como pendientes (la importación
+     * siempre decide con el MD5 exacto, así que no se reimportan).
+     */
+    public boolean isProcessed(File file) throws IOException {
+        Path path = file.toPath();
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        String key = canonicalPath(file);
+
+        Optional<FileFingerprint> cached = key != null ? fingerprintRepository.findByFilePath(key) : Optional.empty();
+        if (cached.isPresent() && cached.get().matches(size, lastModified)) {
+            FileFingerprint fingerprint = cached.get();
+            if (fingerprint.getFileHash() != null) {
+                return historyRepository.existsByFileHashAndStatus(fingerprint.getFileHash(), STATUS_SUCCESS);
+            }
+            if (!fingerprintRepository.existsImportedWithPreHash(size, fingerprint.getPreHash(), STATUS_SUCCESS)) {
+                return false;
+            }
+        } else {
+            String preHash = preHash(path, size);
+            if (!fingerprintRepository.existsImportedWithPreHash(size, preHash, STATUS_SUCCESS)) {
+                save(cached.orElse(null), key, size, lastModified, preHash, null);
+                return false;
+            }
+        }
+
+        return historyRepository.existsByFileHashAndStatus(contentHash(file), STATUS_SUCCESS);
+    }
+
+    /**
+     * Mantiene la huella cuando el archivo se mueve (carpeta de procesados/errores), para que
+     * el pre-hash siga disponible como filtro de archivos ya importados.
+     */
+    public void moved(File source, Path target) {
+        try {
+            String from = canonicalPath(source);
+            String to = canonicalPath(target.toFile());
+            if (from == null || to == null) {
+                return;
+            }
+            fingerprintRepository.findByFilePath(from).ifPresent(fingerprint -> {
+                fingerprintRepository.findByFilePath(to).ifPresent(fingerprintRepository::delete);
+                fingerprint.setFilePath(to);
+                fingerprintRepository.save(fingerprint);
+            });
+        } catch (Exception e) {
+            logger.warn("No se pudo actualizar la huella de {}: {}", source.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Borra la huella de un archivo que se elimina (p. ej. staging de una subida por partes).
+     */
+    public void forget(File file) {
+        try {
+            String key = canonicalPath(file);
+            if (key != null) {
+                fingerprintRepository.findByFilePath(key).ifPresent(fingerprintRepository::delete);
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudo borrar la huella de {}: {}", file.getName(), e.getMessage());
+        }
+    }
+
+    private void save(FileFingerprint existing, String key, long size, long lastModified,
+                      String preHash, String fileHash) {
+        if (key == null) {
+            return;
+        }
+        FileFingerprint fingerprint = existing != null ? existing : new FileFingerprint(key);
+        fingerprint.setSizeBytes(size);
+        fingerprint.setLastModified(lastModified);
+        fingerprint.setPreHash(preHash);
+        fingerprint.setFileHash(fileHash);
+        try {
+            fingerprintRepository.save(fingerprint);
+        } catch (DataIntegrityViolationException e) {
+            // Otro hilo guardó la huella de la misma ruta; la próxima lectura la usará
+            logger.debug("Huella de {} ya registrada concurrentemente", key);
+        }
+    }
+
+    /**
+     * CRC32C de los bloques inicial y final + tamaño, como 16 caracteres hexadecimales.
+     */
+    private String preHash(Path path, long size) throws IOException {
+        CRC32C head = new CRC32C();
+        CRC32C tail = new CRC32C();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(PRE_HASH_BLOCK, size));
+            readFully(channel, buffer, 0);
+            head.update(buffer.flip());
+            head.update(longBytes(size));
+
+            if (size > PRE_HASH_BLOCK) {
+                buffer.clear();
+                readFully(channel, buffer, Math.max(PRE_HASH_BLOCK, size - PRE_HASH_BLOCK));
+                tail.update(buffer.flip());
+            }
+        }
+        return HexFormat.of().toHexDigits((head.getValue() << 32) | tail.getValue());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    private static String md5(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[PRE_HASH_BLOCK];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                md.update(buffer, 0, bytesRead);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 no disponible", e);
+        }
+    }
+
+    /**
+     * Ruta canónica usada como clave; null si no se puede resolver o excede la columna.
+     */
+    private static String canonicalPath(File file) {
+        try {
+            String path = file.getCanonicalPath();
+            return path.length() <= MAX_PATH_LENGTH ? path : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
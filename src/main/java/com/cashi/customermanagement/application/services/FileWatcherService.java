@@ -4,16 +4,18 @@ import com.cashi.customermanagement.domain.model.aggregates.ImportConfiguration;
 import com.cashi.customermanagement.domain.model.aggregates.ImportHistory;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportConfigurationRepository;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportHistoryRepository;
+import com.cashi.shared.application.services.SchedulerLockService;
 import com.cashi.shared.domain.model.valueobjects.LoadType;
+import com.cashi.shared.util.CompressedImportFile;
+import com.cashi.shared.util.StreamingCsvReader;
+import com.cashi.shared.util.StreamingXlsxReader;
 import com.cashi.systemconfiguration.domain.services.HeaderConfigurationCommandService;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import jakarta.annotation.PreDestroy;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -22,10 +24,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,84 +40,318 @@ public class FileWatcherService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileWatcherService.class);
 
+    private static final String TICK_LOCK = "file-watcher";
+    private static final String SUBPORTFOLIO_LOCK_PREFIX = "file-import-subcartera-";
+
     private final ImportConfigurationRepository configRepository;
     private final ImportHistoryRepository historyRepository;
     private final HeaderConfigurationCommandService headerConfigService;
+    private final ImportDirectoryMonitor directoryMonitor;
+    private final FileFingerprintService fingerprintService;
+    private final SchedulerLockService schedulerLockService;
+
+    /** Pool acotado para las importaciones programadas de varias configuraciones */
+    private final ExecutorService importExecutor;
+    /** Una importación a la vez por subcartera (aunque la alimenten varias configuraciones) */
+    private final Map<Integer, ReentrantLock> subPortfolioLocks = new ConcurrentHashMap<>();
+    /** Configuraciones con una ejecución programada en curso o en cola */
+    private final Set<Long> runningConfigs = ConcurrentHashMap.newKeySet();
+
+    /** true: en la hora programada se importan TODOS los archivos pendientes (más antiguo primero) */
+    private final boolean drainAll;
+    /** Tope de archivos por ejecución en modo lote */
+    private final int drainMaxFiles;
+    /** Tras la hora programada, durante cuánto se reintenta si la subcartera estaba ocupada */
+    private final Duration retryWindow;
 
     public FileWatcherService(ImportConfigurationRepository configRepository,
                              ImportHistoryRepository historyRepository,
-                             HeaderConfigurationCommandService headerConfigService) {
+                             HeaderConfigurationCommandService headerConfigService,
+                             ImportDirectoryMonitor directoryMonitor,
+                             FileFingerprintService fingerprintService,
+                             SchedulerLockService schedulerLockService,
+                             @Value("${app.file-watcher.workers:4}") int workers,
+                             @Value("${app.file-watcher.drain-all.enabled:false}") boolean drainAll,
+                             @Value("${app.file-watcher.drain-all.max-files:200}") int drainMaxFiles,
+                             @Value("${app.file-watcher.retry-window:PT1H}") Duration retryWindow) {
         this.configRepository = configRepository;
         this.historyRepository = historyRepository;
         this.headerConfigService = headerConfigService;
+        this.directoryMonitor = directoryMonitor;
+        this.fingerprintService = fingerprintService;
+        this.schedulerLockService = schedulerLockService;
+        this.importExecutor = Executors.newFixedThreadPool(Math.max(1, workers), new ImportThreadFactory());
+        this.drainAll = drainAll;
+        this.drainMaxFiles = Math.max(1, drainMaxFiles);
+        this.retryWindow = retryWindow;
     }
 
     /**
      * Scheduled task que se ejecuta cada minuto
-     * Verifica si es la hora programada para ejecutar la importación automática
+     * Verifica si es la hora programada para ejecutar la importación automática.
+     * Con app.file-watcher.watch-service.enabled, los archivos ya llegan detectados y estables
+     * desde ImportDirectoryMonitor; este tick solo abre la ventana horaria.
      */
     @Scheduled(fixedDelay = 60000) // Cada 1 minuto
     public void checkForNewFiles() {
+        // Con varias réplicas solo un nodo revisa las configuraciones en cada tick; lastCheckAt se
+        // guarda bajo el lock de la subcartera (claimSlot), así ningún nodo repite un horario ya tomado
+        schedulerLockService.runLocked(TICK_LOCK, Duration.ZERO, this::scheduleDueConfigurations);
+    }
+
+    private void scheduleDueConfigurations() {
         try {
-            // Buscar configuración activa
-            Optional<ImportConfiguration> configOpt = configRepository.findByActiveTrue();
+            // Cada configuración activa tiene su propia carpeta, patrón, hora y subcartera
+            List<ImportConfiguration> configs = configRepository.findAllByActiveTrueOrderByIdAsc();
+
+            LocalDateTime now = LocalDateTime.now();
+            for (ImportConfiguration config : configs) {
+                LocalDateTime slot = dueSlot(config, now);
+                if (slot == null) {
+                    continue;
+                }
+                if (!runningConfigs.add(config.getId())) {
+                    logger.debug("La configuración {} sigue procesando o esperando turno, se omite", config.getId());
+                    continue;
+                }
 
-            if (configOpt.isEmpty()) {
-                return; // No hay configuración activa
+                logger.info("Hora programada {}: iniciando importación automática (configuración {}, subcartera {})",
+                        slot.toLocalTime(), config.getId(), config.getSubPortfolioId());
+
+                // Buscar y procesar archivo en el pool (serializado por subcartera). lastCheckAt se
+                // guarda recién con el lock tomado: si la subcartera está ocupada (otra importación,
+                // aquí o en otro nodo), la ejecución sigue pendiente y se reintenta en el siguiente tick.
+                importExecutor.submit(() -> {
+                    try {
+                        withSubPortfolioLock(config, () -> {
+                            ImportConfiguration claimed = claimSlot(config.getId(), slot);
+                            if (claimed == null) {
+                                return null;
+                            }
+                            if (drainAll) {
+                                processAllPendingFiles(claimed);
+                            } else {
+                                processNextFile(claimed);
+                            }
+                            return null;
+                        });
+                    } catch (IllegalStateException e) {
+                        logger.info("Configuración {}: {}; se reintentará en el próximo tick", config.getId(), e.getMessage());
+                    } catch (Exception e) {
+                        logger.error("Error en importación de la configuración {}: {}", config.getId(), e.getMessage(), e);
+                    } finally {
+                        runningConfigs.remove(config.getId());
+                    }
+                });
             }
 
-            ImportConfiguration config = configOpt.get();
+        } catch (Exception e) {
+            logger.error("Error en FileWatcherService: {}", e.getMessage(), e);
+        }
+    }
 
-            // Verificar que sea la hora programada para ejecutar
-            String currentTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-            String scheduledTime = config.getScheduledTime().substring(0, 5); // "HH:mm:ss" -> "HH:mm"
+    /**
+     * Horario de hoy de la configuración si está pendiente: ya pasó la hora programada (dentro
+     * de retryWindow) y lastCheckAt es anterior a ella. null si no corresponde ejecutar.
+     */
+    private LocalDateTime dueSlot(ImportConfiguration config, LocalDateTime now) {
+        if (config.getScheduledTime() == null || config.getScheduledTime().length() < 5) {
+            return null;
+        }
+        LocalDateTime slot;
+        try {
+            // "HH:mm:ss" -> "HH:mm"
+            slot = now.toLocalDate().atTime(LocalTime.parse(config.getScheduledTime().substring(0, 5)));
+        } catch (DateTimeParseException e) {
+            logger.warn("Hora programada inválida en configuración {}: {}", config.getId(), config.getScheduledTime());
+            return null;
+        }
+        if (now.isBefore(slot) || now.isAfter(slot.plus(retryWindow))) {
+            return null;
+        }
+        // Ya se ejecutó para este horario (evitar múltiples ejecuciones)
+        if (config.getLastCheckAt() != null && !config.getLastCheckAt().isBefore(slot)) {
+            return null;
+        }
+        return slot;
+    }
 
-            // Solo ejecutar si la hora actual coincide con la hora programada
-            if (!currentTime.equals(scheduledTime)) {
-                return;
-            }
+    /**
+     * Con el lock de la subcartera tomado: registra la ejecución del horario (lastCheckAt) y
+     * devuelve la configuración, o null si otra ejecución ya lo tomó mientras se esperaba el lock.
+     */
+    private ImportConfiguration claimSlot(Long configId, LocalDateTime slot) {
+        ImportConfiguration config = configRepository.findById(configId).orElse(null);
+        if (config == null || (config.getLastCheckAt() != null && !config.getLastCheckAt().isBefore(slot))) {
+            logger.debug("Horario {} de la configuración {} ya ejecutado", slot.toLocalTime(), configId);
+            return null;
+        }
+        config.setLastCheckAt(LocalDateTime.now());
+        return configRepository.save(config);
+    }
 
-            // Verificar si ya se ejecutó en esta hora (evitar múltiples ejecuciones)
-            if (config.getLastCheckAt() != null) {
-                String lastCheckTime = config.getLastCheckAt().format(DateTimeFormatter.ofPattern("HH:mm"));
-                if (lastCheckTime.equals(currentTime)) {
-                    logger.debug("Ya se ejecutó la importación en esta hora: {}", currentTime);
-                    return;
-                }
+    /**
+     * Ejecuta la tarea con el lock de la subcartera destino: dos configuraciones (o un trigger
+     * manual) que importan a la misma subcartera nunca escriben su tabla dinámica a la vez.
+     */
+    private <T> T withSubPortfolioLock(ImportConfiguration config, Callable<T> task) throws Exception {
+        Integer subPortfolioId = config.getSubPortfolioId();
+        if (subPortfolioId == null) {
+            return task.call();
+        }
+        ReentrantLock lock = subPortfolioLocks.computeIfAbsent(subPortfolioId, id -> new ReentrantLock(true));
+        if (lock.isLocked()) {
+            logger.info("Subcartera {} ocupada, la configuración {} espera su turno", subPortfolioId, config.getId());
+        }
+        lock.lock();
+        try {
+            // Y entre réplicas: el lock de la subcartera en base de datos
+            String dbLock = SUBPORTFOLIO_LOCK_PREFIX + subPortfolioId;
+            if (!schedulerLockService.tryLock(dbLock)) {
+                throw new IllegalStateException("La subcartera " + subPortfolioId + " se está importando en otro nodo");
             }
+            try {
+                return task.call();
+            } finally {
+                schedulerLockService.unlock(dbLock);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            logger.info("Hora programada {}: iniciando importación automática", scheduledTime);
+    /**
+     * Método público para trigger manual de importación
+     * Retorna el resultado de la importación incluyendo errores
+     */
+    public Map<String, Object> triggerManualImport() {
+        // Configuración activa más reciente (endpoint de configuración única)
+        Optional<ImportConfiguration> configOpt = configRepository.findFirstByActiveTrueOrderByIdDesc();
 
-            // Actualizar última revisión
-            config.setLastCheckAt(LocalDateTime.now());
-            configRepository.save(config);
+        if (configOpt.isEmpty()) {
+            return Map.of(
+                "success", false,
+                "message", "No hay configuración de importación activa"
+            );
+        }
+        return triggerManualImport(configOpt.get());
+    }
+
+    /**
+     * Trigger manual de una configuración concreta
+     */
+    public Map<String, Object> triggerManualImport(Long configId) {
+        Optional<ImportConfiguration> configOpt = configRepository.findById(configId);
+
+        if (configOpt.isEmpty()) {
+            return Map.of(
+                "success", false,
+                "message", "Configuración de importación no encontrada: " + configId
+            );
+        }
+        return triggerManualImport(configOpt.get());
+    }
 
-            // Buscar y procesar archivo
-            processNextFile(config);
+    /**
+     * Trigger manual en modo lote: importa todos los archivos pendientes de la configuración
+     */
+    public Map<String, Object> triggerManualImportAll(Long configId) {
+        Optional<ImportConfiguration> configOpt = configRepository.findById(configId);
 
+        if (configOpt.isEmpty()) {
+            return Map.of(
+                "success", false,
+                "message", "Configuración de importación no encontrada: " + configId
+            );
+        }
+        ImportConfiguration config = configOpt.get();
+        try {
+            logger.info("Trigger manual de importación en lote (configuración {})", config.getId());
+            return withSubPortfolioLock(config, () -> processAllPendingFiles(config));
         } catch (Exception e) {
-            logger.error("Error en FileWatcherService: {}", e.getMessage(), e);
+            logger.error("Error en trigger manual en lote: {}", e.getMessage(), e);
+            return Map.of(
+                "success", false,
+                "message", "Error: " + e.getMessage(),
+                "errors", List.of(e.getMessage())
+            );
         }
     }
 
     /**
-     * Método público para trigger manual de importación
-     * Retorna el resultado de la importación incluyendo errores
+     * Importa un archivo que no viene de la carpeta monitoreada (p. ej. una subida por partes ya
+     * ensamblada) con la misma lectura, deduplicación por hash, historial y lock de subcartera
+     * que la importación automática de la configuración indicada.
      */
-    public Map<String, Object> triggerManualImport() {
+    public Map<String, Object> importStagedFile(File file, Long configId) {
+        Optional<ImportConfiguration> configOpt = configRepository.findById(configId);
+
+        if (configOpt.isEmpty()) {
+            return Map.of(
+                "success", false,
+                "message", "Configuración de importación no encontrada: " + configId
+            );
+        }
+        ImportConfiguration config = configOpt.get();
         try {
-            // Buscar configuración activa
-            Optional<ImportConfiguration> configOpt = configRepository.findByActiveTrue();
+            logger.info("Importando archivo subido {} (configuración {})", file.getName(), config.getId());
+            return withSubPortfolioLock(config, () -> processFileWithResult(file, config));
+        } catch (Exception e) {
+            logger.error("Error al importar archivo subido {}: {}", file.getName(), e.getMessage(), e);
+            return Map.of(
+                "success", false,
+                "message", "Error: " + e.getMessage(),
+                "errors", List.of(e.getMessage())
+            );
+        }
+    }
 
-            if (configOpt.isEmpty()) {
-                return Map.of(
-                    "success", false,
-                    "message", "No hay configuración de importación activa"
-                );
-            }
+    /**
+     * Abre el contenido de un archivo remoto. Puede llamarse más de una vez (segundo intento como CSV).
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Archivo que no está en disco (p. ej. Google Drive): se lee en streaming directamente desde
+     * su origen. location es la ruta lógica para el historial; fileHash (MD5) es opcional.
+     */
+    public record RemoteFile(String fileName, String location, String fileHash,
+                             String driveFileId, String driveRevision, ContentSource content) {
+    }
 
-            ImportConfiguration config = configOpt.get();
-            logger.info("Trigger manual de importación iniciado");
+    /**
+     * Importa un archivo remoto con la misma lectura, historial y lock de subcartera que la
+     * importación automática de la configuración indicada.
+     */
+    public Map<String, Object> importRemoteFile(Long configId, RemoteFile remote) {
+        Optional<ImportConfiguration> configOpt = configRepository.findById(configId);
+
+        if (configOpt.isEmpty()) {
+            return Map.of(
+                "success", false,
+                "message", "Configuración de importación no encontrada: " + configId
+            );
+        }
+        ImportConfiguration config = configOpt.get();
+        try {
+            logger.info("Importando archivo remoto {} (configuración {})", remote.location(), config.getId());
+            return withSubPortfolioLock(config, () -> processRemoteWithResult(remote, config));
+        } catch (Exception e) {
+            logger.error("Error al importar archivo remoto {}: {}", remote.location(), e.getMessage(), e);
+            return Map.of(
+                "success", false,
+                "message", "Error: " + e.getMessage(),
+                "errors", List.of(e.getMessage())
+            );
+        }
+    }
+
+    private Map<String, Object> triggerManualImport(ImportConfiguration config) {
+        try {
+            logger.info("Trigger manual de importación iniciado (configuración {})", config.getId());
 
             // Buscar archivo a procesar
             File fileToProcess = findNextFileToProcess(config);
@@ -123,7 +364,7 @@ public class FileWatcherService {
             }
 
             // Procesar archivo y capturar resultado
-            return processFileWithResult(fileToProcess, config);
+            return withSubPortfolioLock(config, () -> processFileWithResult(fileToProcess, config));
 
         } catch (Exception e) {
             logger.error("Error en trigger manual: {}", e.getMessage(), e);
@@ -137,37 +378,24 @@ public class FileWatcherService {
 
     /**
      * Busca el siguiente archivo a procesar
-     * Usa MD5 hash del contenido para detectar duplicados
+     * Usa MD5 hash del contenido para detectar duplicados (cacheado en huellas_archivos)
      */
     private File findNextFileToProcess(ImportConfiguration config) {
         try {
-            File directory = new File(config.getWatchDirectory());
-
-            if (!directory.exists() || !directory.isDirectory()) {
-                logger.warn("El directorio no existe: {}", config.getWatchDirectory());
+            List<File> files = listCandidateFiles(config);
+            if (files == null) {
                 return null;
             }
 
-            // Buscar archivos que coincidan con el patrón
-            File[] files = directory.listFiles((dir, name) ->
-                    name.toLowerCase().contains(config.getFilePattern().toLowerCase()) &&
-                            (name.toLowerCase().endsWith(".xlsx") ||
-                                    name.toLowerCase().endsWith(".xls") ||
-                                    name.toLowerCase().endsWith(".csv"))
-            );
-
-            if (files == null || files.length == 0) {
+            if (files.isEmpty()) {
                 logger.info("No se encontraron archivos que coincidan con el patrón: {}", config.getFilePattern());
                 return null;
             }
 
-            // Ordenar por fecha de modificación (más reciente primero)
-            Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
-
             // Buscar el primer archivo no procesado (verificación basada en hash MD5)
             for (File file : files) {
                 try {
-                    String fileHash = calculateFileMD5(file);
+                    String fileHash = fingerprintService.contentHash(file);
                     logger.debug("Archivo: {} - Hash: {}", file.getName(), fileHash);
 
                     boolean alreadyProcessed = historyRepository.existsByFileHashAndStatus(
@@ -177,6 +405,7 @@ public class FileWatcherService {
 
                     if (alreadyProcessed) {
                         logger.debug("Archivo {} ya procesado (hash: {})", file.getName(), fileHash);
+                        directoryMonitor.release(file);
                         continue;
                     }
 
@@ -200,36 +429,23 @@ public class FileWatcherService {
 
     private void processNextFile(ImportConfiguration config) {
         try {
-            File directory = new File(config.getWatchDirectory());
-
-            if (!directory.exists() || !directory.isDirectory()) {
-                logger.warn("El directorio no existe: {}", config.getWatchDirectory());
+            List<File> files = listCandidateFiles(config);
+            if (files == null) {
                 return;
             }
 
-            // Buscar archivos que coincidan con el patrón
-            File[] files = directory.listFiles((dir, name) ->
-                    name.toLowerCase().contains(config.getFilePattern().toLowerCase()) &&
-                            (name.toLowerCase().endsWith(".xlsx") ||
-                                    name.toLowerCase().endsWith(".xls") ||
-                                    name.toLowerCase().endsWith(".csv"))
-            );
-
-            if (files == null || files.length == 0) {
+            if (files.isEmpty()) {
                 logger.info("No se encontraron archivos que coincidan con el patrón: {}", config.getFilePattern());
                 return;
             }
 
-            // Ordenar por fecha de modificación (más reciente primero)
-            Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
-
             // Buscar el primer archivo no procesado (verificar por HASH MD5, no por ruta)
             File fileToProcess = null;
-            logger.debug("Encontrados {} archivos que coinciden con el patrón", files.length);
+            logger.debug("Encontrados {} archivos que coinciden con el patrón", files.size());
 
             for (File file : files) {
                 try {
-                    String fileHash = calculateFileMD5(file);
+                    String fileHash = fingerprintService.contentHash(file);
                     logger.debug("Verificando archivo: {}, hash: {}", file.getName(), fileHash);
 
                     boolean alreadyProcessed = historyRepository.existsByFileHashAndStatus(
@@ -243,6 +459,7 @@ public class FileWatcherService {
                         break;
                     } else {
                         logger.debug("Archivo {} ya procesado, se omite", file.getName());
+                        directoryMonitor.release(file);
                     }
                 } catch (Exception e) {
                     logger.warn("Error al calcular hash de {}: {}", file.getName(), e.getMessage());
@@ -266,6 +483,144 @@ public class FileWatcherService {
         }
     }
 
+    /**
+     * Modo lote: importa todos los archivos pendientes de la configuración, del más antiguo al más
+     * reciente (todos van a la misma subcartera, así que en orden estricto; las configuraciones de
+     * otras subcarteras corren en paralelo en el pool). Al final registra en el historial un
+     * resumen de la ejecución con estado LOTE.
+     */
+    private Map<String, Object> processAllPendingFiles(ImportConfiguration config) {
+        List<File> files = listCandidateFiles(config);
+        if (files == null || files.isEmpty()) {
+            logger.info("No se encontraron archivos que coincidan con el patrón: {}", config.getFilePattern());
+            return Map.of(
+                "success", false,
+                "message", "No se encontraron archivos para procesar"
+            );
+        }
+
+        // Más antiguo primero: las actualizaciones se aplican en el orden en que llegaron
+        files.sort(Comparator.comparingLong(File::lastModified));
+        int filesFound = files.size();
+
+        // El tope se aplica a lo realmente pendiente: los archivos ya importados que siguen en el
+        // directorio (sin mover a procesados) se descartan antes por su huella, sin releerlos
+        List<File> pending = new ArrayList<>();
+        int alreadyImported = 0;
+        for (File file : files) {
+            if (pending.size() > drainMaxFiles) {
+                break;
+            }
+            try {
+                if (fingerprintService.isProcessed(file)) {
+                    alreadyImported++;
+                    directoryMonitor.release(file);
+                    continue;
+                }
+            } catch (IOException e) {
+                logger.warn("No se pudo verificar la huella de {}: {}", file.getName(), e.getMessage());
+            }
+            pending.add(file);
+        }
+        if (pending.size() > drainMaxFiles) {
+            logger.warn("Más de {} archivos pendientes, se procesan los {} más antiguos", drainMaxFiles, drainMaxFiles);
+            pending = new ArrayList<>(pending.subList(0, drainMaxFiles));
+        }
+        files = pending;
+
+        long start = System.currentTimeMillis();
+        int imported = 0;
+        int duplicates = 0;
+        int failed = 0;
+        int totalRecords = 0;
+        List<Map<String, Object>> results = new ArrayList<>();
+        StringBuilder summary = new StringBuilder();
+
+        for (File file : files) {
+            Map<String, Object> result = processFileWithResult(file, config);
+            results.add(result);
+
+            String outcome;
+            if (Boolean.TRUE.equals(result.get("success"))) {
+                imported++;
+                Object rows = result.get("insertedRows");
+                totalRecords += rows instanceof Integer ? (Integer) rows : 0;
+                outcome = "OK";
+            } else if (Boolean.TRUE.equals(result.get("duplicate"))) {
+                duplicates++;
+                outcome = "DUPLICADO";
+            } else {
+                failed++;
+                outcome = "ERROR: " + result.get("message");
+            }
+            summary.append(file.getName()).append(" -> ").append(outcome).append('\n');
+        }
+
+        long elapsedMs = System.currentTimeMillis() - start;
+        String status = failed == 0 ? "LOTE" : "LOTE_CON_ERRORES";
+        logger.info("📦 Lote de la configuración {}: {} archivos ({} importados, {} duplicados, {} con error, {} ya importados, {} registros) en {} ms",
+                config.getId(), files.size(), imported, duplicates, failed, alreadyImported, totalRecords, elapsedMs);
+
+        // Una ejecución sin nada importado ni fallido no deja un resumen vacío en el historial
+        if (config.getSubPortfolioId() != null && imported + failed > 0) {
+            try {
+                ImportHistory report = new ImportHistory(
+                        config.getSubPortfolioId().longValue(),
+                        "Lote: " + files.size() + " archivos (" + imported + " importados, "
+                                + duplicates + " duplicados, " + failed + " con error)",
+                        config.getWatchDirectory(),
+                        status,
+                        totalRecords,
+                        summary.toString()
+                );
+                historyRepository.save(report);
+            } catch (Exception e) {
+                logger.error("Error al guardar el resumen del lote: {}", e.getMessage());
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", failed == 0);
+        response.put("message", "Lote procesado: " + imported + " importados, " + duplicates
+                + " duplicados, " + failed + " con error");
+        response.put("filesFound", filesFound);
+        response.put("alreadyImported", alreadyImported);
+        response.put("imported", imported);
+        response.put("duplicates", duplicates);
+        response.put("failed", failed);
+        response.put("insertedRows", totalRecords);
+        response.put("elapsedMs", elapsedMs);
+        response.put("results", results);
+        return response;
+    }
+
+    /**
+     * Archivos candidatos, el más reciente primero: la cola de ImportDirectoryMonitor si está
+     * monitoreando este directorio, o el listado del directorio. null si el directorio no existe.
+     */
+    private List<File> listCandidateFiles(ImportConfiguration config) {
+        if (directoryMonitor.isWatching(config)) {
+            return directoryMonitor.readyFiles(config);
+        }
+
+        File directory = new File(config.getWatchDirectory());
+
+        if (!directory.exists() || !directory.isDirectory()) {
+            logger.warn("El directorio no existe: {}", config.getWatchDirectory());
+            return null;
+        }
+
+        // Buscar archivos que coincidan con el patrón
+        File[] files = directory.listFiles((dir, name) -> ImportDirectoryMonitor.matches(name, config.getFilePattern()));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+
+        // Ordenar por fecha de modificación (más reciente primero)
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
     /**
      * Procesa un archivo y retorna el resultado (usado para trigger manual)
      */
@@ -277,12 +632,13 @@ public class FileWatcherService {
         try {
             logger.info("Importando datos del archivo: {}", fileName);
 
-            fileHash = calculateFileMD5(file);
+            fileHash = fingerprintService.contentHash(file);
             logger.debug("Hash MD5 del archivo: {}", fileHash);
 
             boolean alreadyProcessed = historyRepository.existsByFileHashAndStatus(fileHash, "EXITOSO");
             if (alreadyProcessed) {
                 logger.warn("El contenido del archivo ya fue procesado anteriormente");
+                directoryMonitor.release(file);
                 return Map.of(
                     "success", false,
                     "message", "El contenido de este archivo ya fue procesado anteriormente (archivo duplicado)",
@@ -315,43 +671,9 @@ public class FileWatcherService {
 
             logger.info("Datos leídos: {} filas", data.size());
 
-            // Importar a tabla dinámica usando HeaderConfigurationCommandService
-            // Usa LoadType.ACTUALIZACION (tablas con prefijo ini_)
-            Map<String, Object> result = headerConfigService.importDataToTable(
-                    subPortfolioId,
-                    LoadType.ACTUALIZACION,
-                    data
-            );
-
-            // Extraer información del resultado
-            Integer insertedRows = (Integer) result.get("insertedRows");
-            @SuppressWarnings("unchecked")
-            List<String> errors = (List<String>) result.get("errors");
-
-            int recordsProcessed = insertedRows != null ? insertedRows : 0;
-
-            // Construir mensaje de error si hubo errores
-            String errorMessage = null;
-            if (errors != null && !errors.isEmpty()) {
-                errorMessage = "Se encontraron " + errors.size() + " errores durante la importación";
-                logger.warn("Errores en importación: {}", errors);
-            }
-
-            // Registrar en historial con hash
-            String status = (errors == null || errors.isEmpty()) ? "EXITOSO" : "EXITOSO_CON_ERRORES";
-            ImportHistory history = new ImportHistory(
-                    subPortfolioId.longValue(),
-                    fileName,
-                    filePath,
-                    fileHash,
-                    status,
-                    recordsProcessed,
-                    errorMessage
-            );
-            historyRepository.save(history);
-
-            logger.info("Archivo procesado: {} ({} registros, {} errores)",
-                    fileName, recordsProcessed, errors != null ? errors.size() : 0);
+            Map<String, Object> response = importAndRecord(subPortfolioId, data,
+                    new ImportHistory(subPortfolioId.longValue(), fileName, filePath, fileHash, null, 0, null));
+            directoryMonitor.release(file);
 
             // Mover archivo a carpeta de procesados si está configurado
             if (config.getMoveAfterProcess() && config.getProcessedDirectory() != null) {
@@ -359,14 +681,7 @@ public class FileWatcherService {
             }
 
             // Retornar resultado completo
-            return Map.of(
-                "success", true,
-                "message", "Archivo procesado exitosamente",
-                "fileName", fileName,
-                "insertedRows", recordsProcessed,
-                "errors", errors != null ? errors : List.of(),
-                "hasErrors", errors != null && !errors.isEmpty()
-            );
+            return response;
 
         } catch (Exception e) {
             logger.error("Error al procesar archivo {}: {}", fileName, e.getMessage(), e);
@@ -407,6 +722,121 @@ public class FileWatcherService {
         }
     }
 
+    /**
+     * Importa las filas a la tabla dinámica de la subcartera y registra el historial (history llega
+     * con nombre, ruta, hash y origen; aquí se completan estado, registros y errores).
+     */
+    private Map<String, Object> importAndRecord(Integer subPortfolioId, List<Map<String, Object>> data,
+                                                ImportHistory history) {
+        // Importar a tabla dinámica usando HeaderConfigurationCommandService
+        // Usa LoadType.ACTUALIZACION (tablas con prefijo ini_)
+        Map<String, Object> result = headerConfigService.importDataToTable(
+                subPortfolioId,
+                LoadType.ACTUALIZACION,
+                data
+        );
+
+        // Extraer información del resultado
+        Integer insertedRows = (Integer) result.get("insertedRows");
+        @SuppressWarnings("unchecked")
+        List<String> errors = (List<String>) result.get("errors");
+
+        int recordsProcessed = insertedRows != null ? insertedRows : 0;
+
+        // Construir mensaje de error si hubo errores
+        String errorMessage = null;
+        if (errors != null && !errors.isEmpty()) {
+            errorMessage = "Se encontraron " + errors.size() + " errores durante la importación";
+            logger.warn("Errores en importación: {}", errors);
+        }
+
+        // Registrar en historial con hash
+        String status = (errors == null || errors.isEmpty()) ? "EXITOSO" : "EXITOSO_CON_ERRORES";
+        history.setStatus(status);
+        history.setRecordsProcessed(recordsProcessed);
+        history.setErrorMessage(errorMessage);
+        historyRepository.save(history);
+
+        logger.info("Archivo procesado: {} ({} registros, {} errores)",
+                history.getFileName(), recordsProcessed, errors != null ? errors.size() : 0);
+
+        return Map.of(
+            "success", true,
+            "message", "Archivo procesado exitosamente",
+            "fileName", history.getFileName(),
+            "insertedRows", recordsProcessed,
+            "errors", errors != null ? errors : List.of(),
+            "hasErrors", errors != null && !errors.isEmpty()
+        );
+    }
+
+    /**
+     * Equivalente a processFileWithResult para un archivo remoto: sin mover archivos, con el
+     * origen (Drive) registrado en el historial.
+     */
+    private Map<String, Object> processRemoteWithResult(RemoteFile remote, ImportConfiguration config) {
+        String fileName = remote.fileName();
+        Long subPortfolioKey = config.getSubPortfolioId() != null ? config.getSubPortfolioId().longValue() : null;
+
+        try {
+            if (remote.fileHash() != null && historyRepository.existsByFileHashAndStatus(remote.fileHash(), "EXITOSO")) {
+                logger.warn("El contenido del archivo {} ya fue procesado anteriormente", fileName);
+                return Map.of(
+                    "success", false,
+                    "message", "El contenido de este archivo ya fue procesado anteriormente (archivo duplicado)",
+                    "fileName", fileName,
+                    "fileHash", remote.fileHash(),
+                    "duplicate", true
+                );
+            }
+
+            Integer subPortfolioId = config.getSubPortfolioId();
+            if (subPortfolioId == null) {
+                throw new IllegalArgumentException("No se ha configurado la subcartera para la importación automática");
+            }
+
+            List<Map<String, Object>> data = readEntryData(fileName,
+                    () -> CompressedImportFile.open(remote.content().open(), fileName));
+
+            if (data.isEmpty()) {
+                logger.warn("El archivo {} no contiene datos para importar", fileName);
+                return Map.of(
+                    "success", false,
+                    "message", "El archivo no contiene datos para importar",
+                    "fileName", fileName
+                );
+            }
+
+            logger.info("Datos leídos: {} filas", data.size());
+
+            ImportHistory history = new ImportHistory(subPortfolioKey, fileName, remote.location(),
+                    remote.fileHash(), null, 0, null);
+            history.setDriveFileId(remote.driveFileId());
+            history.setDriveRevision(remote.driveRevision());
+            return importAndRecord(subPortfolioId, data, history);
+
+        } catch (Exception e) {
+            logger.error("Error al procesar archivo {}: {}", fileName, e.getMessage(), e);
+
+            ImportHistory history = new ImportHistory(subPortfolioKey, fileName, remote.location(),
+                    remote.fileHash(), "ERROR", 0, e.getMessage());
+            history.setDriveFileId(remote.driveFileId());
+            history.setDriveRevision(remote.driveRevision());
+            try {
+                historyRepository.save(history);
+            } catch (Exception saveError) {
+                logger.error("Error al guardar historial de error: {}", saveError.getMessage());
+            }
+
+            return Map.of(
+                "success", false,
+                "message", "Error al procesar archivo: " + e.getMessage(),
+                "fileName", fileName,
+                "errors", List.of(e.getMessage())
+            );
+        }
+    }
+
     /**
      * Procesa un archivo (versión legacy para scheduled task)
      */
@@ -415,11 +845,16 @@ public class FileWatcherService {
     }
 
     /**
-     * Lee un archivo Excel o CSV y retorna los datos como List<Map<String, Object>>
+     * Lee un archivo Excel o CSV y retorna los datos como List<Map<String, Object>>.
+     * Los .gz / .zip se descomprimen en streaming hacia el mismo lector (sin archivo temporal).
      */
     private List<Map<String, Object>> readFileData(File file) throws IOException {
         String fileName = file.getName().toLowerCase();
 
+        if (CompressedImportFile.isCompressed(fileName)) {
+            return readCompressedFileData(file);
+        }
+
         // Intentar leer como Excel primero si tiene extensión .xlsx o .xls
         if (fileName.endsWith(".xlsx") || fileName.endsWith(".xls")) {
             try {
@@ -437,13 +872,69 @@ public class FileWatcherService {
     }
 
     /**
-     * Lee datos de archivo Excel
+     * .csv.gz / .xlsx.gz / .xls.gz / .zip: el formato lo da el nombre de la entrada descomprimida
+     */
+    private List<Map<String, Object>> readCompressedFileData(File file) throws IOException {
+        logger.info("Archivo comprimido {}: se lee en streaming", file.getName());
+        return readEntryData(file.getName(), () -> CompressedImportFile.open(file.toPath()));
+    }
+
+    @FunctionalInterface
+    private interface EntrySource {
+        CompressedImportFile.Entry open() throws IOException;
+    }
+
+    /**
+     * Lee la entrada (descomprimida si hace falta) según su nombre. Un nombre Excel que no es
+     * Excel válido se reintenta como CSV volviendo a abrir la entrada desde el inicio.
+     */
+    private List<Map<String, Object>> readEntryData(String fileName, EntrySource source) throws IOException {
+        try (CompressedImportFile.Entry entry = source.open()) {
+            String innerName = entry.name().toLowerCase();
+            if (!innerName.endsWith(".csv") && !innerName.endsWith(".xlsx") && !innerName.endsWith(".xls")) {
+                throw new IllegalArgumentException("Formato de archivo no soportado: " + fileName);
+            }
+
+            if (innerName.endsWith(".csv")) {
+                return readCsvData(entry.stream());
+            }
+            try {
+                return innerName.endsWith(".xlsx") ? readXlsxData(entry.stream()) : readXlsData(entry.stream());
+            } catch (Exception e) {
+                logger.warn("No se pudo leer como Excel, intentando como CSV: {}", e.getMessage());
+            }
+        }
+
+        // Segundo intento como CSV: hay que volver a leer (y descomprimir) desde el inicio
+        try (CompressedImportFile.Entry entry = source.open()) {
+            return readCsvData(entry.stream());
+        }
+    }
+
+    /**
+     * Lee datos de archivo Excel.
+     * .xlsx se lee en streaming (StreamingXlsxReader, sin DOM de la hoja); .xls sigue con HSSF.
      */
     private List<Map<String, Object>> readExcelData(File file, boolean isXlsx) throws IOException {
+        if (isXlsx) {
+            List<Map<String, Object>> data = new ArrayList<>();
+            List<String> columnNames = new ArrayList<>();
+            StreamingXlsxReader.read(file, xlsxRowHandler(data, columnNames));
+            return checkXlsxHeaders(data, columnNames);
+        }
+
+        try (FileInputStream fis = new FileInputStream(file)) {
+            return readXlsData(fis);
+        }
+    }
+
+    /**
+     * Lee un .xls (HSSF, modelo de usuario) desde un stream
+     */
+    private List<Map<String, Object>> readXlsData(InputStream inputStream) throws IOException {
         List<Map<String, Object>> data = new ArrayList<>();
 
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = isXlsx ? new XSSFWorkbook(fis) : new HSSFWorkbook(fis)) {
+        try (Workbook workbook = new HSSFWorkbook(inputStream)) {
 
             Sheet sheet = workbook.getSheetAt(0);
             Row headerRow = sheet.getRow(0);
@@ -482,54 +973,89 @@ public class FileWatcherService {
     }
 
     /**
-     * Lee datos de archivo CSV con auto-detección de separador
+     * Lee un .xlsx fila a fila con el modelo de eventos de POI desde un stream
      */
-    private List<Map<String, Object>> readCsvData(File file) throws IOException {
+    private List<Map<String, Object>> readXlsxData(InputStream inputStream) throws IOException {
         List<Map<String, Object>> data = new ArrayList<>();
+        List<String> columnNames = new ArrayList<>();
+        StreamingXlsxReader.read(inputStream, xlsxRowHandler(data, columnNames));
+        return checkXlsxHeaders(data, columnNames);
+    }
+
+    private StreamingXlsxReader.RowHandler xlsxRowHandler(List<Map<String, Object>> data, List<String> columnNames) {
+        return (rowIndex, values) -> {
+            if (columnNames.isEmpty()) {
+                if (rowIndex != 0 || values.isEmpty()) {
+                    throw new IllegalArgumentException("El archivo no tiene fila de cabeceras");
+                }
+                for (String value : values) {
+                    columnNames.add(value.trim());
+                }
+                logger.debug("Cabeceras Excel: {}", columnNames);
+                return true;
+            }
 
-        // Leer todo el contenido para detectar el separador
-        byte[] allBytes = Files.readAllBytes(file.toPath());
-        String content = new String(allBytes);
+            Map<String, Object> rowData = new HashMap<>();
+            for (int j = 0; j < columnNames.size(); j++) {
+                rowData.put(columnNames.get(j), j < values.size() ? values.get(j) : "");
+            }
+            data.add(rowData);
+            return true;
+        };
+    }
 
-        // Auto-detectar separador
-        String firstLine = content.lines().findFirst().orElse("");
-        char delimiter = ',';
-        if (firstLine.contains(";") && !firstLine.contains(",")) {
-            delimiter = ';';
-        } else if (firstLine.contains(";") && firstLine.contains(",")) {
-            long commas = firstLine.chars().filter(ch -> ch == ',').count();
-            long semicolons = firstLine.chars().filter(ch -> ch == ';').count();
-            delimiter = semicolons > commas ? ';' : ',';
+    private List<Map<String, Object>> checkXlsxHeaders(List<Map<String, Object>> data, List<String> columnNames) {
+        if (columnNames.isEmpty()) {
+            throw new IllegalArgumentException("El archivo no tiene fila de cabeceras");
         }
+        return data;
+    }
 
-        logger.info("CSV detectado con separador: '{}'", delimiter);
+    /**
+     * Lee datos de archivo CSV en streaming (StreamingCsvReader): separador y encoding
+     * detectados del prefijo, sin cargar el archivo completo como String.
+     */
+    private List<Map<String, Object>> readCsvData(File file) throws IOException {
+        List<Map<String, Object>> data = new ArrayList<>();
+        List<String> headers = new ArrayList<>();
 
-        // Parsear CSV
-        try (CSVParser parser = CSVFormat.DEFAULT
-                .builder()
-                .setDelimiter(delimiter)
-                .setHeader()
-                .setSkipHeaderRecord(true)
-                .setTrim(true)
-                .build()
-                .parse(new StringReader(content))) {
+        StreamingCsvReader.Dialect dialect = StreamingCsvReader.read(file.toPath(), csvRowHandler(data, headers));
 
-            if (parser.getHeaderMap() != null) {
-                logger.debug("Cabeceras CSV: {}", parser.getHeaderNames());
-            }
+        logger.info("CSV detectado con separador: '{}', encoding: {}", dialect.delimiter(), dialect.charset());
+        logger.debug("Total filas leídas del CSV: {}", data.size());
+        return data;
+    }
 
-            for (CSVRecord record : parser) {
-                Map<String, Object> rowData = new HashMap<>();
-                record.toMap().forEach(rowData::put);
-                data.add(rowData);
-            }
+    /**
+     * CSV desde un stream (contenido descomprimido de un .gz / .zip)
+     */
+    private List<Map<String, Object>> readCsvData(InputStream inputStream) throws IOException {
+        List<Map<String, Object>> data = new ArrayList<>();
+        List<String> headers = new ArrayList<>();
 
-            logger.debug("Total filas leídas del CSV: {}", data.size());
-        }
+        StreamingCsvReader.Dialect dialect = StreamingCsvReader.read(inputStream, csvRowHandler(data, headers));
 
+        logger.info("CSV detectado con separador: '{}', encoding: {}", dialect.delimiter(), dialect.charset());
+        logger.debug("Total filas leídas del CSV: {}", data.size());
         return data;
     }
 
+    private StreamingCsvReader.RowHandler csvRowHandler(List<Map<String, Object>> data, List<String> headers) {
+        return (recordNumber, values) -> {
+            if (recordNumber == 0) {
+                headers.addAll(values);
+                logger.debug("Cabeceras CSV: {}", headers);
+                return true;
+            }
+            Map<String, Object> rowData = new HashMap<>();
+            for (int j = 0; j < headers.size() && j < values.size(); j++) {
+                rowData.put(headers.get(j), values.get(j));
+            }
+            data.add(rowData);
+            return true;
+        };
+    }
+
     /**
      * Convierte el valor de una celda a String
      */
@@ -562,6 +1088,7 @@ public class FileWatcherService {
 
         Path targetPath = targetDir.resolve(file.getName());
         Files.move(file.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        fingerprintService.moved(file, targetPath);
 
         logger.info("Archivo movido a: {}", targetPath);
     }
@@ -575,40 +1102,24 @@ public class FileWatcherService {
 
         Path targetPath = targetDir.resolve(file.getName());
         Files.move(file.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        fingerprintService.moved(file, targetPath);
 
         logger.info("Archivo con error movido a: {}", targetPath);
     }
 
-    /**
-     * Calcula el hash MD5 del contenido de un archivo
-     * MD5 es suficientemente rápido y adecuado para detectar duplicados
-     * @param file Archivo para calcular hash
-     * @return String con el hash MD5 en formato hexadecimal (32 caracteres)
-     */
-    private String calculateFileMD5(File file) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("MD5");
-
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] buffer = new byte[8192]; // Buffer de 8KB para lectura eficiente
-            int bytesRead;
-
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                md.update(buffer, 0, bytesRead);
-            }
-        }
+    @PreDestroy
+    void shutdown() {
+        importExecutor.shutdown();
+    }
 
-        byte[] digest = md.digest();
+    private static class ImportThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
 
-        // Convertir bytes a hexadecimal
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : digest) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "file-import-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
         }
-
-        return hexString.toString();
     }
 }
@@ -7,17 +7,14 @@ import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.
 import com.cashi.customermanagement.interfaces.rest.resources.*;
 import com.cashi.shared.domain.model.entities.HeaderConfiguration;
 import com.cashi.shared.domain.model.valueobjects.LoadType;
+import com.cashi.shared.util.FileHeaderSniffer;
 import com.cashi.systemconfiguration.domain.services.HeaderConfigurationQueryService;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -31,13 +28,19 @@ public class ImportConfigService {
     private final ImportConfigurationRepository configRepository;
     private final ImportHistoryRepository historyRepository;
     private final HeaderConfigurationQueryService headerConfigService;
+    private final ImportDirectoryMonitor directoryMonitor;
+    private final FileFingerprintService fingerprintService;
 
     public ImportConfigService(ImportConfigurationRepository configRepository,
                               ImportHistoryRepository historyRepository,
-                              HeaderConfigurationQueryService headerConfigService) {
+                              HeaderConfigurationQueryService headerConfigService,
+                              ImportDirectoryMonitor directoryMonitor,
+                              FileFingerprintService fingerprintService) {
         this.configRepository = configRepository;
         this.historyRepository = historyRepository;
         this.headerConfigService = headerConfigService;
+        this.directoryMonitor = directoryMonitor;
+        this.fingerprintService = fingerprintService;
     }
 
     @Transactional
@@ -46,6 +49,42 @@ public class ImportConfigService {
         ImportConfiguration config = configRepository.findFirstByOrderByIdDesc()
                 .orElse(new ImportConfiguration());
 
+        return applyAndSave(config, request);
+    }
+
+    /**
+     * Todas las configuraciones (activas e inactivas), una por carpeta/subcartera
+     */
+    public List<ImportConfigResource> listConfigs() {
+        return configRepository.findAllByOrderByIdAsc()
+                .stream()
+                .map(this::toResource)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public ImportConfigResource createConfig(ImportConfigRequest request) {
+        return applyAndSave(new ImportConfiguration(), request);
+    }
+
+    @Transactional
+    public ImportConfigResource updateConfig(Long id, ImportConfigRequest request) {
+        ImportConfiguration config = configRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Configuración de importación no encontrada: " + id));
+
+        return applyAndSave(config, request);
+    }
+
+    @Transactional
+    public void deleteConfig(Long id) {
+        if (!configRepository.existsById(id)) {
+            throw new IllegalArgumentException("Configuración de importación no encontrada: " + id);
+        }
+        configRepository.deleteById(id);
+        directoryMonitor.unwatch(id);
+    }
+
+    private ImportConfigResource applyAndSave(ImportConfiguration config, ImportConfigRequest request) {
         config.setWatchDirectory(request.watchDirectory());
         config.setFilePattern(request.filePattern());
         config.setSubPortfolioId(request.subPortfolioId());
@@ -57,6 +96,9 @@ public class ImportConfigService {
 
         config = configRepository.save(config);
 
+        // Re-registrar el monitor de directorio con la nueva carpeta/patrón
+        directoryMonitor.watch(config);
+
         return toResource(config);
     }
 
@@ -111,18 +153,17 @@ public class ImportConfigService {
                 throw new RuntimeException("El directorio no existe o no es válido: " + watchDirectory);
             }
 
-            File[] foundFiles = directory.listFiles((dir, name) ->
-                    name.toLowerCase().contains(filePattern.toLowerCase()) &&
-                            (name.toLowerCase().endsWith(".xlsx") ||
-                                    name.toLowerCase().endsWith(".xls") ||
-                                    name.toLowerCase().endsWith(".csv"))
-            );
+            File[] foundFiles = directory.listFiles((dir, name) -> ImportDirectoryMonitor.matches(name, filePattern));
 
             if (foundFiles != null) {
                 // Ordenar archivos por fecha de modificación (más reciente primero)
                 Arrays.sort(foundFiles, Comparator.comparingLong(File::lastModified).reversed());
 
                 for (File file : foundFiles) {
+                    // Solo se muestran 1 pendiente + 3 procesados: no hashear el resto de la carpeta
+                    if (!pendingFiles.isEmpty() && processedFiles.size() >= 3) {
+                        break;
+                    }
                     try {
                         Path filePath = file.toPath();
                         BasicFileAttributes attrs = Files.readAttributes(filePath, BasicFileAttributes.class);
@@ -132,14 +173,8 @@ public class ImportConfigService {
                                 ZoneId.systemDefault()
                         );
 
-                        // Calcular hash MD5 del archivo
-                        String fileHash = calculateFileMD5(file);
-
-                        // Verificar si el CONTENIDO (hash) ya fue procesado exitosamente
-                        boolean processed = historyRepository.existsByFileHashAndStatus(
-                                fileHash,
-                                "EXITOSO"
-                        );
+                        // Verificar si el CONTENIDO ya fue procesado (huella cacheada + pre-hash)
+                        boolean processed = fingerprintService.isProcessed(file);
 
                         FilePreviewResource resource = new FilePreviewResource(
                                 file.getName(),
@@ -182,36 +217,6 @@ public class ImportConfigService {
         return result;
     }
 
-    /**
-     * Calcula el hash MD5 del contenido de un archivo
-     */
-    private String calculateFileMD5(File file) throws Exception {
-        java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                md.update(buffer, 0, bytesRead);
-            }
-        }
-
-        byte[] digest = md.digest();
-
-        // Convertir bytes a hexadecimal
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : digest) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-
-        return hexString.toString();
-    }
-
     private ImportConfigResource toResource(ImportConfiguration config) {
         return new ImportConfigResource(
                 config.getId(),
@@ -321,134 +326,10 @@ public class ImportConfigService {
     }
 
     /**
-     * Reads headers from an Excel or CSV file
+     * Reads only the header row of an Excel or CSV file (FileHeaderSniffer: no workbook load)
      * Tries to auto-detect the real format if extension is misleading
      */
     private List<String> readFileHeaders(String filePath) throws IOException {
-        File file = new File(filePath);
-
-        if (!file.exists()) {
-            throw new FileNotFoundException("Archivo no encontrado: " + filePath);
-        }
-
-        String fileName = file.getName().toLowerCase();
-
-        // Try to read based on extension, with fallback to CSV if it fails
-        if (fileName.endsWith(".xlsx")) {
-            try {
-                return readExcelHeaders(file, true);
-            } catch (Exception e) {
-                // If fails, try as CSV (some .xlsx files are actually CSV)
-                System.out.println("⚠️ Archivo .xlsx no es Excel válido, intentando como CSV...");
-                return readCsvHeaders(file);
-            }
-        } else if (fileName.endsWith(".xls")) {
-            try {
-                return readExcelHeaders(file, false);
-            } catch (Exception e) {
-                // If fails, try as CSV (many .xls files are actually CSV in practice)
-                System.out.println("⚠️ Archivo .xls no es Excel válido, intentando como CSV...");
-                return readCsvHeaders(file);
-            }
-        } else if (fileName.endsWith(".csv")) {
-            return readCsvHeaders(file);
-        } else {
-            throw new IllegalArgumentException("Formato de archivo no soportado: " + fileName);
-        }
-    }
-
-    /**
-     * Reads headers from Excel file (.xlsx or .xls)
-     */
-    private List<String> readExcelHeaders(File file, boolean isXlsx) throws IOException {
-        List<String> headers = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = isXlsx ? new XSSFWorkbook(fis) : new HSSFWorkbook(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
-
-            if (headerRow == null) {
-                return headers;
-            }
-
-            for (Cell cell : headerRow) {
-                String headerValue = getCellValueAsString(cell);
-                if (headerValue != null && !headerValue.trim().isEmpty()) {
-                    headers.add(headerValue.trim());
-                }
-            }
-        }
-
-        return headers;
-    }
-
-    /**
-     * Reads headers from CSV file
-     * Auto-detects separator (comma or semicolon)
-     */
-    private List<String> readCsvHeaders(File file) throws IOException {
-        List<String> headers = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String firstLine = reader.readLine();
-
-            if (firstLine != null && !firstLine.trim().isEmpty()) {
-                // Auto-detect separator: comma or semicolon
-                String separator = ",";
-                if (firstLine.contains(";") && !firstLine.contains(",")) {
-                    separator = ";";
-                } else if (firstLine.contains(";") && firstLine.contains(",")) {
-                    // Count which appears more frequently
-                    long commas = firstLine.chars().filter(ch -> ch == ',').count();
-                    long semicolons = firstLine.chars().filter(ch -> ch == ';').count();
-                    separator = semicolons > commas ? ";" : ",";
-                }
-
-                // Split by detected separator, handling quoted values
-                String regex = separator + "(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
-                String[] headerArray = firstLine.split(regex);
-
-                for (String header : headerArray) {
-                    // Remove quotes and trim
-                    String cleaned = header.replaceAll("^\"|\"$", "").trim();
-                    if (!cleaned.isEmpty()) {
-                        headers.add(cleaned);
-                    }
-                }
-
-                System.out.println("📄 CSV detectado con separador: '" + separator + "', " + headers.size() + " cabeceras encontradas");
-            }
-        }
-
-        return headers;
-    }
-
-    /**
-     * Extracts cell value as string regardless of cell type
-     */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
-        }
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                }
-                return String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            case BLANK:
-                return "";
-            default:
-                return "";
-        }
+        return FileHeaderSniffer.readHeaders(new File(filePath));
     }
 }
@@ -0,0 +1,376 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.domain.model.aggregates.ImportConfiguration;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportConfigurationRepository;
+import com.cashi.shared.util.CompressedImportFile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitorea los directorios de las importaciones automáticas activas con java.nio.file.WatchService
+ * (un único WatchService y un hilo para todas las configuraciones).
+ *
+ * Los archivos nuevos/modificados que cumplen el patrón de alguna configuración del directorio
+ * quedan como candidatos; cuando su
+ * tamaño y fecha de modificación no cambian durante app.file-watcher.stable-ms pasan a la
+ * cola de "listos". FileWatcherService solo toma archivos de esa cola en la hora programada,
+ * en lugar de listar y hashear todo el directorio.
+ *
+ * WatchService no recibe eventos en algunos montajes de red (SMB/NFS), por eso cada
+ * app.file-watcher.rescan-ms se reconcilia con un listado (solo metadatos, sin hash).
+ */
+@Component
+public class ImportDirectoryMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportDirectoryMonitor.class);
+
+    private static final long POLL_MS = 1000;
+
+    private final ImportConfigurationRepository configRepository;
+    private final boolean enabled;
+    private final long stableMs;
+    private final long rescanMs;
+
+    /** Archivos que aún pueden estar escribiéndose */
+    private final Map<Path, FileState> candidates = new ConcurrentHashMap<>();
+    /** Archivos estables pendientes de importar */
+    private final Map<Path, FileState> ready = new ConcurrentHashMap<>();
+    /** Archivos ya importados/descartados; vuelven a la cola solo si cambian */
+    private final Map<Path, FileState> released = new ConcurrentHashMap<>();
+
+    /** Directorio + patrón monitoreados por cada configuración (id_configuracion) */
+    private final Map<Long, WatchTarget> targets = new ConcurrentHashMap<>();
+    /** Registro del WatchService por directorio (varias configuraciones pueden compartirlo) */
+    private final Map<Path, WatchKey> keys = new ConcurrentHashMap<>();
+
+    private volatile WatchService watchService;
+    private volatile boolean running;
+    private long lastRescanAt;
+    private Thread thread;
+
+    public ImportDirectoryMonitor(
+            ImportConfigurationRepository configRepository,
+            @Value("${app.file-watcher.watch-service.enabled:false}") boolean enabled,
+            @Value("${app.file-watcher.stable-ms:10000}") long stableMs,
+            @Value("${app.file-watcher.rescan-ms:300000}") long rescanMs) {
+        this.configRepository = configRepository;
+        this.enabled = enabled;
+        this.stableMs = stableMs;
+        this.rescanMs = rescanMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "import-directory-monitor");
+        thread.setDaemon(true);
+        thread.start();
+
+        configRepository.findAllByActiveTrueOrderByIdAsc().forEach(this::watch);
+    }
+
+    /**
+     * (Re)registra el directorio de la configuración. Se llama al arrancar y al guardar una configuración;
+     * si quedó inactiva o sin directorio válido, deja de monitorearla.
+     */
+    public synchronized void watch(ImportConfiguration config) {
+        if (!enabled || config == null || config.getId() == null) {
+            return;
+        }
+        unwatch(config.getId());
+
+        if (!Boolean.TRUE.equals(config.getActive()) || config.getWatchDirectory() == null) {
+            return;
+        }
+
+        Path directory = Paths.get(config.getWatchDirectory());
+        if (!Files.isDirectory(directory)) {
+            logger.warn("El directorio no existe: {}", config.getWatchDirectory());
+            return;
+        }
+
+        try {
+            WatchService ws = watchService;
+            if (ws == null) {
+                ws = directory.getFileSystem().newWatchService();
+                watchService = ws;
+            }
+            if (!keys.containsKey(directory)) {
+                keys.put(directory, directory.register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            }
+            WatchTarget target = new WatchTarget(directory, config.getFilePattern());
+            targets.put(config.getId(), target);
+            rescan(target);
+            logger.info("👀 Monitoreando {} (patrón '{}', configuración {})", directory, target.filePattern(), config.getId());
+        } catch (IOException e) {
+            logger.error("No se pudo registrar el WatchService en {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Deja de monitorear una configuración (eliminada o desactivada). El directorio se libera
+     * cuando ninguna otra configuración lo usa.
+     */
+    public synchronized void unwatch(Long configId) {
+        WatchTarget previous = targets.remove(configId);
+        if (previous == null) {
+            return;
+        }
+        boolean shared = targets.values().stream().anyMatch(t -> t.directory().equals(previous.directory()));
+        if (!shared) {
+            WatchKey key = keys.remove(previous.directory());
+            if (key != null) {
+                key.cancel();
+            }
+        }
+        // Se descartan los archivos que ya no cumple ninguna configuración del directorio
+        for (Map<Path, FileState> map : List.of(candidates, ready, released)) {
+            map.keySet().removeIf(path -> previous.covers(path) && !isTracked(path));
+        }
+    }
+
+    /**
+     * true si el monitor está activo sobre el directorio de esta configuración
+     * (si no, el llamador debe listar el directorio como antes).
+     */
+    public boolean isWatching(ImportConfiguration config) {
+        WatchTarget target = config.getId() != null ? targets.get(config.getId()) : null;
+        return enabled && target != null && config.getWatchDirectory() != null
+                && target.directory().equals(Paths.get(config.getWatchDirectory()))
+                && Objects.equals(target.filePattern(), config.getFilePattern());
+    }
+
+    /**
+     * Archivos estables pendientes de importar de esta configuración, el más reciente primero.
+     */
+    public List<File> readyFiles(ImportConfiguration config) {
+        WatchTarget target = config.getId() != null ? targets.get(config.getId()) : null;
+        if (target == null) {
+            return new ArrayList<>();
+        }
+        List<Map.Entry<Path, FileState>> entries = new ArrayList<>();
+        for (Map.Entry<Path, FileState> entry : ready.entrySet()) {
+            if (target.covers(entry.getKey())) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong((Map.Entry<Path, FileState> e) -> e.getValue().lastModified()).reversed());
+        List<File> files = new ArrayList<>(entries.size());
+        for (Map.Entry<Path, FileState> entry : entries) {
+            files.add(entry.getKey().toFile());
+        }
+        return files;
+    }
+
+    /**
+     * Saca un archivo de la cola (importado o ya procesado). Si se vuelve a modificar, reingresa.
+     */
+    public void release(File file) {
+        Path path = file.toPath();
+        FileState state = ready.remove(path);
+        if (state == null) {
+            state = stat(path);
+        }
+        if (state != null) {
+            released.put(path, state);
+        }
+    }
+
+    /**
+     * Coincidencia usada por la importación automática: el nombre contiene el patrón y es
+     * Excel/CSV, también comprimido (.gz o .zip de una entrada).
+     */
+    public static boolean matches(String fileName, String filePattern) {
+        return filePattern != null && fileName.toLowerCase().contains(filePattern.toLowerCase())
+                && CompressedImportFile.isSupported(fileName);
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                WatchService ws = watchService;
+                if (ws == null) {
+                    Thread.sleep(POLL_MS);
+                    continue;
+                }
+
+                WatchKey key = ws.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            rescan();
+                            continue;
+                        }
+                        Path path = directory.resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            candidates.remove(path);
+                            ready.remove(path);
+                            released.remove(path);
+                        } else {
+                            observe(path);
+                        }
+                    }
+                    key.reset();
+                }
+
+                promoteStableFiles();
+                if (System.currentTimeMillis() - lastRescanAt >= rescanMs) {
+                    rescan();
+                }
+            } catch (ClosedWatchServiceException e) {
+                return; // stop()
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error en el monitor de directorio: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Registra un archivo creado/modificado como candidato (o reinicia su espera si sigue cambiando).
+     */
+    private void observe(Path path) {
+        if (!isTracked(path)) {
+            return;
+        }
+        FileState state = stat(path);
+        if (state == null) {
+            return;
+        }
+        FileState readyState = ready.get(path);
+        FileState releasedState = released.get(path);
+        if ((readyState != null && readyState.sameContentAs(state))
+                || (releasedState != null && releasedState.sameContentAs(state))) {
+            return;
+        }
+        ready.remove(path);
+        released.remove(path);
+        candidates.merge(path, state, (previous, current) -> previous.sameContentAs(current) ? previous : current);
+    }
+
+    private void promoteStableFiles() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Path, FileState> entry : candidates.entrySet()) {
+            Path path = entry.getKey();
+            FileState previous = entry.getValue();
+            FileState current = stat(path);
+            if (current == null) {
+                candidates.remove(path);
+            } else if (!previous.sameContentAs(current)) {
+                candidates.put(path, current);
+            } else if (now - previous.observedAt() >= stableMs) {
+                candidates.remove(path);
+                ready.put(path, previous);
+                logger.info("📄 Archivo listo para importar: {} ({} bytes)", path.getFileName(), previous.size());
+            }
+        }
+    }
+
+    /**
+     * true si alguna configuración monitoreada cubre este archivo (mismo directorio y patrón).
+     */
+    private boolean isTracked(Path path) {
+        for (WatchTarget target : targets.values()) {
+            if (target.covers(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reconciliación por listado de todas las configuraciones.
+     */
+    private void rescan() {
+        lastRescanAt = System.currentTimeMillis();
+        for (WatchTarget target : targets.values()) {
+            rescan(target);
+        }
+    }
+
+    /**
+     * Reconciliación por listado: detecta archivos sin evento y descarta los que ya no existen.
+     */
+    private void rescan(WatchTarget target) {
+        File[] files = target.directory().toFile().listFiles((dir, name) -> matches(name, target.filePattern()));
+        if (files == null) {
+            return;
+        }
+        Set<Path> present = new HashSet<>();
+        for (File file : files) {
+            present.add(file.toPath());
+            observe(file.toPath());
+        }
+        for (Map<Path, FileState> map : List.of(candidates, ready, released)) {
+            map.keySet().removeIf(path -> target.covers(path) && !present.contains(path));
+        }
+    }
+
+    private FileState stat(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return null;
+            }
+            return new FileState(attrs.size(), attrs.lastModifiedTime().toMillis(), System.currentTimeMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void closeWatchService() {
+        WatchService ws = watchService;
+        watchService = null;
+        keys.clear();
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException e) {
+                logger.warn("Error cerrando WatchService: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        closeWatchService();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /** Directorio y patrón de una configuración monitoreada. */
+    private record WatchTarget(Path directory, String filePattern) {
+        boolean covers(Path path) {
+            return directory.equals(path.getParent()) && matches(path.getFileName().toString(), filePattern);
+        }
+    }
+
+    /** Tamaño + mtime observados y cuándo se observaron por última vez con esos valores. */
+    private record FileState(long size, long lastModified, long observedAt) {
+        boolean sameContentAs(FileState other) {
+            return size == other.size && lastModified == other.lastModified;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService;
+import com.cashi.shared.application.services.SchedulerLockService;
+import com.cashi.shared.domain.model.entities.SubPortfolio;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.SubPortfolioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reconciliación nocturna de teléfonos fallecido/equivocado.
+ *
+ * Tras cada sync solo se limpia a los clientes afectados (sp_limpiar_contactos_invalidos_clientes);
+ * este job re-ejecuta el SP completo por subcartera para recoger las tipificaciones
+ * registradas en el discador fuera de una importación.
+ *
+ * Con varias réplicas corre en un solo nodo (SchedulerLockService); el lock se retiene al menos
+ * MIN_HOLD para que el mismo cron disparado en otro nodo con reloj desfasado no la repita.
+ */
+@Service
+public class InvalidPhoneReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidPhoneReconciliationService.class);
+
+    private static final String LOCK_NAME = "invalid-phone-reconcile";
+    private static final Duration MIN_HOLD = Duration.ofMinutes(10);
+
+    private final CustomerSyncService customerSyncService;
+    private final SubPortfolioRepository subPortfolioRepository;
+    private final SchedulerLockService schedulerLockService;
+
+    public InvalidPhoneReconciliationService(CustomerSyncService customerSyncService,
+                                             SubPortfolioRepository subPortfolioRepository,
+                                             SchedulerLockService schedulerLockService) {
+        this.customerSyncService = customerSyncService;
+        this.subPortfolioRepository = subPortfolioRepository;
+        this.schedulerLockService = schedulerLockService;
+    }
+
+    @Scheduled(cron = "${app.customer-sync.invalid-phone-reconcile-cron:0 30 2 * * *}")
+    public void scheduledReconcile() {
+        if (!schedulerLockService.runLocked(LOCK_NAME, MIN_HOLD, this::reconcileAll)) {
+            logger.info("Reconciliación de teléfonos inválidos en curso en otro nodo, se omite");
+        }
+    }
+
+    public void reconcileAll() {
+        List<SubPortfolio> subPortfolios = subPortfolioRepository.findAllWithPortfolio();
+        logger.info("🌙 Reconciliación de teléfonos inválidos: {} subcarteras", subPortfolios.size());
+
+        int failed = 0;
+        for (SubPortfolio subPortfolio : subPortfolios) {
+            if (subPortfolio.getIsActive() == null || subPortfolio.getIsActive() != 1) {
+                continue;
+            }
+            try {
+                customerSyncService.reapplyInvalidPhoneContactInactivation(subPortfolio.getId().longValue());
+            } catch (Exception e) {
+                failed++;
+                logger.error("❌ Error reconciliando teléfonos inválidos de SubPortfolio {}: {}",
+                        subPortfolio.getId(), e.getMessage());
+            }
+        }
+
+        logger.info("✅ Reconciliación de teléfonos inválidos completada ({} con error)", failed);
+    }
+}
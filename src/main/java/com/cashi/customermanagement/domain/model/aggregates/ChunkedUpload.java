@@ -0,0 +1,94 @@
+package com.cashi.customermanagement.domain.model.aggregates;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Subida de un archivo de importación por partes (init / parte N / complete).
+ * Las partes recibidas se registran en ChunkedUploadPart.
+ */
+@Entity
+@Table(name = "cargas_fragmentadas")
+@Getter
+@Setter
+public class ChunkedUpload {
+
+    public static final String STATUS_IN_PROGRESS = "EN_CURSO";
+    public static final String STATUS_IMPORTING = "IMPORTANDO";
+    public static final String STATUS_IMPORTED = "IMPORTADA";
+    public static final String STATUS_ERROR = "ERROR";
+
+    @Id
+    @Column(name = "id_carga", length = 36)
+    private String id;
+
+    @Column(name = "nombre_archivo", nullable = false, length = 255)
+    private String fileName;
+
+    @Column(name = "tamano_total", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "tamano_fragmento", nullable = false)
+    private Integer chunkSize;
+
+    @Column(name = "total_fragmentos", nullable = false)
+    private Integer totalChunks;
+
+    @Column(name = "id_configuracion", nullable = false)
+    private Long configId;
+
+    @Column(name = "ruta_staging", nullable = false, length = 500)
+    private String stagingPath;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "mensaje", columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public ChunkedUpload() {
+    }
+
+    public ChunkedUpload(String id, String fileName, Long totalSize, Integer chunkSize, Long configId, String stagingPath) {
+        this.id = id;
+        this.fileName = fileName;
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.totalChunks = (int) ((totalSize + chunkSize - 1) / chunkSize);
+        this.configId = configId;
+        this.stagingPath = stagingPath;
+        this.status = STATUS_IN_PROGRESS;
+    }
+
+    /**
+     * Bytes que debe tener la parte indicada (la última puede ser más corta)
+     */
+    public long expectedChunkLength(int index) {
+        long offset = (long) index * chunkSize;
+        return Math.min(chunkSize, totalSize - offset);
+    }
+
+    public boolean isInProgress() {
+        return STATUS_IN_PROGRESS.equals(status);
+    }
+}
@@ -41,6 +41,12 @@ public class ImportHistory {
     @Column(name = "file_hash", length = 32)
     private String fileHash; // MD5 hash of file content for duplicate detection
 
+    @Column(name = "drive_file_id", length = 100)
+    private String driveFileId; // Solo importaciones desde Google Drive
+
+    @Column(name = "drive_revision", length = 100)
+    private String driveRevision; // headRevisionId (o "v" + version) importada
+
     @Column(name = "fecha_creacion", nullable = false)
     private LocalDateTime createdAt;
 
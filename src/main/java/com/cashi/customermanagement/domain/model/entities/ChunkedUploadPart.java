@@ -0,0 +1,51 @@
+package com.cashi.customermanagement.domain.model.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parte recibida de una subida fragmentada, con su SHA-256 verificado.
+ */
+@Entity
+@Table(name = "cargas_fragmentadas_partes")
+@Getter
+@Setter
+public class ChunkedUploadPart {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_parte")
+    private Long id;
+
+    @Column(name = "id_carga", nullable = false, length = 36)
+    private String uploadId;
+
+    @Column(name = "numero_fragmento", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "tamano_bytes", nullable = false)
+    private Integer sizeBytes;
+
+    @Column(name = "checksum", nullable = false, length = 64)
+    private String checksum;
+
+    @Column(name = "fecha_recepcion")
+    private LocalDateTime receivedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        receivedAt = LocalDateTime.now();
+    }
+
+    public ChunkedUploadPart() {
+    }
+
+    public ChunkedUploadPart(String uploadId, Integer chunkIndex) {
+        this.uploadId = uploadId;
+        this.chunkIndex = chunkIndex;
+    }
+}
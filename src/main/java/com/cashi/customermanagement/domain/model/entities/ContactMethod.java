@@ -66,6 +66,13 @@ public class ContactMethod {
     @Column(name = "valor", nullable = false, length = 255)
     private String value;
 
+    /**
+     * Clave normalizada del teléfono (ver PhoneNumberNormalizer). Columna generada en MySQL (V35):
+     * solo lectura desde JPA, se recalcula en cada escritura de valor.
+     */
+    @Column(name = "telefono_normalizado", insertable = false, updatable = false)
+    private String phoneKey;
+
     /**
      * Etiqueta/nombre de la cabecera original del CSV
      */
@@ -0,0 +1,62 @@
+package com.cashi.customermanagement.domain.model.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Huella de un archivo de la carpeta de importación: permite reutilizar el MD5 mientras
+ * (ruta, tamaño, fecha de modificación) no cambien.
+ */
+@Entity
+@Table(name = "huellas_archivos")
+@Getter
+@Setter
+public class FileFingerprint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_huella")
+    private Long id;
+
+    @Column(name = "ruta_archivo", nullable = false, length = 500, unique = true)
+    private String filePath;
+
+    @Column(name = "tamano_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "fecha_modificacion", nullable = false)
+    private Long lastModified;
+
+    @Column(name = "pre_hash", nullable = false, length = 16)
+    private String preHash;
+
+    @Column(name = "file_hash", length = 32)
+    private String fileHash; // MD5, null si solo se calculó el pre-hash
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public FileFingerprint() {
+    }
+
+    public FileFingerprint(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * true si la clave barata (tamaño + mtime) coincide con la del archivo actual
+     */
+    public boolean matches(long sizeBytes, long lastModified) {
+        return this.sizeBytes != null && this.sizeBytes == sizeBytes
+                && this.lastModified != null && this.lastModified == lastModified;
+    }
+}
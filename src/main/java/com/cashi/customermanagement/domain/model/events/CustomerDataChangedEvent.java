@@ -0,0 +1,28 @@
+package com.cashi.customermanagement.domain.model.events;
+
+import java.util.Set;
+
+/**
+ * Evento publicado cuando cambian datos de clientes o de sus métodos de contacto (sync,
+ * altas de contactos, resultados Osiptel/WhatsApp). Invalida las búsquedas cacheadas de
+ * esos clientes (ver CustomerLookupCache) después del commit.
+ *
+ * @param tenantId Inquilino afectado; null = cualquiera (se invalida por customerIds)
+ * @param customerIds IDs (clientes.id) modificados; null = todos los clientes del tenant
+ */
+public record CustomerDataChangedEvent(
+        Long tenantId,
+        Set<Long> customerIds
+) {
+    public static CustomerDataChangedEvent ofCustomers(Set<Long> customerIds) {
+        return new CustomerDataChangedEvent(null, customerIds);
+    }
+
+    public static CustomerDataChangedEvent ofTenant(Long tenantId) {
+        return new CustomerDataChangedEvent(tenantId, null);
+    }
+
+    public boolean isTenantWide() {
+        return customerIds == null;
+    }
+}
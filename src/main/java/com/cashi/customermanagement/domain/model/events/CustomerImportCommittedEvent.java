@@ -0,0 +1,23 @@
+package com.cashi.customermanagement.domain.model.events;
+
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+
+import java.util.Set;
+
+/**
+ * Evento publicado por una importación (carga inicial o diaria) que requiere sincronizar clientes.
+ * Se consume DESPUÉS del commit de la importación (ver CustomerSyncEventHandler).
+ *
+ * @param subPortfolioId ID de la subcartera importada
+ * @param loadType Tipo de carga desde el que se sincroniza (normalmente INICIAL)
+ * @param identificationCodes Códigos de identificación modificados; null = sincronización completa
+ */
+public record CustomerImportCommittedEvent(
+        Long subPortfolioId,
+        LoadType loadType,
+        Set<String> identificationCodes
+) {
+    public boolean isFullSync() {
+        return identificationCodes == null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.cashi.customermanagement.infrastructure.persistence.jpa.repositories;
+
+import com.cashi.customermanagement.domain.model.entities.ChunkedUploadPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChunkedUploadPartRepository extends JpaRepository<ChunkedUploadPart, Long> {
+
+    Optional<ChunkedUploadPart> findByUploadIdAndChunkIndex(String uploadId, Integer chunkIndex);
+
+    List<ChunkedUploadPart> findByUploadIdOrderByChunkIndex(String uploadId);
+
+    @Query("SELECT p.chunkIndex FROM ChunkedUploadPart p WHERE p.uploadId = :uploadId ORDER BY p.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("uploadId") String uploadId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ChunkedUploadPart p WHERE p.uploadId = :uploadId")
+    void deleteByUploadId(@Param("uploadId") String uploadId);
+}
@@ -0,0 +1,38 @@
+package com.cashi.customermanagement.infrastructure.persistence.jpa.repositories;
+
+import com.cashi.customermanagement.domain.model.aggregates.ChunkedUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChunkedUploadRepository extends JpaRepository<ChunkedUpload, String> {
+
+    /**
+     * Cambio de estado condicional: 1 fila afectada = esta llamada ganó la transición
+     * (dos "complete" simultáneos de la misma carga no importan el archivo dos veces).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChunkedUpload u SET u.status = :to, u.updatedAt = :now " +
+           "WHERE u.id = :id AND u.status = :from")
+    int transition(@Param("id") String id, @Param("from") String from, @Param("to") String to,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Marca actividad de una carga en curso (cada parte recibida): la expiración cuenta desde aquí.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChunkedUpload u SET u.updatedAt = :now WHERE u.id = :id AND u.status = '" +
+           ChunkedUpload.STATUS_IN_PROGRESS + "'")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    List<ChunkedUpload> findByStatusAndUpdatedAtBefore(String status, LocalDateTime updatedAt);
+}
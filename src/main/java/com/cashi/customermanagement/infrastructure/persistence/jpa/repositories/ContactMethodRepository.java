@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,77 +30,38 @@ public interface ContactMethodRepository extends JpaRepository<ContactMethod, Lo
     List<ContactMethod> findByCustomerIdAndSubtype(Long customerId, String subtype);
 
     /**
-     * Busca un método de contacto por tenant, subtipo y valor, cargando el cliente con métodos de contacto
+     * Busca teléfonos por tenant y clave normalizada (PhoneNumberNormalizer), en todos los subtipos,
+     * cargando el cliente con métodos de contacto
      */
-    @Query("SELECT cm FROM ContactMethod cm " +
+    @Query("SELECT DISTINCT cm FROM ContactMethod cm " +
            "LEFT JOIN FETCH cm.customer c " +
            "LEFT JOIN FETCH c.contactMethods " +
            "WHERE c.tenantId = :tenantId " +
-           "AND cm.subtype = :subtype " +
-           "AND cm.value = :value")
-    Optional<ContactMethod> findByTenantIdAndSubtypeAndValueWithCustomer(
+           "AND cm.phoneKey = :phoneKey")
+    List<ContactMethod> findAllByTenantIdAndPhoneKeyWithCustomer(
         @Param("tenantId") Long tenantId,
-        @Param("subtype") String subtype,
-        @Param("value") String value
+        @Param("phoneKey") String phoneKey
     );
 
     /**
-     * Busca todos los métodos de contacto por tenant, subtipo y valor (para búsqueda en múltiples subcarteras)
+     * Busca teléfonos por tenant, subtipo (ej: telefono_principal) y clave normalizada
      */
     @Query("SELECT DISTINCT cm FROM ContactMethod cm " +
            "LEFT JOIN FETCH cm.customer c " +
            "LEFT JOIN FETCH c.contactMethods " +
            "WHERE c.tenantId = :tenantId " +
            "AND cm.subtype = :subtype " +
-           "AND cm.value = :value")
-    List<ContactMethod> findAllByTenantIdAndSubtypeAndValueWithCustomer(
+           "AND cm.phoneKey = :phoneKey")
+    List<ContactMethod> findAllByTenantIdAndSubtypeAndPhoneKeyWithCustomer(
         @Param("tenantId") Long tenantId,
         @Param("subtype") String subtype,
-        @Param("value") String value
-    );
-
-    /**
-     * Busca métodos de contacto por subtipo y valor SIN filtrar por tenant (búsqueda multi-tenant)
-     */
-    @Query("SELECT DISTINCT cm FROM ContactMethod cm " +
-           "LEFT JOIN FETCH cm.customer c " +
-           "LEFT JOIN FETCH c.contactMethods " +
-           "WHERE cm.subtype = :subtype " +
-           "AND cm.value = :value")
-    List<ContactMethod> findAllBySubtypeAndValueWithCustomer(
-        @Param("subtype") String subtype,
-        @Param("value") String value
-    );
-
-    /**
-     * Busca métodos de contacto por tipo (telefono/email) y valor, filtrando por tenant
-     * Busca en TODOS los métodos de contacto de ese tipo (ej: todos los teléfonos sin importar si es principal, secundario, etc.)
-     */
-    @Query("SELECT DISTINCT cm FROM ContactMethod cm " +
-           "LEFT JOIN FETCH cm.customer c " +
-           "LEFT JOIN FETCH c.contactMethods " +
-           "WHERE c.tenantId = :tenantId " +
-           "AND cm.contactType = :contactType " +
-           "AND cm.value = :value")
-    List<ContactMethod> findAllByTenantIdAndContactTypeAndValueWithCustomer(
-        @Param("tenantId") Long tenantId,
-        @Param("contactType") String contactType,
-        @Param("value") String value
+        @Param("phoneKey") String phoneKey
     );
 
     /**
-     * Busca métodos de contacto por tipo (telefono/email) y valor SIN filtrar por tenant (búsqueda multi-tenant)
-     * Busca en TODOS los métodos de contacto de ese tipo
+     * Métodos de contacto de una página de clientes (una sola consulta por página)
      */
-    @Query("SELECT DISTINCT cm FROM ContactMethod cm " +
-           "LEFT JOIN FETCH cm.customer c " +
-           "LEFT JOIN FETCH c.contactMethods " +
-           "WHERE cm.contactType = :contactType " +
-           "AND cm.value = :value")
-    List<ContactMethod> findAllByContactTypeAndValueWithCustomer(
-        @Param("contactType") String contactType,
-        @Param("value") String value
-    );
+    List<ContactMethod> findByCustomerIdInOrderByIdAsc(Collection<Long> customerIds);
 
     /**
      * Elimina todos los métodos de contacto de un cliente
@@ -116,4 +78,16 @@ public interface ContactMethodRepository extends JpaRepository<ContactMethod, Lo
         @Param("p_portfolio_id") Integer portfolioId,
         @Param("p_sub_portfolio_id") Integer subPortfolioId
     );
+
+    /**
+     * Variante acotada de inactivateTipifiedInvalidPhoneContacts: aplica la regla solo
+     * a los clientes indicados (arreglo JSON de clientes.id, p. ej. "[1, 2, 3]").
+     */
+    @Procedure(procedureName = "sp_limpiar_contactos_invalidos_clientes")
+    void inactivateTipifiedInvalidPhoneContactsForClients(
+        @Param("p_tenant_id") Integer tenantId,
+        @Param("p_portfolio_id") Integer portfolioId,
+        @Param("p_sub_portfolio_id") Integer subPortfolioId,
+        @Param("p_client_ids") String clientIdsJson
+    );
 }
@@ -1,6 +1,7 @@
 package com.cashi.customermanagement.infrastructure.persistence.jpa.repositories;
 
 import com.cashi.customermanagement.domain.model.aggregates.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,12 +15,27 @@ import java.util.Optional;
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByIdentificationCode(String identificationCode);
     Optional<Customer> findByDocument(String document);
-    List<Customer> findByFullNameContainingIgnoreCase(String name);
     List<Customer> findByTenantId(Long tenantId);
     List<Customer> findByTenantIdAndIdentificationCodeIn(Long tenantId, Collection<String> identificationCodes);
     Optional<Customer> findByTenantIdAndIdentificationCode(Long tenantId, String identificationCode);
     Optional<Customer> findByTenantIdAndDocument(Long tenantId, String document);
 
+    // Búsqueda por nombre sobre el índice FULLTEXT ngram de nombre_busqueda (V34), ordenada por relevancia.
+    // terms: consulta booleana ya normalizada (+"juan" +"pere"); prefix: nombre normalizado + '%' para
+    // priorizar coincidencias al inicio del nombre. Devuelve solo ids; los filtros nulos no restringen.
+    @Query(value = "SELECT c.id FROM clientes c " +
+           "WHERE MATCH(c.nombre_busqueda) AGAINST (:terms IN BOOLEAN MODE) " +
+           "AND (:tenantId IS NULL OR c.id_inquilino = :tenantId) " +
+           "AND (:subPortfolioId IS NULL OR c.id_subcartera = :subPortfolioId) " +
+           "ORDER BY (c.nombre_busqueda LIKE :prefix) DESC, " +
+           "MATCH(c.nombre_busqueda) AGAINST (:terms IN BOOLEAN MODE) DESC, c.id " +
+           "LIMIT :limit", nativeQuery = true)
+    List<Long> searchIdsByName(@Param("terms") String terms,
+                               @Param("prefix") String prefix,
+                               @Param("tenantId") Long tenantId,
+                               @Param("subPortfolioId") Long subPortfolioId,
+                               @Param("limit") int limit);
+
     // Get top 6 most recent customers
     List<Customer> findTop6ByOrderByIdDesc();
 
@@ -50,6 +66,19 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Query("SELECT DISTINCT c FROM Customer c LEFT JOIN FETCH c.contactMethods")
     List<Customer> findAllWithContactMethods();
 
+    // Listado por cursor (keyset sobre id): siguiente página después de afterId. Los filtros nulos no restringen.
+    // Sin JOIN FETCH: los métodos de contacto se cargan por página con ContactMethodRepository.findByCustomerIdIn
+    @Query("SELECT c FROM Customer c WHERE c.id > :afterId " +
+           "AND (:tenantId IS NULL OR c.tenantId = :tenantId) " +
+           "AND (:portfolioId IS NULL OR c.portfolioId = :portfolioId) " +
+           "AND (:subPortfolioId IS NULL OR c.subPortfolioId = :subPortfolioId) " +
+           "ORDER BY c.id")
+    List<Customer> findPageAfter(@Param("afterId") Long afterId,
+                                 @Param("tenantId") Long tenantId,
+                                 @Param("portfolioId") Long portfolioId,
+                                 @Param("subPortfolioId") Long subPortfolioId,
+                                 Pageable pageable);
+
     // Métodos multi-tenant (sin filtro de tenantId) para búsqueda de duplicados entre inquilinos
     @Query("SELECT DISTINCT c FROM Customer c LEFT JOIN FETCH c.contactMethods WHERE c.identificationCode = :identificationCode")
     List<Customer> findAllByIdentificationCodeWithContactMethods(@Param("identificationCode") String identificationCode);
@@ -60,7 +89,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Query("SELECT DISTINCT c FROM Customer c LEFT JOIN FETCH c.contactMethods WHERE c.accountNumber = :accountNumber")
     List<Customer> findAllByAccountNumberWithContactMethods(@Param("accountNumber") String accountNumber);
 
-    // Buscar cliente por teléfono en métodos de contacto con filtros multi-tenant
+    // Buscar cliente por teléfono (clave normalizada, ver PhoneNumberNormalizer) con filtros multi-tenant
     @Query("SELECT DISTINCT c FROM Customer c " +
            "LEFT JOIN FETCH c.contactMethods cm " +
            "WHERE c.tenantId = :tenantId " +
@@ -68,10 +97,9 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
            "AND c.subPortfolioId = :subPortfolioId " +
            "AND EXISTS (SELECT 1 FROM ContactMethod cm2 " +
            "            WHERE cm2.customer = c " +
-           "            AND cm2.contactType = 'telefono' " +
-           "            AND cm2.value = :phoneNumber)")
+           "            AND cm2.phoneKey = :phoneKey)")
     Optional<Customer> findByPhoneAndTenantAndPortfolio(
-        @Param("phoneNumber") String phoneNumber,
+        @Param("phoneKey") String phoneKey,
         @Param("tenantId") Long tenantId,
         @Param("portfolioId") Long portfolioId,
         @Param("subPortfolioId") Long subPortfolioId
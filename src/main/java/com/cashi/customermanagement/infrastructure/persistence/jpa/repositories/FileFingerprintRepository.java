@@ -0,0 +1,26 @@
+package com.cashi.customermanagement.infrastructure.persistence.jpa.repositories;
+
+import com.cashi.customermanagement.domain.model.entities.FileFingerprint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface FileFingerprintRepository extends JpaRepository<FileFingerprint, Long> {
+
+    Optional<FileFingerprint> findByFilePath(String filePath);
+
+    /**
+     * ¿Algún archivo con el mismo tamaño y pre-hash se importó con éxito?
+     * Si no, el contenido es nuevo sin necesidad de calcular el MD5.
+     */
+    @Query("SELECT COUNT(f) > 0 FROM FileFingerprint f, ImportHistory h " +
+           "WHERE f.sizeBytes = :sizeBytes AND f.preHash = :preHash " +
+           "AND f.fileHash IS NOT NULL AND h.fileHash = f.fileHash AND h.status = :status")
+    boolean existsImportedWithPreHash(@Param("sizeBytes") Long sizeBytes,
+                                      @Param("preHash") String preHash,
+                                      @Param("status") String status);
+}
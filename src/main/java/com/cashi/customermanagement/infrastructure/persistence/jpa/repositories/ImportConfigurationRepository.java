@@ -4,12 +4,23 @@ import com.cashi.customermanagement.domain.model.aggregates.ImportConfiguration;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ImportConfigurationRepository extends JpaRepository<ImportConfiguration, Long> {
 
-    Optional<ImportConfiguration> findByActiveTrue();
+    /**
+     * Todas las configuraciones activas (una por carpeta/subcartera monitoreada)
+     */
+    List<ImportConfiguration> findAllByActiveTrueOrderByIdAsc();
+
+    /**
+     * Configuración activa más reciente (endpoints de configuración única)
+     */
+    Optional<ImportConfiguration> findFirstByActiveTrueOrderByIdDesc();
+
+    List<ImportConfiguration> findAllByOrderByIdAsc();
 
     Optional<ImportConfiguration> findFirstByOrderByIdDesc();
 }
@@ -23,4 +23,7 @@ public interface ImportHistoryRepository extends JpaRepository<ImportHistory, Lo
     Optional<ImportHistory> findByFileHashAndStatus(String fileHash, String status);
 
     boolean existsByFileHashAndStatus(String fileHash, String status);
+
+    // Google Drive: una revisión ya importada se omite sin descargarla
+    boolean existsByDriveFileIdAndDriveRevisionAndStatus(String driveFileId, String driveRevision, String status);
 }
@@ -0,0 +1,108 @@
+package com.cashi.customermanagement.interfaces.rest.controllers;
+
+import com.cashi.customermanagement.application.services.ChunkedUploadService;
+import com.cashi.customermanagement.interfaces.rest.resources.InitChunkedUploadRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+
+/**
+ * Subida reanudable por partes de archivos de importación grandes.
+ *
+ * 1. POST /uploads                       -> uploadId, chunkSize, totalChunks
+ * 2. PUT  /uploads/{id}/chunks/{n}       -> cuerpo binario de la parte n (cabecera opcional X-Chunk-Checksum: SHA-256 hex)
+ * 3. GET  /uploads/{id}                  -> missingChunks, para reanudar tras un corte
+ * 4. POST /uploads/{id}/complete         -> importa el archivo con la configuración indicada en el paso 1
+ */
+@Tag(name = "Chunked Upload", description = "Subida por partes reanudable de archivos de importación")
+@RestController
+@RequestMapping("/api/v1/customers/import/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @Operation(summary = "Iniciar subida por partes")
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> init(@RequestBody InitChunkedUploadRequest request) {
+        System.out.println("📤 POST /api/v1/customers/import/uploads");
+        System.out.println("   - fileName: " + request.fileName());
+        System.out.println("   - totalSize: " + request.totalSize() + " bytes");
+        System.out.println("   - configId: " + request.configId());
+
+        return handle(HttpStatus.CREATED, () -> chunkedUploadService.init(
+                request.fileName(), request.totalSize(), request.chunkSize(), request.configId()));
+    }
+
+    @Operation(summary = "Subir una parte", description = "El cuerpo es el contenido binario de la parte; reenviar una parte la sobrescribe")
+    @PutMapping(value = "/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> putChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestHeader(value = "X-Chunk-Checksum", required = false) String checksum,
+            HttpServletRequest request) {
+        // Se lee el cuerpo directamente del request: la parte no se bufferiza en memoria ni en un temporal
+        return handle(HttpStatus.OK, () -> chunkedUploadService.putChunk(uploadId, index, request.getInputStream(), checksum));
+    }
+
+    @Operation(summary = "Estado de la subida", description = "Incluye las partes faltantes para reanudar")
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String uploadId) {
+        return handle(HttpStatus.OK, () -> chunkedUploadService.status(uploadId));
+    }
+
+    @Operation(summary = "Completar subida e importar")
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> complete(@PathVariable String uploadId) {
+        System.out.println("📤 POST /api/v1/customers/import/uploads/" + uploadId + "/complete");
+        return handle(HttpStatus.OK, () -> chunkedUploadService.complete(uploadId));
+    }
+
+    @Operation(summary = "Cancelar subida")
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abort(@PathVariable String uploadId) {
+        return handle(HttpStatus.OK, () -> {
+            chunkedUploadService.abort(uploadId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Carga cancelada");
+            return response;
+        });
+    }
+
+    private ResponseEntity<Map<String, Object>> handle(HttpStatus okStatus, Callable<Map<String, Object>> action) {
+        try {
+            return ResponseEntity.status(okStatus).body(action.call());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(createErrorResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error de validación: " + e.getMessage());
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("❌ Error en subida por partes: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error en la subida: " + e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> createErrorResponse(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return response;
+    }
+}
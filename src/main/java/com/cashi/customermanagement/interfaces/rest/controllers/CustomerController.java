@@ -2,28 +2,43 @@ package com.cashi.customermanagement.interfaces.rest.controllers;
 
 // import com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService;
 // import com.cashi.customermanagement.application.internal.queryservices.CustomerDetailQueryService;
+import com.cashi.customermanagement.application.internal.commandservices.CustomerSyncOrchestrator;
+import com.cashi.customermanagement.application.internal.queryservices.CrossTenantCustomerSearchService;
+import com.cashi.customermanagement.application.internal.queryservices.CustomerLookupCache;
+import com.cashi.customermanagement.application.internal.queryservices.CustomerNdjsonExportService;
 import com.cashi.customermanagement.application.internal.queryservices.CustomerQueryServiceImpl;
-import com.cashi.customermanagement.domain.model.valueobjects.CustomerDataMapping;
+import com.cashi.customermanagement.application.internal.queryservices.CustomerResourceProjection;
+import com.cashi.customermanagement.application.internal.queryservices.TenantDisplayConfigRegistry;
+import com.cashi.customermanagement.application.services.CustomerAccessTracker;
+import com.cashi.customermanagement.domain.model.aggregates.Customer;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.CustomerRepository;
 // import com.cashi.customermanagement.interfaces.rest.resources.CustomerDetailResource;
+import com.cashi.customermanagement.interfaces.rest.resources.CustomerPageResource;
 import com.cashi.customermanagement.interfaces.rest.resources.CustomerResource;
+import com.cashi.customermanagement.interfaces.rest.resources.SyncSubPortfoliosRequest;
 import com.cashi.customermanagement.interfaces.rest.transform.CustomerResourceFromEntityAssembler;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cashi.shared.util.PhoneNumberNormalizer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/customers")
@@ -38,26 +53,45 @@ public class CustomerController {
     private final com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService customerSyncService;
     private final CustomerRepository customerRepository;
     private final com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository contactMethodRepository;
-    private final ObjectMapper objectMapper;
     private final CustomerResourceFromEntityAssembler assembler;
+    private final CustomerSyncOrchestrator customerSyncOrchestrator;
+    private final CustomerNdjsonExportService ndjsonExportService;
+    private final CrossTenantCustomerSearchService crossTenantSearchService;
+    private final CustomerLookupCache lookupCache;
+    private final CustomerAccessTracker accessTracker;
+    private final TenantDisplayConfigRegistry displayConfigRegistry;
 
     public CustomerController(CustomerQueryServiceImpl queryService,
                             // CustomerDetailQueryService customerDetailQueryService,
                             com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService customerSyncService,
                             CustomerRepository customerRepository,
                             com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository contactMethodRepository,
-                            ObjectMapper objectMapper,
-                            CustomerResourceFromEntityAssembler assembler) {
+                            CustomerResourceFromEntityAssembler assembler,
+                            CustomerSyncOrchestrator customerSyncOrchestrator,
+                            CustomerNdjsonExportService ndjsonExportService,
+                            CrossTenantCustomerSearchService crossTenantSearchService,
+                            CustomerLookupCache lookupCache,
+                            CustomerAccessTracker accessTracker,
+                            TenantDisplayConfigRegistry displayConfigRegistry) {
         this.queryService = queryService;
         // this.customerDetailQueryService = customerDetailQueryService;
         this.customerSyncService = customerSyncService;
         this.customerRepository = customerRepository;
         this.contactMethodRepository = contactMethodRepository;
-        this.objectMapper = objectMapper;
         this.assembler = assembler;
+        this.customerSyncOrchestrator = customerSyncOrchestrator;
+        this.ndjsonExportService = ndjsonExportService;
+        this.crossTenantSearchService = crossTenantSearchService;
+        this.lookupCache = lookupCache;
+        this.accessTracker = accessTracker;
+        this.displayConfigRegistry = displayConfigRegistry;
     }
 
-    @Operation(summary = "Obtener todos los clientes", description = "Retorna lista completa de clientes con su información de cuenta y deuda")
+    /**
+     * @deprecated carga toda la tabla en memoria; usar /page (cursor) o /stream (NDJSON)
+     */
+    @Deprecated
+    @Operation(summary = "Obtener todos los clientes", description = "Retorna lista completa de clientes con su información de cuenta y deuda. Obsoleto: usar /page o /stream", deprecated = true)
     @ApiResponse(responseCode = "200", description = "Lista de clientes obtenida exitosamente")
     @GetMapping
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
@@ -69,6 +103,53 @@ public class CustomerController {
         return ResponseEntity.ok(resources);
     }
 
+    @Operation(summary = "Listar clientes por cursor",
+               description = "Página de clientes ordenada por id. Para la siguiente página enviar afterId = nextCursor de la respuesta")
+    @ApiResponse(responseCode = "200", description = "Página de clientes obtenida exitosamente")
+    @GetMapping("/page")
+    public ResponseEntity<CustomerPageResource> getCustomersPage(
+            @Parameter(description = "ID del inquilino") @RequestParam(required = false) Long tenantId,
+            @Parameter(description = "ID de la cartera") @RequestParam(required = false) Long portfolioId,
+            @Parameter(description = "ID de la subcartera") @RequestParam(required = false) Long subPortfolioId,
+            @Parameter(description = "Cursor: id del último cliente recibido") @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Clientes por página (máximo app.customer-list.max-page-size)") @RequestParam(defaultValue = "100") int size) {
+        var page = queryService.getCustomersPage(tenantId, portfolioId, subPortfolioId, afterId, size);
+        var resources = assembler.toResourcesFromPage(page.customers(), page.contactsByCustomer());
+        return ResponseEntity.ok(new CustomerPageResource(resources, resources.size(), page.nextCursor(), page.hasMore()));
+    }
+
+    @Operation(summary = "Exportar clientes en NDJSON",
+               description = "Transmite todos los clientes (un JSON por línea, ordenados por id) a medida que se leen de la base. " +
+                             "Si la descarga se corta, reanudar con afterId = último id recibido")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Flujo NDJSON de clientes"),
+        @ApiResponse(responseCode = "429", description = "Demasiadas exportaciones en curso")
+    })
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamCustomers(
+            @Parameter(description = "ID del inquilino") @RequestParam(required = false) Long tenantId,
+            @Parameter(description = "ID de la cartera") @RequestParam(required = false) Long portfolioId,
+            @Parameter(description = "ID de la subcartera") @RequestParam(required = false) Long subPortfolioId,
+            @Parameter(description = "Reanudar después de este id") @RequestParam(required = false) Long afterId) {
+        if (!ndjsonExportService.tryAcquire()) {
+            // Sin cuerpo: el endpoint solo produce NDJSON
+            System.out.println("⚠️ Exportación NDJSON rechazada: cupo de exportaciones simultáneas lleno");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "30")
+                    .build();
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                ndjsonExportService.export(tenantId, portfolioId, subPortfolioId, afterId, out);
+            } finally {
+                ndjsonExportService.release();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @Operation(summary = "Obtener cliente por ID", description = "Retorna un cliente específico con toda su información")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Cliente encontrado"),
@@ -97,16 +178,18 @@ public class CustomerController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @Operation(summary = "Buscar clientes", description = "Busca clientes por nombre, documento o cuenta")
+    @Operation(summary = "Buscar clientes por nombre",
+               description = "Busca clientes por nombre sin distinguir mayúsculas ni acentos. Resultados ordenados por relevancia " +
+                             "(primero los que empiezan con el texto buscado), hasta limit resultados")
     @ApiResponse(responseCode = "200", description = "Resultados de búsqueda obtenidos")
     @GetMapping("/search")
     public ResponseEntity<List<CustomerResource>> searchCustomers(
-            @Parameter(description = "Término de búsqueda") @RequestParam String query) {
-        var customers = queryService.searchCustomers(query);
-        var resources = customers.stream()
-                .map(assembler::toResourceFromEntity)
-                .toList();
-        return ResponseEntity.ok(resources);
+            @Parameter(description = "Término de búsqueda") @RequestParam String query,
+            @Parameter(description = "ID del inquilino") @RequestParam(required = false) Long tenantId,
+            @Parameter(description = "ID de la subcartera") @RequestParam(required = false) Long subPortfolioId,
+            @Parameter(description = "Máximo de resultados (tope app.customer-search.max-results)") @RequestParam(defaultValue = "20") int limit) {
+        var result = queryService.searchCustomers(query, tenantId, subPortfolioId, limit);
+        return ResponseEntity.ok(assembler.toResourcesFromPage(result.customers(), result.contactsByCustomer()));
     }
 
     @Operation(summary = "Buscar cliente por criterio específico",
@@ -125,72 +208,58 @@ public class CustomerController {
 
         System.out.println("🔍 Búsqueda: tenantId=" + tenantId + ", searchBy=" + searchBy + ", value=" + value);
 
-        // Buscar según el criterio especificado
-        return switch (searchBy.toLowerCase()) {
-            case "codigo_identificacion" -> customerRepository.findByTenantIdAndIdentificationCodeWithContactMethods(tenantId, value)
-                    .map(customer -> {
-                        System.out.println("✅ Cliente encontrado por codigo_identificacion: " + customer.getFullName());
-                        return ResponseEntity.ok(assembler.toResourceFromEntity(customer));
-                    })
-                    .orElseGet(() -> {
-                        System.out.println("❌ Cliente no encontrado por codigo_identificacion");
-                        return ResponseEntity.notFound().build();
-                    });
-
-            case "documento" -> customerRepository.findByTenantIdAndDocumentWithContactMethods(tenantId, value)
-                    .map(customer -> {
-                        System.out.println("✅ Cliente encontrado por documento: " + customer.getFullName());
-                        return ResponseEntity.ok(assembler.toResourceFromEntity(customer));
-                    })
-                    .orElseGet(() -> {
-                        System.out.println("❌ Cliente no encontrado por documento");
-                        return ResponseEntity.notFound().build();
-                    });
+        String criterion = searchBy.toLowerCase();
+        if (!MULTI_SEARCH_CRITERIA.contains(criterion)) {
+            return invalidCriterion(searchBy, "codigo_identificacion, documento, numero_cuenta, telefono, telefono_principal");
+        }
+
+        return lookupCustomer(tenantId, criterion, value)
+                .map(customer -> {
+                    System.out.println("✅ Cliente encontrado por " + criterion + ": " + customer.fullName());
+                    return ResponseEntity.ok(customer);
+                })
+                .orElseGet(() -> {
+                    System.out.println("❌ Cliente no encontrado por " + criterion);
+                    return ResponseEntity.notFound().build();
+                });
+    }
 
+    /**
+     * Búsqueda exacta de UN cliente por criterio, a través de la caché de búsquedas del agente.
+     * Los teléfonos se buscan (y se cachean) por su clave normalizada.
+     */
+    private Optional<CustomerResource> lookupCustomer(Long tenantId, String criterion, String value) {
+        return switch (criterion) {
+            case "codigo_identificacion" -> lookupCache.get(tenantId, criterion, value, () ->
+                    customerRepository.findByTenantIdAndIdentificationCodeWithContactMethods(tenantId, value)
+                            .map(assembler::toResourceFromEntity));
+            case "documento" -> lookupCache.get(tenantId, criterion, value, () ->
+                    customerRepository.findByTenantIdAndDocumentWithContactMethods(tenantId, value)
+                            .map(assembler::toResourceFromEntity));
+            case "numero_cuenta" -> lookupCache.get(tenantId, criterion, value, () ->
+                    customerRepository.findByTenantIdAndAccountNumberWithContactMethods(tenantId, value)
+                            .map(assembler::toResourceFromEntity));
             case "telefono" -> {
-                var contactMethods = contactMethodRepository.findAllByTenantIdAndContactTypeAndValueWithCustomer(tenantId, "telefono", value);
-                if (!contactMethods.isEmpty()) {
-                    var customer = contactMethods.get(0).getCustomer();
-                    System.out.println("✅ Cliente encontrado por telefono (todos los tipos): " + customer.getFullName());
-                    yield ResponseEntity.ok(assembler.toResourceFromEntity(customer));
-                } else {
-                    System.out.println("❌ Cliente no encontrado por telefono");
-                    yield ResponseEntity.notFound().build();
-                }
+                String phoneKey = PhoneNumberNormalizer.normalize(value);
+                yield lookupCache.get(tenantId, criterion, phoneKey, () ->
+                        contactMethodRepository.findAllByTenantIdAndPhoneKeyWithCustomer(tenantId, phoneKey).stream()
+                                .findFirst()
+                                .map(cm -> assembler.toResourceFromEntity(cm.getCustomer())));
             }
-
-            case "telefono_principal" -> contactMethodRepository.findByTenantIdAndSubtypeAndValueWithCustomer(tenantId, "telefono_principal", value)
-                    .map(contactMethod -> {
-                        System.out.println("✅ Cliente encontrado por telefono_principal: " + contactMethod.getCustomer().getFullName());
-                        return ResponseEntity.ok(assembler.toResourceFromEntity(contactMethod.getCustomer()));
-                    })
-                    .orElseGet(() -> {
-                        System.out.println("❌ Cliente no encontrado por telefono_principal");
-                        return ResponseEntity.notFound().build();
-                    });
-
-            case "numero_cuenta" -> customerRepository.findByTenantIdAndAccountNumberWithContactMethods(tenantId, value)
-                    .map(customer -> {
-                        System.out.println("✅ Cliente encontrado por numero_cuenta: " + customer.getFullName());
-                        return ResponseEntity.ok(assembler.toResourceFromEntity(customer));
-                    })
-                    .orElseGet(() -> {
-                        System.out.println("❌ Cliente no encontrado por numero_cuenta");
-                        return ResponseEntity.notFound().build();
-                    });
-
-            default -> {
-                System.out.println("❌ Criterio de búsqueda inválido: " + searchBy);
-                Map<String, String> errorResponse = new HashMap<>();
-                errorResponse.put("error", "Criterio de búsqueda inválido");
-                errorResponse.put("message", "Criterios válidos: codigo_identificacion, documento, numero_cuenta, telefono, telefono_principal");
-                yield ResponseEntity.badRequest().body(errorResponse);
+            case "telefono_principal" -> {
+                String phoneKey = PhoneNumberNormalizer.normalize(value);
+                yield lookupCache.get(tenantId, criterion, phoneKey, () ->
+                        contactMethodRepository.findAllByTenantIdAndSubtypeAndPhoneKeyWithCustomer(tenantId, "telefono_principal", phoneKey).stream()
+                                .findFirst()
+                                .map(cm -> assembler.toResourceFromEntity(cm.getCustomer())));
             }
+            default -> throw new IllegalArgumentException("Criterio de búsqueda inválido: " + criterion);
         };
     }
 
     @Operation(summary = "Buscar múltiples clientes por criterio específico",
-               description = "Busca todos los clientes que coincidan con un criterio específico, retornando múltiples resultados si existen en diferentes subcarteras")
+               description = "Busca todos los clientes que coincidan con un criterio específico, retornando múltiples resultados si existen en diferentes subcarteras. " +
+                             "Resultados acotados a app.customer-search.max-results (cabecera X-Results-Truncated si hubo más)")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Clientes encontrados (puede ser lista vacía)"),
         @ApiResponse(responseCode = "400", description = "Criterio de búsqueda inválido")
@@ -202,67 +271,21 @@ public class CustomerController {
                        required = true, example = "documento") @RequestParam String searchBy,
             @Parameter(description = "Valor a buscar", required = true, example = "12345678") @RequestParam String value) {
 
-        System.out.println("🔍 Búsqueda múltiple: tenantId=" + tenantId + ", searchBy=" + searchBy + ", value=" + value);
-
-        // Buscar según el criterio especificado, retornando lista
-        return switch (searchBy.toLowerCase()) {
-            case "codigo_identificacion" -> {
-                var customers = customerRepository.findAllByTenantIdAndIdentificationCodeWithContactMethods(tenantId, value);
-                logger.debug("Encontrados {} clientes por documento", customers.size());
-                var resources = customers.stream()
-                        .map(assembler::toResourceFromEntity)
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
-
-            case "documento" -> {
-                var customers = customerRepository.findAllByTenantIdAndDocumentWithContactMethods(tenantId, value);
-                logger.debug("Encontrados {} clientes por documento", customers.size());
-                var resources = customers.stream()
-                        .map(assembler::toResourceFromEntity)
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
-
-            case "telefono" -> {
-                var contactMethods = contactMethodRepository.findAllByTenantIdAndContactTypeAndValueWithCustomer(tenantId, "telefono", value);
-                System.out.println("✅ Encontrados " + contactMethods.size() + " clientes por telefono (todos los tipos)");
-                var resources = contactMethods.stream()
-                        .map(cm -> assembler.toResourceFromEntity(cm.getCustomer()))
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
-
-            case "telefono_principal" -> {
-                var contactMethods = contactMethodRepository.findAllByTenantIdAndSubtypeAndValueWithCustomer(tenantId, "telefono_principal", value);
-                System.out.println("✅ Encontrados " + contactMethods.size() + " clientes por telefono_principal");
-                var resources = contactMethods.stream()
-                        .map(cm -> assembler.toResourceFromEntity(cm.getCustomer()))
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
-
-            case "numero_cuenta" -> {
-                var customers = customerRepository.findAllByTenantIdAndAccountNumberWithContactMethods(tenantId, value);
-                System.out.println("✅ Encontrados " + customers.size() + " clientes por numero_cuenta");
-                var resources = customers.stream()
-                        .map(assembler::toResourceFromEntity)
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
+        logger.debug("Búsqueda múltiple: tenantId={}, searchBy={}, value={}", tenantId, searchBy, value);
 
-            default -> {
-                System.out.println("❌ Criterio de búsqueda inválido: " + searchBy);
-                Map<String, String> errorResponse = new HashMap<>();
-                errorResponse.put("error", "Criterio de búsqueda inválido");
-                errorResponse.put("message", "Criterios válidos: codigo_identificacion, documento, numero_cuenta, telefono, telefono_principal");
-                yield ResponseEntity.badRequest().body(errorResponse);
-            }
-        };
+        String criterion = searchBy.toLowerCase();
+        if (!MULTI_SEARCH_CRITERIA.contains(criterion)) {
+            return invalidCriterion(searchBy, "codigo_identificacion, documento, numero_cuenta, telefono, telefono_principal");
+        }
+        var result = queryService.searchByCriterion(tenantId, criterion, value);
+        logger.debug("Encontrados {} clientes por {}", result.customers().size(), criterion);
+        return searchResponse(result);
     }
 
     @Operation(summary = "Buscar clientes en TODOS los tenants (búsqueda multi-tenant global)",
-               description = "Busca clientes que coincidan con el criterio SIN filtrar por tenant. Útil para encontrar duplicados entre diferentes inquilinos.")
+               description = "Busca clientes que coincidan con el criterio SIN filtrar por tenant. Útil para encontrar duplicados entre diferentes inquilinos. " +
+                             "Resultados acotados a app.customer-search.max-results (cabecera X-Results-Truncated si hubo más). " +
+                             "En modo fan-out, X-Tenants-Timed-Out / X-Tenants-Failed listan los inquilinos no incluidos")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Clientes encontrados (puede ser lista vacía)"),
         @ApiResponse(responseCode = "400", description = "Criterio de búsqueda inválido")
@@ -275,59 +298,76 @@ public class CustomerController {
 
         logger.debug("Búsqueda GLOBAL: searchBy={}, value={}", searchBy, value);
 
-        // Buscar según el criterio especificado SIN filtro de tenantId
-        return switch (searchBy.toLowerCase()) {
-            case "documento" -> {
-                var customers = customerRepository.findAllByDocumentWithContactMethods(value);
-                System.out.println("✅ Encontrados " + customers.size() + " clientes por documento en todos los tenants");
-                var resources = customers.stream()
-                        .map(assembler::toResourceFromEntity)
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
+        String criterion = searchBy.toLowerCase();
+        if (!GLOBAL_SEARCH_CRITERIA.contains(criterion)) {
+            return invalidCriterion(searchBy, "documento, numero_cuenta, telefono, telefono_principal");
+        }
+        // Búsqueda SIN filtro de tenantId (por inquilino en paralelo si app.customer-search.fan-out.enabled)
+        var result = crossTenantSearchService.search(criterion, value);
+        logger.debug("Encontrados {} clientes por {} en todos los tenants", result.customers().size(), criterion);
+        var response = ResponseEntity.ok();
+        if (result.truncated()) {
+            response.header("X-Results-Truncated", "true");
+        }
+        if (!result.timedOutTenants().isEmpty()) {
+            response.header("X-Tenants-Timed-Out", joinIds(result.timedOutTenants()));
+        }
+        if (!result.failedTenants().isEmpty()) {
+            response.header("X-Tenants-Failed", joinIds(result.failedTenants()));
+        }
+        return response.body(result.customers());
+    }
 
-            case "telefono" -> {
-                var contactMethods = contactMethodRepository.findAllByContactTypeAndValueWithCustomer("telefono", value);
-                System.out.println("✅ Encontrados " + contactMethods.size() + " clientes por telefono (todos los tipos) en todos los tenants");
-                var resources = contactMethods.stream()
-                        .map(cm -> assembler.toResourceFromEntity(cm.getCustomer()))
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
+    private static String joinIds(List<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(java.util.stream.Collectors.joining(","));
+    }
 
-            case "telefono_principal" -> {
-                var contactMethods = contactMethodRepository.findAllBySubtypeAndValueWithCustomer("telefono_principal", value);
-                System.out.println("✅ Encontrados " + contactMethods.size() + " clientes por telefono_principal en todos los tenants");
-                var resources = contactMethods.stream()
-                        .map(cm -> assembler.toResourceFromEntity(cm.getCustomer()))
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
+    private static final java.util.Set<String> MULTI_SEARCH_CRITERIA =
+            java.util.Set.of("codigo_identificacion", "documento", "numero_cuenta", "telefono", "telefono_principal");
+    private static final java.util.Set<String> GLOBAL_SEARCH_CRITERIA =
+            java.util.Set.of("documento", "numero_cuenta", "telefono", "telefono_principal");
 
-            case "numero_cuenta" -> {
-                var customers = customerRepository.findAllByAccountNumberWithContactMethods(value);
-                System.out.println("✅ Encontrados " + customers.size() + " clientes por numero_cuenta en todos los tenants");
-                var resources = customers.stream()
-                        .map(assembler::toResourceFromEntity)
-                        .toList();
-                yield ResponseEntity.ok(resources);
-            }
+    private ResponseEntity<?> searchResponse(CustomerResourceProjection.Result result) {
+        var response = ResponseEntity.ok();
+        if (result.truncated()) {
+            response.header("X-Results-Truncated", "true");
+        }
+        return response.body(result.customers());
+    }
 
-            default -> {
-                System.out.println("❌ Criterio de búsqueda inválido: " + searchBy);
-                Map<String, String> errorResponse = new HashMap<>();
-                errorResponse.put("error", "Criterio de búsqueda inválido");
-                errorResponse.put("message", "Criterios válidos: documento, numero_cuenta, telefono, telefono_principal");
-                yield ResponseEntity.badRequest().body(errorResponse);
-            }
-        };
+    private ResponseEntity<?> invalidCriterion(String searchBy, String validCriteria) {
+        System.out.println("❌ Criterio de búsqueda inválido: " + searchBy);
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put("error", "Criterio de búsqueda inválido");
+        errorResponse.put("message", "Criterios válidos: " + validCriteria);
+        return ResponseEntity.badRequest().body(errorResponse);
     }
 
-    @Operation(summary = "Obtener clientes más recientes", description = "Retorna los últimos 6 clientes buscados")
+    private static final int RECENT_CUSTOMERS_LIMIT = 6;
+
+    @Operation(summary = "Obtener clientes más recientes", description = "Retorna los últimos 6 clientes buscados (del agente si envía X-User-Id)")
     @ApiResponse(responseCode = "200", description = "Lista de clientes recientes obtenida")
     @GetMapping("/recent")
-    public ResponseEntity<List<Map<String, String>>> getRecentCustomers() {
-        var customers = customerRepository.findTop6ByLastAccessedAtNotNullOrderByLastAccessedAtDesc();
+    public ResponseEntity<List<Map<String, String>>> getRecentCustomers(
+            @Parameter(description = "Agente (opcional)") @RequestHeader(value = "X-User-Id", required = false) String agentId) {
+        List<Long> recentIds = List.of();
+        if (accessTracker.isEnabled()) {
+            recentIds = accessTracker.recentCustomerIds(agentId, RECENT_CUSTOMERS_LIMIT);
+            if (recentIds.isEmpty()) {
+                // Agente sin accesos en este nodo: lista global
+                recentIds = accessTracker.recentCustomerIds(null, RECENT_CUSTOMERS_LIMIT);
+            }
+        }
+
+        List<Customer> customers;
+        if (!recentIds.isEmpty()) {
+            // Desde memoria: solo una lectura por PK, conservando el orden de acceso
+            Map<Long, Customer> byId = new HashMap<>();
+            customerRepository.findAllById(recentIds).forEach(customer -> byId.put(customer.getId(), customer));
+            customers = recentIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+        } else {
+            customers = customerRepository.findTop6ByLastAccessedAtNotNullOrderByLastAccessedAtDesc();
+        }
         var simplified = customers.stream()
                 .map(customer -> {
                     Map<String, String> map = new HashMap<>();
@@ -346,7 +386,13 @@ public class CustomerController {
     @ApiResponse(responseCode = "200", description = "Acceso registrado exitosamente")
     @PostMapping("/{customerId}/access")
     public ResponseEntity<Void> registerCustomerAccess(
-            @Parameter(description = "ID del cliente", required = true) @PathVariable Long customerId) {
+            @Parameter(description = "ID del cliente", required = true) @PathVariable Long customerId,
+            @Parameter(description = "Agente (opcional)") @RequestHeader(value = "X-User-Id", required = false) String agentId) {
+        if (accessTracker.isEnabled()) {
+            // Escritura diferida: se anota en memoria y se vuelca por lotes
+            accessTracker.record(customerId, agentId);
+            return ResponseEntity.ok().build();
+        }
         var customerOpt = customerRepository.findById(customerId);
         if (customerOpt.isPresent()) {
             var customer = customerOpt.get();
@@ -370,10 +416,10 @@ public class CustomerController {
 
         System.out.println("🔍 Buscando cliente: tenantId=" + tenantId + ", identificationCode=" + identificationCode);
 
-        return customerRepository.findByTenantIdAndIdentificationCode(tenantId, identificationCode)
+        return lookupCustomer(tenantId, "codigo_identificacion", identificationCode)
                 .map(customer -> {
-                    System.out.println("✅ Cliente encontrado: " + customer.getFullName());
-                    return ResponseEntity.ok(assembler.toResourceFromEntity(customer));
+                    System.out.println("✅ Cliente encontrado: " + customer.fullName());
+                    return ResponseEntity.ok(customer);
                 })
                 .orElseGet(() -> {
                     System.out.println("❌ Cliente no encontrado");
@@ -449,6 +495,91 @@ public class CustomerController {
         }
     }
 
+    @Operation(summary = "Sincronizar varias subcarteras en paralelo",
+               description = "Sincroniza las subcarteras indicadas en paralelo entre tenants y en serie dentro de cada tenant (una transacción por subcartera) y retorna el resultado agregado")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lote procesado (revisar el resultado de cada subcartera)"),
+        @ApiResponse(responseCode = "400", description = "Request inválido")
+    })
+    @PostMapping("/sync/batch")
+    public ResponseEntity<?> syncSubPortfolios(@RequestBody SyncSubPortfoliosRequest request) {
+        if (request.subPortfolioIds() == null || request.subPortfolioIds().isEmpty()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Debe indicar al menos una subcartera");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+
+        try {
+            com.cashi.shared.domain.model.valueobjects.LoadType loadTypeEnum = request.loadType() != null
+                    ? com.cashi.shared.domain.model.valueobjects.LoadType.valueOf(request.loadType().toUpperCase())
+                    : com.cashi.shared.domain.model.valueobjects.LoadType.INICIAL;
+
+            return ResponseEntity.ok(toBatchSyncResponse(
+                    customerSyncOrchestrator.syncSubPortfolios(request.subPortfolioIds(), loadTypeEnum)));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error en sincronización: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    @Operation(summary = "Sincronizar todas las subcarteras de un tenant",
+               description = "Sincroniza en serie todas las subcarteras activas del tenant (una transacción por subcartera)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lote procesado (revisar el resultado de cada subcartera)"),
+        @ApiResponse(responseCode = "400", description = "Tenant o tipo de carga inválido")
+    })
+    @PostMapping("/sync/tenant/{tenantId}")
+    public ResponseEntity<?> syncTenant(
+            @Parameter(description = "ID del tenant", example = "1") @PathVariable Integer tenantId,
+            @Parameter(description = "Tipo de carga (INICIAL o ACTUALIZACION)", example = "INICIAL")
+            @RequestParam(defaultValue = "INICIAL") String loadType) {
+        try {
+            com.cashi.shared.domain.model.valueobjects.LoadType loadTypeEnum =
+                com.cashi.shared.domain.model.valueobjects.LoadType.valueOf(loadType.toUpperCase());
+
+            return ResponseEntity.ok(toBatchSyncResponse(customerSyncOrchestrator.syncTenant(tenantId, loadTypeEnum)));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error en sincronización: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    private Map<String, Object> toBatchSyncResponse(CustomerSyncOrchestrator.BatchSyncResult result) {
+        List<Map<String, Object>> subPortfolios = new ArrayList<>();
+        for (CustomerSyncOrchestrator.SubPortfolioSyncOutcome outcome : result.getOutcomes()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("subPortfolioId", outcome.getSubPortfolioId());
+            item.put("success", outcome.isSuccess());
+            item.put("elapsedMs", outcome.getElapsedMs());
+            if (outcome.isSuccess()) {
+                item.put("customersCreated", outcome.getResult().getCustomersCreated());
+                item.put("customersUpdated", outcome.getResult().getCustomersUpdated());
+                item.put("errors", outcome.getResult().getErrors());
+            } else {
+                item.put("message", outcome.getError());
+            }
+            subPortfolios.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", result.getFailed() == 0);
+        response.put("subPortfoliosSucceeded", result.getSucceeded());
+        response.put("subPortfoliosFailed", result.getFailed());
+        response.put("customersCreated", result.getTotalCustomersCreated());
+        response.put("customersUpdated", result.getTotalCustomersUpdated());
+        response.put("hasErrors", result.hasErrors());
+        response.put("elapsedMs", result.getElapsedMs());
+        response.put("subPortfolios", subPortfolios);
+        response.put("message", String.format("Sincronización paralela completada: %d subcarteras OK, %d con error",
+                result.getSucceeded(), result.getFailed()));
+        return response;
+    }
+
     @Operation(summary = "Sincronizar clientes desde tabla específica (método directo)",
                description = "Lee clientes de una tabla dinámica especificada por nombre y los sincroniza")
     @PostMapping("/sync/table/{tableName}/{tenantId}")
@@ -491,42 +622,48 @@ public class CustomerController {
     }
 
     @Operation(summary = "Obtener configuración de visualización del tenant",
-               description = "Retorna la configuración de cómo mostrar los datos del cliente según el tenant")
-    @ApiResponse(responseCode = "200", description = "Configuración obtenida exitosamente")
+               description = "Retorna la configuración de cómo mostrar los datos del cliente según el tenant (con ETag)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Configuración obtenida exitosamente"),
+        @ApiResponse(responseCode = "304", description = "Sin cambios respecto a If-None-Match")
+    })
     @GetMapping("/display-config/{tenantCode}")
     public ResponseEntity<?> getDisplayConfig(
-            @Parameter(description = "Código del tenant", example = "FIN-OH") @PathVariable String tenantCode) {
-
-        System.out.println("📋 Obteniendo configuración de visualización para: " + tenantCode);
+            @Parameter(description = "Código del tenant", example = "FIN-OH") @PathVariable String tenantCode,
+            WebRequest webRequest) {
 
-        try {
-            String configPath = "tenant-configurations/" + tenantCode.toLowerCase() + ".json";
-            ClassPathResource resource = new ClassPathResource(configPath);
-
-            if (!resource.exists()) {
-                System.out.println("❌ No se encontró archivo de configuración: " + configPath);
-                return ResponseEntity.notFound().build();
-            }
-
-            JsonNode rootNode = objectMapper.readTree(resource.getInputStream());
-            JsonNode displayConfigNode = rootNode.path("customerDataMapping").path("customerDisplayConfig");
-
-            if (displayConfigNode.isMissingNode()) {
-                System.out.println("❌ No se encontró customerDisplayConfig en la configuración");
-                return ResponseEntity.notFound().build();
-            }
-
-            CustomerDataMapping.CustomerDisplayConfig displayConfig =
-                objectMapper.treeToValue(displayConfigNode, CustomerDataMapping.CustomerDisplayConfig.class);
-
-            System.out.println("✅ Configuración cargada: " + displayConfig.getSections().size() + " secciones");
-            return ResponseEntity.ok(displayConfig);
+        // Precargada y serializada al arrancar (TenantDisplayConfigRegistry): sin lectura ni parseo por petición
+        var configOpt = displayConfigRegistry.find(tenantCode);
+        if (configOpt.isEmpty()) {
+            System.out.println("❌ No se encontró configuración de visualización para: " + tenantCode);
+            return ResponseEntity.notFound().build();
+        }
 
-        } catch (Exception e) {
-            System.err.println("❌ Error al cargar configuración: " + e.getMessage());
-            return ResponseEntity.internalServerError()
-                    .body("Error al cargar configuración: " + e.getMessage());
+        var config = configOpt.get();
+        // If-None-Match según RFC 9110: listas, comparación débil (W/"...") y "*"
+        if (webRequest.checkNotModified(config.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(config.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
         }
+        return ResponseEntity.ok()
+                .eTag(config.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(config.json());
+    }
+
+    @Operation(summary = "Recargar configuraciones de visualización",
+               description = "Relee tenant-configurations (classpath y app.tenant-config.dir) sin reiniciar")
+    @ApiResponse(responseCode = "200", description = "Configuraciones recargadas")
+    @PostMapping("/display-config/reload")
+    public ResponseEntity<Map<String, Object>> reloadDisplayConfigs() {
+        int loaded = displayConfigRegistry.reload();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("tenantsLoaded", loaded);
+        return ResponseEntity.ok(response);
     }
 
     @Operation(summary = "Obtener información de contacto del cliente para blacklist",
@@ -546,7 +683,7 @@ public class CustomerController {
                            ", tenantId=" + tenantId + ", portfolioId=" + portfolioId + ", subPortfolioId=" + subPortfolioId);
 
         // Buscar cliente por documento y tenantId (y opcionalmente portfolio/subportfolio)
-        var customerOpt = customerRepository.findByTenantIdAndDocumentWithContactMethods(tenantId, document);
+        var customerOpt = lookupCustomer(tenantId, "documento", document);
 
         if (customerOpt.isEmpty()) {
             System.out.println("❌ Cliente no encontrado");
@@ -556,12 +693,12 @@ public class CustomerController {
         var customer = customerOpt.get();
 
         // Si se especificaron portfolio y subportfolio, verificar que coincidan
-        if (portfolioId != null && !portfolioId.equals(customer.getPortfolioId())) {
+        if (portfolioId != null && !portfolioId.equals(customer.portfolioId())) {
             System.out.println("❌ Cliente encontrado pero portfolio no coincide");
             return ResponseEntity.notFound().build();
         }
 
-        if (subPortfolioId != null && !subPortfolioId.equals(customer.getSubPortfolioId())) {
+        if (subPortfolioId != null && !subPortfolioId.equals(customer.subPortfolioId())) {
             System.out.println("❌ Cliente encontrado pero subportfolio no coincide");
             return ResponseEntity.notFound().build();
         }
@@ -570,24 +707,24 @@ public class CustomerController {
         String email = "";
         String phone = "";
 
-        if (customer.getContactMethods() != null) {
-            for (var contact : customer.getContactMethods()) {
-                if ("email".equalsIgnoreCase(contact.getContactType()) && email.isEmpty()) {
-                    email = contact.getValue();
-                } else if ("telefono".equalsIgnoreCase(contact.getContactType()) &&
-                          "telefono_principal".equalsIgnoreCase(contact.getSubtype()) &&
+        if (customer.contactMethods() != null) {
+            for (var contact : customer.contactMethods()) {
+                if ("email".equalsIgnoreCase(contact.contactType()) && email.isEmpty()) {
+                    email = contact.value();
+                } else if ("telefono".equalsIgnoreCase(contact.contactType()) &&
+                          "telefono_principal".equalsIgnoreCase(contact.subtype()) &&
                           phone.isEmpty()) {
-                    phone = contact.getValue();
+                    phone = contact.value();
                 }
             }
         }
 
         Map<String, String> response = new HashMap<>();
-        response.put("customerId", String.valueOf(customer.getId()));
+        response.put("customerId", String.valueOf(customer.id()));
         response.put("email", email);
         response.put("phone", phone);
 
-        System.out.println("✅ Info encontrada: customerId=" + customer.getId() + ", email=" + email + ", phone=" + phone);
+        System.out.println("✅ Info encontrada: customerId=" + customer.id() + ", email=" + email + ", phone=" + phone);
         return ResponseEntity.ok(response);
     }
 
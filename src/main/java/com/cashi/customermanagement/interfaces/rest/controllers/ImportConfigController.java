@@ -1,5 +1,6 @@
 package com.cashi.customermanagement.interfaces.rest.controllers;
 
+import com.cashi.customermanagement.application.services.DriveImportService;
 import com.cashi.customermanagement.application.services.ImportConfigService;
 import com.cashi.customermanagement.application.services.FileWatcherService;
 import com.cashi.customermanagement.interfaces.rest.resources.*;
@@ -22,11 +23,14 @@ public class ImportConfigController {
 
     private final ImportConfigService importConfigService;
     private final FileWatcherService fileWatcherService;
+    private final DriveImportService driveImportService;
 
     public ImportConfigController(ImportConfigService importConfigService,
-                                 FileWatcherService fileWatcherService) {
+                                 FileWatcherService fileWatcherService,
+                                 DriveImportService driveImportService) {
         this.importConfigService = importConfigService;
         this.fileWatcherService = fileWatcherService;
+        this.driveImportService = driveImportService;
     }
 
     @Operation(summary = "Obtener configuración actual", description = "Retorna la configuración de importación automática")
@@ -47,6 +51,93 @@ public class ImportConfigController {
         }
     }
 
+    @Operation(summary = "Listar configuraciones", description = "Retorna todas las configuraciones de importación automática (una por carpeta/subcartera)")
+    @GetMapping("/configs")
+    public ResponseEntity<List<ImportConfigResource>> listConfigs() {
+        return ResponseEntity.ok(importConfigService.listConfigs());
+    }
+
+    @Operation(summary = "Crear configuración", description = "Agrega una nueva carpeta monitoreada con su patrón, hora y subcartera")
+    @PostMapping("/configs")
+    public ResponseEntity<?> createConfig(@RequestBody ImportConfigRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(importConfigService.createConfig(request));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Actualizar configuración", description = "Actualiza una configuración de importación automática")
+    @PutMapping("/configs/{id}")
+    public ResponseEntity<?> updateConfig(@PathVariable Long id, @RequestBody ImportConfigRequest request) {
+        try {
+            return ResponseEntity.ok(importConfigService.updateConfig(id, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Eliminar configuración", description = "Elimina una configuración y deja de monitorear su carpeta")
+    @DeleteMapping("/configs/{id}")
+    public ResponseEntity<?> deleteConfig(@PathVariable Long id) {
+        try {
+            importConfigService.deleteConfig(id);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Configuración eliminada"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Trigger manual de una configuración", description = "Ejecuta la importación de una configuración concreta sin esperar su hora programada")
+    @PostMapping("/configs/{id}/trigger-import")
+    public ResponseEntity<?> triggerConfigImport(
+            @PathVariable Long id,
+            @Parameter(description = "true = importar todos los archivos pendientes (más antiguo primero)")
+            @RequestParam(defaultValue = "false") boolean all) {
+        try {
+            return ResponseEntity.ok(all
+                    ? fileWatcherService.triggerManualImportAll(id)
+                    : fileWatcherService.triggerManualImport(id));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of(
+                        "success", false,
+                        "message", "Error inesperado: " + e.getMessage(),
+                        "errors", List.of(e.getMessage())
+                    ));
+        }
+    }
+
+    @Operation(summary = "Importar desde Google Drive", description = "Importa un archivo de Drive a la subcartera de la configuración; si su revisión ya se importó no se descarga")
+    @PostMapping("/configs/{id}/drive-import")
+    public ResponseEntity<?> importFromDrive(
+            @PathVariable Long id,
+            @Parameter(description = "ID del archivo en Google Drive") @RequestParam String fileId) {
+        try {
+            return ResponseEntity.ok(driveImportService.importDriveFile(fileId, id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of(
+                        "success", false,
+                        "message", "Error inesperado: " + e.getMessage(),
+                        "errors", List.of(e.getMessage())
+                    ));
+        }
+    }
+
     @Operation(summary = "Obtener historial", description = "Retorna el historial de archivos procesados")
     @GetMapping("/history")
     public ResponseEntity<List<ImportHistoryResource>> getHistory(
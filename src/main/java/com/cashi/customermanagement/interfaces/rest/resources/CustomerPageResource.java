@@ -0,0 +1,15 @@
+package com.cashi.customermanagement.interfaces.rest.resources;
+
+import java.util.List;
+
+/**
+ * Página del listado de clientes por cursor. Para la siguiente página enviar afterId=nextCursor;
+ * nextCursor es null en la última página.
+ */
+public record CustomerPageResource(
+        List<CustomerResource> content,
+        int size,
+        Long nextCursor,
+        boolean hasMore
+) {
+}
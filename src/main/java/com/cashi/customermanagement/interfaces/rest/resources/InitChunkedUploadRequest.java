@@ -0,0 +1,9 @@
+package com.cashi.customermanagement.interfaces.rest.resources;
+
+public record InitChunkedUploadRequest(
+        String fileName,
+        Long totalSize,   // bytes del archivo completo
+        Integer chunkSize, // opcional: por defecto app.chunked-upload.chunk-size
+        Long configId     // configuración de importación destino (subcartera)
+) {
+}
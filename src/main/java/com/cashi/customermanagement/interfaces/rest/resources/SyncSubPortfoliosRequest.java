@@ -0,0 +1,15 @@
+package com.cashi.customermanagement.interfaces.rest.resources;
+
+import java.util.List;
+
+/**
+ * Request para sincronizar varias subcarteras en paralelo.
+ *
+ * @param subPortfolioIds IDs de las subcarteras a sincronizar
+ * @param loadType Tipo de carga (INICIAL o ACTUALIZACION); por defecto INICIAL
+ */
+public record SyncSubPortfoliosRequest(
+        List<Long> subPortfolioIds,
+        String loadType
+) {
+}
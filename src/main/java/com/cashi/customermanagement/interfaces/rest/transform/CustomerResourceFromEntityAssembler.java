@@ -7,7 +7,7 @@ import com.cashi.shared.domain.model.entities.SubPortfolio;
 import com.cashi.shared.infrastructure.persistence.jpa.repositories.SubPortfolioRepository;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Component
@@ -20,21 +20,6 @@ public class CustomerResourceFromEntityAssembler {
     }
 
     public CustomerResource toResourceFromEntity(Customer entity) {
-        // Mapear métodos de contacto
-        List<ContactMethodResource> contactMethods = entity.getContactMethods().stream()
-                .map(cm -> new ContactMethodResource(
-                        cm.getId(),
-                        cm.getContactType(),
-                        cm.getSubtype(),
-                        cm.getValue(),
-                        cm.getLabel(),
-                        cm.getImportDate(),
-                        cm.getStatus(),
-                        cm.getEstadoOsiptel() != null ? cm.getEstadoOsiptel().name() : null,
-                        cm.getEstadoWhatsapp() != null ? cm.getEstadoWhatsapp().name() : null
-                ))
-                .collect(Collectors.toList());
-
         // Usar los nombres directamente desde la entidad Customer
         // Ya no necesitamos hacer consultas adicionales porque ahora están guardados directamente
         String subPortfolioCode = null;
@@ -47,6 +32,54 @@ public class CustomerResourceFromEntityAssembler {
             }
         }
 
+        return toResource(entity, entity.getContactMethods(), subPortfolioCode);
+    }
+
+    /**
+     * Página del listado por cursor: los contactos ya vienen cargados por página y los códigos
+     * de subcartera se resuelven con una sola consulta (no una por cliente).
+     */
+    public List<CustomerResource> toResourcesFromPage(List<Customer> customers,
+                                                      Map<Long, List<ContactMethod>> contactsByCustomer) {
+        Set<Integer> subPortfolioIds = customers.stream()
+                .map(Customer::getSubPortfolioId)
+                .filter(Objects::nonNull)
+                .map(Long::intValue)
+                .collect(Collectors.toSet());
+        Map<Long, String> codes = new HashMap<>();
+        for (SubPortfolio subPortfolio : subPortfolioRepository.findAllById(subPortfolioIds)) {
+            codes.put(subPortfolio.getId().longValue(), subPortfolio.getSubPortfolioCode());
+        }
+
+        List<CustomerResource> resources = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            resources.add(toResource(customer,
+                    contactsByCustomer.getOrDefault(customer.getId(), List.of()),
+                    customer.getSubPortfolioId() != null ? codes.get(customer.getSubPortfolioId()) : null));
+        }
+        return resources;
+    }
+
+    public static ContactMethodResource toContactResource(ContactMethod cm) {
+        return new ContactMethodResource(
+                cm.getId(),
+                cm.getContactType(),
+                cm.getSubtype(),
+                cm.getValue(),
+                cm.getLabel(),
+                cm.getImportDate(),
+                cm.getStatus(),
+                cm.getEstadoOsiptel() != null ? cm.getEstadoOsiptel().name() : null,
+                cm.getEstadoWhatsapp() != null ? cm.getEstadoWhatsapp().name() : null
+        );
+    }
+
+    private CustomerResource toResource(Customer entity, List<ContactMethod> contactMethodEntities, String subPortfolioCode) {
+        // Mapear métodos de contacto
+        List<ContactMethodResource> contactMethods = contactMethodEntities.stream()
+                .map(CustomerResourceFromEntityAssembler::toContactResource)
+                .collect(Collectors.toList());
+
         return new CustomerResource(
                 entity.getId(),
                 entity.getCustomerId(),
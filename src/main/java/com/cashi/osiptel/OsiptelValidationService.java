@@ -2,13 +2,17 @@ package com.cashi.osiptel;
 
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository;
 import com.cashi.customermanagement.domain.model.entities.ContactMethod;
+import com.cashi.customermanagement.domain.model.events.CustomerDataChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -26,13 +30,16 @@ public class OsiptelValidationService {
     private final OsiptelClient client;
     private final ContactMethodRepository contactMethodRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     public OsiptelValidationService(OsiptelClient client,
                                     ContactMethodRepository contactMethodRepository,
-                                    JdbcTemplate jdbcTemplate) {
+                                    JdbcTemplate jdbcTemplate,
+                                    ApplicationEventPublisher eventPublisher) {
         this.client = client;
         this.contactMethodRepository = contactMethodRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     // ----- Pull model -----
@@ -60,6 +67,7 @@ public class OsiptelValidationService {
                 "UPDATE cashi_db.metodos_contacto SET estado_osiptel = ?, operador = ? WHERE id = ?",
                 status, operator, id);
             log.info("applyResult: id={} -> {} operator={}", id, status, operator);
+            publishCustomerOf(id);
         } else {
             log.warn("applyResult: id={} status={} (sin update, queda SIN_VALIDAR para reintento)", id, status);
         }
@@ -94,6 +102,9 @@ public class OsiptelValidationService {
                     result.status(), result.operator(), idMetodoContacto);
             log.info("estado_osiptel actualizado: id={} -> {} (operator={}, latencyMs={})",
                     idMetodoContacto, result.status(), result.operator(), result.latencyMs());
+            if (mc.getCustomer() != null) {
+                eventPublisher.publishEvent(CustomerDataChangedEvent.ofCustomers(Set.of(mc.getCustomer().getId())));
+            }
         } else {
             log.warn("Osiptel worker devolvio ERROR para id={}: {}",
                     idMetodoContacto, result.errorDetail());
@@ -101,4 +112,13 @@ public class OsiptelValidationService {
 
         return result;
     }
+
+    // El estado_osiptel viaja en las búsquedas cacheadas del cliente: invalidarlas
+    private void publishCustomerOf(Long contactMethodId) {
+        List<Long> customerIds = jdbcTemplate.queryForList(
+                "SELECT id_cliente FROM cashi_db.metodos_contacto WHERE id = ?", Long.class, contactMethodId);
+        if (!customerIds.isEmpty()) {
+            eventPublisher.publishEvent(CustomerDataChangedEvent.ofCustomers(new HashSet<>(customerIds)));
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.cashi.shared.application.services;
 
 import com.cashi.shared.interfaces.rest.resources.GoogleDriveFileResource;
+import com.cashi.shared.util.RangeResumingInputStream;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
@@ -11,12 +13,13 @@ import com.google.api.services.drive.model.File;
 import com.google.api.services.drive.model.FileList;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -28,50 +31,99 @@ public class GoogleDriveService {
     private static final String APPLICATION_NAME = "Cashi Drive Integration";
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final List<String> SCOPES = Collections.singletonList(DriveScopes.DRIVE_READONLY);
-    private static final String CREDENTIALS_FILE_PATH = "credentials.json";
+    private static final String NOT_INITIALIZED = "Google Drive service not initialized. Check credentials.json file.";
+    private static final String GOOGLE_SHEET_MIME = "application/vnd.google-apps.spreadsheet";
+    private static final String METADATA_FIELDS =
+            "id, name, mimeType, size, modifiedTime, webViewLink, iconLink, thumbnailLink, fileExtension";
+
+    private final String credentialsPath;
+    private final String rootUrl;
+    private final int maxResumeAttempts;
+
+    /** Cliente construido en el primer uso (no al arrancar la aplicación) */
+    private volatile Drive driveService;
+
+    public GoogleDriveService(@Value("${app.google-drive.credentials:credentials.json}") String credentialsPath,
+                              @Value("${app.google-drive.root-url:}") String rootUrl,
+                              @Value("${app.google-drive.max-resume-attempts:3}") int maxResumeAttempts) {
+        this.credentialsPath = credentialsPath;
+        this.rootUrl = rootUrl;
+        this.maxResumeAttempts = maxResumeAttempts;
+    }
 
-    private Drive driveService;
+    /**
+     * Drive de un archivo: nombre, tipo y la revisión con la que se identifica su contenido.
+     * revision = headRevisionId para archivos binarios, "v" + version para documentos de Google.
+     * md5Checksum solo existe en archivos binarios (mismo formato que historial_importaciones.file_hash).
+     */
+    public record DriveRevision(String id, String name, String mimeType, Long size, String revision, String md5Checksum) {
 
-    public GoogleDriveService() {
-        try {
-            this.driveService = getDriveService();
-        } catch (Exception e) {
-            System.err.println("Error initializing Google Drive service: " + e.getMessage());
-            System.err.println("Note: Make sure to place 'credentials.json' in src/main/resources/");
+        public boolean isGoogleSheet() {
+            return GOOGLE_SHEET_MIME.equals(mimeType);
+        }
+    }
+
+    /**
+     * Cliente de Drive, construido una sola vez en el primer uso. Si falla (p. ej. sin
+     * credentials.json) se reintenta en la siguiente llamada.
+     */
+    private Drive drive() {
+        Drive drive = driveService;
+        if (drive == null) {
+            synchronized (this) {
+                drive = driveService;
+                if (drive == null) {
+                    try {
+                        drive = getDriveService();
+                        driveService = drive;
+                    } catch (Exception e) {
+                        System.err.println("Error initializing Google Drive service: " + e.getMessage());
+                        System.err.println("Note: Make sure to place '" + credentialsPath + "' in src/main/resources/");
+                        throw new IllegalStateException(NOT_INITIALIZED, e);
+                    }
+                }
+            }
         }
+        return drive;
     }
 
     /**
      * Creates an authorized Drive API client service using Service Account.
+     * Con app.google-drive.root-url se apunta a otra implementación del API (p. ej. un stub local
+     * para pruebas); en ese caso las credenciales son opcionales.
      */
     private Drive getDriveService() throws GeneralSecurityException, IOException {
         final NetHttpTransport HTTP_TRANSPORT = GoogleNetHttpTransport.newTrustedTransport();
+        boolean customRoot = rootUrl != null && !rootUrl.isBlank();
 
         // Load credentials from resources folder
-        GoogleCredentials credentials;
-        try (InputStream in = new ClassPathResource(CREDENTIALS_FILE_PATH).getInputStream()) {
-            credentials = GoogleCredentials.fromStream(in)
-                    .createScoped(SCOPES);
+        ClassPathResource resource = new ClassPathResource(credentialsPath);
+        HttpCredentialsAdapter initializer = null;
+        if (resource.exists() || !customRoot) {
+            try (InputStream in = resource.getInputStream()) {
+                GoogleCredentials credentials = GoogleCredentials.fromStream(in)
+                        .createScoped(SCOPES);
+                initializer = new HttpCredentialsAdapter(credentials);
+            }
         }
 
-        return new Drive.Builder(HTTP_TRANSPORT, JSON_FACTORY, new HttpCredentialsAdapter(credentials))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        Drive.Builder builder = new Drive.Builder(HTTP_TRANSPORT, JSON_FACTORY, initializer)
+                .setApplicationName(APPLICATION_NAME);
+        if (customRoot) {
+            builder.setRootUrl(rootUrl.endsWith("/") ? rootUrl : rootUrl + "/");
+        }
+        return builder.build();
     }
 
     /**
      * Lists all files from Google Drive
      */
     public List<GoogleDriveFileResource> listFiles() throws IOException {
-        if (driveService == null) {
-            throw new IllegalStateException("Google Drive service not initialized. Check credentials.json file.");
-        }
-
         List<GoogleDriveFileResource> files = new ArrayList<>();
         String pageToken = null;
 
         do {
-            FileList result = driveService.files().list()
+            FileList result = drive().files().list()
                     .setPageSize(100)
                     .setFields("nextPageToken, files(id, name, mimeType, size, modifiedTime, webViewLink, iconLink, thumbnailLink, fileExtension)")
                     .setPageToken(pageToken)
@@ -92,11 +144,7 @@ public class GoogleDriveService {
      * Search files by name
      */
     public List<GoogleDriveFileResource> searchFiles(String query) throws IOException {
-        if (driveService == null) {
-            throw new IllegalStateException("Google Drive service not initialized. Check credentials.json file.");
-        }
-
-        FileList result = driveService.files().list()
+        FileList result = drive().files().list()
                 .setQ("name contains '" + query + "'")
                 .setPageSize(100)
                 .setFields("files(id, name, mimeType, size, modifiedTime, webViewLink, iconLink, thumbnailLink, fileExtension)")
@@ -115,45 +163,115 @@ public class GoogleDriveService {
      * Get file metadata by ID
      */
     public GoogleDriveFileResource getFileMetadata(String fileId) throws IOException {
-        if (driveService == null) {
-            throw new IllegalStateException("Google Drive service not initialized. Check credentials.json file.");
-        }
-
-        File file = driveService.files().get(fileId)
-                .setFields("id, name, mimeType, size, modifiedTime, webViewLink, iconLink, thumbnailLink, fileExtension")
+        File file = drive().files().get(fileId)
+                .setFields(METADATA_FIELDS)
                 .execute();
 
         return mapToResource(file);
     }
 
     /**
-     * Download file content as byte array
+     * Revisión actual del archivo (solo metadatos, sin descargar el contenido)
      */
-    public byte[] downloadFile(String fileId) throws IOException {
-        if (driveService == null) {
-            throw new IllegalStateException("Google Drive service not initialized. Check credentials.json file.");
-        }
+    public DriveRevision getRevision(String fileId) throws IOException {
+        File file = drive().files().get(fileId)
+                .setFields("id, name, mimeType, size, headRevisionId, version, md5Checksum")
+                .execute();
+
+        String revision = file.getHeadRevisionId() != null
+                ? file.getHeadRevisionId()
+                : (file.getVersion() != null ? "v" + file.getVersion() : null);
+        return new DriveRevision(file.getId(), file.getName(), file.getMimeType(), file.getSize(),
+                revision, file.getMd5Checksum());
+    }
+
+    /**
+     * Abre el contenido de un archivo binario como stream. Si la conexión se corta, la descarga
+     * continúa desde el último byte recibido con una petición Range (hasta
+     * app.google-drive.max-resume-attempts reconexiones seguidas).
+     *
+     * @param expectedRevision si no es null, antes de reanudar se comprueba que el archivo siga en
+     *                         esa revisión (continuar con otra mezclaría dos contenidos)
+     */
+    public InputStream openDownload(String fileId, String expectedRevision) throws IOException {
+        return openDownload(fileId, expectedRevision, null);
+    }
+
+    /**
+     * Igual que openDownload(fileId, expectedRevision), pero con el tamaño de la revisión: si el
+     * servidor cierra la conexión limpiamente antes de ese tamaño, se reanuda en lugar de dar el
+     * archivo por terminado.
+     */
+    public InputStream openDownload(String fileId, String expectedRevision, Long expectedSize) throws IOException {
+        return new RangeResumingInputStream(offset -> {
+            if (offset > 0 && expectedRevision != null) {
+                String current = getRevision(fileId).revision();
+                if (!expectedRevision.equals(current)) {
+                    throw new IOException("El archivo " + fileId + " cambió de revisión durante la descarga");
+                }
+            }
+            return openRange(fileId, offset);
+        }, maxResumeAttempts, expectedSize != null ? expectedSize : -1);
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        driveService.files().get(fileId)
-                .executeMediaAndDownloadTo(outputStream);
+    /**
+     * Exporta un documento de Google (p. ej. una hoja a text/csv) como stream. El export no acepta
+     * Range: al reanudar se vuelve a pedir y se descartan los bytes ya entregados. Por eso solo se
+     * reanuda si el documento no cambió (version y modifiedTime); si no, el export falla.
+     */
+    public InputStream openExport(String fileId, String mimeType) throws IOException {
+        String exportedVersion = exportVersion(fileId);
+        return new RangeResumingInputStream(offset -> {
+            if (offset > 0 && !exportedVersion.equals(exportVersion(fileId))) {
+                throw new IOException("El documento " + fileId + " cambió durante la exportación; no se reanuda");
+            }
+            InputStream in = drive().files().export(fileId, mimeType).executeMediaAsInputStream();
+            if (offset > 0) {
+                in.skipNBytes(offset);
+            }
+            return in;
+        }, maxResumeAttempts);
+    }
 
-        return outputStream.toByteArray();
+    /**
+     * Copia el contenido de un archivo al stream de salida sin cargarlo en memoria
+     */
+    public void downloadTo(String fileId, OutputStream outputStream) throws IOException {
+        try (InputStream in = openDownload(fileId, null)) {
+            in.transferTo(outputStream);
+        }
     }
 
     /**
-     * Export Google Docs file to specific format (e.g., PDF, DOCX)
+     * Export Google Docs file to specific format (e.g., PDF, DOCX), escrito directamente a la salida
      */
-    public byte[] exportFile(String fileId, String mimeType) throws IOException {
-        if (driveService == null) {
-            throw new IllegalStateException("Google Drive service not initialized. Check credentials.json file.");
+    public void exportTo(String fileId, String mimeType, OutputStream outputStream) throws IOException {
+        try (InputStream in = openExport(fileId, mimeType)) {
+            in.transferTo(outputStream);
         }
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        driveService.files().export(fileId, mimeType)
-                .executeMediaAndDownloadTo(outputStream);
+    /**
+     * version + modifiedTime de un documento de Google: identifica el contenido que devuelve el export.
+     */
+    private String exportVersion(String fileId) throws IOException {
+        File file = drive().files().get(fileId)
+                .setFields("version, modifiedTime")
+                .execute();
+        return file.getVersion() + "@" + file.getModifiedTime();
+    }
 
-        return outputStream.toByteArray();
+    private InputStream openRange(String fileId, long offset) throws IOException {
+        Drive.Files.Get request = drive().files().get(fileId);
+        if (offset > 0) {
+            request.getRequestHeaders().setRange("bytes=" + offset + "-");
+        }
+        HttpResponse response = request.executeMedia();
+        if (offset > 0 && response.getStatusCode() != 206) {
+            response.disconnect();
+            throw new IOException("El servidor no aceptó la descarga parcial (HTTP " + response.getStatusCode() + ")");
+        }
+        return response.getContent();
     }
 
     /**
@@ -212,6 +330,10 @@ public class GoogleDriveService {
      * Check if service is initialized
      */
     public boolean isInitialized() {
-        return driveService != null;
+        try {
+            return drive() != null;
+        } catch (IllegalStateException e) {
+            return false;
+        }
     }
 }
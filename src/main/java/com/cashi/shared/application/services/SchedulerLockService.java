@@ -0,0 +1,176 @@
+package com.cashi.shared.application.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locks con lease en base de datos (tabla bloqueos_programados) para que cada job
+ * programado corra en una sola réplica del servicio.
+ *
+ * - El lease se renueva en segundo plano mientras el nodo retiene el lock, así un job largo
+ *   no lo pierde; si el nodo cae, el lock expira en app.scheduler.lock.lease.
+ * - Con app.scheduler.lock.enabled=false (un solo nodo) no se consulta la base de datos
+ *   y todos los locks se conceden.
+ */
+@Service
+public class SchedulerLockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLockService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Duration lease;
+    private final String nodeId;
+
+    /** Locks retenidos por este nodo (se renuevan hasta liberarlos) */
+    private final Map<String, Boolean> held = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService renewer;
+
+    public SchedulerLockService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.scheduler.lock.enabled:false}") boolean enabled,
+            @Value("${app.scheduler.lock.lease:PT5M}") Duration lease) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.lease = lease;
+        this.nodeId = resolveNodeId();
+        this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "scheduler-lock-renewer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            long period = Math.max(1000, lease.toMillis() / 3);
+            renewer.scheduleWithFixedDelay(this::renewHeldLocks, period, period, TimeUnit.MILLISECONDS);
+            logger.info("🔒 Locks de tareas programadas habilitados (nodo {}, lease {})", nodeId, lease);
+        }
+    }
+
+    /**
+     * Ejecuta la tarea solo si este nodo obtiene el lock.
+     *
+     * @param minHold tiempo mínimo que el lock queda tomado desde que se adquirió, aunque la tarea
+     *                termine antes (evita que un cron que dispara a la misma hora en otro nodo
+     *                la repita). Duration.ZERO = liberar al terminar.
+     * @return true si la tarea se ejecutó en este nodo
+     */
+    public boolean runLocked(String name, Duration minHold, Runnable task) {
+        if (!tryLock(name)) {
+            logger.debug("Lock '{}' tomado por otro nodo, se omite la ejecución", name);
+            return false;
+        }
+        try {
+            task.run();
+            return true;
+        } finally {
+            unlock(name, minHold);
+        }
+    }
+
+    /**
+     * Intenta adquirir (o re-adquirir) el lock; mientras se retiene, se renueva automáticamente.
+     */
+    public boolean tryLock(String name) {
+        if (!enabled) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(
+                    "INSERT IGNORE INTO bloqueos_programados (nombre_bloqueo, bloqueado_hasta, bloqueado_en, bloqueado_por) " +
+                    "VALUES (?, NOW(3), NOW(3), '')", name);
+
+            int updated = jdbcTemplate.update(
+                    "UPDATE bloqueos_programados " +
+                    "SET bloqueado_hasta = TIMESTAMPADD(MICROSECOND, ?, NOW(3)), bloqueado_en = NOW(3), bloqueado_por = ? " +
+                    "WHERE nombre_bloqueo = ? AND (bloqueado_hasta <= NOW(3) OR bloqueado_por = ?)",
+                    lease.toMillis() * 1000, nodeId, name, nodeId);
+
+            if (updated == 1) {
+                held.put(name, Boolean.TRUE);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            // Sin la tabla o sin conexión no se arriesga una doble ejecución
+            logger.error("❌ No se pudo adquirir el lock '{}': {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    public void unlock(String name) {
+        unlock(name, Duration.ZERO);
+    }
+
+    /**
+     * Libera el lock; queda tomado hasta bloqueado_en + minHold si ese momento aún no llegó.
+     */
+    public void unlock(String name, Duration minHold) {
+        if (!enabled) {
+            return;
+        }
+        held.remove(name);
+        try {
+            jdbcTemplate.update(
+                    "UPDATE bloqueos_programados " +
+                    "SET bloqueado_hasta = GREATEST(NOW(3), TIMESTAMPADD(MICROSECOND, ?, bloqueado_en)) " +
+                    "WHERE nombre_bloqueo = ? AND bloqueado_por = ?",
+                    minHold.toMillis() * 1000, name, nodeId);
+        } catch (Exception e) {
+            logger.warn("No se pudo liberar el lock '{}' (expirará solo): {}", name, e.getMessage());
+        }
+    }
+
+    private void renewHeldLocks() {
+        for (String name : held.keySet()) {
+            try {
+                int updated = jdbcTemplate.update(
+                        "UPDATE bloqueos_programados SET bloqueado_hasta = TIMESTAMPADD(MICROSECOND, ?, NOW(3)) " +
+                        "WHERE nombre_bloqueo = ? AND bloqueado_por = ?",
+                        lease.toMillis() * 1000, name, nodeId);
+                if (updated == 0) {
+                    logger.warn("⚠️ Lock '{}' perdido (expiró antes de renovarse)", name);
+                    held.remove(name);
+                }
+            } catch (Exception e) {
+                logger.warn("No se pudo renovar el lock '{}': {}", name, e.getMessage());
+            }
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String resolveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        long pid = ManagementFactory.getRuntimeMXBean().getPid();
+        return host + ":" + pid + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renewer.shutdownNow();
+        for (String name : held.keySet()) {
+            unlock(name);
+        }
+    }
+}
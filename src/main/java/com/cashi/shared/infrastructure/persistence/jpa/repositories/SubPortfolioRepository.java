@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,6 +47,12 @@ public interface SubPortfolioRepository extends JpaRepository<SubPortfolio, Inte
     @Query("SELECT sp FROM SubPortfolio sp JOIN FETCH sp.portfolio")
     List<SubPortfolio> findAllWithPortfolio();
 
+    /**
+     * Pares [idSubcartera, idTenant] de las subcarteras indicadas (sin cargar las entidades)
+     */
+    @Query("SELECT sp.id, sp.portfolio.tenant.id FROM SubPortfolio sp WHERE sp.id IN :ids")
+    List<Object[]> findTenantIdsBySubPortfolioIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * Cuenta cuántas subcarteras tiene un portfolio
      */
@@ -10,6 +10,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -91,14 +92,17 @@ public class GoogleDriveController {
         try {
             // Get file metadata first to get the filename
             GoogleDriveFileResource metadata = googleDriveService.getFileMetadata(fileId);
-            byte[] fileContent = googleDriveService.downloadFile(fileId);
+            // El contenido se copia de Drive a la respuesta sin cargarlo en memoria
+            StreamingResponseBody body = out -> googleDriveService.downloadTo(fileId, out);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDispositionFormData("attachment", metadata.name());
-            headers.setContentLength(fileContent.length);
+            if (metadata.size() != null) {
+                headers.setContentLength(metadata.size());
+            }
 
-            return new ResponseEntity<>(fileContent, headers, HttpStatus.OK);
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                     .body(Map.of("error", e.getMessage()));
@@ -116,7 +120,7 @@ public class GoogleDriveController {
             @RequestParam String mimeType) {
         try {
             GoogleDriveFileResource metadata = googleDriveService.getFileMetadata(fileId);
-            byte[] fileContent = googleDriveService.exportFile(fileId, mimeType);
+            StreamingResponseBody body = out -> googleDriveService.exportTo(fileId, mimeType, out);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType(mimeType));
@@ -126,9 +130,8 @@ public class GoogleDriveController {
             String filename = metadata.name() + extension;
 
             headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(fileContent.length);
 
-            return new ResponseEntity<>(fileContent, headers, HttpStatus.OK);
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                     .body(Map.of("error", e.getMessage()));
@@ -0,0 +1,175 @@
+package com.cashi.shared.util;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Archivos de importación comprimidos: .csv.gz / .xlsx.gz / .xls.gz y .zip con UNA entrada.
+ *
+ * El contenido se descomprime como stream directamente hacia StreamingCsvReader /
+ * StreamingXlsxReader, sin escribir el archivo descomprimido a disco. La huella del archivo
+ * (MD5 de FileFingerprintService) se sigue calculando sobre los bytes comprimidos en disco.
+ * Un .zip que llega como stream se copia (comprimido) a un temporal para leer su directorio
+ * central: así la regla de UNA entrada es la misma para uploads, Drive y archivos en disco.
+ */
+public final class CompressedImportFile {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CompressedImportFile() {
+    }
+
+    /**
+     * Entrada descomprimida: nombre lógico (p. ej. "clientes.csv") y su contenido.
+     */
+    public record Entry(String name, InputStream stream) implements Closeable {
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    public static boolean isCompressed(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".gz") || name.endsWith(".zip");
+    }
+
+    /**
+     * Formatos aceptados por las importaciones: .xlsx, .xls, .csv (también con .gz) o .zip.
+     */
+    public static boolean isSupported(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".zip")) {
+            return true;
+        }
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return isPlainSupported(name);
+    }
+
+    /**
+     * Abre un archivo en disco. Los .zip se leen por el directorio central (ZipFile), lo que
+     * permite exigir una sola entrada sin recorrer el contenido.
+     */
+    public static Entry open(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        if (fileName.toLowerCase().endsWith(".zip")) {
+            return openZip(file, fileName, false);
+        }
+        return open(Files.newInputStream(file), fileName);
+    }
+
+    /**
+     * Envuelve un stream (p. ej. MultipartFile.getInputStream()) según la extensión del nombre.
+     * Un stream sin compresión se devuelve tal cual. Un .zip se valida igual que en open(Path)
+     * (una sola entrada de datos) antes de entregar nada; el temporal se borra al cerrar.
+     */
+    public static Entry open(InputStream raw, String fileName) throws IOException {
+        String lower = fileName.toLowerCase();
+        try {
+            if (lower.endsWith(".gz")) {
+                String inner = fileName.substring(0, fileName.length() - 3);
+                return new Entry(inner, new GZIPInputStream(raw, BUFFER_SIZE));
+            }
+            if (lower.endsWith(".zip")) {
+                // ZipInputStream no ve el directorio central: sin él no se puede exigir UNA entrada
+                Path temp = Files.createTempFile("import-", ".zip");
+                try {
+                    try (raw) {
+                        Files.copy(raw, temp, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return openZip(temp, fileName, true);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(temp);
+                    throw e;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            raw.close();
+            throw e;
+        }
+        return new Entry(fileName, raw);
+    }
+
+    /**
+     * Abre la única entrada de datos del .zip; al cerrarla se cierra el ZipFile y, con
+     * deleteOnClose, se borra el archivo (temporal de open(InputStream, ...)).
+     */
+    private static Entry openZip(Path file, String fileName, boolean deleteOnClose) throws IOException {
+        ZipFile zip = new ZipFile(file.toFile());
+        try {
+            ZipEntry entry = singleEntry(zip, fileName);
+            InputStream in = new FilterInputStream(new BufferedInputStream(zip.getInputStream(entry), BUFFER_SIZE)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        try {
+                            zip.close();
+                        } finally {
+                            if (deleteOnClose) {
+                                Files.deleteIfExists(file);
+                            }
+                        }
+                    }
+                }
+            };
+            return new Entry(simpleName(entry.getName()), in);
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    private static ZipEntry singleEntry(ZipFile zip, String fileName) {
+        ZipEntry found = null;
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!isDataEntry(entry)) {
+                continue;
+            }
+            if (found != null) {
+                throw new IllegalArgumentException("El .zip debe contener un solo archivo: " + fileName);
+            }
+            found = entry;
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("El archivo .zip está vacío: " + fileName);
+        }
+        if (!isPlainSupported(simpleName(found.getName()).toLowerCase())) {
+            throw new IllegalArgumentException("El .zip debe contener un archivo .xlsx, .xls o .csv: " + found.getName());
+        }
+        return found;
+    }
+
+    /** Ignora carpetas y metadatos que agregan los compresores (__MACOSX/, archivos ocultos). */
+    private static boolean isDataEntry(ZipEntry entry) {
+        if (entry.isDirectory()) {
+            return false;
+        }
+        String name = entry.getName();
+        return !name.startsWith("__MACOSX/") && !simpleName(name).startsWith(".");
+    }
+
+    private static String simpleName(String entryName) {
+        int slash = entryName.lastIndexOf('/');
+        return slash >= 0 ? entryName.substring(slash + 1) : entryName;
+    }
+
+    private static boolean isPlainSupported(String lowerName) {
+        return lowerName.endsWith(".xlsx") || lowerName.endsWith(".xls") || lowerName.endsWith(".csv");
+    }
+}
@@ -0,0 +1,271 @@
+package com.cashi.shared.util;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectura de SOLO la fila de cabeceras de un archivo de importación, sin cargar el libro:
+ *
+ * - .xlsx: StreamingXlsxReader.readHeaders (SAX de la hoja hasta cerrar la primera fila).
+ * - .xls:  modelo de eventos HSSF, abortado al terminar la fila 0 de la primera hoja.
+ * - .csv:  StreamingCsvReader.readHeaders (solo el prefijo con la primera línea).
+ * - .gz / .zip: se descomprime en streaming solo hasta la primera fila de la entrada.
+ *
+ * Igual que la lectura anterior, un .xlsx/.xls que no es Excel válido se reintenta como CSV
+ * (muchos sistemas exportan CSV con extensión de Excel). Los valores se devuelven recortados y
+ * sin cabeceras vacías.
+ */
+public final class FileHeaderSniffer {
+
+    private FileHeaderSniffer() {
+    }
+
+    public static List<String> readHeaders(File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("Archivo no encontrado: " + file.getPath());
+        }
+
+        String fileName = file.getName().toLowerCase();
+        List<String> raw;
+        if (CompressedImportFile.isCompressed(fileName)) {
+            raw = readCompressedHeaders(file);
+        } else if (fileName.endsWith(".xlsx")) {
+            try {
+                raw = StreamingXlsxReader.readHeaders(file);
+            } catch (Exception e) {
+                raw = StreamingCsvReader.readHeaders(file.toPath());
+            }
+        } else if (fileName.endsWith(".xls")) {
+            try {
+                raw = readXlsHeaders(file);
+            } catch (Exception e) {
+                raw = StreamingCsvReader.readHeaders(file.toPath());
+            }
+        } else if (fileName.endsWith(".csv")) {
+            raw = StreamingCsvReader.readHeaders(file.toPath());
+        } else {
+            throw new IllegalArgumentException("Formato de archivo no soportado: " + fileName);
+        }
+
+        List<String> headers = new ArrayList<>();
+        for (String header : raw) {
+            if (header != null && !header.trim().isEmpty()) {
+                headers.add(header.trim());
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Cabeceras de un .gz / .zip: se descomprime solo hasta terminar la primera fila.
+     */
+    private static List<String> readCompressedHeaders(File file) throws IOException {
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(file.toPath())) {
+            String innerName = entry.name().toLowerCase();
+            if (innerName.endsWith(".csv")) {
+                return firstCsvRecord(entry.stream());
+            }
+            try {
+                if (innerName.endsWith(".xlsx")) {
+                    List<String> headers = new ArrayList<>();
+                    StreamingXlsxReader.read(entry.stream(), (rowIndex, values) -> {
+                        if (rowIndex == 0) {
+                            headers.addAll(values);
+                        }
+                        return false;
+                    });
+                    return headers;
+                }
+                try (POIFSFileSystem fs = new POIFSFileSystem(entry.stream())) {
+                    return readXlsHeaders(fs);
+                }
+            } catch (Exception e) {
+                // Extensión de Excel pero contenido CSV: se reintenta abajo
+            }
+        }
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(file.toPath())) {
+            return firstCsvRecord(entry.stream());
+        }
+    }
+
+    private static List<String> firstCsvRecord(InputStream in) throws IOException {
+        List<String> headers = new ArrayList<>();
+        StreamingCsvReader.read(in, (recordNumber, values) -> {
+            headers.addAll(values);
+            return false;
+        });
+        return headers;
+    }
+
+    private static List<String> readXlsHeaders(File file) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            return readXlsHeaders(fs);
+        }
+    }
+
+    /**
+     * Fila 0 de la primera hoja de un .xls recorriendo los registros BIFF en orden y abortando
+     * en cuanto aparece una celda de otra fila (o termina la hoja).
+     */
+    private static List<String> readXlsHeaders(POIFSFileSystem fs) throws IOException {
+        try {
+            HeaderRowListener listener = new HeaderRowListener();
+            FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(listener);
+            listener.formats = formats;
+
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(new AbortableHSSFListener() {
+                @Override
+                public short abortableProcessRecord(org.apache.poi.hssf.record.Record record) {
+                    formats.processRecord(record);
+                    return listener.done ? (short) 1 : 0;
+                }
+            });
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+            return listener.headers();
+        } catch (HSSFUserException e) {
+            throw new IOException("Error leyendo XLS: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Acumula las celdas de la fila 0 de la primera hoja con la misma conversión que
+     * getCellValueAsString() de la lectura de cabeceras (texto, entero, fecha o booleano).
+     * Los números compactos de Excel (RK / MulRK) se tratan como NumberRecord y de las fórmulas
+     * se toma el valor cacheado (el texto llega en el StringRecord siguiente).
+     */
+    private static final class HeaderRowListener implements HSSFListener {
+        private final List<String> values = new ArrayList<>();
+        private FormatTrackingHSSFListener formats;
+        private SSTRecord sst;
+        private boolean inFirstSheet;
+        private boolean done;
+        /** Columna de la fórmula de texto cuyo valor cacheado llega en el próximo StringRecord */
+        private int pendingStringColumn = -1;
+
+        @Override
+        public void processRecord(org.apache.poi.hssf.record.Record record) {
+            if (done) {
+                return;
+            }
+            if (record instanceof SSTRecord sstRecord) {
+                sst = sstRecord;
+            } else if (record instanceof BOFRecord bof) {
+                if (bof.getType() == BOFRecord.TYPE_WORKSHEET) {
+                    inFirstSheet = true;
+                }
+            } else if (record instanceof EOFRecord) {
+                if (inFirstSheet) {
+                    done = true;
+                }
+            } else if (inFirstSheet && record instanceof StringRecord string) {
+                if (pendingStringColumn >= 0) {
+                    set(pendingStringColumn, string.getString());
+                    pendingStringColumn = -1;
+                }
+            } else if (inFirstSheet && record instanceof MulRKRecord mulRk) {
+                // Varias celdas numéricas contiguas en un solo registro (no es CellValueRecordInterface)
+                if (mulRk.getRow() > 0) {
+                    done = true;
+                    return;
+                }
+                for (NumberRecord number : RecordFactory.convertRKRecords(mulRk)) {
+                    set(number.getColumn(), format(number));
+                }
+            } else if (inFirstSheet && record instanceof CellValueRecordInterface cell) {
+                if (cell.getRow() > 0) {
+                    done = true;
+                    return;
+                }
+                if (cell.getRow() == 0) {
+                    set(cell.getColumn(), format(record));
+                }
+            }
+        }
+
+        private String format(org.apache.poi.hssf.record.Record record) {
+            if (record instanceof RKRecord rk) {
+                return format(RecordFactory.convertToNumberRecord(rk));
+            }
+            if (record instanceof FormulaRecord formula) {
+                return formatCachedResult(formula);
+            }
+            if (record instanceof LabelSSTRecord label) {
+                return sst != null ? sst.getString(label.getSSTIndex()).getString() : "";
+            }
+            if (record instanceof LabelRecord label) {
+                return label.getValue();
+            }
+            if (record instanceof NumberRecord number) {
+                double value = number.getValue();
+                int formatIndex = formats.getFormatIndex(number);
+                String formatString = formats.getFormatString(number);
+                if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                    return DateUtil.getJavaDate(value).toString();
+                }
+                return String.valueOf((long) value);
+            }
+            if (record instanceof BoolErrRecord boolErr && boolErr.isBoolean()) {
+                return String.valueOf(boolErr.getBooleanValue());
+            }
+            return "";
+        }
+
+        private String formatCachedResult(FormulaRecord formula) {
+            if (formula.hasCachedResultString()) {
+                pendingStringColumn = formula.getColumn();
+                return "";
+            }
+            if (formula.getCachedResultTypeEnum() == CellType.BOOLEAN) {
+                return String.valueOf(formula.getCachedBooleanValue());
+            }
+            if (formula.getCachedResultTypeEnum() == CellType.NUMERIC) {
+                NumberRecord number = new NumberRecord();
+                number.setRow(formula.getRow());
+                number.setColumn(formula.getColumn());
+                number.setXFIndex(formula.getXFIndex());
+                number.setValue(formula.getValue());
+                return format(number);
+            }
+            return "";
+        }
+
+        private void set(int column, String value) {
+            while (values.size() <= column) {
+                values.add("");
+            }
+            values.set(column, value);
+        }
+
+        List<String> headers() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.cashi.shared.util;
+
+/**
+ * Clave normalizada de teléfono (estilo E.164 sin '+'): solo dígitos, con el código de país
+ * de Perú cuando el número es nacional. Así "+51 999-888-777", "999888777", "51999888777" y
+ * "51999888777@s.whatsapp.net" dan la misma clave: 51999888777.
+ *
+ * Reglas (deben coincidir con la columna generada metodos_contacto.telefono_normalizado, V35):
+ * - Se descarta lo que sigue a '@' (JID de WhatsApp) y todo lo que no sea dígito.
+ * - 9 dígitos empezando con 9 (celular): se antepone 51.
+ * - 9 dígitos empezando con 0 (fijo con prefijo de larga distancia 0): se reemplaza el 0 por 51.
+ * - Prefijo internacional 00: se quita.
+ * - Cualquier otro caso queda como dígitos tal cual.
+ */
+public final class PhoneNumberNormalizer {
+
+    public static final String DEFAULT_COUNTRY_CODE = "51";
+
+    private PhoneNumberNormalizer() {
+        // Utility class
+    }
+
+    /**
+     * @return clave normalizada o null si el valor no contiene dígitos
+     */
+    public static String normalize(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        int at = phone.indexOf('@');
+        String local = at >= 0 ? phone.substring(0, at) : phone;
+
+        StringBuilder digits = new StringBuilder(local.length());
+        for (int i = 0; i < local.length(); i++) {
+            char ch = local.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                digits.append(ch);
+            }
+        }
+        String d = digits.toString();
+        if (d.isEmpty()) {
+            return null;
+        }
+        if (d.length() == 9 && d.charAt(0) == '9') {
+            return DEFAULT_COUNTRY_CODE + d;
+        }
+        if (d.length() == 9 && d.charAt(0) == '0') {
+            return DEFAULT_COUNTRY_CODE + d.substring(1);
+        }
+        if (d.startsWith("00")) {
+            return d.substring(2);
+        }
+        return d;
+    }
+}
@@ -0,0 +1,127 @@
+package com.cashi.shared.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream de una descarga HTTP que, si la conexión se corta a mitad de camino, vuelve a
+ * pedir el contenido desde el último byte entregado (Range: bytes=N-) en lugar de empezar de
+ * nuevo. Pensado para leer archivos remotos grandes directamente con los parsers de importación.
+ *
+ * Cada corte permite hasta maxAttempts reconexiones seguidas sin avance, con espera exponencial
+ * (1 s, 2 s, 4 s, ...); al recibir bytes nuevos el contador se reinicia.
+ *
+ * Con expectedSize conocido, un fin de stream limpio antes de ese tamaño (el servidor cerró sin
+ * error) también se trata como corte; sin él (-1) el primer -1 se toma como fin del archivo.
+ */
+public final class RangeResumingInputStream extends InputStream {
+
+    /**
+     * Abre el contenido a partir de offset (0 = desde el inicio).
+     */
+    @FunctionalInterface
+    public interface RangeOpener {
+        InputStream open(long offset) throws IOException;
+    }
+
+    private static final long BASE_BACKOFF_MS = 1000;
+
+    private final RangeOpener opener;
+    private final int maxAttempts;
+    /** Tamaño total esperado, o -1 si se desconoce */
+    private final long expectedSize;
+    private InputStream current;
+    private long position;
+    /** Reconexiones seguidas sin recibir bytes */
+    private int failures;
+    private boolean closed;
+
+    public RangeResumingInputStream(RangeOpener opener, int maxAttempts) throws IOException {
+        this(opener, maxAttempts, -1);
+    }
+
+    /**
+     * @param expectedSize tamaño total del contenido (-1 = desconocido)
+     */
+    public RangeResumingInputStream(RangeOpener opener, int maxAttempts, long expectedSize) throws IOException {
+        this.opener = opener;
+        this.maxAttempts = Math.max(0, maxAttempts);
+        this.expectedSize = expectedSize;
+        this.current = opener.open(0);
+    }
+
+    /** Bytes entregados hasta ahora */
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream cerrado");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            try {
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    position += n;
+                    failures = 0;
+                } else if (n < 0 && expectedSize >= 0 && position < expectedSize) {
+                    throw new EOFException("Fin de stream prematuro: " + position + " de " + expectedSize + " bytes");
+                }
+                return n;
+            } catch (IOException e) {
+                reconnect(e);
+            }
+        }
+    }
+
+    /**
+     * Reabre desde position; se rinde tras maxAttempts intentos seguidos sin recibir bytes.
+     */
+    private void reconnect(IOException cause) throws IOException {
+        closeQuietly(current);
+        while (++failures <= maxAttempts) {
+            try {
+                Thread.sleep(BASE_BACKOFF_MS << (failures - 1));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw cause;
+            }
+            try {
+                current = opener.open(position);
+                return;
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+        throw cause;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            current.close();
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // La conexión ya estaba rota
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.cashi.shared.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Normalización de texto para búsquedas por nombre: minúsculas, sin acentos (mismas reglas
+ * que SqlSanitizer.headerToColumnName) y cualquier otro carácter convertido en espacio.
+ *
+ * Minúsculas y acentos deben coincidir con la columna generada clientes.nombre_busqueda (V34),
+ * que aplica LOWER + los mismos reemplazos en MySQL.
+ */
+public final class SearchTextNormalizer {
+
+    private SearchTextNormalizer() {
+        // Utility class
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text
+                .toLowerCase()
+                // Normalizar acentos
+                .replaceAll("[áàäâã]", "a")
+                .replaceAll("[éèëê]", "e")
+                .replaceAll("[íìïî]", "i")
+                .replaceAll("[óòöôõ]", "o")
+                .replaceAll("[úùüû]", "u")
+                .replaceAll("[ñ]", "n")
+                .replaceAll("[ç]", "c")
+                // Separadores: todo lo que no sea letra o dígito
+                .replaceAll("[^a-z0-9]+", " ")
+                .trim();
+    }
+
+    /**
+     * Términos del texto normalizado con al menos minLength caracteres
+     */
+    public static List<String> terms(String text, int minLength) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(normalized.split(" "))
+                .filter(term -> term.length() >= minLength)
+                .distinct()
+                .toList();
+    }
+}
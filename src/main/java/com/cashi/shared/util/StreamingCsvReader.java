@@ -0,0 +1,339 @@
+package com.cashi.shared.util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de CSV en streaming para las importaciones.
+ *
+ * - Detecta separador (, ; TAB |) y encoding (BOM, UTF-8 válido o Windows-1252) a partir de
+ *   un prefijo de SNIFF_BYTES, sin leer el archivo completo.
+ * - Un UTF-8 sin BOM deducido del prefijo se decodifica en modo estricto: en el primer byte que
+ *   no es UTF-8 (p. ej. un acento Windows-1252 pasado el prefijo) el resto del archivo se lee como
+ *   Windows-1252, en lugar de reemplazarlo en silencio por U+FFFD. Con BOM o Windows-1252 una
+ *   secuencia inválida es un error.
+ * - Parsea directamente desde el archivo (FileChannel con buffer de SNIFF_BYTES) o desde
+ *   el stream del multipart: el contenido no se duplica como byte[] + String.
+ * - Entrega cada fila en una lista reutilizada: solo es válida durante la llamada al handler.
+ */
+public final class StreamingCsvReader {
+
+    /** Bytes leídos para detectar separador y encoding. */
+    private static final int SNIFF_BYTES = 64 * 1024;
+
+    private static final char[] CANDIDATE_DELIMITERS = {',', ';', '\t', '|'};
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private StreamingCsvReader() {
+    }
+
+    /**
+     * Separador, encoding y longitud del BOM detectados.
+     */
+    public record Dialect(char delimiter, Charset charset, int bomLength) {
+    }
+
+    /**
+     * Recibe cada registro del CSV. recordNumber 0 = fila de cabeceras.
+     * La lista values se reutiliza entre llamadas: copiar lo que se quiera conservar.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @return false para detener la lectura
+         */
+        boolean onRow(long recordNumber, List<String> values) throws Exception;
+    }
+
+    /**
+     * Lee un CSV en disco en una sola pasada secuencial.
+     * Sin mmap: en Windows un archivo mapeado queda bloqueado hasta que el GC libera el buffer
+     * y el Files.move posterior (procesados/errores) fallaría.
+     *
+     * @return dialecto efectivo (charset Windows-1252 si hubo que cambiar a mitad de archivo)
+     */
+    public static Dialect read(Path file, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Dialect dialect = sniff(channel);
+            channel.position(dialect.bomLength());
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), SNIFF_BYTES);
+            return parse(in, dialect, handler);
+        }
+    }
+
+    /**
+     * Lee un CSV desde un stream (p. ej. MultipartFile.getInputStream()).
+     */
+    public static Dialect read(InputStream inputStream, RowHandler handler) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(inputStream, SNIFF_BYTES);
+        in.mark(SNIFF_BYTES);
+        byte[] prefix = in.readNBytes(SNIFF_BYTES);
+        in.reset();
+
+        Dialect dialect = sniff(prefix, prefix.length);
+        in.skipNBytes(dialect.bomLength());
+        return parse(in, dialect, handler);
+    }
+
+    /**
+     * Devuelve solo las cabeceras (primer registro). Se parsea únicamente el prefijo de
+     * SNIFF_BYTES ya leído para detectar el dialecto; solo si la primera línea es más larga
+     * que el prefijo se sigue leyendo el archivo.
+     */
+    public static List<String> readHeaders(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(SNIFF_BYTES, channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // leer hasta llenar el prefijo o EOF
+            }
+            List<String> headers = headersFromPrefix(buffer.array(), buffer.position(), buffer.position() == channel.size());
+            if (headers != null) {
+                return headers;
+            }
+        }
+
+        List<String> headers = new ArrayList<>();
+        read(file, (recordNumber, values) -> {
+            headers.addAll(values);
+            return false;
+        });
+        return headers;
+    }
+
+    /**
+     * Primer registro del prefijo, o null si el prefijo corta la primera línea (no hay un salto
+     * de línea fuera de comillas y el prefijo no es todo el contenido).
+     */
+    private static List<String> headersFromPrefix(byte[] prefix, int length, boolean wholeContent) throws IOException {
+        Dialect dialect = sniff(prefix, length);
+        String text = new String(prefix, dialect.bomLength(), length - dialect.bomLength(), dialect.charset());
+
+        int end = firstRecordEnd(text);
+        if (end < 0 && !wholeContent) {
+            return null;
+        }
+        List<String> headers = new ArrayList<>();
+        parse(new StringReader(end < 0 ? text : text.substring(0, end)), dialect, (recordNumber, values) -> {
+            headers.addAll(values);
+            return false;
+        });
+        return headers;
+    }
+
+    /**
+     * Posición del primer salto de línea fuera de comillas, o -1.
+     */
+    private static int firstRecordEnd(String text) {
+        boolean inQuotes = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && (c == '\n' || c == '\r')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Detecta separador y encoding a partir de los primeros bytes del archivo.
+     */
+    public static Dialect sniff(byte[] prefix, int length) {
+        Charset charset;
+        int bom = 0;
+        if (length >= 3 && (prefix[0] & 0xFF) == 0xEF && (prefix[1] & 0xFF) == 0xBB && (prefix[2] & 0xFF) == 0xBF) {
+            charset = StandardCharsets.UTF_8;
+            bom = 3;
+        } else if (length >= 2 && (prefix[0] & 0xFF) == 0xFF && (prefix[1] & 0xFF) == 0xFE) {
+            charset = StandardCharsets.UTF_16LE;
+            bom = 2;
+        } else if (length >= 2 && (prefix[0] & 0xFF) == 0xFE && (prefix[1] & 0xFF) == 0xFF) {
+            charset = StandardCharsets.UTF_16BE;
+            bom = 2;
+        } else {
+            charset = isValidUtf8(prefix, length) ? StandardCharsets.UTF_8 : WINDOWS_1252;
+        }
+
+        String text = new String(prefix, bom, length - bom, charset);
+        return new Dialect(detectDelimiter(text), charset, bom);
+    }
+
+    private static Dialect sniff(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(SNIFF_BYTES, channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // leer hasta llenar el prefijo o EOF
+        }
+        return sniff(buffer.array(), buffer.position());
+    }
+
+    private static Dialect parse(InputStream in, Dialect dialect, RowHandler handler) throws IOException {
+        if (dialect.charset() == StandardCharsets.UTF_8 && dialect.bomLength() == 0) {
+            Utf8FallbackReader reader = new Utf8FallbackReader(in);
+            parse(new BufferedReader(reader, SNIFF_BYTES), dialect, handler);
+            return reader.fellBack ? new Dialect(dialect.delimiter(), WINDOWS_1252, 0) : dialect;
+        }
+        CharsetDecoder decoder = dialect.charset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        parse(new BufferedReader(new InputStreamReader(in, decoder), SNIFF_BYTES), dialect, handler);
+        return dialect;
+    }
+
+    private static void parse(Reader reader, Dialect dialect, RowHandler handler) throws IOException {
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setDelimiter(dialect.delimiter())
+                .setTrim(true)
+                .build();
+
+        List<String> values = new ArrayList<>();
+        try (CSVParser parser = format.parse(reader)) {
+            long recordNumber = 0;
+            for (CSVRecord record : parser) {
+                values.clear();
+                for (String value : record) {
+                    values.add(value);
+                }
+                if (!handler.onRow(recordNumber++, values)) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error procesando CSV: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Separador con más apariciones (fuera de comillas) en la primera línea; empate -> el primero
+     * de CANDIDATE_DELIMITERS, de modo que "," sigue siendo el valor por defecto.
+     */
+    private static char detectDelimiter(String text) {
+        int[] counts = new int[CANDIDATE_DELIMITERS.length];
+        boolean inQuotes = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && (c == '\n' || c == '\r')) {
+                break;
+            } else if (!inQuotes) {
+                for (int d = 0; d < CANDIDATE_DELIMITERS.length; d++) {
+                    if (c == CANDIDATE_DELIMITERS[d]) {
+                        counts[d]++;
+                    }
+                }
+            }
+        }
+
+        int best = 0;
+        for (int d = 1; d < counts.length; d++) {
+            if (counts[d] > counts[best]) {
+                best = d;
+            }
+        }
+        return CANDIDATE_DELIMITERS[best];
+    }
+
+    /**
+     * true si el prefijo es UTF-8 válido. Una secuencia multibyte cortada al final del
+     * prefijo no cuenta como error.
+     */
+    private static boolean isValidUtf8(byte[] prefix, int length) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.wrap(prefix, 0, length);
+        CharBuffer out = CharBuffer.allocate(length);
+        var result = decoder.decode(in, out, false);
+        if (result.isError()) {
+            return false;
+        }
+        // Con endOfInput=false, los bytes sobrantes (<4) son una secuencia incompleta al final del prefijo
+        return in.remaining() < 4;
+    }
+
+    /**
+     * Decodifica UTF-8 en modo estricto y, en el primer byte inválido, sigue con Windows-1252
+     * desde ese mismo byte. Lo ya entregado no cambia: si el prefijo era UTF-8 válido y el archivo
+     * es en realidad Windows-1252, hasta ese punto solo había ASCII, que ambos decodifican igual.
+     */
+    private static final class Utf8FallbackReader extends Reader {
+        private final InputStream in;
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192).flip();
+        private CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private boolean fellBack;
+        private boolean eof;
+
+        Utf8FallbackReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            while (true) {
+                CoderResult result = decoder.decode(bytes, out, eof);
+                if (result.isError()) {
+                    // El byte inválido sigue en bytes: se decodifica con el nuevo charset
+                    decoder = WINDOWS_1252.newDecoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                    fellBack = true;
+                    continue;
+                }
+                if (out.position() > off) {
+                    return out.position() - off;
+                }
+                if (eof) {
+                    return -1;
+                }
+                fill();
+            }
+        }
+
+        private void fill() throws IOException {
+            bytes.compact();
+            int n = in.read(bytes.array(), bytes.position(), bytes.remaining());
+            if (n < 0) {
+                eof = true;
+            } else {
+                bytes.position(bytes.position() + n);
+            }
+            bytes.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
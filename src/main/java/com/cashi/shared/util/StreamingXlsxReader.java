@@ -0,0 +1,366 @@
+package com.cashi.shared.util;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Lector de .xlsx en streaming (modelo de eventos de POI: XSSFReader + SAX).
+ *
+ * A diferencia de new XSSFWorkbook(...), no construye el DOM de la hoja: recorre el XML de la
+ * primera hoja y entrega las filas una a una, con memoria constante salvo la tabla de
+ * shared strings. Los .xls (HSSF) siguen leyéndose con el modelo de usuario clásico.
+ *
+ * Los valores se convierten igual que getCellValueAsString() de los servicios de importación:
+ * texto recortado, fechas como yyyy-MM-dd, números como entero (long), booleanos como
+ * "true"/"false", fórmulas como su texto y celdas vacías/error como "".
+ */
+public final class StreamingXlsxReader {
+
+    private StreamingXlsxReader() {
+    }
+
+    /**
+     * Recibe cada fila no vacía de la hoja. rowIndex es 0-based (0 = primera fila de Excel);
+     * values tiene una posición por columna hasta la última celda con dato de la fila.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @return false para detener la lectura (p. ej. tras leer las cabeceras)
+         */
+        boolean onRow(int rowIndex, List<String> values) throws Exception;
+    }
+
+    /**
+     * Lee la primera hoja de un .xlsx en disco.
+     */
+    public static void read(File file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            read(pkg, handler);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Archivo XLSX inválido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lee la primera hoja de un .xlsx desde un stream (p. ej. MultipartFile). POI mantiene el
+     * zip comprimido en memoria, pero la hoja se sigue procesando por eventos.
+     */
+    public static void read(InputStream inputStream, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(inputStream)) {
+            read(pkg, handler);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Archivo XLSX inválido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Devuelve solo la fila de cabeceras (fila 1 de Excel) sin recorrer el resto de la hoja.
+     * Lista vacía si la primera fila no existe.
+     *
+     * La tabla de shared strings tampoco se carga completa: se lee en streaming solo hasta el
+     * índice más alto que usa la fila de cabeceras (normalmente las primeras entradas).
+     */
+    public static List<String> readHeaders(File file) throws IOException {
+        List<String> headers = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            try (LazySharedStrings sharedStrings = new LazySharedStrings(reader)) {
+                parseFirstSheet(reader, sharedStrings, (rowIndex, values) -> {
+                    if (rowIndex == 0) {
+                        headers.addAll(values);
+                    }
+                    return false;
+                });
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException("Archivo XLSX inválido: " + e.getMessage(), e);
+        }
+        return headers;
+    }
+
+    private static void read(OPCPackage pkg, RowHandler handler) throws IOException, OpenXML4JException {
+        XSSFReader reader = new XSSFReader(pkg);
+        ReadOnlySharedStringsTable sharedStrings;
+        try {
+            sharedStrings = new ReadOnlySharedStringsTable(pkg);
+        } catch (SAXException e) {
+            throw new IOException("Shared strings inválidos: " + e.getMessage(), e);
+        }
+        parseFirstSheet(reader, index -> sharedStrings.getItemAt(index).getString(), handler);
+    }
+
+    private static void parseFirstSheet(XSSFReader reader, IntFunction<String> sharedStrings, RowHandler handler)
+            throws IOException, OpenXML4JException {
+        StylesTable styles = reader.getStylesTable();
+
+        Iterator<InputStream> sheets = reader.getSheetsData();
+        if (!sheets.hasNext()) {
+            throw new IOException("El archivo no contiene hojas");
+        }
+
+        try (InputStream sheet = sheets.next()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new SheetHandler(sharedStrings, styles, handler));
+            parser.parse(new InputSource(sheet));
+        } catch (StopReading e) {
+            // el handler pidió detener la lectura
+        } catch (SAXException e) {
+            Throwable cause = e.getException() != null ? e.getException() : e;
+            throw new IOException("Error leyendo hoja XLSX: " + cause.getMessage(), cause);
+        } catch (ParserConfigurationException e) {
+            throw new IOException("No se pudo crear el parser SAX: " + e.getMessage(), e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * sharedStrings.xml leído bajo demanda con StAX: getItemAt(i) avanza el parser solo hasta el
+     * &lt;si&gt; número i. Los textos fonéticos (&lt;rPh&gt;) se omiten, igual que XSSFCell.getStringCellValue().
+     */
+    private static final class LazySharedStrings implements IntFunction<String>, AutoCloseable {
+        private final XSSFReader reader;
+        private final List<String> loaded = new ArrayList<>();
+        private InputStream stream;
+        private XMLStreamReader xml;
+        private boolean exhausted;
+
+        LazySharedStrings(XSSFReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public String apply(int index) {
+            try {
+                while (loaded.size() <= index && !exhausted) {
+                    readNext();
+                }
+            } catch (IOException | XMLStreamException | InvalidFormatException e) {
+                throw new UncheckedIOException(new IOException("Shared strings inválidos: " + e.getMessage(), e));
+            }
+            return index < loaded.size() ? loaded.get(index) : "";
+        }
+
+        private void readNext() throws IOException, XMLStreamException, InvalidFormatException {
+            if (xml == null) {
+                stream = reader.getSharedStringsData();
+                xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(stream);
+            }
+            StringBuilder text = new StringBuilder();
+            boolean inItem = false;
+            int phoneticDepth = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "si" -> {
+                            inItem = true;
+                            text.setLength(0);
+                        }
+                        case "rPh" -> phoneticDepth++;
+                        case "t" -> {
+                            if (inItem && phoneticDepth == 0) {
+                                text.append(xml.getElementText());
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if ("rPh".equals(xml.getLocalName())) {
+                        phoneticDepth--;
+                    } else if ("si".equals(xml.getLocalName())) {
+                        loaded.add(text.toString());
+                        return;
+                    }
+                }
+            }
+            exhausted = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (xml != null) {
+                    xml.close();
+                }
+            } catch (XMLStreamException e) {
+                // nada que liberar
+            }
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+
+    /** Corta el parseo SAX cuando el RowHandler devuelve false. */
+    private static final class StopReading extends SAXException {
+        StopReading() {
+            super("stop");
+        }
+    }
+
+    /**
+     * Handler SAX de sheetN.xml: acumula las celdas de cada &lt;row&gt; y la entrega al cerrar la fila.
+     */
+    private static final class SheetHandler extends DefaultHandler {
+        private final IntFunction<String> sharedStrings;
+        private final StylesTable styles;
+        private final RowHandler rowHandler;
+
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> rowValues = new ArrayList<>();
+        private int rowIndex = -1;
+        private int nextColumn;
+
+        private int cellColumn;
+        private String cellType;
+        private String cellStyle;
+        private String cellValue;
+        private String cellFormula;
+        private boolean collecting;
+
+        SheetHandler(IntFunction<String> sharedStrings, StylesTable styles, RowHandler rowHandler) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    rowValues.clear();
+                    nextColumn = 0;
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    cellColumn = ref != null ? new CellReference(ref).getCol() : nextColumn;
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    cellValue = null;
+                    cellFormula = null;
+                }
+                case "v", "f" -> {
+                    text.setLength(0);
+                    collecting = true;
+                }
+                case "is" -> {
+                    text.setLength(0);
+                }
+                case "t" -> {
+                    // texto de inlineStr: se acumulan todos los <t> (rich text) del <is>
+                    collecting = "inlineStr".equals(cellType);
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v" -> {
+                    cellValue = text.toString();
+                    collecting = false;
+                }
+                case "f" -> {
+                    cellFormula = text.toString();
+                    collecting = false;
+                }
+                case "t" -> collecting = false;
+                case "is" -> cellValue = text.toString();
+                case "c" -> {
+                    while (rowValues.size() < cellColumn) {
+                        rowValues.add("");
+                    }
+                    rowValues.add(formatCell());
+                    nextColumn = cellColumn + 1;
+                }
+                case "row" -> {
+                    try {
+                        if (!rowHandler.onRow(rowIndex, new ArrayList<>(rowValues))) {
+                            throw new StopReading();
+                        }
+                    } catch (SAXException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new SAXException(e);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private String formatCell() {
+            if (cellFormula != null && !cellFormula.isEmpty()) {
+                return cellFormula;
+            }
+            if (cellValue == null) {
+                return "";
+            }
+            if (cellType == null || "n".equals(cellType)) {
+                return formatNumeric(cellValue);
+            }
+            return switch (cellType) {
+                case "s" -> sharedStrings.apply(Integer.parseInt(cellValue)).trim();
+                case "inlineStr", "str" -> cellValue.trim();
+                case "b" -> String.valueOf("1".equals(cellValue));
+                default -> "";
+            };
+        }
+
+        private String formatNumeric(String raw) {
+            if (raw.isEmpty()) {
+                return "";
+            }
+            double value = Double.parseDouble(raw);
+            if (cellStyle != null && !cellStyle.isEmpty()) {
+                XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(cellStyle));
+                if (style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())
+                        && DateUtil.isValidExcelDate(value)) {
+                    return DateUtil.getLocalDateTime(value).toLocalDate().toString();
+                }
+            }
+            return String.valueOf((long) value);
+        }
+    }
+}
@@ -13,10 +13,12 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Statement;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -36,18 +38,28 @@ public class ComplementaryFileServiceImpl implements ComplementaryFileService {
     private final HeaderConfigurationRepository headerConfigurationRepository;
     private final JdbcTemplate jdbcTemplate;
     private final ObjectMapper objectMapper;
+    private final StagedImportUpdater stagedImportUpdater;
+
+    // Filas por batchUpdate en el motor legacy
+    private static final int UPDATE_BATCH_SIZE = 1000;
+
+    // Mismo conmutador que la carga principal: "legacy" (UPDATE preparado en lotes) | "sp" (staging + UPDATE ... JOIN)
+    @Value("${app.import.engine:legacy}")
+    private String importEngine;
 
     public ComplementaryFileServiceImpl(
             ComplementaryFileTypeRepository complementaryFileTypeRepository,
             SubPortfolioRepository subPortfolioRepository,
             HeaderConfigurationRepository headerConfigurationRepository,
             JdbcTemplate jdbcTemplate,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            StagedImportUpdater stagedImportUpdater) {
         this.complementaryFileTypeRepository = complementaryFileTypeRepository;
         this.subPortfolioRepository = subPortfolioRepository;
         this.headerConfigurationRepository = headerConfigurationRepository;
         this.jdbcTemplate = jdbcTemplate;
         this.objectMapper = objectMapper;
+        this.stagedImportUpdater = stagedImportUpdater;
     }
 
     @Override
@@ -115,61 +127,89 @@ public class ComplementaryFileServiceImpl implements ComplementaryFileService {
         // Verificar que las columnas existen en la tabla
         verifyColumnsExistInTable(tableName, linkColumnSanitized, columnMapping.values());
 
+        // Columnas resueltas UNA vez por archivo: clave real del rowData para el enlace y cada columna
+        String linkKey = resolveRowKey(data, linkField);
+        List<String> valueKeys = new ArrayList<>(columnsToUpdate.size());
+        List<String> dataColumns = new ArrayList<>(columnsToUpdate.size());
+        for (String originalCol : columnsToUpdate) {
+            valueKeys.add(resolveRowKey(data, originalCol));
+            dataColumns.add(columnMapping.get(originalCol));
+        }
+
         // Procesar datos
         int updatedRows = 0;
         int notFoundRows = 0;
         int errorRows = 0;
         List<String> errors = new ArrayList<>();
 
+        // Fila -> [__row, __link, valores...]; las filas sin enlace se cuentan como error aquí
+        List<Object[]> rows = new ArrayList<>(data.size());
         for (int i = 0; i < data.size(); i++) {
             Map<String, Object> row = data.get(i);
-            try {
-                // Obtener valor del campo de vinculación
-                Object linkValue = getValueFromRowData(row, linkField);
-                if (linkValue == null || linkValue.toString().trim().isEmpty()) {
-                    errors.add("Fila " + (i + 1) + ": Campo de vinculación '" + linkField + "' vacío");
-                    errorRows++;
-                    continue;
-                }
-
-                // Construir UPDATE dinámico
-                StringBuilder setClause = new StringBuilder();
-                List<Object> values = new ArrayList<>();
-                boolean first = true;
+            Object linkValue = valueOf(row, linkKey, linkField);
+            if (linkValue == null || linkValue.toString().trim().isEmpty()) {
+                errors.add("Fila " + (i + 1) + ": Campo de vinculación '" + linkField + "' vacío");
+                errorRows++;
+                continue;
+            }
+            Object[] args = new Object[columnsToUpdate.size() + 2];
+            args[0] = i + 1;
+            args[1] = linkValue.toString();
+            for (int j = 0; j < columnsToUpdate.size(); j++) {
+                args[j + 2] = valueOf(row, valueKeys.get(j), columnsToUpdate.get(j));
+            }
+            rows.add(args);
+        }
 
-                for (String originalCol : columnsToUpdate) {
-                    Object value = getValueFromRowData(row, originalCol);
-                    String sanitizedCol = columnMapping.get(originalCol);
+        if ("sp".equalsIgnoreCase(importEngine)) {
+            // Set-based: staging TEMPORARY + un solo UPDATE ... JOIN (sp_importar_actualizar)
+            StagedImportUpdater.Result sp = stagedImportUpdater.run(tableName, linkColumnSanitized, false, dataColumns, rows);
+            updatedRows = sp.updated();
+            notFoundRows = sp.notFound();
+        } else {
+            // SQL armado una vez por archivo; se ejecuta en lotes con batchUpdate
+            String setClause = dataColumns.stream().map(col -> col + " = ?").collect(Collectors.joining(", "));
+            String sql = "UPDATE " + tableName + " SET " + setClause + " WHERE " + linkColumnSanitized + " = ?";
+
+            for (int from = 0; from < rows.size(); from += UPDATE_BATCH_SIZE) {
+                List<Object[]> chunk = rows.subList(from, Math.min(from + UPDATE_BATCH_SIZE, rows.size()));
+                List<Object[]> batchArgs = new ArrayList<>(chunk.size());
+                for (Object[] r : chunk) {
+                    batchArgs.add(updateArgs(r));
+                }
 
-                    if (!first) {
-                        setClause.append(", ");
+                int[] affected;
+                try {
+                    affected = jdbcTemplate.batchUpdate(sql, batchArgs);
+                } catch (Exception batchError) {
+                    // Un lote con error se repite fila por fila (el UPDATE es idempotente) para
+                    // atribuir el error a su fila y aplicar el resto
+                    logger.debug("Lote complementario con error, reintentando fila por fila: {}", batchError.getMessage());
+                    affected = new int[chunk.size()];
+                    for (int k = 0; k < chunk.size(); k++) {
+                        try {
+                            affected[k] = jdbcTemplate.update(sql, batchArgs.get(k));
+                        } catch (Exception e) {
+                            affected[k] = Statement.EXECUTE_FAILED;
+                            errorRows++;
+                            errors.add("Fila " + chunk.get(k)[0] + ": " + e.getMessage());
+                            logger.debug("Error al procesar fila {}: {}", chunk.get(k)[0], e.getMessage());
+                        }
                     }
-                    setClause.append(sanitizedCol).append(" = ?");
-                    values.add(value);
-                    first = false;
                 }
 
-                // Agregar condición WHERE
-                values.add(linkValue.toString());
-
-                String sql = "UPDATE " + tableName + " SET " + setClause +
-                        " WHERE " + linkColumnSanitized + " = ?";
-
-                int affected = jdbcTemplate.update(sql, values.toArray());
-
-                if (affected > 0) {
-                    updatedRows += affected;
-                } else {
-                    notFoundRows++;
-                    if (notFoundRows <= 10) { // Solo loguear los primeros 10
-                        logger.debug("Registro no encontrado para {}: {}", linkField, linkValue);
+                for (int k = 0; k < affected.length; k++) {
+                    if (affected[k] > 0) {
+                        updatedRows += affected[k];
+                    } else if (affected[k] == Statement.SUCCESS_NO_INFO) {
+                        updatedRows++;
+                    } else if (affected[k] == 0) {
+                        notFoundRows++;
+                        if (notFoundRows <= 10) { // Solo loguear los primeros 10
+                            logger.debug("Registro no encontrado para {}: {}", linkField, chunk.get(k)[1]);
+                        }
                     }
                 }
-
-            } catch (Exception e) {
-                errorRows++;
-                errors.add("Fila " + (i + 1) + ": " + e.getMessage());
-                logger.debug("Error al procesar fila {}: {}", i + 1, e.getMessage());
             }
         }
 
@@ -422,6 +462,45 @@ public class ComplementaryFileServiceImpl implements ComplementaryFileService {
                 .replaceAll("^_|_$", "");
     }
 
+    /**
+     * Clave real del rowData para una cabecera (exacta o case-insensitive), resuelta con la
+     * primera fila: todas las filas de un archivo comparten las mismas claves.
+     */
+    private String resolveRowKey(List<Map<String, Object>> data, String headerName) {
+        if (headerName == null || data.isEmpty()) return null;
+        Map<String, Object> first = data.get(0);
+        if (first.containsKey(headerName)) {
+            return headerName;
+        }
+        String normalizedSearch = headerName.toLowerCase().trim();
+        for (String key : first.keySet()) {
+            if (key != null && key.toLowerCase().trim().equals(normalizedSearch)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Valor de la fila por la clave resuelta; si la fila no la tiene, búsqueda completa
+     */
+    private Object valueOf(Map<String, Object> row, String resolvedKey, String headerName) {
+        if (resolvedKey != null && row.containsKey(resolvedKey)) {
+            return row.get(resolvedKey);
+        }
+        return getValueFromRowData(row, headerName);
+    }
+
+    /**
+     * [__row, __link, v1..vn] -> parámetros del UPDATE: [v1..vn, link]
+     */
+    private static Object[] updateArgs(Object[] stagingRow) {
+        Object[] args = new Object[stagingRow.length - 1];
+        System.arraycopy(stagingRow, 2, args, 0, stagingRow.length - 2);
+        args[args.length - 1] = stagingRow[1];
+        return args;
+    }
+
     /**
      * Obtiene un valor del rowData de forma case-insensitive
      */
@@ -3,6 +3,8 @@ package com.cashi.systemconfiguration.application.internal.commandservices;
 import com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService;
 import com.cashi.customermanagement.domain.model.aggregates.Customer;
 import com.cashi.customermanagement.domain.model.entities.ContactMethod;
+import com.cashi.customermanagement.domain.model.events.CustomerDataChangedEvent;
+import com.cashi.customermanagement.domain.model.events.CustomerImportCommittedEvent;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository;
 import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.CustomerRepository;
 import com.cashi.shared.domain.model.entities.FieldDefinition;
@@ -19,6 +21,7 @@ import com.cashi.systemconfiguration.domain.services.HeaderConfigurationCommandS
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -44,7 +47,9 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
     private final CustomerRepository customerRepository;
     private final ContactMethodRepository contactMethodRepository;
     private final CustomerSyncService customerSyncService;
+    private final StagedImportUpdater stagedImportUpdater;
     private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Tamaño del batch para operaciones de carga de identificadores (previene problemas de memoria)
     private static final int BATCH_SIZE_FOR_IDENTIFIER_LOAD = 10000;
@@ -54,6 +59,11 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
     @Value("${app.import.engine:legacy}")
     private String importEngine;
 
+    // Sync de clientes tras el COMMIT del import (asíncrono, con coalescencia por subcartera)
+    // en lugar de inline dentro de la transacción del import.
+    @Value("${app.customer-sync.async.enabled:false}")
+    private boolean asyncCustomerSync;
+
     public HeaderConfigurationCommandServiceImpl(
             HeaderConfigurationRepository headerConfigurationRepository,
             SubPortfolioRepository subPortfolioRepository,
@@ -62,7 +72,9 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
             CustomerRepository customerRepository,
             ContactMethodRepository contactMethodRepository,
             CustomerSyncService customerSyncService,
-            TransactionTemplate transactionTemplate) {
+            StagedImportUpdater stagedImportUpdater,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher) {
         this.headerConfigurationRepository = headerConfigurationRepository;
         this.subPortfolioRepository = subPortfolioRepository;
         this.fieldDefinitionRepository = fieldDefinitionRepository;
@@ -70,7 +82,9 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
         this.customerRepository = customerRepository;
         this.contactMethodRepository = contactMethodRepository;
         this.customerSyncService = customerSyncService;
+        this.stagedImportUpdater = stagedImportUpdater;
         this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -937,14 +951,16 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
         // 🔄 Sincronizar clientes desde la tabla dinámica a la tabla clientes
         // SOLO sincronizar si el tipo de carga es INICIAL (la tabla maestra)
         // Para ACTUALIZACION, la sincronización se maneja en importDailyData() desde INICIAL
-        if ((insertedRows > 0 || updatedRows > 0) && loadType == LoadType.INICIAL) {
+        if ((insertedRows > 0 || updatedRows > 0) && loadType == LoadType.INICIAL && asyncCustomerSync) {
+            publishCustomerSync(subPortfolioId, null, result);
+        } else if ((insertedRows > 0 || updatedRows > 0) && loadType == LoadType.INICIAL) {
             logger.info("🔄 Iniciando sincronización de clientes para SubPortfolio ID: {}, LoadType: {}", subPortfolioId, loadType);
             try {
                 CustomerSyncService.SyncResult syncResult = customerSyncService.syncCustomersFromSubPortfolio(subPortfolioId.longValue(), loadType);
                 logger.info("✅ Sincronización completada: {} clientes creados, {} actualizados",
                         syncResult.getCustomersCreated(), syncResult.getCustomersUpdated());
 
-                reapplyInvalidPhoneContactInactivation(subPortfolio);
+                customerSyncService.reapplyInvalidPhoneContactInactivation(subPortfolioId.longValue(), syncResult.getAffectedClientIds());
 
                 result.put("syncCustomersCreated", syncResult.getCustomersCreated());
                 result.put("syncCustomersUpdated", syncResult.getCustomersUpdated());
@@ -1167,11 +1183,13 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
         }
 
         // Sincronización de clientes: idéntica al legacy (solo INICIAL).
-        if ((insertedRows > 0 || updatedRows > 0) && loadType == LoadType.INICIAL) {
+        if ((insertedRows > 0 || updatedRows > 0) && loadType == LoadType.INICIAL && asyncCustomerSync) {
+            publishCustomerSync(subPortfolioId, null, result);
+        } else if ((insertedRows > 0 || updatedRows > 0) && loadType == LoadType.INICIAL) {
             try {
                 CustomerSyncService.SyncResult syncResult =
                         customerSyncService.syncCustomersFromSubPortfolio(subPortfolioId.longValue(), loadType);
-                reapplyInvalidPhoneContactInactivation(subPortfolio);
+                customerSyncService.reapplyInvalidPhoneContactInactivation(subPortfolioId.longValue(), syncResult.getAffectedClientIds());
                 result.put("syncCustomersCreated", syncResult.getCustomersCreated());
                 result.put("syncCustomersUpdated", syncResult.getCustomersUpdated());
                 if (syncResult.hasErrors()) {
@@ -1186,98 +1204,6 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
         return result;
     }
 
-    private record SpUpdateResult(int updated, int notFound, Set<String> matchedLinks) {}
-
-    /**
-     * Ejecuta una actualización masiva por link field vía staging + sp_importar_actualizar (set-based).
-     * stagingRows: cada fila = [__row(Integer), __link(String), val_col1, val_col2, ...] alineado a dataColumns.
-     * Devuelve {actualizados, no_encontrados, conjunto de __link que matchearon} — los matched sirven
-     * para la sincronización selectiva de la carga diaria.
-     *
-     * NOTA: el conteo de no_encontrados usa un LEFT JOIN real (link ausente en destino), a diferencia
-     * del legacy que contaba ROW_COUNT()==0 (incluía filas sin cambios). El SP es deliberadamente más
-     * correcto; no se fuerza paridad con legacy.
-     */
-    private SpUpdateResult runImportUpdateViaSp(String tableName, String linkColumnName, boolean useCoalesce,
-                                                List<String> dataColumns, List<Object[]> stagingRows) {
-        if (stagingRows.isEmpty()) {
-            return new SpUpdateResult(0, 0, new HashSet<>());
-        }
-        final String staging = "stg_" + tableName + "_"
-                + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
-        try {
-            String collation = jdbcTemplate.queryForObject(
-                    "SELECT table_collation FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?",
-                    String.class, tableName);
-            if (collation == null) collation = "utf8mb4_unicode_ci";
-            String charset = collation.contains("_") ? collation.substring(0, collation.indexOf('_')) : "utf8mb4";
-
-            Map<String, String> destColTypes = new HashMap<>();
-            jdbcTemplate.query(
-                    "SELECT LOWER(column_name) cn, column_type ct FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ?",
-                    rs -> { destColTypes.put(rs.getString("cn"), rs.getString("ct")); }, tableName);
-
-            // Staging TEMPORARY (no commit implícito -> flujo atómico). __link hereda la colación
-            // del destino (vía COLLATE de la tabla) -> el JOIN no choca entre colaciones.
-            StringBuilder ddl = new StringBuilder("CREATE TEMPORARY TABLE `").append(staging)
-                    .append("` (__row INT NOT NULL, __link VARCHAR(255) NULL");
-            StringBuilder insertCols = new StringBuilder("__row, __link");
-            StringBuilder insertPh = new StringBuilder("?, ?");
-            StringBuilder setClause = new StringBuilder();  // p_set armado en Java (COALESCE o no)
-            boolean firstCol = true;
-            for (String col : dataColumns) {
-                String type = destColTypes.getOrDefault(col.toLowerCase(), "VARCHAR(255)");
-                ddl.append(", `").append(col).append("` ").append(type);
-                insertCols.append(", `").append(col).append("`");
-                insertPh.append(", ?");
-                if (!firstCol) setClause.append(", ");
-                if (useCoalesce) {
-                    setClause.append("d.`").append(col).append("`=COALESCE(s.`").append(col).append("`, d.`").append(col).append("`)");
-                } else {
-                    setClause.append("d.`").append(col).append("`=s.`").append(col).append("`");
-                }
-                firstCol = false;
-            }
-            ddl.append(", KEY idx_link (__link)) ENGINE=InnoDB DEFAULT CHARSET=")
-                    .append(charset).append(" COLLATE=").append(collation);
-            jdbcTemplate.execute(ddl.toString());
-
-            jdbcTemplate.batchUpdate("INSERT INTO `" + staging + "` (" + insertCols + ") VALUES (" + insertPh + ")", stagingRows);
-
-            final String pSet = setClause.toString();
-            Map<String, Integer> spOut = jdbcTemplate.execute(connection -> {
-                CallableStatement cs = connection.prepareCall("{CALL sp_importar_actualizar(?, ?, ?, ?, ?, ?)}");
-                cs.setString(1, staging);
-                cs.setString(2, tableName);
-                cs.setString(3, linkColumnName);
-                cs.setString(4, pSet);
-                cs.registerOutParameter(5, Types.INTEGER);
-                cs.registerOutParameter(6, Types.INTEGER);
-                return cs;
-            }, (CallableStatement cs) -> {
-                cs.execute();
-                Map<String, Integer> m = new HashMap<>();
-                m.put("updated", cs.getInt(5));
-                m.put("notFound", cs.getInt(6));
-                return m;
-            });
-
-            // Links que matchearon (para sync selectivo de la carga diaria)
-            Set<String> matched = new HashSet<>();
-            jdbcTemplate.query("SELECT DISTINCT s.__link AS l FROM `" + staging + "` s JOIN `" + tableName
-                            + "` d ON d.`" + linkColumnName + "` = s.__link WHERE s.__link IS NOT NULL",
-                    rs -> { String l = rs.getString("l"); if (l != null) matched.add(l); });
-
-            return new SpUpdateResult(spOut.get("updated"), spOut.get("notFound"), matched);
-        } finally {
-            try {
-                jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + staging + "`");
-            } catch (Exception e) {
-                logger.warn("No se pudo eliminar la tabla staging {}: {}", staging, e.getMessage());
-            }
-        }
-    }
-
     /**
      * Variante SP de updateComplementaryDataInTable: staging + sp_importar_actualizar (sin COALESCE).
      * Java conserva la preparación (resolución de columnas, conversión de tipos). Activado por app.import.engine=sp.
@@ -1353,7 +1279,7 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
             stagingRows.add(sArgs);
         }
 
-        SpUpdateResult sp = runImportUpdateViaSp(tableName, linkColumnName, false, dataColumns, stagingRows);
+        StagedImportUpdater.Result sp = stagedImportUpdater.run(tableName, linkColumnName, false, dataColumns, stagingRows);
         logger.info("✅ [SP] Actualización complementaria: {} actualizados, {} no encontrados, {} con error",
                 sp.updated(), sp.notFound(), errors.size());
         return buildComplementaryResult(data.size(), sp.updated(), sp.notFound(), errors.size(), tableName, errors, startTime);
@@ -1763,6 +1689,7 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
             if (contactMethodsCreated > 0) {
                 logger.info("✅ Se crearon {} métodos de contacto para el cliente ID={}",
                            contactMethodsCreated, customer.getId());
+                eventPublisher.publishEvent(CustomerDataChangedEvent.ofCustomers(Set.of(customer.getId())));
             }
 
         } catch (Exception e) {
@@ -2224,7 +2151,7 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
                     stagingRows.add(sArgs);
                 }
 
-                SpUpdateResult sp = runImportUpdateViaSp(tableInicial, sanitizedLinkField, true, columnsList, stagingRows);
+                StagedImportUpdater.Result sp = stagedImportUpdater.run(tableInicial, sanitizedLinkField, true, columnsList, stagingRows);
                 updatedInInicial = sp.updated();
                 notFoundInInicial = sp.notFound();
                 Set<String> updatedIdentificationCodes = sp.matchedLinks();
@@ -2337,7 +2264,9 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
         Set<String> updatedCodes = (Set<String>) result.getOrDefault("updatedIdentificationCodes", new HashSet<>());
         logger.info("📊 Fase 3: Sincronizando {} clientes actualizados desde tabla INICIAL", updatedCodes.size());
 
-        if (!updatedCodes.isEmpty()) {
+        if (!updatedCodes.isEmpty() && asyncCustomerSync) {
+            publishCustomerSync(subPortfolioId, new HashSet<>(updatedCodes), result);
+        } else if (!updatedCodes.isEmpty()) {
             try {
                 // Sincronizar SOLO los clientes que fueron actualizados (sincronización selectiva)
                 CustomerSyncService.SyncResult syncResult = customerSyncService.syncCustomersByIdentificationCodes(
@@ -2348,7 +2277,7 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
                 logger.info("✅ Sincronización selectiva completada: {} clientes creados, {} actualizados",
                         syncResult.getCustomersCreated(), syncResult.getCustomersUpdated());
 
-                reapplyInvalidPhoneContactInactivation(subPortfolio);
+                customerSyncService.reapplyInvalidPhoneContactInactivation(subPortfolioId.longValue(), syncResult.getAffectedClientIds());
 
                 result.put("syncCustomersCreated", syncResult.getCustomersCreated());
                 result.put("syncCustomersUpdated", syncResult.getCustomersUpdated());
@@ -2382,23 +2311,17 @@ public class HeaderConfigurationCommandServiceImpl implements HeaderConfiguratio
         return result;
     }
 
-    private void reapplyInvalidPhoneContactInactivation(SubPortfolio subPortfolio) {
-        Integer tenantId = subPortfolio.getTenant() != null ? subPortfolio.getTenant().getId() : null;
-        Integer portfolioId = subPortfolio.getPortfolio() != null ? subPortfolio.getPortfolio().getId() : null;
-        Integer subPortfolioId = subPortfolio.getId();
-
-        if (tenantId == null || portfolioId == null || subPortfolioId == null) {
-            logger.warn("No se pudo reaplicar la inactivación de contactos inválidos por jerarquía incompleta de subcartera");
-            return;
-        }
-
-        logger.info(
-            "Reaplicando inactivación de telefonos tipificados como fallecido/equivocado para tenant={}, cartera={}, subcartera={}",
-            tenantId,
-            portfolioId,
-            subPortfolioId
-        );
-        contactMethodRepository.inactivateTipifiedInvalidPhoneContacts(tenantId, portfolioId, subPortfolioId);
+    /**
+     * Publica el evento de import para que CustomerSyncEventHandler sincronice los clientes tras el COMMIT.
+     * La respuesta ya no incluye los conteos del sync (syncCustomersCreated/Updated), solo syncScheduled.
+     *
+     * @param identificationCodes códigos a sincronizar; null = sync completo de la subcartera
+     */
+    private void publishCustomerSync(Integer subPortfolioId, Set<String> identificationCodes, Map<String, Object> result) {
+        eventPublisher.publishEvent(new CustomerImportCommittedEvent(
+                subPortfolioId.longValue(), LoadType.INICIAL, identificationCodes));
+        logger.info("🔄 Sincronización de clientes programada tras el commit para SubPortfolio ID: {}", subPortfolioId);
+        result.put("syncScheduled", true);
     }
 
     /**
@@ -0,0 +1,118 @@
+package com.cashi.systemconfiguration.application.internal.commandservices;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.CallableStatement;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Actualización masiva por campo de enlace vía staging TEMPORARY + sp_importar_actualizar
+ * (un solo UPDATE ... JOIN en lugar de un UPDATE por fila). Compartido por la carga de
+ * actualización (HeaderConfigurationCommandServiceImpl) y los archivos complementarios.
+ */
+@Component
+public class StagedImportUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedImportUpdater.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StagedImportUpdater(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Result(int updated, int notFound, Set<String> matchedLinks) {}
+
+    /**
+     * stagingRows: cada fila = [__row(Integer), __link(String), val_col1, val_col2, ...] alineado a dataColumns.
+     * Devuelve {actualizados, no_encontrados, conjunto de __link que matchearon} — los matched sirven
+     * para la sincronización selectiva de la carga diaria.
+     *
+     * NOTA: el conteo de no_encontrados usa un LEFT JOIN real (link ausente en destino), a diferencia
+     * del legacy que contaba ROW_COUNT()==0 (incluía filas sin cambios). El SP es deliberadamente más
+     * correcto; no se fuerza paridad con legacy.
+     */
+    public Result run(String tableName, String linkColumnName, boolean useCoalesce,
+                      List<String> dataColumns, List<Object[]> stagingRows) {
+        if (stagingRows.isEmpty()) {
+            return new Result(0, 0, new HashSet<>());
+        }
+        final String staging = "stg_" + tableName + "_"
+                + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        try {
+            String collation = jdbcTemplate.queryForObject(
+                    "SELECT table_collation FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?",
+                    String.class, tableName);
+            if (collation == null) collation = "utf8mb4_unicode_ci";
+            String charset = collation.contains("_") ? collation.substring(0, collation.indexOf('_')) : "utf8mb4";
+
+            Map<String, String> destColTypes = new HashMap<>();
+            jdbcTemplate.query(
+                    "SELECT LOWER(column_name) cn, column_type ct FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ?",
+                    rs -> { destColTypes.put(rs.getString("cn"), rs.getString("ct")); }, tableName);
+
+            // Staging TEMPORARY (no commit implícito -> flujo atómico). __link hereda la colación
+            // del destino (vía COLLATE de la tabla) -> el JOIN no choca entre colaciones.
+            StringBuilder ddl = new StringBuilder("CREATE TEMPORARY TABLE `").append(staging)
+                    .append("` (__row INT NOT NULL, __link VARCHAR(255) NULL");
+            StringBuilder insertCols = new StringBuilder("__row, __link");
+            StringBuilder insertPh = new StringBuilder("?, ?");
+            StringBuilder setClause = new StringBuilder();  // p_set armado en Java (COALESCE o no)
+            boolean firstCol = true;
+            for (String col : dataColumns) {
+                String type = destColTypes.getOrDefault(col.toLowerCase(), "VARCHAR(255)");
+                ddl.append(", `").append(col).append("` ").append(type);
+                insertCols.append(", `").append(col).append("`");
+                insertPh.append(", ?");
+                if (!firstCol) setClause.append(", ");
+                if (useCoalesce) {
+                    setClause.append("d.`").append(col).append("`=COALESCE(s.`").append(col).append("`, d.`").append(col).append("`)");
+                } else {
+                    setClause.append("d.`").append(col).append("`=s.`").append(col).append("`");
+                }
+                firstCol = false;
+            }
+            ddl.append(", KEY idx_link (__link)) ENGINE=InnoDB DEFAULT CHARSET=")
+                    .append(charset).append(" COLLATE=").append(collation);
+            jdbcTemplate.execute(ddl.toString());
+
+            jdbcTemplate.batchUpdate("INSERT INTO `" + staging + "` (" + insertCols + ") VALUES (" + insertPh + ")", stagingRows);
+
+            final String pSet = setClause.toString();
+            Map<String, Integer> spOut = jdbcTemplate.execute(connection -> {
+                CallableStatement cs = connection.prepareCall("{CALL sp_importar_actualizar(?, ?, ?, ?, ?, ?)}");
+                cs.setString(1, staging);
+                cs.setString(2, tableName);
+                cs.setString(3, linkColumnName);
+                cs.setString(4, pSet);
+                cs.registerOutParameter(5, Types.INTEGER);
+                cs.registerOutParameter(6, Types.INTEGER);
+                return cs;
+            }, (CallableStatement cs) -> {
+                cs.execute();
+                Map<String, Integer> m = new HashMap<>();
+                m.put("updated", cs.getInt(5));
+                m.put("notFound", cs.getInt(6));
+                return m;
+            });
+
+            // Links que matchearon (para sync selectivo de la carga diaria)
+            Set<String> matched = new HashSet<>();
+            jdbcTemplate.query("SELECT DISTINCT s.__link AS l FROM `" + staging + "` s JOIN `" + tableName
+                            + "` d ON d.`" + linkColumnName + "` = s.__link WHERE s.__link IS NOT NULL",
+                    rs -> { String l = rs.getString("l"); if (l != null) matched.add(l); });
+
+            return new Result(spOut.get("updated"), spOut.get("notFound"), matched);
+        } finally {
+            try {
+                jdbcTemplate.execute("DROP TEMPORARY TABLE IF EXISTS `" + staging + "`");
+            } catch (Exception e) {
+                logger.warn("No se pudo eliminar la tabla staging {}: {}", staging, e.getMessage());
+            }
+        }
+    }
+}
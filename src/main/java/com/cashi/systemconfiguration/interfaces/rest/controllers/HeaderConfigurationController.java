@@ -4,6 +4,8 @@ import com.cashi.shared.domain.model.entities.HeaderAlias;
 import com.cashi.shared.domain.model.entities.HeaderChangeHistory;
 import com.cashi.shared.domain.model.valueobjects.LoadType;
 import com.cashi.shared.infrastructure.persistence.jpa.repositories.FieldDefinitionRepository;
+import com.cashi.shared.util.CompressedImportFile;
+import com.cashi.shared.util.FileHeaderSniffer;
 import com.cashi.systemconfiguration.domain.services.HeaderConfigurationCommandService;
 import com.cashi.systemconfiguration.domain.services.HeaderConfigurationQueryService;
 import com.cashi.systemconfiguration.domain.services.HeaderResolutionService;
@@ -18,8 +20,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -265,9 +270,17 @@ public class HeaderConfigurationController {
         try {
             List<BulkCreateHeaderConfigurationResource.HeaderConfigurationItem> headers = new ArrayList<>();
 
-            // Leer el CSV
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            // Leer el CSV (también .csv.gz / .zip, descomprimido en streaming)
+            String csvName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "cabeceras.csv";
+            try (CompressedImportFile.Entry entry = CompressedImportFile.open(file.getInputStream(), csvName);
+                 BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(entry.stream(), StandardCharsets.UTF_8))) {
+
+                // Un .zip/.gz con un Excel dentro no se puede leer como texto
+                if (CompressedImportFile.isCompressed(csvName) && !entry.name().toLowerCase().endsWith(".csv")) {
+                    return ResponseEntity.badRequest()
+                            .body(Map.of("message", "El archivo comprimido debe contener un .csv: " + entry.name()));
+                }
 
                 String line;
                 boolean isFirstLine = true;
@@ -506,32 +519,75 @@ public class HeaderConfigurationController {
                     resource.excelHeaders()
             );
 
-            // Convertir a recurso de respuesta
-            var configuredHeaders = result.configuredHeaders().stream()
-                    .map(h -> new HeaderResolutionResultResource.HeaderWithAliasesResource(
-                            h.id(), h.headerName(), h.dataType(),
-                            h.displayLabel(), h.required(), h.aliases()
-                    ))
-                    .toList();
+            return ResponseEntity.ok(toResolutionResource(result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error al resolver cabeceras: " + e.getMessage()));
+        }
+    }
 
-            var response = new HeaderResolutionResultResource(
-                    result.resolvedMapping(),
-                    result.unrecognizedColumns(),
-                    result.ignoredColumns(),
-                    configuredHeaders,
-                    result.missingRequiredHeaders(),
-                    !result.unrecognizedColumns().isEmpty()
-            );
+    @Operation(summary = "Resolver cabeceras leyendo solo la primera fila del archivo",
+            description = "Recibe el archivo (.xlsx, .xls o .csv) y extrae únicamente la fila de cabeceras, sin parsear el resto; el frontend no necesita leer el archivo completo")
+    @PostMapping(value = "/resolve-headers/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> resolveHeadersFromFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("subPortfolioId") Integer subPortfolioId,
+            @RequestParam("loadType") LoadType loadType) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "El archivo está vacío"));
+        }
 
-            return ResponseEntity.ok(response);
+        Path tempFile = null;
+        try {
+            // El multipart ya está en disco: transferTo suele ser un rename, no una copia
+            String originalName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "archivo.csv";
+            // Se conserva el nombre completo para no perder extensiones dobles como .csv.gz
+            String baseName = new java.io.File(originalName).getName();
+            String suffix = "-" + (baseName.contains(".") ? baseName : baseName + ".csv");
+            tempFile = Files.createTempFile("cabeceras-", suffix);
+            file.transferTo(tempFile);
+
+            List<String> excelHeaders = FileHeaderSniffer.readHeaders(tempFile.toFile());
+            var result = resolutionService.resolveHeaders(subPortfolioId, loadType, excelHeaders);
+
+            return ResponseEntity.ok(toResolutionResource(result));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Error al resolver cabeceras: " + e.getMessage()));
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // archivo temporal, lo limpia el sistema
+                }
+            }
         }
     }
 
+    private HeaderResolutionResultResource toResolutionResource(HeaderResolutionService.HeaderResolutionResult result) {
+        // Convertir a recurso de respuesta
+        var configuredHeaders = result.configuredHeaders().stream()
+                .map(h -> new HeaderResolutionResultResource.HeaderWithAliasesResource(
+                        h.id(), h.headerName(), h.dataType(),
+                        h.displayLabel(), h.required(), h.aliases()
+                ))
+                .toList();
+
+        return new HeaderResolutionResultResource(
+                result.resolvedMapping(),
+                result.unrecognizedColumns(),
+                result.ignoredColumns(),
+                configuredHeaders,
+                result.missingRequiredHeaders(),
+                !result.unrecognizedColumns().isEmpty()
+        );
+    }
+
     @Operation(summary = "Obtener alias de una cabecera")
     @GetMapping("/{headerConfigId}/aliases")
     public ResponseEntity<?> getAliases(@PathVariable Integer headerConfigId) {
@@ -1,10 +1,13 @@
 package com.cashi.whatsapp;
 
+import com.cashi.customermanagement.domain.model.events.CustomerDataChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,9 +26,11 @@ public class WhatsappValidationService {
     private static final Logger log = LoggerFactory.getLogger(WhatsappValidationService.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public WhatsappValidationService(JdbcTemplate jdbcTemplate) {
+    public WhatsappValidationService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<WhatsappController.QueueItem> getPendingQueue(int limit) {
@@ -48,6 +53,12 @@ public class WhatsappValidationService {
                 "UPDATE cashi_db.metodos_contacto SET estado_whatsapp = ? WHERE id = ?",
                 status, id);
             log.info("applyResult whatsapp: id={} -> {}", id, status);
+            // El estado_whatsapp viaja en las búsquedas cacheadas del cliente: invalidarlas
+            List<Long> customerIds = jdbcTemplate.queryForList(
+                "SELECT id_cliente FROM cashi_db.metodos_contacto WHERE id = ?", Long.class, id);
+            if (!customerIds.isEmpty()) {
+                eventPublisher.publishEvent(CustomerDataChangedEvent.ofCustomers(new HashSet<>(customerIds)));
+            }
         } else {
             log.warn("applyResult whatsapp: id={} status={} (sin update, queda SIN_VALIDAR para reintento)", id, status);
         }
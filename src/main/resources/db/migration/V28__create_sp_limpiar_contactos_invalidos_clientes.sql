@@ -0,0 +1,54 @@
+-- ============================================================
+-- V28 — sp_limpiar_contactos_invalidos_clientes: variante ACOTADA de
+--       sp_limpiar_contactos_invalidos.
+--
+-- Tras cada import/sync, sp_limpiar_contactos_invalidos re-escanea TODOS los
+-- contactos y TODO el historial de gestiones de la subcartera, aunque la carga
+-- diaria solo haya tocado unos cientos de clientes. Esta variante aplica la
+-- MISMA regla (teléfono con gestión FALLECIDO/EQUIVOCADO -> estado INACTIVE)
+-- solo sobre los clientes indicados.
+--
+-- CONTRATO CON JAVA (CustomerSyncService.reapplyInvalidPhoneContactInactivation):
+--   p_client_ids = arreglo JSON de clientes.id, p. ej. '[101,102,103]'.
+--   Java lo envía en lotes (<= 1000 ids por llamada). JSON_TABLE permite un SQL
+--   estático que usa el índice de metodos_contacto.id_cliente.
+--
+-- El SP de subcartera completa (V22/V25) se mantiene para la reconciliación
+-- nocturna (InvalidPhoneReconciliationService).
+--
+-- SQL_SAFE_UPDATES: save/restore (no envenenar el pool), igual que V25.
+-- Uso: CALL sp_limpiar_contactos_invalidos_clientes(tenantId, carteraId, subcarteraId, '[1,2,3]');
+-- ============================================================
+
+DROP PROCEDURE IF EXISTS sp_limpiar_contactos_invalidos_clientes;
+
+DELIMITER //
+
+CREATE PROCEDURE sp_limpiar_contactos_invalidos_clientes(
+    IN p_tenant_id INT,
+    IN p_portfolio_id INT,
+    IN p_sub_portfolio_id INT,
+    IN p_client_ids JSON
+)
+BEGIN
+    DECLARE v_old_su INT;
+    SET v_old_su = @@SQL_SAFE_UPDATES;
+    SET SQL_SAFE_UPDATES = 0;
+
+    UPDATE cashi_db.metodos_contacto m
+    JOIN JSON_TABLE(p_client_ids, '$[*]' COLUMNS (id_cliente BIGINT PATH '$')) ids
+      ON ids.id_cliente = m.id_cliente
+    JOIN cashi_discador_db.registros_gestion g
+      ON g.telefono_contacto = m.valor
+     AND g.id_cliente = m.id_cliente
+    SET m.estado = 'INACTIVE'
+    WHERE g.ruta_nivel_2 IN ('FALLECIDO', 'EQUIVOCADO')
+      AND m.estado = 'ACTIVE'
+      AND g.id_tenant = p_tenant_id
+      AND g.id_cartera = p_portfolio_id
+      AND g.id_subcartera = p_sub_portfolio_id;
+
+    SET SQL_SAFE_UPDATES = v_old_su;
+END //
+
+DELIMITER ;
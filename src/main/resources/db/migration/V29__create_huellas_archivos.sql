@@ -0,0 +1,22 @@
+-- ============================================================
+-- V29: Caché persistente de huellas de archivos de importación
+--
+-- Evita re-leer (MD5 completo) los archivos de la carpeta monitoreada en cada
+-- escaneo/importación. Clave barata: (ruta canónica, tamaño, fecha de modificación).
+-- pre_hash: CRC32C de los bloques inicial y final (64 KB c/u) + tamaño, usado como
+-- filtro negativo rápido; file_hash (MD5) solo se calcula cuando la clave cambia.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS huellas_archivos (
+    id_huella            BIGINT       NOT NULL AUTO_INCREMENT,
+    ruta_archivo         VARCHAR(500) NOT NULL COMMENT 'Ruta canónica del archivo',
+    tamano_bytes         BIGINT       NOT NULL,
+    fecha_modificacion   BIGINT       NOT NULL COMMENT 'lastModified en epoch ms',
+    pre_hash             CHAR(16)     NOT NULL COMMENT 'CRC32C cabeza/cola (hex 64 bits)',
+    file_hash            VARCHAR(32)  NULL     COMMENT 'MD5 del contenido (mismo formato que historial_importaciones.file_hash)',
+    fecha_actualizacion  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (id_huella),
+    UNIQUE KEY uk_huellas_ruta (ruta_archivo),
+    KEY idx_huellas_prehash (tamano_bytes, pre_hash),
+    KEY idx_huellas_file_hash (file_hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Huellas de archivos de importación automática';
@@ -0,0 +1,22 @@
+-- ============================================================
+-- V30 — bloqueos_programados: locks con lease para los @Scheduled
+--
+-- Con varias réplicas del servicio detrás del balanceador, cada job programado
+-- (importación automática, reconciliación nocturna de teléfonos inválidos, ...)
+-- debe ejecutarse en UN solo nodo.
+--
+-- CONTRATO CON JAVA (SchedulerLockService):
+--   - Adquirir: UPDATE ... WHERE bloqueado_hasta <= NOW(3) OR bloqueado_por = <nodo>
+--     (1 fila afectada = lock obtenido). Se usa la hora de MySQL, no la de cada nodo.
+--   - El nodo dueño renueva bloqueado_hasta mientras el job sigue corriendo; si el
+--     nodo cae, el lease expira y otro nodo puede tomar el job.
+--   - Liberar: bloqueado_hasta = GREATEST(NOW(3), bloqueado_en + retención mínima).
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS bloqueos_programados (
+    nombre_bloqueo   VARCHAR(100) NOT NULL,
+    bloqueado_hasta  DATETIME(3)  NOT NULL,
+    bloqueado_en     DATETIME(3)  NOT NULL,
+    bloqueado_por    VARCHAR(255) NOT NULL COMMENT 'host:pid:id del nodo dueño',
+    PRIMARY KEY (nombre_bloqueo)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Locks con lease de tareas programadas (una réplica por job)';
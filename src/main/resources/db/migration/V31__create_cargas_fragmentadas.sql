@@ -0,0 +1,41 @@
+-- ============================================================
+-- V31 — cargas_fragmentadas: subida de archivos grandes por partes (reanudable)
+--
+-- Flujo (ChunkedUploadService):
+--   1. init:     se registra la carga y se reserva el archivo de staging (.part)
+--   2. chunk N:  cada parte se escribe en su posición (N * tamano_fragmento) y se
+--                registra con su SHA-256; reenviar una parte la sobrescribe
+--   3. complete: con todas las partes recibidas el archivo pasa a la misma importación
+--                que la carpeta monitoreada (FileWatcherService)
+--
+-- Tras un corte el cliente consulta la carga y reenvía solo las partes faltantes.
+-- El archivo de staging vive en el disco del nodo que recibió el init.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS cargas_fragmentadas (
+    id_carga             VARCHAR(36)  NOT NULL COMMENT 'UUID entregado al cliente',
+    nombre_archivo       VARCHAR(255) NOT NULL,
+    tamano_total         BIGINT       NOT NULL,
+    tamano_fragmento     INT          NOT NULL,
+    total_fragmentos     INT          NOT NULL,
+    id_configuracion     BIGINT       NOT NULL COMMENT 'configuracion_importacion destino',
+    ruta_staging         VARCHAR(500) NOT NULL,
+    estado               VARCHAR(20)  NOT NULL COMMENT 'EN_CURSO, IMPORTANDO, IMPORTADA, ERROR',
+    mensaje              TEXT         NULL,
+    fecha_creacion       DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    fecha_actualizacion  DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (id_carga),
+    KEY idx_cargas_estado_fecha (estado, fecha_actualizacion)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Subidas por partes de archivos de importación';
+
+CREATE TABLE IF NOT EXISTS cargas_fragmentadas_partes (
+    id_parte          BIGINT      NOT NULL AUTO_INCREMENT,
+    id_carga          VARCHAR(36) NOT NULL,
+    numero_fragmento  INT         NOT NULL COMMENT 'Base 0',
+    tamano_bytes      INT         NOT NULL,
+    checksum          CHAR(64)    NOT NULL COMMENT 'SHA-256 hex de la parte',
+    fecha_recepcion   DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (id_parte),
+    UNIQUE KEY uk_partes_carga_numero (id_carga, numero_fragmento),
+    CONSTRAINT fk_partes_carga FOREIGN KEY (id_carga) REFERENCES cargas_fragmentadas (id_carga) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Partes recibidas de cada subida fragmentada';
@@ -0,0 +1,13 @@
+-- ============================================================
+-- V32: Origen Google Drive en historial_importaciones
+--
+-- Las importaciones desde Drive guardan el id del archivo y la revisión importada
+-- (headRevisionId, o "v" + version para hojas de Google). Antes de descargar se
+-- consulta la revisión actual: si ya se importó con éxito, no se descarga.
+-- ============================================================
+
+ALTER TABLE historial_importaciones
+    ADD COLUMN drive_file_id  VARCHAR(100) NULL COMMENT 'Id del archivo en Google Drive',
+    ADD COLUMN drive_revision VARCHAR(100) NULL COMMENT 'Revisión de Drive importada';
+
+CREATE INDEX idx_historial_drive_revision ON historial_importaciones(drive_file_id, drive_revision, estado);
@@ -0,0 +1,10 @@
+-- ============================================================
+-- V33: Índices para el listado de clientes por cursor
+--
+-- GET /api/v1/customers/page y /stream recorren clientes ordenados por id con
+-- filtros opcionales de inquilino/subcartera (WHERE ... AND id > ? ORDER BY id LIMIT n).
+-- Con (filtro, id) la página se lee en orden del índice, sin filesort ni OFFSET.
+-- ============================================================
+
+CREATE INDEX idx_clientes_inquilino_id  ON clientes(id_inquilino, id);
+CREATE INDEX idx_clientes_subcartera_id ON clientes(id_subcartera, id);
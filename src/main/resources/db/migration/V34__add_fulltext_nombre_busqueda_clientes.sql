@@ -0,0 +1,23 @@
+-- ============================================================
+-- V34: Búsqueda de clientes por nombre con índice FULLTEXT (ngram)
+--
+-- GET /api/v1/customers/search usaba LIKE '%x%' sobre LOWER(nombre_completo): recorría
+-- toda la tabla en cada búsqueda. nombre_busqueda es una columna generada (la mantiene
+-- MySQL en cualquier INSERT/UPDATE: sync JPA, SP o import) con el nombre en minúsculas y
+-- sin acentos, igual que SearchTextNormalizer en Java. El índice ngram (tokens de 2
+-- caracteres) permite buscar fragmentos de nombre sin comodín inicial.
+--
+-- Las stopwords se desactivan al crear el índice: con ngram, un bigrama que contiene una
+-- stopword de una letra ("a", "i") se descartaría y casi ningún nombre sería encontrable.
+-- ============================================================
+
+ALTER TABLE clientes
+    ADD COLUMN nombre_busqueda VARCHAR(255)
+        GENERATED ALWAYS AS (REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(LOWER(nombre_completo), 'á', 'a'), 'à', 'a'), 'ä', 'a'), 'â', 'a'), 'ã', 'a'), 'é', 'e'), 'è', 'e'), 'ë', 'e'), 'ê', 'e'), 'í', 'i'), 'ì', 'i'), 'ï', 'i'), 'î', 'i'), 'ó', 'o'), 'ò', 'o'), 'ö', 'o'), 'ô', 'o'), 'õ', 'o'), 'ú', 'u'), 'ù', 'u'), 'ü', 'u'), 'û', 'u'), 'ñ', 'n'), 'ç', 'c')) STORED
+        COMMENT 'Nombre normalizado para búsqueda (minúsculas, sin acentos)';
+
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+CREATE FULLTEXT INDEX ftx_clientes_nombre_busqueda ON clientes(nombre_busqueda) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = ON;
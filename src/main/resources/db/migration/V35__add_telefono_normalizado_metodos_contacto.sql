@@ -0,0 +1,37 @@
+-- ============================================================
+-- V35: Clave normalizada de teléfono en metodos_contacto
+--
+-- Las búsquedas por teléfono comparaban metodos_contacto.valor tal cual: "+51 999-888-777",
+-- "999888777" y "51999888777" daban resultados distintos. telefono_normalizado es una
+-- columna generada (la mantiene MySQL en cualquier escritura: sync JPA/JDBC, SP de sync o
+-- altas manuales) con la clave estilo E.164 sin '+', igual que PhoneNumberNormalizer:
+--   - se descarta lo que sigue a '@' (JID de WhatsApp) y todo lo que no sea dígito
+--   - 9 dígitos que empiezan con 9  -> 51 + número
+--   - 9 dígitos que empiezan con 0  -> 51 + número sin el 0
+--   - prefijo 00                     -> se quita
+-- Solo se calcula para tipo_contacto = 'telefono'; emails quedan en NULL.
+--
+-- Ejecutar antes de desplegar: ContactMethod mapea la columna como solo lectura.
+-- ============================================================
+
+ALTER TABLE metodos_contacto
+    ADD COLUMN telefono_normalizado VARCHAR(255)
+        GENERATED ALWAYS AS (
+            CASE WHEN tipo_contacto = 'telefono' THEN
+                CASE
+                    WHEN REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '') = '' THEN NULL
+                    WHEN CHAR_LENGTH(REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '')) = 9
+                         AND REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '') LIKE '9%'
+                        THEN CONCAT('51', REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', ''))
+                    WHEN CHAR_LENGTH(REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '')) = 9
+                         AND REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '') LIKE '0%'
+                        THEN CONCAT('51', SUBSTRING(REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', ''), 2))
+                    WHEN REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '') LIKE '00%'
+                        THEN SUBSTRING(REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', ''), 3)
+                    ELSE REGEXP_REPLACE(SUBSTRING_INDEX(valor, '@', 1), '[^0-9]', '')
+                END
+            END
+        ) STORED
+        COMMENT 'Clave de teléfono estilo E.164 sin + (solo tipo telefono)';
+
+CREATE INDEX idx_metodos_contacto_telefono_norm ON metodos_contacto(telefono_normalizado, id_cliente);
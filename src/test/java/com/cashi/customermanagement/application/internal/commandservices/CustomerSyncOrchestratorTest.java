@@ -0,0 +1,100 @@
+package com.cashi.customermanagement.application.internal.commandservices;
+
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.SubPortfolioRepository;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.TenantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Paralelismo entre tenants y serie dentro de cada tenant.
+ */
+class CustomerSyncOrchestratorTest {
+
+    private static final Map<Long, Integer> TENANT_BY_SUB_PORTFOLIO = Map.of(1L, 10, 2L, 10, 3L, 20);
+
+    private CustomerSyncService syncService;
+    private SubPortfolioRepository subPortfolioRepository;
+    private CustomerSyncOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        syncService = mock(CustomerSyncService.class);
+        subPortfolioRepository = mock(SubPortfolioRepository.class);
+        List<Object[]> rows = new ArrayList<>();
+        TENANT_BY_SUB_PORTFOLIO.forEach((subPortfolioId, tenantId) -> rows.add(new Object[]{subPortfolioId.intValue(), tenantId}));
+        when(subPortfolioRepository.findTenantIdsBySubPortfolioIds(anyCollection())).thenReturn(rows);
+
+        orchestrator = new CustomerSyncOrchestrator(syncService, subPortfolioRepository, mock(TenantRepository.class),
+                mock(DataSource.class), 4, false, "legacy");
+    }
+
+    @AfterEach
+    void tearDown() {
+        orchestrator.shutdown();
+    }
+
+    @Test
+    void subPortfoliosOfOneTenantRunSeriallyWhileTenantsOverlap() {
+        Map<Integer, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger maxPerTenant = new AtomicInteger();
+        // El tenant 20 no termina hasta que el tenant 10 haya empezado: exige solapamiento entre tenants
+        CountDownLatch tenant10Started = new CountDownLatch(1);
+        when(syncService.syncCustomersFromSubPortfolio(anyLong(), any())).thenAnswer(invocation -> {
+            Long subPortfolioId = invocation.getArgument(0);
+            int tenantId = TENANT_BY_SUB_PORTFOLIO.get(subPortfolioId);
+            AtomicInteger counter = running.computeIfAbsent(tenantId, k -> new AtomicInteger());
+            maxPerTenant.accumulateAndGet(counter.incrementAndGet(), Math::max);
+            try {
+                if (tenantId == 10) {
+                    tenant10Started.countDown();
+                    Thread.sleep(50);
+                } else {
+                    assertThat(tenant10Started.await(5, TimeUnit.SECONDS)).isTrue();
+                }
+            } finally {
+                counter.decrementAndGet();
+            }
+            return new CustomerSyncService.SyncResult(1, 0, new ArrayList<>(), Set.of(subPortfolioId));
+        });
+
+        CustomerSyncOrchestrator.BatchSyncResult result =
+                orchestrator.syncSubPortfolios(List.of(1L, 3L, 2L, 1L), LoadType.INICIAL);
+
+        assertThat(result.getOutcomes()).extracting(CustomerSyncOrchestrator.SubPortfolioSyncOutcome::getSubPortfolioId)
+                .containsExactly(1L, 3L, 2L);
+        assertThat(result.getSucceeded()).isEqualTo(3);
+        assertThat(maxPerTenant.get()).isEqualTo(1);
+        verify(syncService, times(3)).syncCustomersFromSubPortfolio(anyLong(), eq(LoadType.INICIAL));
+    }
+
+    @Test
+    void unknownSubPortfolioIsReportedAsFailureWithoutBlockingOthers() {
+        when(syncService.syncCustomersFromSubPortfolio(eq(99L), any()))
+                .thenThrow(new IllegalArgumentException("SubPortfolio no encontrado: 99"));
+        when(syncService.syncCustomersFromSubPortfolio(eq(1L), any()))
+                .thenReturn(new CustomerSyncService.SyncResult(0, 1, new ArrayList<>(), Set.of(5L)));
+
+        CustomerSyncOrchestrator.BatchSyncResult result =
+                orchestrator.syncSubPortfolios(List.of(99L, 1L), LoadType.INICIAL);
+
+        assertThat(result.getOutcomes()).extracting(CustomerSyncOrchestrator.SubPortfolioSyncOutcome::isSuccess)
+                .containsExactly(false, true);
+        assertThat(result.getOutcomes().get(0).getError()).contains("no encontrado");
+    }
+}
@@ -0,0 +1,110 @@
+package com.cashi.customermanagement.application.internal.commandservices;
+
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ContactMethodRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.CustomerRepository;
+import com.cashi.shared.domain.model.entities.Portfolio;
+import com.cashi.shared.domain.model.entities.SubPortfolio;
+import com.cashi.shared.domain.model.entities.Tenant;
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.HeaderConfigurationRepository;
+import com.cashi.shared.infrastructure.persistence.jpa.repositories.SubPortfolioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Motor pipeline (lector/mapeador/escritor): un fallo de una etapa no debe colgar el sync.
+ */
+class CustomerSyncServiceTest {
+
+    private CustomerSyncMetrics syncMetrics;
+    private CustomerSyncMetrics.Scope scope;
+    private SubPortfolio subPortfolio;
+    private CustomerSyncService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Tenant tenant = mock(Tenant.class);
+        when(tenant.getTenantCode()).thenReturn("TEN");
+        Portfolio portfolio = mock(Portfolio.class);
+        when(portfolio.getTenant()).thenReturn(tenant);
+        when(portfolio.getPortfolioCode()).thenReturn("CAR");
+        subPortfolio = mock(SubPortfolio.class);
+        when(subPortfolio.getId()).thenReturn(7);
+        when(subPortfolio.getPortfolio()).thenReturn(portfolio);
+        when(subPortfolio.getSubPortfolioCode()).thenReturn("SUB");
+
+        // tableExists: la consulta a information_schema devuelve fila
+        EntityManager entityManager = mock(EntityManager.class);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getSingleResult()).thenReturn(1);
+
+        HeaderConfigurationRepository headerConfigurationRepository = mock(HeaderConfigurationRepository.class);
+        when(headerConfigurationRepository.findBySubPortfolioAndLoadType(any(), any())).thenReturn(List.of());
+
+        // Tabla dinámica sin fin: el lector llena la cola y queda bloqueado en put()
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetMetaData meta = mock(ResultSetMetaData.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement(anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(meta);
+        when(meta.getColumnCount()).thenReturn(1);
+        when(meta.getColumnLabel(1)).thenReturn("documento");
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getObject(1)).thenReturn("12345678");
+
+        syncMetrics = mock(CustomerSyncMetrics.class);
+        scope = mock(CustomerSyncMetrics.Scope.class);
+        when(syncMetrics.start(any(SubPortfolio.class), anyString(), anyString())).thenReturn(scope);
+
+        service = new CustomerSyncService(
+                entityManager,
+                mock(CustomerRepository.class),
+                mock(SubPortfolioRepository.class),
+                headerConfigurationRepository,
+                mock(JdbcTemplate.class),
+                dataSource,
+                mock(ContactMethodRepository.class),
+                syncMetrics,
+                mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mapperFailureFailsTheSyncInsteadOfHanging() {
+        when(scope.time(eq(CustomerSyncMetrics.Phase.MAP), any(Supplier.class)))
+                .thenThrow(new IllegalStateException("mapeo roto"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThatThrownBy(() -> ReflectionTestUtils.invokeMethod(
+                        service, "syncViaPipeline", subPortfolio, LoadType.INICIAL))
+                        .isInstanceOf(RuntimeException.class)
+                        .hasMessageContaining("mapeo roto"));
+
+        verify(syncMetrics).start(subPortfolio, CustomerSyncMetrics.ENGINE_PIPELINE, CustomerSyncMetrics.KIND_FULL);
+        verify(scope).finish(0, false);
+    }
+}
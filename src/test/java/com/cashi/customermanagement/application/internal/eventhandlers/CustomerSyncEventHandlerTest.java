@@ -0,0 +1,80 @@
+package com.cashi.customermanagement.application.internal.eventhandlers;
+
+import com.cashi.customermanagement.application.internal.commandservices.CustomerSyncService;
+import com.cashi.customermanagement.domain.model.events.CustomerImportCommittedEvent;
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Coalescencia de eventos de importación por subcartera (ventana coalesce-ms).
+ */
+class CustomerSyncEventHandlerTest {
+
+    private static final long COALESCE_MS = 200;
+    private static final long WAIT_MS = 3000;
+
+    private CustomerSyncService syncService;
+    private CustomerSyncEventHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        syncService = mock(CustomerSyncService.class);
+        CustomerSyncService.SyncResult result =
+                new CustomerSyncService.SyncResult(0, 1, new ArrayList<>(), Set.of(10L));
+        when(syncService.syncCustomersByIdentificationCodes(anyLong(), any(), anySet())).thenReturn(result);
+        when(syncService.syncCustomersFromSubPortfolio(anyLong(), any())).thenReturn(result);
+        handler = new CustomerSyncEventHandler(syncService, 1, COALESCE_MS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void eventsWithinWindowAreMergedIntoOneSelectiveSync() {
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("A", "B")));
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("B", "C")));
+
+        verify(syncService, timeout(WAIT_MS)).syncCustomersByIdentificationCodes(1L, LoadType.INICIAL, Set.of("A", "B", "C"));
+        verify(syncService, after(COALESCE_MS * 2).times(1)).syncCustomersByIdentificationCodes(anyLong(), any(), anySet());
+        verify(syncService, never()).syncCustomersFromSubPortfolio(anyLong(), any());
+        verify(syncService).reapplyInvalidPhoneContactInactivation(1L, Set.of(10L));
+    }
+
+    @Test
+    void fullSyncRequestWinsOverCodes() {
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("A")));
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, null));
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("B")));
+
+        verify(syncService, timeout(WAIT_MS)).syncCustomersFromSubPortfolio(1L, LoadType.INICIAL);
+        verify(syncService, after(COALESCE_MS * 2).never()).syncCustomersByIdentificationCodes(anyLong(), any(), anySet());
+    }
+
+    @Test
+    void subPortfoliosAreNotMergedTogether() {
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("A")));
+        handler.on(new CustomerImportCommittedEvent(2L, LoadType.INICIAL, Set.of("B")));
+
+        verify(syncService, timeout(WAIT_MS)).syncCustomersByIdentificationCodes(1L, LoadType.INICIAL, Set.of("A"));
+        verify(syncService, timeout(WAIT_MS)).syncCustomersByIdentificationCodes(2L, LoadType.INICIAL, Set.of("B"));
+    }
+
+    @Test
+    void eventAfterWindowStartsANewSync() {
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("A")));
+        verify(syncService, timeout(WAIT_MS)).syncCustomersByIdentificationCodes(1L, LoadType.INICIAL, Set.of("A"));
+
+        handler.on(new CustomerImportCommittedEvent(1L, LoadType.INICIAL, Set.of("B")));
+        verify(syncService, timeout(WAIT_MS)).syncCustomersByIdentificationCodes(1L, LoadType.INICIAL, Set.of("B"));
+    }
+}
@@ -0,0 +1,204 @@
+package com.cashi.customermanagement.application.internal.queryservices;
+
+import com.cashi.customermanagement.domain.model.events.CustomerDataChangedEvent;
+import com.cashi.customermanagement.interfaces.rest.resources.CustomerResource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LRU, TTL, invalidación por evento y carrera carga/invalidación de la caché de búsquedas.
+ */
+class CustomerLookupCacheTest {
+
+    private static final Duration LONG_TTL = Duration.ofMinutes(5);
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void disabledAlwaysCallsTheLoader() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, false, 10, LONG_TTL);
+        CountingLoader loader = new CountingLoader(customer(1L, 10L));
+
+        cache.get(10L, "documento", "123", loader);
+        cache.get(10L, "documento", "123", loader);
+
+        assertThat(loader.calls.get()).isEqualTo(2);
+        assertThat(gauge()).isZero();
+    }
+
+    @Test
+    void foundCustomerIsServedFromCacheButNotFoundIsNot() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 10, LONG_TTL);
+        CountingLoader found = new CountingLoader(customer(1L, 10L));
+        CountingLoader missing = new CountingLoader(null);
+
+        assertThat(cache.get(10L, "documento", "123", found)).map(CustomerResource::id).contains(1L);
+        assertThat(cache.get(10L, "documento", "123", found)).map(CustomerResource::id).contains(1L);
+        cache.get(10L, "documento", "999", missing);
+        cache.get(10L, "documento", "999", missing);
+
+        assertThat(found.calls.get()).isEqualTo(1);
+        assertThat(missing.calls.get()).isEqualTo(2);
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("miss")).isEqualTo(3);
+    }
+
+    @Test
+    void keyIncludesTenantAndCriterion() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 10, LONG_TTL);
+        CountingLoader loader = new CountingLoader(customer(1L, 10L));
+
+        cache.get(10L, "documento", "123", loader);
+        cache.get(11L, "documento", "123", loader);
+        cache.get(10L, "telefono", "123", loader);
+
+        assertThat(loader.calls.get()).isEqualTo(3);
+        assertThat(gauge()).isEqualTo(3);
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedBeyondMaxEntries() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 2, LONG_TTL);
+        CountingLoader a = new CountingLoader(customer(1L, 10L));
+        CountingLoader b = new CountingLoader(customer(2L, 10L));
+        CountingLoader c = new CountingLoader(customer(3L, 10L));
+
+        cache.get(10L, "documento", "a", a);
+        cache.get(10L, "documento", "b", b);
+        cache.get(10L, "documento", "a", a);   // "a" pasa a ser el más reciente
+        cache.get(10L, "documento", "c", c);   // expulsa "b"
+
+        cache.get(10L, "documento", "a", a);
+        cache.get(10L, "documento", "b", b);
+
+        assertThat(a.calls.get()).isEqualTo(1);
+        assertThat(b.calls.get()).isEqualTo(2);
+        assertThat(evictions("size")).isEqualTo(2);
+        assertThat(gauge()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredEntryIsReloaded() throws Exception {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 10, Duration.ofMillis(50));
+        CountingLoader loader = new CountingLoader(customer(1L, 10L));
+
+        cache.get(10L, "documento", "123", loader);
+        Thread.sleep(100);
+        cache.get(10L, "documento", "123", loader);
+
+        assertThat(loader.calls.get()).isEqualTo(2);
+        assertThat(evictions("expired")).isEqualTo(1);
+    }
+
+    @Test
+    void customerEventInvalidatesEveryKeyOfThoseCustomers() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 10, LONG_TTL);
+        CountingLoader first = new CountingLoader(customer(1L, 10L));
+        CountingLoader second = new CountingLoader(customer(2L, 10L));
+        cache.get(10L, "documento", "123", first);
+        cache.get(10L, "telefono", "51999888777", first);
+        cache.get(10L, "documento", "456", second);
+
+        cache.onCustomerDataChanged(CustomerDataChangedEvent.ofCustomers(Set.of(1L)));
+
+        cache.get(10L, "documento", "123", first);
+        cache.get(10L, "telefono", "51999888777", first);
+        cache.get(10L, "documento", "456", second);
+        assertThat(first.calls.get()).isEqualTo(3);
+        assertThat(second.calls.get()).isEqualTo(1);
+        assertThat(evictions("invalidated")).isEqualTo(2);
+    }
+
+    @Test
+    void tenantEventInvalidatesOnlyThatTenant() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 10, LONG_TTL);
+        CountingLoader tenant10 = new CountingLoader(customer(1L, 10L));
+        CountingLoader tenant11 = new CountingLoader(customer(2L, 11L));
+        cache.get(10L, "documento", "123", tenant10);
+        cache.get(11L, "documento", "123", tenant11);
+
+        cache.onCustomerDataChanged(CustomerDataChangedEvent.ofTenant(10L));
+        cache.get(10L, "documento", "123", tenant10);
+        cache.get(11L, "documento", "123", tenant11);
+
+        assertThat(tenant10.calls.get()).isEqualTo(2);
+        assertThat(tenant11.calls.get()).isEqualTo(1);
+
+        cache.onCustomerDataChanged(CustomerDataChangedEvent.ofTenant(null));
+        assertThat(gauge()).isZero();
+    }
+
+    @Test
+    void loadThatRacedAnInvalidationIsNotCached() {
+        CustomerLookupCache cache = new CustomerLookupCache(registry, true, 10, LONG_TTL);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Optional<CustomerResource>> racingLoader = () -> {
+            calls.incrementAndGet();
+            // Un sync confirma cambios mientras la consulta aún está en curso
+            cache.onCustomerDataChanged(CustomerDataChangedEvent.ofCustomers(Set.of(1L)));
+            return Optional.of(customer(1L, 10L));
+        };
+
+        assertThat(cache.get(10L, "documento", "123", racingLoader)).isPresent();
+        assertThat(gauge()).isZero();
+
+        CountingLoader loader = new CountingLoader(customer(1L, 10L));
+        cache.get(10L, "documento", "123", loader);
+        cache.get(10L, "documento", "123", loader);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(loader.calls.get()).isEqualTo(1);
+    }
+
+    private double requests(String result) {
+        return registry.get("customer.lookup.cache.requests").tag("result", result).counter().count();
+    }
+
+    private double evictions(String cause) {
+        return registry.get("customer.lookup.cache.evictions").tag("cause", cause).counter().count();
+    }
+
+    private double gauge() {
+        return registry.get("customer.lookup.cache.size").gauge().value();
+    }
+
+    private static CustomerResource customer(Long id, Long tenantId) {
+        return new CustomerResource(id, "C" + id, "ID" + id, null,
+                null, null, null, "DOC" + id, "Cliente " + id, "DNI", null, null,
+                null, null, null, null,
+                null, null, null,
+                null, null, null, null,
+                null,
+                "ACTIVO", null,
+                null,
+                tenantId, null, null, null, null, null, null);
+    }
+
+    private static final class CountingLoader implements Supplier<Optional<CustomerResource>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CustomerResource customer;
+
+        CountingLoader(CustomerResource customer) {
+            this.customer = customer;
+        }
+
+        @Override
+        public Optional<CustomerResource> get() {
+            calls.incrementAndGet();
+            return Optional.ofNullable(customer);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.domain.model.aggregates.ChunkedUpload;
+import com.cashi.customermanagement.domain.model.entities.ChunkedUploadPart;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ChunkedUploadPartRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ChunkedUploadRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportConfigurationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * putChunk: posición de cada parte en el staging, verificación de SHA-256 y de tamaño.
+ * Los repositorios se simulan con mapas en memoria.
+ */
+class ChunkedUploadServiceTest {
+
+    private static final int CHUNK = 256 * 1024;
+    private static final long CONFIG_ID = 7L;
+
+    @TempDir
+    Path stagingDir;
+
+    private ChunkedUploadRepository uploadRepository;
+    private ChunkedUploadPartRepository partRepository;
+    private FileWatcherService fileWatcherService;
+    private ChunkedUploadService service;
+
+    private final Map<String, ChunkedUpload> uploads = new HashMap<>();
+    private final Map<Integer, ChunkedUploadPart> parts = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() {
+        uploadRepository = mock(ChunkedUploadRepository.class);
+        partRepository = mock(ChunkedUploadPartRepository.class);
+        ImportConfigurationRepository configRepository = mock(ImportConfigurationRepository.class);
+        when(configRepository.existsById(CONFIG_ID)).thenReturn(true);
+
+        when(uploadRepository.save(any(ChunkedUpload.class))).thenAnswer(inv -> {
+            ChunkedUpload upload = inv.getArgument(0);
+            uploads.put(upload.getId(), upload);
+            return upload;
+        });
+        when(uploadRepository.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(uploads.get(inv.<String>getArgument(0))));
+        when(uploadRepository.touch(anyString(), any())).thenReturn(1);
+        when(uploadRepository.transition(anyString(), anyString(), anyString(), any())).thenAnswer(inv -> {
+            ChunkedUpload upload = uploads.get(inv.<String>getArgument(0));
+            if (upload == null || !upload.getStatus().equals(inv.getArgument(1))) {
+                return 0;
+            }
+            upload.setStatus(inv.getArgument(2));
+            return 1;
+        });
+
+        when(partRepository.findByUploadIdAndChunkIndex(anyString(), anyInt()))
+                .thenAnswer(inv -> Optional.ofNullable(parts.get(inv.<Integer>getArgument(1))));
+        when(partRepository.save(any(ChunkedUploadPart.class))).thenAnswer(inv -> {
+            ChunkedUploadPart part = inv.getArgument(0);
+            parts.put(part.getChunkIndex(), part);
+            return part;
+        });
+        when(partRepository.findChunkIndexes(anyString())).thenAnswer(inv -> new ArrayList<>(parts.keySet()));
+        when(partRepository.findByUploadIdOrderByChunkIndex(anyString())).thenAnswer(inv -> new ArrayList<>(parts.values()));
+        doAnswer(inv -> {
+            for (ChunkedUploadPart part : inv.<Iterable<ChunkedUploadPart>>getArgument(0)) {
+                parts.remove(part.getChunkIndex());
+            }
+            return null;
+        }).when(partRepository).deleteAll(anyIterable());
+
+        fileWatcherService = mock(FileWatcherService.class);
+        when(fileWatcherService.importStagedFile(any(), anyLong())).thenReturn(Map.of("success", true, "message", "ok"));
+
+        service = new ChunkedUploadService(uploadRepository, partRepository, configRepository,
+                fileWatcherService, mock(FileFingerprintService.class),
+                stagingDir.toString(), CHUNK, 10L * CHUNK, Duration.ofHours(24), Duration.ofHours(6));
+    }
+
+    @Test
+    void partsAreWrittenAtTheirOffsetsInAnyOrder() throws Exception {
+        byte[] content = randomBytes(2 * CHUNK + 1000);
+        String uploadId = init(content.length);
+
+        for (int index : new int[]{2, 0, 1}) {
+            service.putChunk(uploadId, index, new ByteArrayInputStream(slice(content, index)), null);
+        }
+
+        ChunkedUpload upload = uploads.get(uploadId);
+        Path partFile = Paths.get(upload.getStagingPath()).resolve("clientes.csv.part");
+        assertThat(Files.readAllBytes(partFile)).isEqualTo(content);
+        assertThat(service.status(uploadId)).containsEntry("receivedChunks", 3)
+                .containsEntry("missingChunks", List.of());
+        verify(uploadRepository, times(3)).touch(eq(uploadId), any(LocalDateTime.class));
+    }
+
+    @Test
+    void responseReportsChecksumAndMissingParts() throws Exception {
+        byte[] content = randomBytes(2 * CHUNK + 1000);
+        String uploadId = init(content.length);
+
+        Map<String, Object> response = service.putChunk(uploadId, 1, new ByteArrayInputStream(slice(content, 1)), null);
+
+        assertThat(response).containsEntry("chunkIndex", 1)
+                .containsEntry("checksum", sha256(slice(content, 1)))
+                .containsEntry("missingChunks", List.of(0, 2));
+        assertThat(parts.get(1).getSizeBytes()).isEqualTo(CHUNK);
+    }
+
+    @Test
+    void matchingChecksumIsAcceptedIgnoringCase() throws Exception {
+        byte[] content = randomBytes(CHUNK + 10);
+        String uploadId = init(content.length);
+        byte[] last = slice(content, 1);
+
+        service.putChunk(uploadId, 1, new ByteArrayInputStream(last), " " + sha256(last).toUpperCase() + " ");
+
+        assertThat(parts).containsKey(1);
+        assertThat(parts.get(1).getSizeBytes()).isEqualTo(10);
+    }
+
+    @Test
+    void checksumMismatchDoesNotRegisterThePart() throws Exception {
+        byte[] content = randomBytes(CHUNK + 10);
+        String uploadId = init(content.length);
+
+        assertThatThrownBy(() -> service.putChunk(uploadId, 0, new ByteArrayInputStream(slice(content, 0)), "00ff"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Checksum");
+
+        assertThat(parts).isEmpty();
+        verify(uploadRepository, never()).touch(anyString(), any());
+    }
+
+    @Test
+    void oversizedAndIncompletePartsAreRejected() throws Exception {
+        byte[] content = randomBytes(CHUNK + 10);
+        String uploadId = init(content.length);
+
+        assertThatThrownBy(() -> service.putChunk(uploadId, 1, new ByteArrayInputStream(new byte[11]), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("excede");
+        assertThatThrownBy(() -> service.putChunk(uploadId, 0, new ByteArrayInputStream(new byte[CHUNK - 1]), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("incompleta");
+
+        assertThat(parts).isEmpty();
+    }
+
+    @Test
+    void resendingAPartOverwritesItsRow() throws Exception {
+        byte[] content = randomBytes(CHUNK + 10);
+        String uploadId = init(content.length);
+        service.putChunk(uploadId, 1, new ByteArrayInputStream(new byte[10]), null);
+
+        service.putChunk(uploadId, 1, new ByteArrayInputStream(slice(content, 1)), null);
+
+        assertThat(parts).hasSize(1);
+        assertThat(parts.get(1).getChecksum()).isEqualTo(sha256(slice(content, 1)));
+    }
+
+    @Test
+    void invalidRetryDoesNotCorruptAnAcceptedPart() throws Exception {
+        byte[] content = randomBytes(2 * CHUNK);
+        String uploadId = init(content.length);
+        service.putChunk(uploadId, 0, new ByteArrayInputStream(slice(content, 0)), null);
+        service.putChunk(uploadId, 1, new ByteArrayInputStream(slice(content, 1)), null);
+        String acceptedChecksum = parts.get(0).getChecksum();
+
+        byte[] garbage = randomBytes(CHUNK);
+        garbage[0]++;
+        assertThatThrownBy(() -> service.putChunk(uploadId, 0, new ByteArrayInputStream(garbage), "00ff"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.putChunk(uploadId, 0, new ByteArrayInputStream(garbage, 0, CHUNK / 2), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.putChunk(uploadId, 0, new ByteArrayInputStream(randomBytes(CHUNK + 1)), null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        ChunkedUpload upload = uploads.get(uploadId);
+        Path staging = Paths.get(upload.getStagingPath());
+        assertThat(Files.readAllBytes(staging.resolve("clientes.csv.part"))).isEqualTo(content);
+        assertThat(parts.get(0).getChecksum()).isEqualTo(acceptedChecksum);
+        // Los temporales de las partes rechazadas no quedan en el staging
+        try (Stream<Path> files = Files.list(staging)) {
+            assertThat(files.map(f -> f.getFileName().toString())).containsExactly("clientes.csv.part");
+        }
+
+        Map<String, Object> result = service.complete(uploadId);
+        assertThat(result).containsEntry("success", true);
+        verify(fileWatcherService).importStagedFile(any(), eq(CONFIG_ID));
+    }
+
+    @Test
+    void completeRejectsPartsThatNoLongerMatchTheirChecksum() throws Exception {
+        byte[] content = randomBytes(2 * CHUNK);
+        String uploadId = init(content.length);
+        service.putChunk(uploadId, 0, new ByteArrayInputStream(slice(content, 0)), null);
+        service.putChunk(uploadId, 1, new ByteArrayInputStream(slice(content, 1)), null);
+
+        // El staging se altera después de aceptar la parte 1
+        Path partFile = Paths.get(uploads.get(uploadId).getStagingPath()).resolve("clientes.csv.part");
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~content[CHUNK + 5]}), CHUNK + 5);
+        }
+
+        assertThatThrownBy(() -> service.complete(uploadId))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[1]");
+
+        verify(fileWatcherService, never()).importStagedFile(any(), anyLong());
+        assertThat(uploads.get(uploadId).getStatus()).isEqualTo(ChunkedUpload.STATUS_IN_PROGRESS);
+        assertThat(service.status(uploadId)).containsEntry("missingChunks", List.of(1));
+    }
+
+    @Test
+    void rejectsOutOfRangeIndexAndClosedUploads() throws Exception {
+        String uploadId = init(CHUNK + 10);
+
+        assertThatThrownBy(() -> service.putChunk(uploadId, 2, new ByteArrayInputStream(new byte[1]), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.putChunk(uploadId, -1, new ByteArrayInputStream(new byte[1]), null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        uploads.get(uploadId).setStatus(ChunkedUpload.STATUS_IMPORTING);
+        assertThatThrownBy(() -> service.putChunk(uploadId, 0, new ByteArrayInputStream(new byte[CHUNK]), null))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.putChunk("no-existe", 0, new ByteArrayInputStream(new byte[1]), null))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void stuckImportIsClosedAsErrorAndStagingRemoved() throws Exception {
+        String uploadId = init(CHUNK);
+        ChunkedUpload upload = uploads.get(uploadId);
+        upload.setStatus(ChunkedUpload.STATUS_IMPORTING);
+        when(uploadRepository.findByStatusAndUpdatedAtBefore(eq(ChunkedUpload.STATUS_IMPORTING), any()))
+                .thenReturn(List.of(upload));
+
+        service.expireAbandonedUploads();
+
+        assertThat(upload.getStatus()).isEqualTo(ChunkedUpload.STATUS_ERROR);
+        assertThat(Paths.get(upload.getStagingPath())).doesNotExist();
+        verify(partRepository).deleteByUploadId(uploadId);
+    }
+
+    private String init(long totalSize) throws Exception {
+        return (String) service.init("clientes.csv", totalSize, CHUNK, CONFIG_ID).get("uploadId");
+    }
+
+    private static byte[] slice(byte[] content, int index) {
+        int from = index * CHUNK;
+        return Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
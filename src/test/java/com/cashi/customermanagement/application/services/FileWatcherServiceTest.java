@@ -0,0 +1,170 @@
+package com.cashi.customermanagement.application.services;
+
+import com.cashi.customermanagement.domain.model.aggregates.ImportConfiguration;
+import com.cashi.customermanagement.domain.model.aggregates.ImportHistory;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportConfigurationRepository;
+import com.cashi.customermanagement.infrastructure.persistence.jpa.repositories.ImportHistoryRepository;
+import com.cashi.shared.application.services.SchedulerLockService;
+import com.cashi.shared.domain.model.valueobjects.LoadType;
+import com.cashi.systemconfiguration.domain.services.HeaderConfigurationCommandService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Modo lote (triggerManualImportAll): orden por antigüedad, tope sobre lo realmente pendiente,
+ * duplicados y resumen LOTE en el historial.
+ */
+class FileWatcherServiceTest {
+
+    private static final long CONFIG_ID = 1L;
+    private static final int SUB_PORTFOLIO = 5;
+
+    @TempDir
+    Path watchDir;
+
+    private ImportHistoryRepository historyRepository;
+    private HeaderConfigurationCommandService headerConfigService;
+    private FileFingerprintService fingerprintService;
+    private FileWatcherService service;
+
+    /** Archivos cuya huella ya figura como importada */
+    private final Set<String> processed = new HashSet<>();
+    /** Hashes (aquí: el nombre) que el historial tiene como EXITOSO */
+    private final Set<String> successfulHashes = new HashSet<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ImportConfiguration config = new ImportConfiguration(watchDir.toString(), "clientes", "02:00:00");
+        config.setId(CONFIG_ID);
+        config.setSubPortfolioId(SUB_PORTFOLIO);
+        config.setMoveAfterProcess(false);
+        ImportConfigurationRepository configRepository = mock(ImportConfigurationRepository.class);
+        when(configRepository.findById(CONFIG_ID)).thenReturn(Optional.of(config));
+
+        historyRepository = mock(ImportHistoryRepository.class);
+        when(historyRepository.existsByFileHashAndStatus(anyString(), eq("EXITOSO")))
+                .thenAnswer(inv -> successfulHashes.contains(inv.<String>getArgument(0)));
+
+        fingerprintService = mock(FileFingerprintService.class);
+        when(fingerprintService.isProcessed(any(File.class)))
+                .thenAnswer(inv -> processed.contains(inv.<File>getArgument(0).getName()));
+        when(fingerprintService.contentHash(any(File.class)))
+                .thenAnswer(inv -> inv.<File>getArgument(0).getName());
+
+        headerConfigService = mock(HeaderConfigurationCommandService.class);
+        when(headerConfigService.importDataToTable(anyInt(), any(), anyList()))
+                .thenReturn(Map.of("insertedRows", 1, "errors", List.of()));
+
+        ImportDirectoryMonitor directoryMonitor = mock(ImportDirectoryMonitor.class);
+        SchedulerLockService lockService = mock(SchedulerLockService.class);
+        when(lockService.tryLock(anyString())).thenReturn(true);
+
+        service = new FileWatcherService(configRepository, historyRepository, headerConfigService,
+                directoryMonitor, fingerprintService, lockService, 1, true, 2, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void capAppliesToPendingFilesOldestFirst() throws Exception {
+        // Dos archivos viejos ya importados que siguen en el directorio
+        file("clientes_00.csv", 1);
+        file("clientes_01.csv", 2);
+        processed.addAll(List.of("clientes_00.csv", "clientes_01.csv"));
+        file("clientes_04.csv", 5);
+        file("clientes_02.csv", 3);
+        file("clientes_03.csv", 4);
+
+        Map<String, Object> result = service.triggerManualImportAll(CONFIG_ID);
+
+        assertThat(importedFiles()).containsExactly("clientes_02.csv", "clientes_03.csv");
+        assertThat(result).containsEntry("filesFound", 5)
+                .containsEntry("alreadyImported", 2)
+                .containsEntry("imported", 2)
+                .containsEntry("success", true);
+        // Los ya importados no se vuelven a hashear
+        verify(fingerprintService, never()).contentHash(argThat(f -> processed.contains(f.getName())));
+        assertThat(savedStatuses()).contains("LOTE");
+    }
+
+    @Test
+    void duplicatesAreCountedButDoNotWriteABatchReport() throws Exception {
+        file("clientes_a.csv", 1);
+        file("clientes_b.csv", 2);
+        successfulHashes.addAll(List.of("clientes_a.csv", "clientes_b.csv"));
+
+        Map<String, Object> result = service.triggerManualImportAll(CONFIG_ID);
+
+        assertThat(result).containsEntry("duplicates", 2).containsEntry("imported", 0);
+        verify(headerConfigService, never()).importDataToTable(anyInt(), any(), anyList());
+        verify(historyRepository, never()).save(any(ImportHistory.class));
+    }
+
+    @Test
+    void runWithOnlyImportedFilesLeavesHistoryUntouched() throws Exception {
+        file("clientes_a.csv", 1);
+        processed.add("clientes_a.csv");
+
+        Map<String, Object> result = service.triggerManualImportAll(CONFIG_ID);
+
+        assertThat(result).containsEntry("alreadyImported", 1).containsEntry("imported", 0);
+        verify(fingerprintService, never()).contentHash(any(File.class));
+        verify(historyRepository, never()).save(any(ImportHistory.class));
+    }
+
+    @Test
+    void importedAndDuplicateFilesAreSummarized() throws Exception {
+        file("clientes_a.csv", 1);
+        file("clientes_b.csv", 2);
+        successfulHashes.add("clientes_a.csv");
+
+        service.triggerManualImportAll(CONFIG_ID);
+
+        ImportHistory report = savedHistories().stream()
+                .filter(h -> "LOTE".equals(h.getStatus()))
+                .findFirst().orElseThrow();
+        assertThat(report.getErrorMessage())
+                .contains("clientes_a.csv -> DUPLICADO")
+                .contains("clientes_b.csv -> OK");
+    }
+
+    private void file(String name, long minutesAgoRank) throws Exception {
+        Path path = watchDir.resolve(name);
+        Files.writeString(path, "archivo,valor\n" + name + ",1\n");
+        // rank menor = más antiguo
+        path.toFile().setLastModified(1_700_000_000_000L + minutesAgoRank * 60_000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> importedFiles() {
+        ArgumentCaptor<List<Map<String, Object>>> data = ArgumentCaptor.forClass(List.class);
+        verify(headerConfigService, atLeast(0)).importDataToTable(eq(SUB_PORTFOLIO), eq(LoadType.ACTUALIZACION), data.capture());
+        return data.getAllValues().stream().map(rows -> (String) rows.get(0).get("archivo")).toList();
+    }
+
+    private List<ImportHistory> savedHistories() {
+        ArgumentCaptor<ImportHistory> saved = ArgumentCaptor.forClass(ImportHistory.class);
+        verify(historyRepository, atLeast(0)).save(saved.capture());
+        return saved.getAllValues();
+    }
+
+    private List<String> savedStatuses() {
+        return savedHistories().stream().map(ImportHistory::getStatus).toList();
+    }
+}
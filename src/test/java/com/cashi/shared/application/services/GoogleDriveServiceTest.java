@@ -0,0 +1,235 @@
+package com.cashi.shared.application.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Descarga desde Drive con reanudación por Range contra un stub local del API
+ * (app.google-drive.root-url), sin credenciales.
+ */
+class GoogleDriveServiceTest {
+
+    private static final String FILE_ID = "archivo-1";
+    private static final byte[] CONTENT = randomBytes(200_000);
+
+    private DriveStub stub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new DriveStub();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.server.stop(0);
+    }
+
+    @Test
+    void revisionIsReadFromMetadata() throws Exception {
+        GoogleDriveService.DriveRevision revision = service(3).getRevision(FILE_ID);
+
+        assertThat(revision.id()).isEqualTo(FILE_ID);
+        assertThat(revision.revision()).isEqualTo("r1");
+        assertThat(revision.size()).isEqualTo(CONTENT.length);
+    }
+
+    @Test
+    void downloadWithoutCutsIsASingleRequest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service(3).downloadTo(FILE_ID, out);
+
+        assertThat(out.toByteArray()).isEqualTo(CONTENT);
+        assertThat(stub.ranges).containsExactly("");
+    }
+
+    @Test
+    void cutDownloadResumesWithRangeFromLastByte() throws Exception {
+        stub.cuts.set(1);
+
+        try (InputStream in = service(3).openDownload(FILE_ID, "r1")) {
+            assertThat(in.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(stub.ranges).containsExactly("", "bytes=" + CONTENT.length / 2 + "-");
+    }
+
+    @Test
+    void resumeIsRefusedWhenRevisionChanged() throws Exception {
+        stub.cuts.set(1);
+        stub.revisionAfterCut = "r2";
+
+        try (InputStream in = service(1).openDownload(FILE_ID, "r1")) {
+            assertThatThrownBy(in::readAllBytes)
+                    .isInstanceOf(IOException.class)
+                    .satisfies(e -> assertThat(e.getSuppressed())
+                            .anySatisfy(s -> assertThat(s.getMessage()).contains("cambió de revisión")));
+        }
+        assertThat(stub.ranges).containsExactly("");
+    }
+
+    @Test
+    void serverIgnoringRangeIsNotResumedFromZero() throws Exception {
+        stub.cuts.set(1);
+        stub.honorRange = false;
+
+        try (InputStream in = service(1).openDownload(FILE_ID, null)) {
+            assertThatThrownBy(in::readAllBytes)
+                    .isInstanceOf(IOException.class)
+                    .satisfies(e -> assertThat(e.getSuppressed())
+                            .anySatisfy(s -> assertThat(s.getMessage()).contains("descarga parcial")));
+        }
+    }
+
+    @Test
+    void cleanEarlyCloseIsResumedWhenSizeIsKnown() throws Exception {
+        stub.truncations.set(1);
+
+        try (InputStream in = service(3).openDownload(FILE_ID, "r1", (long) CONTENT.length)) {
+            assertThat(in.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(stub.ranges).containsExactly("", "bytes=" + CONTENT.length / 2 + "-");
+    }
+
+    @Test
+    void cutExportIsResumedWhenDocumentIsUnchanged() throws Exception {
+        stub.cuts.set(1);
+
+        try (InputStream in = service(3).openExport(FILE_ID, "text/csv")) {
+            assertThat(in.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(stub.exports.get()).isEqualTo(2);
+    }
+
+    @Test
+    void cutExportFailsWhenDocumentChanged() throws Exception {
+        stub.cuts.set(1);
+        stub.versionAfterCut = 8;
+
+        try (InputStream in = service(1).openExport(FILE_ID, "text/csv")) {
+            assertThatThrownBy(in::readAllBytes)
+                    .isInstanceOf(IOException.class)
+                    .satisfies(e -> assertThat(e.getSuppressed())
+                            .anySatisfy(s -> assertThat(s.getMessage()).contains("cambió durante la exportación")));
+        }
+        assertThat(stub.exports.get()).isEqualTo(1);
+    }
+
+    private GoogleDriveService service(int maxResumeAttempts) {
+        return new GoogleDriveService("sin-credenciales.json", stub.rootUrl(), maxResumeAttempts);
+    }
+
+    /**
+     * GET /drive/v3/files/{id}: metadatos en JSON, o el contenido con alt=media (Range: bytes=N-).
+     * GET /drive/v3/files/{id}/export: el contenido completo, sin Range.
+     * Las primeras "cuts" descargas envían la mitad del cuerpo y cortan la conexión; las primeras
+     * "truncations" envían la mitad y la cierran limpiamente (respuesta chunked sin error).
+     */
+    private static final class DriveStub {
+        final HttpServer server;
+        final List<String> ranges = new CopyOnWriteArrayList<>();
+        final AtomicInteger cuts = new AtomicInteger();
+        final AtomicInteger truncations = new AtomicInteger();
+        final AtomicInteger exports = new AtomicInteger();
+        volatile boolean honorRange = true;
+        volatile String revision = "r1";
+        volatile String revisionAfterCut;
+        volatile long version = 7;
+        volatile Long versionAfterCut;
+
+        DriveStub() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/drive/v3/files/", this::handle);
+            server.start();
+        }
+
+        String rootUrl() {
+            return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            if (exchange.getRequestURI().getPath().endsWith("/export")) {
+                exports.incrementAndGet();
+                send(exchange, 200, CONTENT);
+                return;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            if (query == null || !query.contains("alt=media")) {
+                byte[] json = ("{\"id\":\"" + FILE_ID + "\",\"name\":\"clientes.csv\",\"mimeType\":\"text/csv\","
+                        + "\"size\":\"" + CONTENT.length + "\",\"headRevisionId\":\"" + revision + "\","
+                        + "\"version\":\"" + version + "\",\"modifiedTime\":\"2026-01-0" + (version % 9 + 1) + "T00:00:00.000Z\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(200, json.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(json);
+                }
+                return;
+            }
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range != null ? range : "");
+            int offset = 0;
+            int status = 200;
+            if (range != null && honorRange) {
+                offset = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + offset + "-" + (CONTENT.length - 1) + "/" + CONTENT.length);
+            }
+            send(exchange, status, Arrays.copyOfRange(CONTENT, offset, CONTENT.length));
+        }
+
+        private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            if (truncations.getAndDecrement() > 0) {
+                // Chunked (longitud 0): el cuerpo termina bien formado a la mitad
+                exchange.sendResponseHeaders(status, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body, 0, body.length / 2);
+                }
+                return;
+            }
+            exchange.sendResponseHeaders(status, body.length);
+
+            OutputStream out = exchange.getResponseBody();
+            if (cuts.getAndDecrement() > 0) {
+                out.write(body, 0, body.length / 2);
+                out.flush();
+                if (revisionAfterCut != null) {
+                    revision = revisionAfterCut;
+                }
+                if (versionAfterCut != null) {
+                    version = versionAfterCut;
+                }
+                // Sin completar el Content-Length: el servidor cierra la conexión
+                throw new IOException("corte simulado");
+            }
+            out.write(body);
+            out.close();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(3).nextBytes(bytes);
+        return bytes;
+    }
+}
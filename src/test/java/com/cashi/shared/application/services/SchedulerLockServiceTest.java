@@ -0,0 +1,210 @@
+package com.cashi.shared.application.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Adquisición, renovación y expiración del lease de bloqueos_programados, contra una tabla en
+ * memoria que reproduce las sentencias del servicio con un reloj controlado por el test.
+ */
+class SchedulerLockServiceTest {
+
+    private static final Duration LONG_LEASE = Duration.ofHours(1);
+
+    private final LockTable table = new LockTable();
+    private final List<SchedulerLockService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(SchedulerLockService::shutdown);
+    }
+
+    @Test
+    void disabledGrantsEveryLockWithoutDatabase() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SchedulerLockService service = track(new SchedulerLockService(jdbcTemplate, false, LONG_LEASE));
+
+        assertThat(service.tryLock("import")).isTrue();
+        assertThat(service.runLocked("import", Duration.ZERO, () -> { })).isTrue();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void lockIsExclusiveAndReentrantForItsNode() {
+        SchedulerLockService nodeA = node(LONG_LEASE);
+        SchedulerLockService nodeB = node(LONG_LEASE);
+
+        assertThat(nodeA.tryLock("import")).isTrue();
+        assertThat(nodeB.tryLock("import")).isFalse();
+        assertThat(nodeA.tryLock("import")).isTrue();
+        assertThat(nodeB.tryLock("otro-job")).isTrue();
+        assertThat(table.owner("import")).isEqualTo(nodeA.getNodeId());
+    }
+
+    @Test
+    void expiredLeaseCanBeTakenByAnotherNode() {
+        SchedulerLockService nodeA = node(LONG_LEASE);
+        SchedulerLockService nodeB = node(LONG_LEASE);
+
+        assertThat(nodeA.tryLock("import")).isTrue();
+        table.advance(LONG_LEASE.minusSeconds(1));
+        assertThat(nodeB.tryLock("import")).isFalse();
+
+        table.advance(Duration.ofSeconds(1));
+        assertThat(nodeB.tryLock("import")).isTrue();
+        assertThat(table.owner("import")).isEqualTo(nodeB.getNodeId());
+    }
+
+    @Test
+    void unlockReleasesImmediatelyWithoutMinHold() {
+        SchedulerLockService nodeA = node(LONG_LEASE);
+        SchedulerLockService nodeB = node(LONG_LEASE);
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThat(nodeA.runLocked("import", Duration.ZERO, () -> ran.set(true))).isTrue();
+
+        assertThat(ran).isTrue();
+        assertThat(nodeB.tryLock("import")).isTrue();
+    }
+
+    @Test
+    void minHoldKeepsLockAfterTaskFinishes() {
+        SchedulerLockService nodeA = node(LONG_LEASE);
+        SchedulerLockService nodeB = node(LONG_LEASE);
+
+        nodeA.runLocked("cron", Duration.ofMinutes(10), () -> table.advance(Duration.ofMinutes(1)));
+
+        assertThat(nodeB.runLocked("cron", Duration.ZERO, () -> { })).isFalse();
+        table.advance(Duration.ofMinutes(9));
+        assertThat(nodeB.runLocked("cron", Duration.ZERO, () -> { })).isTrue();
+    }
+
+    @Test
+    void heldLockIsRenewedInBackground() throws Exception {
+        // lease de 3 s -> renovación cada segundo
+        Duration lease = Duration.ofSeconds(3);
+        SchedulerLockService nodeA = node(lease);
+        SchedulerLockService nodeB = node(lease);
+
+        assertThat(nodeA.tryLock("import")).isTrue();
+        long firstExpiry = table.expiry("import");
+
+        table.advance(Duration.ofSeconds(2));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (table.expiry("import") == firstExpiry && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(table.expiry("import")).isGreaterThan(firstExpiry);
+
+        // Sin la renovación el lease habría expirado aquí
+        table.advance(Duration.ofSeconds(2));
+        assertThat(nodeB.tryLock("import")).isFalse();
+    }
+
+    @Test
+    void releasedLockIsNoLongerRenewed() throws Exception {
+        Duration lease = Duration.ofSeconds(3);
+        SchedulerLockService nodeA = node(lease);
+        SchedulerLockService nodeB = node(lease);
+
+        assertThat(nodeA.tryLock("import")).isTrue();
+        nodeA.unlock("import");
+        long releasedAt = table.expiry("import");
+
+        Thread.sleep(1500);
+        assertThat(table.expiry("import")).isEqualTo(releasedAt);
+        assertThat(nodeB.tryLock("import")).isTrue();
+    }
+
+    @Test
+    void databaseErrorDeniesTheLock() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("sin conexión"));
+        SchedulerLockService service = track(new SchedulerLockService(jdbcTemplate, true, LONG_LEASE));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThat(service.runLocked("import", Duration.ZERO, () -> ran.set(true))).isFalse();
+        assertThat(ran).isFalse();
+    }
+
+    private SchedulerLockService node(Duration lease) {
+        return track(new SchedulerLockService(table, true, lease));
+    }
+
+    private SchedulerLockService track(SchedulerLockService service) {
+        services.add(service);
+        return service;
+    }
+
+    /**
+     * bloqueos_programados en memoria; NOW(3) es un reloj que solo avanza con advance().
+     */
+    private static final class LockTable extends JdbcTemplate {
+        private record Row(long until, long at, String by) {}
+
+        private final Map<String, Row> rows = new HashMap<>();
+        private long now = 1_000_000;
+
+        synchronized void advance(Duration duration) {
+            now += duration.toMillis();
+        }
+
+        synchronized long expiry(String name) {
+            return rows.get(name).until();
+        }
+
+        synchronized String owner(String name) {
+            return rows.get(name).by();
+        }
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT IGNORE")) {
+                return rows.putIfAbsent((String) args[0], new Row(now, now, "")) == null ? 1 : 0;
+            }
+            long millis = ((Number) args[0]).longValue() / 1000;
+            if (sql.contains("bloqueado_en = NOW(3)")) {
+                // tryLock: (lease, nodo, nombre, nodo)
+                String name = (String) args[2];
+                String node = (String) args[1];
+                Row row = rows.get(name);
+                if (row != null && (row.until() <= now || row.by().equals(node))) {
+                    rows.put(name, new Row(now + millis, now, node));
+                    return 1;
+                }
+                return 0;
+            }
+            String name = (String) args[1];
+            String node = (String) args[2];
+            Row row = rows.get(name);
+            if (row == null || !row.by().equals(node)) {
+                return 0;
+            }
+            if (sql.contains("GREATEST")) {
+                // unlock: (minHold, nombre, nodo)
+                rows.put(name, new Row(Math.max(now, row.at() + millis), row.at(), node));
+            } else {
+                // renovación: (lease, nombre, nodo)
+                rows.put(name, new Row(now + millis, row.at(), node));
+            }
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.cashi.shared.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * .gz y .zip de una sola entrada, desde disco y desde stream.
+ */
+class CompressedImportFileTest {
+
+    private static final String CSV = "Nombre;Documento\nAna;1\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recognizesSupportedNames() {
+        assertThat(CompressedImportFile.isCompressed("clientes.CSV.GZ")).isTrue();
+        assertThat(CompressedImportFile.isCompressed("clientes.zip")).isTrue();
+        assertThat(CompressedImportFile.isCompressed("clientes.csv")).isFalse();
+
+        assertThat(CompressedImportFile.isSupported("clientes.xlsx.gz")).isTrue();
+        assertThat(CompressedImportFile.isSupported("clientes.xls")).isTrue();
+        assertThat(CompressedImportFile.isSupported("clientes.zip")).isTrue();
+        assertThat(CompressedImportFile.isSupported("clientes.txt.gz")).isFalse();
+        assertThat(CompressedImportFile.isSupported("clientes.pdf")).isFalse();
+    }
+
+    @Test
+    void gzipFileIsDecompressedWithInnerName() throws Exception {
+        Path file = tempDir.resolve("Clientes.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(file)) {
+            assertThat(entry.name()).isEqualTo("Clientes.csv");
+            assertThat(content(entry)).isEqualTo(CSV);
+        }
+    }
+
+    @Test
+    void zipWithSingleDataEntryIgnoresFoldersAndMetadata() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("exportacion/", null);
+        entries.put("__MACOSX/exportacion/._clientes.csv", "basura");
+        entries.put("exportacion/.DS_Store", "basura");
+        entries.put("exportacion/clientes.csv", CSV);
+        Path file = writeZip("clientes.zip", entries);
+
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(file)) {
+            assertThat(entry.name()).isEqualTo("clientes.csv");
+            assertThat(content(entry)).isEqualTo(CSV);
+        }
+        // Cerrar la entrada cierra el ZipFile: el archivo se puede mover/borrar
+        Files.delete(file);
+    }
+
+    @Test
+    void zipFromDiskRejectsSeveralEmptyOrUnsupportedEntries() throws Exception {
+        Path several = writeZip("varios.zip", Map.of("a.csv", CSV, "b.csv", CSV));
+        Path empty = writeZip("vacio.zip", Map.of());
+        Path unsupported = writeZip("texto.zip", Map.of("notas.txt", "hola"));
+
+        assertThatThrownBy(() -> CompressedImportFile.open(several))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("un solo archivo");
+        assertThatThrownBy(() -> CompressedImportFile.open(empty))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("vacío");
+        assertThatThrownBy(() -> CompressedImportFile.open(unsupported))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("notas.txt");
+    }
+
+    @Test
+    void zipStreamUsesItsOnlyDataEntry() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("__MACOSX/._clientes.csv", "basura");
+        entries.put("clientes.csv", CSV);
+        byte[] zip = Files.readAllBytes(writeZip("subida.zip", entries));
+
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(new ByteArrayInputStream(zip), "subida.zip")) {
+            assertThat(entry.name()).isEqualTo("clientes.csv");
+            assertThat(content(entry)).isEqualTo(CSV);
+        }
+    }
+
+    @Test
+    void zipStreamRejectsSeveralEmptyOrUnsupportedEntries() throws Exception {
+        Map<String, String> several = new LinkedHashMap<>();
+        several.put("a.csv", CSV);
+        several.put("b.xlsx", "otro");
+        byte[] severalZip = Files.readAllBytes(writeZip("varios.zip", several));
+        byte[] empty = Files.readAllBytes(writeZip("vacio.zip", Map.of()));
+        byte[] unsupported = Files.readAllBytes(writeZip("texto.zip", Map.of("notas.txt", "hola")));
+
+        // Igual que desde disco: la primera entrada válida no basta si hay más
+        assertThatThrownBy(() -> CompressedImportFile.open(new ByteArrayInputStream(severalZip), "varios.zip"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("un solo archivo");
+        assertThatThrownBy(() -> CompressedImportFile.open(new ByteArrayInputStream(empty), "vacio.zip"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("vacío");
+        assertThatThrownBy(() -> CompressedImportFile.open(new ByteArrayInputStream(unsupported), "texto.zip"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("notas.txt");
+    }
+
+    @Test
+    void gzipStreamAndPlainStream() throws Exception {
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gz)) {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(new ByteArrayInputStream(gz.toByteArray()), "carga.xlsx.gz")) {
+            assertThat(entry.name()).isEqualTo("carga.xlsx");
+            assertThat(content(entry)).isEqualTo(CSV);
+        }
+
+        InputStream plain = new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8));
+        try (CompressedImportFile.Entry entry = CompressedImportFile.open(plain, "carga.csv")) {
+            assertThat(entry.name()).isEqualTo("carga.csv");
+            assertThat(entry.stream()).isSameAs(plain);
+        }
+    }
+
+    @Test
+    void corruptGzipFails() {
+        byte[] notGzip = CSV.getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> CompressedImportFile.open(new ByteArrayInputStream(notGzip), "carga.csv.gz"))
+                .isInstanceOf(IOException.class);
+    }
+
+    /** Entradas en orden; valor null = carpeta. */
+    private Path writeZip(String name, Map<String, String> entries) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (Map.Entry<String, String> e : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(e.getKey()));
+                if (e.getValue() != null) {
+                    out.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static String content(CompressedImportFile.Entry entry) throws IOException {
+        return new String(entry.stream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
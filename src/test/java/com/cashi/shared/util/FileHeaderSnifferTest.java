@@ -0,0 +1,236 @@
+package com.cashi.shared.util;
+
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Lectura de solo la fila de cabeceras por formato, incluido el reintento como CSV.
+ */
+class FileHeaderSnifferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void csvHeadersAreTrimmedAndBlankOnesDropped() throws Exception {
+        Path file = tempDir.resolve("clientes.csv");
+        Files.writeString(file, " Nombre ;;Documento\nAna;x;1\n");
+
+        assertThat(FileHeaderSniffer.readHeaders(file.toFile())).containsExactly("Nombre", "Documento");
+    }
+
+    @Test
+    void xlsxHeadersComeFromFirstRowOnly() throws Exception {
+        File file = tempDir.resolve("clientes.xlsx").toFile();
+        writeWorkbook(new XSSFWorkbook(), file);
+
+        assertThat(FileHeaderSniffer.readHeaders(file)).containsExactly("Nombre", "2024", "true", "Teléfono");
+    }
+
+    @Test
+    void xlsHeadersComeFromFirstRowOnly() throws Exception {
+        File file = tempDir.resolve("clientes.xls").toFile();
+        writeWorkbook(new HSSFWorkbook(), file);
+
+        assertThat(FileHeaderSniffer.readHeaders(file)).containsExactly("Nombre", "2024", "true", "Teléfono");
+    }
+
+    @Test
+    void xlsNumericHeadersStoredAsRkRecords() throws Exception {
+        File file = tempDir.resolve("clientes.xls").toFile();
+        writeWorkbook(new HSSFWorkbook(), file);
+        // Excel guarda los enteros pequeños como RK, no como NumberRecord
+        rewriteNumberRecordsAsRk(file, false);
+
+        assertThat(FileHeaderSniffer.readHeaders(file)).containsExactly("Nombre", "2024", "true", "Teléfono");
+    }
+
+    @Test
+    void xlsNumericHeadersStoredAsMulRkRecord() throws Exception {
+        File file = tempDir.resolve("anios.xls").toFile();
+        try (HSSFWorkbook workbook = new HSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet("Hoja1");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Nombre");
+            header.createCell(1).setCellValue(2023);
+            header.createCell(2).setCellValue(2024);
+            Row data = sheet.createRow(1);
+            data.createCell(0).setCellValue("Ana");
+            data.createCell(1).setCellValue(10);
+            data.createCell(2).setCellValue(20);
+            workbook.write(out);
+        }
+        rewriteNumberRecordsAsRk(file, true);
+
+        assertThat(FileHeaderSniffer.readHeaders(file)).containsExactly("Nombre", "2023", "2024");
+    }
+
+    @Test
+    void xlsFormulaHeadersUseTheirCachedValue() throws Exception {
+        File file = tempDir.resolve("formulas.xls").toFile();
+        try (HSSFWorkbook workbook = new HSSFWorkbook(); OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet("Hoja1");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellFormula("\"Nom\"&\"bre\"");
+            header.createCell(1).setCellFormula("2020+4");
+            header.createCell(2).setCellFormula("1=1");
+            header.createCell(3).setCellValue("Documento");
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            sheet.createRow(1).createCell(0).setCellValue("Ana");
+            workbook.write(out);
+        }
+
+        assertThat(FileHeaderSniffer.readHeaders(file)).containsExactly("Nombre", "2024", "true", "Documento");
+    }
+
+    @Test
+    void excelExtensionWithCsvContentFallsBackToCsv() throws Exception {
+        Path xlsx = tempDir.resolve("exportado.xlsx");
+        Files.writeString(xlsx, "Nombre;Documento\nAna;1\n");
+        Path xls = tempDir.resolve("exportado.xls");
+        Files.writeString(xls, "Nombre,Documento\nAna,1\n");
+
+        assertThat(FileHeaderSniffer.readHeaders(xlsx.toFile())).containsExactly("Nombre", "Documento");
+        assertThat(FileHeaderSniffer.readHeaders(xls.toFile())).containsExactly("Nombre", "Documento");
+    }
+
+    @Test
+    void gzippedCsvHeaders() throws Exception {
+        Path file = tempDir.resolve("clientes.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write("Nombre|Documento\nAna|1\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(FileHeaderSniffer.readHeaders(file.toFile())).containsExactly("Nombre", "Documento");
+    }
+
+    @Test
+    void zippedXlsxHeaders() throws Exception {
+        File xlsx = tempDir.resolve("interno.xlsx").toFile();
+        writeWorkbook(new XSSFWorkbook(), xlsx);
+        Path zip = tempDir.resolve("clientes.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("carpeta/clientes.xlsx"));
+            out.write(Files.readAllBytes(xlsx.toPath()));
+            out.closeEntry();
+        }
+
+        assertThat(FileHeaderSniffer.readHeaders(zip.toFile())).containsExactly("Nombre", "2024", "true", "Teléfono");
+    }
+
+    @Test
+    void zippedFileWithExcelNameButCsvContentFallsBackToCsv() throws Exception {
+        Path zip = tempDir.resolve("clientes.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("clientes.xls"));
+            out.write("Nombre;Documento\nAna;1\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        assertThat(FileHeaderSniffer.readHeaders(zip.toFile())).containsExactly("Nombre", "Documento");
+    }
+
+    @Test
+    void rejectsMissingAndUnsupportedFiles() throws Exception {
+        assertThatThrownBy(() -> FileHeaderSniffer.readHeaders(tempDir.resolve("no-existe.csv").toFile()))
+                .isInstanceOf(FileNotFoundException.class);
+
+        Path txt = tempDir.resolve("clientes.txt");
+        Files.writeString(txt, "Nombre\n");
+        assertThatThrownBy(() -> FileHeaderSniffer.readHeaders(txt.toFile()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Reescribe el stream Workbook del .xls cambiando cada NumberRecord entero por un RKRecord
+     * (o, con mulRk, cada par contiguo de la misma fila por un MulRKRecord), como lo guarda Excel.
+     * El modelo de eventos lee los registros en secuencia, así que los offsets de DBCELL no importan.
+     */
+    private static void rewriteNumberRecordsAsRk(File file, boolean mulRk) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+            ByteBuffer in = ByteBuffer.wrap(fs.createDocumentInputStream("Workbook").readAllBytes())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer out = ByteBuffer.allocate(in.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+            while (in.remaining() >= 4) {
+                short sid = in.getShort();
+                int length = in.getShort() & 0xFFFF;
+                ByteBuffer data = in.slice(in.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                in.position(in.position() + length);
+                if (sid != NumberRecord.sid) {
+                    out.putShort(sid).putShort((short) length).put(data);
+                    continue;
+                }
+                short row = data.getShort(0);
+                short column = data.getShort(2);
+                short xf = data.getShort(4);
+                int rk = ((int) data.getDouble(6) << 2) | 0x02;
+                if (!mulRk) {
+                    out.putShort(RKRecord.sid).putShort((short) 10)
+                            .putShort(row).putShort(column).putShort(xf).putInt(rk);
+                    continue;
+                }
+                // Segunda celda: el NumberRecord siguiente de la misma fila
+                in.getShort();
+                int nextLength = in.getShort() & 0xFFFF;
+                ByteBuffer next = in.slice(in.position(), nextLength).order(ByteOrder.LITTLE_ENDIAN);
+                in.position(in.position() + nextLength);
+                int nextRk = ((int) next.getDouble(6) << 2) | 0x02;
+                out.putShort(MulRKRecord.sid).putShort((short) 18)
+                        .putShort(row).putShort(column)
+                        .putShort(xf).putInt(rk)
+                        .putShort(next.getShort(4)).putInt(nextRk)
+                        .putShort(next.getShort(2));
+            }
+            fs.getRoot().createOrUpdateDocument("Workbook", new ByteArrayInputStream(out.array(), 0, out.position()));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            fs.writeFilesystem(bytes);
+            Files.write(file.toPath(), bytes.toByteArray());
+        }
+    }
+
+    /**
+     * Cabeceras con texto, número, booleano, una celda vacía y texto; luego una fila de datos.
+     */
+    private static void writeWorkbook(Workbook workbook, File file) throws IOException {
+        try (workbook; OutputStream out = Files.newOutputStream(file.toPath())) {
+            Sheet sheet = workbook.createSheet("Hoja1");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue(" Nombre ");
+            header.createCell(1).setCellValue(2024);
+            header.createCell(2).setCellValue(true);
+            header.createCell(4).setCellValue("Teléfono");
+
+            Row data = sheet.createRow(1);
+            data.createCell(0).setCellValue("Ana");
+            data.createCell(1).setCellValue(1);
+            workbook.write(out);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.cashi.shared.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Clave normalizada de teléfono y su paridad con metodos_contacto.telefono_normalizado (V35).
+ */
+class PhoneNumberNormalizerTest {
+
+    private static final List<String> SAMPLES = Arrays.asList(
+            "+51 999-888-777", "999888777", "51999888777", "51999888777@s.whatsapp.net",
+            "(01) 444-5555", "014445555", "0051999888777", "00 1 212 555 0100", "+1 (212) 555-0100",
+            "999 888 77", "0999888777", "000000000", "9", "@999888777", "sin número", "", null);
+
+    @Test
+    void nationalAndInternationalFormsGiveTheSameKey() {
+        assertThat(PhoneNumberNormalizer.normalize("+51 999-888-777")).isEqualTo("51999888777");
+        assertThat(PhoneNumberNormalizer.normalize("999888777")).isEqualTo("51999888777");
+        assertThat(PhoneNumberNormalizer.normalize("51999888777")).isEqualTo("51999888777");
+        assertThat(PhoneNumberNormalizer.normalize("51999888777@s.whatsapp.net")).isEqualTo("51999888777");
+        assertThat(PhoneNumberNormalizer.normalize("0051999888777")).isEqualTo("51999888777");
+    }
+
+    @Test
+    void landlineWithLongDistanceZeroReplacesTheZero() {
+        assertThat(PhoneNumberNormalizer.normalize("014445555")).isEqualTo("5114445555");
+        assertThat(PhoneNumberNormalizer.normalize("(01) 444-5555")).isEqualTo("5114445555");
+    }
+
+    @Test
+    void otherNumbersKeepTheirDigits() {
+        assertThat(PhoneNumberNormalizer.normalize("+1 (212) 555-0100")).isEqualTo("12125550100");
+        assertThat(PhoneNumberNormalizer.normalize("00 1 212 555 0100")).isEqualTo("12125550100");
+        assertThat(PhoneNumberNormalizer.normalize("99988877")).isEqualTo("99988877");
+        assertThat(PhoneNumberNormalizer.normalize("0999888777")).isEqualTo("0999888777");
+    }
+
+    @Test
+    void valuesWithoutDigitsAreNull() {
+        assertThat(PhoneNumberNormalizer.normalize(null)).isNull();
+        assertThat(PhoneNumberNormalizer.normalize("")).isNull();
+        assertThat(PhoneNumberNormalizer.normalize("sin número")).isNull();
+        assertThat(PhoneNumberNormalizer.normalize("@999888777")).isNull();
+    }
+
+    @Test
+    void matchesGeneratedColumn() {
+        for (String value : SAMPLES) {
+            assertThat(PhoneNumberNormalizer.normalize(value)).as(String.valueOf(value))
+                    .isEqualTo(telefonoNormalizado(value));
+        }
+    }
+
+    /**
+     * Traducción literal del CASE de V35 para tipo_contacto = 'telefono', rama por rama y en el
+     * mismo orden. Si cambia la migración, este método y PhoneNumberNormalizer cambian juntos.
+     */
+    private static String telefonoNormalizado(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        // SUBSTRING_INDEX(valor, '@', 1)
+        int at = valor.indexOf('@');
+        String local = at >= 0 ? valor.substring(0, at) : valor;
+        // REGEXP_REPLACE(..., '[^0-9]', '')
+        String d = local.replaceAll("[^0-9]", "");
+
+        if (d.isEmpty()) {
+            return null;
+        }
+        if (d.length() == 9 && d.startsWith("9")) {
+            return "51" + d;
+        }
+        if (d.length() == 9 && d.startsWith("0")) {
+            // SUBSTRING(d, 2): 1-based
+            return "51" + d.substring(1);
+        }
+        if (d.startsWith("00")) {
+            // SUBSTRING(d, 3)
+            return d.substring(2);
+        }
+        return d;
+    }
+}
@@ -0,0 +1,179 @@
+package com.cashi.shared.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Reanudación con Range desde el último byte entregado (opener simulado).
+ */
+class RangeResumingInputStreamTest {
+
+    private static final byte[] CONTENT = randomBytes(50_000);
+
+    @Test
+    void readsWholeContentWithoutCuts() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        try (RangeResumingInputStream in = new RangeResumingInputStream(offset -> {
+            offsets.add(offset);
+            return from(offset);
+        }, 3)) {
+            assertThat(in.readAllBytes()).isEqualTo(CONTENT);
+            assertThat(in.position()).isEqualTo(CONTENT.length);
+        }
+        assertThat(offsets).containsExactly(0L);
+    }
+
+    @Test
+    void resumesFromLastDeliveredByteAfterCut() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        try (RangeResumingInputStream in = new RangeResumingInputStream(offset -> {
+            offsets.add(offset);
+            // La primera conexión se corta a los 20.000 bytes
+            return offset == 0 ? cutAfter(from(0), 20_000) : from(offset);
+        }, 3)) {
+            assertThat(in.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(offsets).containsExactly(0L, 20_000L);
+    }
+
+    @Test
+    void singleByteReadsFollowTheSamePosition() throws Exception {
+        try (RangeResumingInputStream in = new RangeResumingInputStream(
+                offset -> offset == 0 ? cutAfter(from(0), 3) : from(offset), 1)) {
+            for (int i = 0; i < 5; i++) {
+                assertThat(in.read()).isEqualTo(CONTENT[i] & 0xFF);
+            }
+            assertThat(in.position()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsWithoutProgress() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        RangeResumingInputStream in = new RangeResumingInputStream(offset -> {
+            offsets.add(offset);
+            if (offset == 0) {
+                return cutAfter(from(0), 100);
+            }
+            throw new IOException("servidor caído");
+        }, 1);
+
+        byte[] buffer = new byte[CONTENT.length];
+        assertThatThrownBy(() -> in.readNBytes(buffer, 0, buffer.length))
+                .isInstanceOf(IOException.class)
+                .hasMessage("corte simulado")
+                .satisfies(e -> assertThat(e.getSuppressed()).extracting(Throwable::getMessage).containsExactly("servidor caído"));
+        assertThat(offsets).containsExactly(0L, 100L);
+        assertThat(in.position()).isEqualTo(100);
+    }
+
+    @Test
+    void zeroAttemptsFailsOnFirstCut() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        RangeResumingInputStream in = new RangeResumingInputStream(offset -> {
+            offsets.add(offset);
+            return cutAfter(from(offset), 10);
+        }, 0);
+
+        assertThatThrownBy(in::readAllBytes).isInstanceOf(IOException.class);
+        assertThat(offsets).containsExactly(0L);
+    }
+
+    @Test
+    void cleanEarlyEndIsResumedWhenSizeIsKnown() throws Exception {
+        List<Long> offsets = new ArrayList<>();
+        try (RangeResumingInputStream in = new RangeResumingInputStream(offset -> {
+            offsets.add(offset);
+            // El servidor cierra sin error a los 20.000 bytes: read() devuelve -1
+            return offset == 0 ? endAfter(from(0), 20_000) : from(offset);
+        }, 3, CONTENT.length)) {
+            assertThat(in.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(offsets).containsExactly(0L, 20_000L);
+    }
+
+    @Test
+    void cleanEarlyEndWithoutProgressFailsWhenSizeIsKnown() throws Exception {
+        RangeResumingInputStream in = new RangeResumingInputStream(
+                offset -> offset == 0 ? endAfter(from(0), 100) : endAfter(from(offset), 0), 1, CONTENT.length);
+
+        assertThatThrownBy(in::readAllBytes)
+                .isInstanceOf(EOFException.class)
+                .hasMessageContaining("100 de " + CONTENT.length);
+        assertThat(in.position()).isEqualTo(100);
+    }
+
+    @Test
+    void cleanEarlyEndIsTheEndWhenSizeIsUnknown() throws Exception {
+        try (RangeResumingInputStream in = new RangeResumingInputStream(offset -> endAfter(from(offset), 100), 3)) {
+            assertThat(in.readAllBytes()).hasSize(100);
+        }
+    }
+
+    @Test
+    void readAfterCloseFails() throws Exception {
+        RangeResumingInputStream in = new RangeResumingInputStream(RangeResumingInputStreamTest::from, 0);
+        in.close();
+
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class);
+    }
+
+    private static InputStream from(long offset) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, (int) offset, CONTENT.length));
+    }
+
+    /** Entrega limit bytes y luego falla como una conexión cortada. */
+    private static InputStream cutAfter(InputStream in, int limit) {
+        return new InputStream() {
+            private int delivered;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (delivered >= limit) {
+                    throw new IOException("corte simulado");
+                }
+                int n = in.read(b, off, Math.min(len, limit - delivered));
+                if (n > 0) {
+                    delivered += n;
+                }
+                return n;
+            }
+        };
+    }
+
+    /** Entrega limit bytes y luego termina limpiamente (-1), como un cierre sin error. */
+    private static InputStream endAfter(InputStream in, int limit) {
+        return new ByteArrayInputStream(readQuietly(in, limit));
+    }
+
+    private static byte[] readQuietly(InputStream in, int limit) {
+        try {
+            return in.readNBytes(limit);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(7).nextBytes(bytes);
+        return bytes;
+    }
+}
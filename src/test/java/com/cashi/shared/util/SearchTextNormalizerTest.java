@@ -0,0 +1,106 @@
+package com.cashi.shared.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Normalización de búsqueda por nombre y su paridad con clientes.nombre_busqueda (V34).
+ */
+class SearchTextNormalizerTest {
+
+    private static final String V34 = "db/migration/V34__add_fulltext_nombre_busqueda_clientes.sql";
+
+    private static final List<String> NAMES = List.of(
+            "José Pérez Ñahui",
+            "MARÍA DEL ROSARIO QUISPE",
+            "Ángela Müller-Öztürk",
+            "François  D'Ávila",
+            "Iñigo Çelik, Jr.",
+            "Raúl Gómez 2do",
+            "ÂNGELA ÃO ÊXITO ÎLE ÔNIX ÛBER",
+            "ana");
+
+    @Test
+    void normalizesCaseAccentsAndSeparators() {
+        assertThat(SearchTextNormalizer.normalize("  José   PÉREZ-Ñahui ")).isEqualTo("jose perez nahui");
+        assertThat(SearchTextNormalizer.normalize("D'Ávila, Çelik")).isEqualTo("d avila celik");
+        assertThat(SearchTextNormalizer.normalize("--")).isEmpty();
+        assertThat(SearchTextNormalizer.normalize(null)).isEmpty();
+    }
+
+    @Test
+    void termsAreDistinctAndRespectMinLength() {
+        assertThat(SearchTextNormalizer.terms("Ana a María ana", 2)).containsExactly("ana", "maria");
+        assertThat(SearchTextNormalizer.terms("  ", 2)).isEmpty();
+        assertThat(SearchTextNormalizer.terms(null, 2)).isEmpty();
+    }
+
+    @Test
+    void accentTableMatchesGeneratedColumn() throws IOException {
+        Map<String, String> replacements = v34Replacements();
+
+        // Cada reemplazo de V34 es el mismo que hace Java...
+        assertThat(replacements).hasSize(24);
+        replacements.forEach((accented, plain) ->
+                assertThat(SearchTextNormalizer.normalize(accented)).as(accented).isEqualTo(plain));
+
+        // ...y Java no normaliza ninguna letra acentuada que V34 deje tal cual
+        for (char c = 'à'; c <= 'ÿ'; c++) {
+            String letter = String.valueOf(c);
+            if (!replacements.containsKey(letter) && Character.isLetter(c)) {
+                assertThat(SearchTextNormalizer.normalize(letter)).as(letter).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    void everySearchTermOfANameIsFoundInItsGeneratedColumn() throws IOException {
+        Map<String, String> replacements = v34Replacements();
+
+        for (String name : NAMES) {
+            String column = nombreBusqueda(name, replacements);
+            for (String term : SearchTextNormalizer.terms(name, 2)) {
+                assertThat(column).as(name).contains(term);
+            }
+            // Salvo separadores, la columna y la normalización de Java son iguales
+            assertThat(column.replaceAll("[^a-z0-9]+", " ").trim()).as(name)
+                    .isEqualTo(SearchTextNormalizer.normalize(name));
+        }
+    }
+
+    /**
+     * Pares 'acentuada' -> 'base' de la cadena de REPLACE de V34, en orden.
+     */
+    private static Map<String, String> v34Replacements() throws IOException {
+        String sql;
+        try (InputStream in = SearchTextNormalizerTest.class.getClassLoader().getResourceAsStream(V34)) {
+            assertThat(in).as(V34).isNotNull();
+            sql = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Map<String, String> replacements = new LinkedHashMap<>();
+        Matcher m = Pattern.compile("'(\\p{L})', '(\\p{L})'\\)").matcher(sql);
+        while (m.find()) {
+            replacements.put(m.group(1), m.group(2));
+        }
+        return replacements;
+    }
+
+    /** REPLACE(...(LOWER(nombre_completo))...) de V34 */
+    private static String nombreBusqueda(String name, Map<String, String> replacements) {
+        String value = name.toLowerCase();
+        for (Map.Entry<String, String> r : replacements.entrySet()) {
+            value = value.replace(r.getKey(), r.getValue());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,222 @@
+package com.cashi.shared.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Detección de separador/encoding y lectura en streaming de CSV.
+ */
+class StreamingCsvReaderTest {
+
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detectsDelimiterFromFirstLine() {
+        assertThat(sniff("a,b,c\n1,2,3", StandardCharsets.UTF_8).delimiter()).isEqualTo(',');
+        assertThat(sniff("a;b;c\n1;2;3", StandardCharsets.UTF_8).delimiter()).isEqualTo(';');
+        assertThat(sniff("a\tb\tc\n1\t2\t3", StandardCharsets.UTF_8).delimiter()).isEqualTo('\t');
+        assertThat(sniff("a|b|c\n1|2|3", StandardCharsets.UTF_8).delimiter()).isEqualTo('|');
+    }
+
+    @Test
+    void ignoresDelimitersInsideQuotesAndAfterFirstLine() {
+        assertThat(sniff("\"a,b,c\";d;e\n1,2,3,4,5,6", StandardCharsets.UTF_8).delimiter()).isEqualTo(';');
+    }
+
+    @Test
+    void commaWinsTiesAndSingleColumn() {
+        assertThat(sniff("a,b;c", StandardCharsets.UTF_8).delimiter()).isEqualTo(',');
+        assertThat(sniff("nombre\nAna", StandardCharsets.UTF_8).delimiter()).isEqualTo(',');
+    }
+
+    @Test
+    void detectsCharsetAndBom() {
+        StreamingCsvReader.Dialect utf8 = sniff("nombre;año\nJosé;2024", StandardCharsets.UTF_8);
+        assertThat(utf8.charset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(utf8.bomLength()).isZero();
+
+        StreamingCsvReader.Dialect ansi = sniff("nombre;año\nJosé;2024", WINDOWS_1252);
+        assertThat(ansi.charset()).isEqualTo(WINDOWS_1252);
+
+        byte[] withBom = concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, "a;b".getBytes(StandardCharsets.UTF_8));
+        StreamingCsvReader.Dialect bom = StreamingCsvReader.sniff(withBom, withBom.length);
+        assertThat(bom.charset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(bom.bomLength()).isEqualTo(3);
+        assertThat(bom.delimiter()).isEqualTo(';');
+
+        byte[] utf16 = concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, "a\tb".getBytes(StandardCharsets.UTF_16LE));
+        StreamingCsvReader.Dialect le = StreamingCsvReader.sniff(utf16, utf16.length);
+        assertThat(le.charset()).isEqualTo(StandardCharsets.UTF_16LE);
+        assertThat(le.bomLength()).isEqualTo(2);
+        assertThat(le.delimiter()).isEqualTo('\t');
+    }
+
+    @Test
+    void multibyteSequenceCutAtPrefixEndIsStillUtf8() {
+        byte[] bytes = "a;ñ".getBytes(StandardCharsets.UTF_8);
+        // Prefijo que corta la "ñ" (2 bytes) a la mitad
+        assertThat(StreamingCsvReader.sniff(bytes, bytes.length - 1).charset()).isEqualTo(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void readsFileSkippingBomAndTrimmingValues() throws Exception {
+        Path file = tempDir.resolve("clientes.csv");
+        Files.write(file, concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                "documento; nombre \n123; José \n\"456\";\"Pérez; Ana\"\n".getBytes(StandardCharsets.UTF_8)));
+
+        List<List<String>> rows = new ArrayList<>();
+        StreamingCsvReader.Dialect dialect = StreamingCsvReader.read(file, (recordNumber, values) -> {
+            rows.add(List.copyOf(values));
+            return true;
+        });
+
+        assertThat(dialect.delimiter()).isEqualTo(';');
+        assertThat(rows).containsExactly(
+                List.of("documento", "nombre"),
+                List.of("123", "José"),
+                List.of("456", "Pérez; Ana"));
+    }
+
+    @Test
+    void streamAndFileGiveSameRows() throws Exception {
+        byte[] content = "doc,nombre\n1,Señor\n2,Niño\n".getBytes(WINDOWS_1252);
+        Path file = tempDir.resolve("ansi.csv");
+        Files.write(file, content);
+
+        List<List<String>> fromFile = new ArrayList<>();
+        StreamingCsvReader.read(file, (recordNumber, values) -> fromFile.add(List.copyOf(values)));
+        List<List<String>> fromStream = new ArrayList<>();
+        StreamingCsvReader.read(new ByteArrayInputStream(content), (recordNumber, values) -> fromStream.add(List.copyOf(values)));
+
+        assertThat(fromFile).containsExactly(List.of("doc", "nombre"), List.of("1", "Señor"), List.of("2", "Niño"));
+        assertThat(fromStream).isEqualTo(fromFile);
+    }
+
+    @Test
+    void windows1252AccentPastThePrefixSwitchesCharsetInsteadOfReplacing() throws Exception {
+        // Prefijo de más de 64 KB solo ASCII (parece UTF-8) y un acento Windows-1252 después
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.writeBytes("doc;nombre\n".getBytes(StandardCharsets.US_ASCII));
+        int asciiRows = 0;
+        while (content.size() <= 70 * 1024) {
+            content.writeBytes((asciiRows++ + ";Ana\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        content.writeBytes("999;José Muñoz\n".getBytes(WINDOWS_1252));
+        Path file = tempDir.resolve("tardio.csv");
+        Files.write(file, content.toByteArray());
+
+        List<String> lastFromFile = new ArrayList<>();
+        StreamingCsvReader.Dialect fromFile = StreamingCsvReader.read(file, (recordNumber, values) -> {
+            lastFromFile.clear();
+            lastFromFile.addAll(values);
+            return true;
+        });
+        List<String> lastFromStream = new ArrayList<>();
+        StreamingCsvReader.Dialect fromStream = StreamingCsvReader.read(new ByteArrayInputStream(content.toByteArray()),
+                (recordNumber, values) -> {
+                    lastFromStream.clear();
+                    lastFromStream.addAll(values);
+                    return true;
+                });
+
+        assertThat(lastFromFile).containsExactly("999", "José Muñoz");
+        assertThat(lastFromStream).isEqualTo(lastFromFile);
+        assertThat(fromFile.charset()).isEqualTo(WINDOWS_1252);
+        assertThat(fromStream.charset()).isEqualTo(WINDOWS_1252);
+    }
+
+    @Test
+    void validUtf8KeepsUtf8Dialect() throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        StreamingCsvReader.Dialect dialect = StreamingCsvReader.read(
+                new ByteArrayInputStream("doc;nombre\n1;Peña\n".getBytes(StandardCharsets.UTF_8)),
+                (recordNumber, values) -> rows.add(List.copyOf(values)));
+
+        assertThat(dialect.charset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(rows).containsExactly(List.of("doc", "nombre"), List.of("1", "Peña"));
+    }
+
+    @Test
+    void malformedBytesInUtf8FileWithBomAreReported() throws Exception {
+        Path file = tempDir.resolve("bom-invalido.csv");
+        Files.write(file, concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                concat("doc;nombre\n1;".getBytes(StandardCharsets.UTF_8), "Muñoz\n".getBytes(WINDOWS_1252))));
+
+        assertThatThrownBy(() -> StreamingCsvReader.read(file, (recordNumber, values) -> true))
+                .isInstanceOf(CharacterCodingException.class);
+    }
+
+    @Test
+    void handlerCanStopReading() throws Exception {
+        Path file = tempDir.resolve("corto.csv");
+        Files.writeString(file, "a,b\n1,2\n3,4\n");
+
+        List<Long> seen = new ArrayList<>();
+        StreamingCsvReader.read(file, (recordNumber, values) -> {
+            seen.add(recordNumber);
+            return recordNumber < 1;
+        });
+
+        assertThat(seen).containsExactly(0L, 1L);
+    }
+
+    @Test
+    void readHeadersReturnsFirstRecord() throws Exception {
+        Path file = tempDir.resolve("cabeceras.csv");
+        Files.writeString(file, "\"Nombre\r\ncompleto\";Documento;Teléfono\r\nAna;1;999\r\n");
+
+        assertThat(StreamingCsvReader.readHeaders(file)).containsExactly("Nombre\r\ncompleto", "Documento", "Teléfono");
+    }
+
+    @Test
+    void readHeadersWithoutTrailingNewline() throws Exception {
+        Path file = tempDir.resolve("solo-cabecera.csv");
+        Files.writeString(file, "a|b|c");
+
+        assertThat(StreamingCsvReader.readHeaders(file)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void readHeadersLongerThanSniffPrefix() throws Exception {
+        // Primera línea de más de 64 KB: se sigue leyendo el archivo más allá del prefijo
+        StringBuilder line = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; line.length() < 70 * 1024; i++) {
+            String header = "columna_con_nombre_largo_" + i;
+            expected.add(header);
+            line.append(i == 0 ? "" : ";").append(header);
+        }
+        Path file = tempDir.resolve("ancho.csv");
+        Files.writeString(file, line + "\n1;2\n");
+
+        assertThat(StreamingCsvReader.readHeaders(file)).containsExactlyElementsOf(expected);
+    }
+
+    private static StreamingCsvReader.Dialect sniff(String text, Charset charset) {
+        byte[] bytes = text.getBytes(charset);
+        return StreamingCsvReader.sniff(bytes, bytes.length);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(a);
+        out.writeBytes(b);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,162 @@
+package com.cashi.shared.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lectura SAX de .xlsx: mismos valores que getCellValueAsString() sobre XSSFWorkbook.
+ */
+class StreamingXlsxReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void cellFormattingMatchesUserModel() throws Exception {
+        File file = writeSampleWorkbook();
+
+        List<List<String>> streamed = new ArrayList<>();
+        StreamingXlsxReader.read(file, (rowIndex, values) -> {
+            streamed.add(values);
+            return true;
+        });
+
+        assertThat(streamed).isEqualTo(readWithUserModel(file));
+        assertThat(streamed.get(1)).containsExactly(
+                "Ana Pérez", "12345", "2024-03-15", "true", "B2*2", "", "texto");
+    }
+
+    @Test
+    void streamAndFileGiveSameRows() throws Exception {
+        File file = writeSampleWorkbook();
+
+        List<List<String>> fromFile = new ArrayList<>();
+        StreamingXlsxReader.read(file, (rowIndex, values) -> fromFile.add(values));
+        List<List<String>> fromStream = new ArrayList<>();
+        try (InputStream in = new FileInputStream(file)) {
+            StreamingXlsxReader.read(in, (rowIndex, values) -> fromStream.add(values));
+        }
+
+        assertThat(fromStream).isEqualTo(fromFile);
+    }
+
+    @Test
+    void handlerCanStopReading() throws Exception {
+        File file = writeSampleWorkbook();
+
+        List<Integer> seen = new ArrayList<>();
+        StreamingXlsxReader.read(file, (rowIndex, values) -> {
+            seen.add(rowIndex);
+            return false;
+        });
+
+        assertThat(seen).containsExactly(0);
+    }
+
+    @Test
+    void readHeadersReturnsOnlyFirstRow() throws Exception {
+        File file = writeSampleWorkbook();
+
+        assertThat(StreamingXlsxReader.readHeaders(file))
+                .containsExactly("Nombre", "Deuda", "Fecha", "Activo", "Formula", "Vacia", "Extra");
+    }
+
+    @Test
+    void readHeadersOfEmptySheetIsEmpty() throws Exception {
+        File file = tempDir.resolve("vacio.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+            workbook.createSheet("Hoja1");
+            workbook.write(out);
+        }
+
+        assertThat(StreamingXlsxReader.readHeaders(file)).isEmpty();
+    }
+
+    /**
+     * Cabeceras + una fila con texto con espacios, número decimal, fecha, booleano, fórmula,
+     * una celda sin crear en medio y texto final.
+     */
+    private File writeSampleWorkbook() throws IOException {
+        File file = tempDir.resolve("clientes.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook(); FileOutputStream out = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Hoja1");
+            Row header = sheet.createRow(0);
+            String[] names = {"Nombre", "Deuda", "Fecha", "Activo", "Formula", "Vacia", "Extra"};
+            for (int i = 0; i < names.length; i++) {
+                header.createCell(i).setCellValue(names[i]);
+            }
+
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("  Ana Pérez ");
+            row.createCell(1).setCellValue(12345.9);
+            Cell date = row.createCell(2);
+            date.setCellValue(LocalDate.of(2024, 3, 15));
+            date.setCellStyle(dateStyle);
+            row.createCell(3).setCellValue(true);
+            row.createCell(4).setCellFormula("B2*2");
+            row.createCell(6).setCellValue("texto");
+
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    private static List<List<String>> readWithUserModel(File file) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (Workbook workbook = new XSSFWorkbook(file)) {
+            for (Row row : workbook.getSheetAt(0)) {
+                List<String> values = new ArrayList<>();
+                for (int c = 0; c < row.getLastCellNum(); c++) {
+                    values.add(getCellValueAsString(row.getCell(c)));
+                }
+                rows.add(values);
+            }
+        } catch (org.apache.poi.openxml4j.exceptions.InvalidFormatException e) {
+            throw new IOException(e);
+        }
+        return rows;
+    }
+
+    // Copia de la conversión de los servicios de importación (modelo de usuario)
+    private static String getCellValueAsString(Cell cell) {
+        if (cell == null) return "";
+
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue().trim();
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    return cell.getLocalDateTimeCellValue().toLocalDate().toString();
+                }
+                return String.valueOf((long) cell.getNumericCellValue());
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanCellValue());
+            case FORMULA:
+                return cell.getCellFormula();
+            default:
+                return "";
+        }
+    }
+}